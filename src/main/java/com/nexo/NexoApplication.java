@@ -54,6 +54,7 @@ public class NexoApplication {
         System.exit(1);
       }
       NexoConfig config = NexoConfig.load(Paths.get(configPath));
+      NexoConfig.setInstance(config);
 
       NexoApplication app = new NexoApplication(config);
 
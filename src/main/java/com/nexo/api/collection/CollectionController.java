@@ -1,22 +1,152 @@
 package com.nexo.api.collection;
 
+import com.nexo.collection.CollectionManager;
+import com.nexo.collection.CollectionName;
+import com.nexo.config.NexoConfig;
+import com.nexo.exception.CollectionException;
+import com.nexo.exception.ErrorType;
+import com.nexo.exception.NexoException;
+import com.nexo.index.ForceMergeStatus;
+import com.nexo.index.MergeScheduler;
+import com.nexo.index.UsearchIndex;
+import com.nexo.index.VectorIndexStats;
+import com.nexo.schema.SchemaBuilder;
+import com.nexo.search.SearchPool;
+import com.nexo.server.PathParams;
+import com.nexo.server.QueryParams;
 import com.nexo.server.annotation.Controller;
 import com.nexo.server.annotation.HttpMethod;
 import com.nexo.server.annotation.Route;
 import jakarta.validation.Valid;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Controller("/collections")
 public class CollectionController {
 
+  private static final int MAX_RECALL_SAMPLE = 1000;
+
+  /**
+   * Creates a collection with the requested fields. Fields marked as vector get a vector index
+   * each; the vector settings the request leaves unset come from the config.
+   */
   @Route(method = HttpMethod.POST)
   public CollectionRequest create(@Valid CollectionRequest collectionRequest) {
-    if (collectionRequest.getFields() != null) {
-      for (FieldRequest field : collectionRequest.getFields()) {
-        field.validate();
-      }
+    SchemaBuilder schema = collectionRequest.toSchema();
+    CollectionName name = CollectionName.of(collectionRequest.getName());
+    CollectionManager collectionManager = CollectionManager.getInstance();
+    if (collectionManager.collectionExists(name)) {
+      throw NexoException.conflict("Collection already exists: " + name);
+    }
+    try {
+      collectionManager.createCollection(name, schema, collectionRequest.toSettings());
+    } catch (CollectionException e) {
+      // Failures with a cause come from the disk, the others from the request.
+      throw e.getCause() != null
+          ? NexoException.internalError(e.getMessage(), e)
+          : NexoException.badRequest(e.getMessage());
     }
-
-    // TODO: Implement create collection logic
     return collectionRequest;
   }
+
+  /**
+   * Merges the segments of a collection down to {@code max_segments} (default 1) in the background.
+   * Meant for collections that are no longer written to; progress is reported by the GET route.
+   */
+  @Route(path = "/:name/_forcemerge", method = HttpMethod.POST)
+  public ForceMergeStatus forceMerge(PathParams pathParams, QueryParams queryParams) {
+    String name = existingCollection(pathParams);
+    int maxSegments;
+    try {
+      maxSegments = Integer.parseInt(queryParams.getOrDefault("max_segments", "1"));
+    } catch (NumberFormatException e) {
+      throw NexoException.badRequest("max_segments must be an integer");
+    }
+    if (maxSegments < 1) {
+      throw NexoException.badRequest("max_segments must be positive");
+    }
+    return MergeScheduler.getInstance().forceMerge(name, maxSegments);
+  }
+
+  @Route(path = "/:name/_forcemerge", method = HttpMethod.GET)
+  public ForceMergeStatus forceMergeStatus(PathParams pathParams) {
+    String name = existingCollection(pathParams);
+    ForceMergeStatus status = MergeScheduler.getInstance().getForceMergeStatus(name);
+    if (status == null) {
+      throw NexoException.notFound("No force merge has been requested for collection " + name);
+    }
+    return status;
+  }
+
+  /**
+   * Reports the memory footprint of the collection's vector index. With {@code recall_sample} set,
+   * also estimates recall at {@code recall_k} (default 10) against an exact scan, which reads every
+   * stored vector once and is meant for occasional checks. {@code recall_k} is capped like the
+   * {@code k} of a search, and the estimate runs on the search pool within {@code searchTimeoutMs}.
+   * {@code field} picks the vector field, the collection's default one if omitted.
+   */
+  @Route(path = "/:name/_vector_stats", method = HttpMethod.GET)
+  public CompletableFuture<VectorIndexStats> vectorStats(
+      PathParams pathParams, QueryParams queryParams) {
+    String name = existingCollection(pathParams);
+    int recallSample = intParam(queryParams, "recall_sample", 0);
+    int recallK = intParam(queryParams, "recall_k", 10);
+    if (recallSample < 0 || recallSample > MAX_RECALL_SAMPLE) {
+      throw NexoException.badRequest("recall_sample must be between 0 and " + MAX_RECALL_SAMPLE);
+    }
+    int maxK = NexoConfig.getInstance().getMaxK();
+    if (recallK < 1 || recallK > maxK) {
+      throw NexoException.badRequest("recall_k must be between 1 and " + maxK);
+    }
+    UsearchIndex index =
+        CollectionManager.getInstance()
+            .getCollection(CollectionName.of(name))
+            .getVectorIndex(queryParams.get("field"));
+    long timeoutMs = NexoConfig.getInstance().getSearchTimeoutMs();
+    CompletableFuture<VectorIndexStats> stats;
+    try {
+      stats =
+          CompletableFuture.supplyAsync(
+              () -> index.stats(recallSample, recallK), SearchPool.executor());
+    } catch (RejectedExecutionException e) {
+      throw new NexoException(ErrorType.SERVICE_UNAVAILABLE, "Search pool is saturated");
+    }
+    return stats
+        .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+        .exceptionally(
+            error -> {
+              Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+              if (cause instanceof TimeoutException) {
+                throw new NexoException(
+                    ErrorType.GATEWAY_TIMEOUT,
+                    String.format(
+                        "Vector stats of collection %s timed out after %d ms", name, timeoutMs));
+              }
+              throw error instanceof CompletionException completion
+                  ? completion
+                  : new CompletionException(error);
+            });
+  }
+
+  private static int intParam(QueryParams queryParams, String name, int defaultValue) {
+    try {
+      return Integer.parseInt(queryParams.getOrDefault(name, String.valueOf(defaultValue)));
+    } catch (NumberFormatException e) {
+      throw NexoException.badRequest(name + " must be an integer");
+    }
+  }
+
+  private static String existingCollection(PathParams pathParams) {
+    try {
+      return CollectionManager.getInstance()
+          .getCollection(CollectionName.of(pathParams.get("name")))
+          .getMetadata()
+          .getName();
+    } catch (CollectionException e) {
+      throw NexoException.notFound(e.getMessage());
+    }
+  }
 }
@@ -1,10 +1,19 @@
 package com.nexo.api.collection;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.nexo.collection.CollectionSettings;
+import com.nexo.collection.VectorField;
+import com.nexo.enums.PrecisionType;
+import com.nexo.schema.SchemaBuilder;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Pattern;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -22,4 +31,63 @@ public class CollectionRequest {
   @NotEmpty(message = "At least one field is required")
   @Valid
   private List<FieldRequest> fields;
+
+  // Overrides of the vectorIndex config, fixed for the collection once it is created.
+  @JsonProperty("vector_quantization")
+  private String vectorQuantization;
+
+  @Min(value = 1, message = "vector_shards must be positive")
+  @JsonProperty("vector_shards")
+  private Integer vectorShards;
+
+  @JsonProperty("read_mostly")
+  private boolean readMostly;
+
+  /**
+   * The keyword schema of the requested fields. Fields are indexed and stored; a facet field is
+   * also fast.
+   *
+   * @throws IllegalArgumentException if a field is invalid, repeated or of an unsupported type
+   */
+  public SchemaBuilder toSchema() {
+    SchemaBuilder schema = new SchemaBuilder();
+    Set<String> names = new HashSet<>();
+    for (FieldRequest field : fields) {
+      field.validate();
+      if (!names.add(field.getName())) {
+        throw new IllegalArgumentException("Duplicate field: " + field.getName());
+      }
+      switch (field.getType()) {
+        case TEXT -> schema.addTextField(field.getName(), field.isFacet(), true, null, null);
+        case I64, F64, U64 ->
+            schema.addNumericField(
+                field.getName(), field.getType(), true, true, field.isFacet(), false);
+        case DATE ->
+            schema.addDateField(
+                field.getName(), true, true, field.isFacet(), false, PrecisionType.SECONDS);
+        default ->
+            throw new IllegalArgumentException(
+                String.format(
+                    "Field '%s' has type '%s', which collections do not support yet.",
+                    field.getName(), field.getType().getJsonValue()));
+      }
+    }
+    return schema;
+  }
+
+  /** The settings the collection is created with; those left unset come from the config. */
+  public CollectionSettings toSettings() {
+    List<VectorField> vectorFields = new ArrayList<>();
+    for (FieldRequest field : fields) {
+      if (field.isVector()) {
+        vectorFields.add(field.toVectorField());
+      }
+    }
+    return CollectionSettings.builder()
+        .vectorQuantization(vectorQuantization)
+        .vectorFields(vectorFields)
+        .vectorShards(vectorShards)
+        .readMostly(readMostly)
+        .build();
+  }
 }
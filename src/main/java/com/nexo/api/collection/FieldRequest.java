@@ -2,7 +2,11 @@ package com.nexo.api.collection;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.nexo.collection.VectorField;
+import com.nexo.config.NexoConfig.VectorIndexConfig;
 import com.nexo.enums.FieldType;
+import com.nexo.index.VectorMetric;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -32,6 +36,17 @@ public class FieldRequest {
   @JsonProperty("vector")
   private boolean vector;
 
+  // Settings of the field's own vector index; unset values come from vectorIndex.
+  @Min(value = 1, message = "Vector dimension must be positive")
+  @JsonProperty("dimension")
+  private Integer dimension;
+
+  @JsonProperty("metric")
+  private String metric;
+
+  @JsonProperty("quantization")
+  private String quantization;
+
   public void validate() {
     if (vector && type != FieldType.TEXT) {
       throw new IllegalArgumentException(
@@ -46,5 +61,21 @@ public class FieldRequest {
               "Field '%s' has type 'VECTOR' which is not allowed. Use type 'TEXT' with vector=true instead.",
               name));
     }
+
+    if (!vector && (dimension != null || metric != null || quantization != null)) {
+      throw new IllegalArgumentException(
+          String.format("Field '%s' sets vector index options but is not marked as vector.", name));
+    }
+    if (metric != null) {
+      VectorMetric.of(metric);
+    }
+    if (quantization != null) {
+      VectorIndexConfig.checkQuantization(quantization);
+    }
+  }
+
+  /** The vector field this field declares, with unset settings left to {@code vectorIndex}. */
+  public VectorField toVectorField() {
+    return new VectorField(name, dimension != null ? dimension : 0, metric, quantization);
   }
 }
@@ -0,0 +1,34 @@
+package com.nexo.api.document;
+
+import com.nexo.collection.Collection;
+import com.nexo.collection.CollectionManager;
+import com.nexo.collection.CollectionName;
+import com.nexo.document.DocumentManager;
+import com.nexo.exception.CollectionException;
+import com.nexo.exception.NexoException;
+import com.nexo.index.BulkResult;
+import com.nexo.server.PathParams;
+import com.nexo.server.RequestContext;
+import com.nexo.server.annotation.Controller;
+import com.nexo.server.annotation.HttpMethod;
+import com.nexo.server.annotation.Route;
+import io.netty.util.CharsetUtil;
+import java.util.concurrent.CompletableFuture;
+
+@Controller("/collections")
+public class DocumentController {
+
+  @Route(path = "/:name/documents", method = HttpMethod.POST)
+  public CompletableFuture<BulkResult> add(PathParams pathParams, RequestContext requestContext) {
+    Collection collection;
+    try {
+      collection =
+          CollectionManager.getInstance().getCollection(CollectionName.of(pathParams.get("name")));
+    } catch (CollectionException e) {
+      throw NexoException.notFound(e.getMessage());
+    }
+
+    String body = requestContext.getRequest().content().toString(CharsetUtil.UTF_8);
+    return new DocumentManager(collection).submitDocuments(body);
+  }
+}
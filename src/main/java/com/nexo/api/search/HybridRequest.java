@@ -0,0 +1,60 @@
+package com.nexo.api.search;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.nexo.enums.FusionMethod;
+import com.nexo.search.HybridQuery;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class HybridRequest {
+
+  @NotBlank(message = "Query text is required")
+  @JsonProperty("query")
+  private String query;
+
+  @NotNull(message = "Query vector is required")
+  @JsonProperty("vector")
+  private float[] vector;
+
+  @JsonProperty("field")
+  private String field;
+
+  @Min(value = 1, message = "k must be positive")
+  @JsonProperty("k")
+  private int k = 10;
+
+  @Min(value = 1, message = "num_candidates must be positive")
+  @JsonProperty("num_candidates")
+  private Integer numCandidates;
+
+  @Min(value = 1, message = "expansion_search must be positive")
+  @JsonProperty("expansion_search")
+  private Integer expansionSearch;
+
+  @JsonProperty("fusion")
+  private FusionMethod fusion = FusionMethod.RRF;
+
+  @Min(value = 1, message = "rank_constant must be positive")
+  @JsonProperty("rank_constant")
+  private int rankConstant = HybridQuery.DEFAULT_RANK_CONSTANT;
+
+  @DecimalMin(value = "0", message = "vector_weight must be between 0 and 1")
+  @DecimalMax(value = "1", message = "vector_weight must be between 0 and 1")
+  @JsonProperty("vector_weight")
+  private float vectorWeight = 0.5f;
+
+  @Min(value = 1, message = "keyword_timeout_ms must be positive")
+  @JsonProperty("keyword_timeout_ms")
+  private Long keywordTimeoutMs;
+
+  @Min(value = 1, message = "vector_timeout_ms must be positive")
+  @JsonProperty("vector_timeout_ms")
+  private Long vectorTimeoutMs;
+}
@@ -0,0 +1,41 @@
+package com.nexo.api.search;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.nexo.enums.ChunkAggregate;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class KnnRequest {
+
+  @NotNull(message = "Query vector is required")
+  @JsonProperty("vector")
+  private float[] vector;
+
+  @JsonProperty("field")
+  private String field;
+
+  @Min(value = 1, message = "k must be positive")
+  @JsonProperty("k")
+  private int k = 10;
+
+  @Min(value = 1, message = "expansion_search must be positive")
+  @JsonProperty("expansion_search")
+  private Integer expansionSearch;
+
+  @JsonProperty("filter")
+  private String filter;
+
+  @JsonProperty("group_by_document")
+  private boolean groupByDocument;
+
+  @JsonProperty("aggregate")
+  private ChunkAggregate aggregate = ChunkAggregate.MAX;
+
+  @Min(value = 1, message = "timeout_ms must be positive")
+  @JsonProperty("timeout_ms")
+  private Long timeoutMs;
+}
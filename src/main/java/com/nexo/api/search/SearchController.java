@@ -0,0 +1,100 @@
+package com.nexo.api.search;
+
+import com.nexo.collection.Collection;
+import com.nexo.collection.CollectionManager;
+import com.nexo.collection.CollectionName;
+import com.nexo.config.NexoConfig;
+import com.nexo.enums.FusionMethod;
+import com.nexo.exception.CollectionException;
+import com.nexo.exception.NexoException;
+import com.nexo.search.HybridQuery;
+import com.nexo.search.HybridResult;
+import com.nexo.search.KnnResult;
+import com.nexo.search.SearchManager;
+import com.nexo.server.PathParams;
+import com.nexo.server.annotation.Controller;
+import com.nexo.server.annotation.HttpMethod;
+import com.nexo.server.annotation.Route;
+import jakarta.validation.Valid;
+import java.util.concurrent.CompletableFuture;
+
+@Controller("/collections")
+public class SearchController {
+
+  /**
+   * Returns the {@code k} chunks nearest to the query vector with their document ids and distances.
+   * {@code expansion_search} raises the candidate list of this query only; {@code filter}, a query
+   * in Tantivy syntax such as {@code tenant:acme AND _timestamp:>=2024-01-01T00:00:00Z}, restricts
+   * the hits to matching documents; {@code timeout_ms} defaults to {@code searchTimeoutMs}. {@code
+   * field} picks the vector field to search, the collection's default one if omitted. With {@code
+   * group_by_document} the result lists the {@code k} nearest documents instead of chunks, each
+   * scored by the {@code aggregate} of its matching chunks.
+   */
+  @Route(path = "/:name/_knn", method = HttpMethod.POST)
+  public CompletableFuture<KnnResult> knn(PathParams pathParams, @Valid KnnRequest request) {
+    Collection collection = existingCollection(pathParams);
+    SearchManager searchManager = new SearchManager(collection, request.getField());
+    int expansionSearch = request.getExpansionSearch() != null ? request.getExpansionSearch() : 0;
+    long timeoutMs =
+        request.getTimeoutMs() != null
+            ? request.getTimeoutMs()
+            : NexoConfig.getInstance().getSearchTimeoutMs();
+    if (request.isGroupByDocument()) {
+      return searchManager.knnDocuments(
+          request.getVector(),
+          request.getK(),
+          expansionSearch,
+          request.getFilter(),
+          request.getAggregate(),
+          timeoutMs);
+    }
+    return searchManager.knn(
+        request.getVector(), request.getK(), expansionSearch, request.getFilter(), timeoutMs);
+  }
+
+  /**
+   * Runs a BM25 query and a vector query concurrently and fuses their hits per document with
+   * reciprocal rank fusion or a weighted blend of normalized scores. Each leg has its own timeout,
+   * defaulting to {@code searchTimeoutMs}; a leg that misses it is dropped and listed under {@code
+   * degraded} instead of failing the search.
+   */
+  @Route(path = "/:name/_hybrid", method = HttpMethod.POST)
+  public CompletableFuture<HybridResult> hybrid(
+      PathParams pathParams, @Valid HybridRequest request) {
+    Collection collection = existingCollection(pathParams);
+    long defaultTimeoutMs = NexoConfig.getInstance().getSearchTimeoutMs();
+    return new SearchManager(collection, request.getField())
+        .hybrid(
+            HybridQuery.builder()
+                .query(request.getQuery())
+                .vector(request.getVector())
+                .k(request.getK())
+                .numCandidates(
+                    request.getNumCandidates() != null
+                        ? request.getNumCandidates()
+                        : Math.max(request.getK(), HybridQuery.DEFAULT_CANDIDATES))
+                .expansionSearch(
+                    request.getExpansionSearch() != null ? request.getExpansionSearch() : 0)
+                .fusion(request.getFusion() != null ? request.getFusion() : FusionMethod.RRF)
+                .rankConstant(request.getRankConstant())
+                .vectorWeight(request.getVectorWeight())
+                .keywordTimeoutMs(
+                    request.getKeywordTimeoutMs() != null
+                        ? request.getKeywordTimeoutMs()
+                        : defaultTimeoutMs)
+                .vectorTimeoutMs(
+                    request.getVectorTimeoutMs() != null
+                        ? request.getVectorTimeoutMs()
+                        : defaultTimeoutMs)
+                .build());
+  }
+
+  private static Collection existingCollection(PathParams pathParams) {
+    try {
+      return CollectionManager.getInstance()
+          .getCollection(CollectionName.of(pathParams.get("name")));
+    } catch (CollectionException e) {
+      throw NexoException.notFound(e.getMessage());
+    }
+  }
+}
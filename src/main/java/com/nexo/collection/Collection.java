@@ -1,15 +1,137 @@
 package com.nexo.collection;
 
+import com.nexo.config.NexoConfig;
+import com.nexo.document.DocumentSchema;
+import com.nexo.index.CommitPolicy;
+import com.nexo.index.IngestPipeline;
 import com.nexo.index.TantivyIndex;
 import com.nexo.index.UsearchIndex;
-import lombok.AllArgsConstructor;
+import com.nexo.index.WriteAheadLog;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Getter
-@AllArgsConstructor
 public class Collection {
 
+  /** Name of the single vector index of a collection without vector fields. */
+  public static final String DEFAULT_VECTOR_FIELD = "_default";
+
   private final CollectionMetadata metadata;
   private final TantivyIndex tantivyIndex;
-  private final UsearchIndex usearchIndex;
+  // Vector indexes by field name, the default first.
+  private final Map<String, UsearchIndex> vectorIndexes;
+  private final WriteAheadLog writeAheadLog;
+
+  private volatile IngestPipeline ingestPipeline;
+  private volatile DocumentSchema documentSchema;
+
+  public Collection(
+      CollectionMetadata metadata,
+      TantivyIndex tantivyIndex,
+      UsearchIndex usearchIndex,
+      WriteAheadLog writeAheadLog) {
+    this(metadata, tantivyIndex, Map.of(DEFAULT_VECTOR_FIELD, usearchIndex), writeAheadLog);
+  }
+
+  /** {@code vectorIndexes} must iterate in field order, the default field first. */
+  public Collection(
+      CollectionMetadata metadata,
+      TantivyIndex tantivyIndex,
+      Map<String, UsearchIndex> vectorIndexes,
+      WriteAheadLog writeAheadLog) {
+    if (vectorIndexes.isEmpty()) {
+      throw new IllegalArgumentException("A collection needs at least one vector index");
+    }
+    this.metadata = metadata;
+    this.tantivyIndex = tantivyIndex;
+    this.vectorIndexes = Collections.unmodifiableMap(new LinkedHashMap<>(vectorIndexes));
+    this.writeAheadLog = writeAheadLog;
+  }
+
+  /** The vector index of the default vector field. */
+  public UsearchIndex getUsearchIndex() {
+    return vectorIndexes.values().iterator().next();
+  }
+
+  /** Name of the default vector field. */
+  public String getDefaultVectorField() {
+    return vectorIndexes.keySet().iterator().next();
+  }
+
+  /**
+   * The vector index of {@code field}, or of the default field if it is null.
+   *
+   * @throws IllegalArgumentException if the collection has no such vector field
+   */
+  public UsearchIndex getVectorIndex(String field) {
+    if (field == null) {
+      return getUsearchIndex();
+    }
+    UsearchIndex index = vectorIndexes.get(field);
+    if (index == null) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Collection %s has no vector field '%s', expected one of %s",
+              metadata.getName(), field, vectorIndexes.keySet()));
+    }
+    return index;
+  }
+
+  /** Field layout of this collection, resolved from its metadata on first use. */
+  public DocumentSchema getDocumentSchema() {
+    DocumentSchema schema = documentSchema;
+    if (schema == null) {
+      schema = DocumentSchema.of(metadata.getFields());
+      documentSchema = schema;
+    }
+    return schema;
+  }
+
+  /** Returns the ingest pipeline of this collection, starting its writer on first use. */
+  public IngestPipeline getIngestPipeline() {
+    IngestPipeline pipeline = ingestPipeline;
+    if (pipeline != null) {
+      return pipeline;
+    }
+    synchronized (this) {
+      if (ingestPipeline == null) {
+        NexoConfig config = NexoConfig.getInstance();
+        ingestPipeline =
+            new IngestPipeline(
+                metadata.getName(),
+                tantivyIndex,
+                writeAheadLog,
+                config.getIngestQueueCapacity(),
+                config.getIngestThreadsPerCollection(),
+                CommitPolicy.resolve(
+                    metadata.getCommitPolicy(), config.getKeywordIndex().getCommit()));
+      }
+      return ingestPipeline;
+    }
+  }
+
+  /** Drains pending writes and releases the index handles. */
+  public synchronized void close() {
+    if (ingestPipeline != null) {
+      ingestPipeline.close();
+      ingestPipeline = null;
+    }
+    writeAheadLog.close();
+    tantivyIndex.close();
+    for (Map.Entry<String, UsearchIndex> entry : vectorIndexes.entrySet()) {
+      try {
+        entry.getValue().close();
+      } catch (Exception e) {
+        log.warn(
+            "Error closing vector index {} of collection: {}",
+            entry.getKey(),
+            metadata.getName(),
+            e);
+      }
+    }
+  }
 }
@@ -5,16 +5,32 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.nexo.config.NexoConfig;
+import com.nexo.config.NexoConfig.VectorIndexConfig;
+import com.nexo.enums.FieldType;
 import com.nexo.exception.CollectionException;
+import com.nexo.index.MergeScheduler;
 import com.nexo.index.TantivyIndex;
 import com.nexo.index.UsearchIndex;
+import com.nexo.index.VectorSnapshotScheduler;
+import com.nexo.index.WriteAheadLog;
+import com.nexo.schema.Field;
 import com.nexo.schema.SchemaBuilder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
@@ -28,6 +44,8 @@ public class CollectionManager {
   private static final Object LOCK = new Object();
 
   private final Map<CollectionName, Collection> collections = new ConcurrentHashMap<>();
+  // Meters registered for each collection, removed with it so a recreated one reports afresh.
+  private final Map<CollectionName, List<Meter.Id>> meters = new ConcurrentHashMap<>();
 
   /**
    * Maximum number of collections allowed per instance. This is a hard limit to prevent resource
@@ -38,6 +56,7 @@ public class CollectionManager {
   private static final String COLLECTION_METADATA_FILE = "collection.json";
   private static final String KEYWORD_INDEX_DIR = "index";
   private static final String VECTOR_INDEX = "vectors.nexo";
+  private static final String VECTOR_FIELDS_DIR = "vectors";
 
   private final Path basePath;
   private final ObjectMapper objectMapper;
@@ -86,25 +105,38 @@ public class CollectionManager {
         try {
           String collectionId = collectionDir.getFileName().toString();
           Path keywordIndexPath = getKeywordIndexPath(collectionId);
-          Path vectorIndexPath = getVectorIndexPath(collectionId);
 
           if (!Files.exists(keywordIndexPath)) {
             log.warn("Keyword index missing for collection: {}, skipping", collectionId);
             failedCount++;
             continue;
           }
-          if (!Files.exists(vectorIndexPath)) {
+
+          CollectionMetadata metadata = loadCollectionMetadata(collectionDir);
+          Map<String, UsearchIndex> vectorIndexes = vectorIndexes(metadata);
+          Map<String, Path> vectorIndexPaths = vectorIndexPaths(collectionId, vectorIndexes);
+          if (!vectorIndexPaths.values().stream().allMatch(Files::exists)) {
             log.warn("Vector index missing for collection: {}, skipping", collectionId);
             failedCount++;
             continue;
           }
 
-          CollectionMetadata metadata = loadCollectionMetadata(collectionDir);
           CollectionName name = CollectionName.of(metadata.getName());
-          TantivyIndex tantivyIndex = new TantivyIndex(keywordIndexPath);
-          UsearchIndex usearchIndex = new UsearchIndex();
-          Collection collection = new Collection(metadata, tantivyIndex, usearchIndex);
-          collections.put(name, collection);
+          TantivyIndex tantivyIndex =
+              new TantivyIndex(
+                  keywordIndexPath,
+                  keywordIndexConfig()
+                      .writerBudget(metadata.getWriterHeapSize(), metadata.getWriterThreads()),
+                  keywordIndexConfig().getMerge());
+          for (Map.Entry<String, UsearchIndex> entry : vectorIndexes.entrySet()) {
+            entry
+                .getValue()
+                .open(vectorIndexPaths.get(entry.getKey()).toString(), metadata.isReadMostly());
+          }
+          WriteAheadLog wal = WriteAheadLog.open(collectionDir);
+          replayWriteAheadLog(name, tantivyIndex, !vectorIndexes.isEmpty(), wal);
+          Collection collection = new Collection(metadata, tantivyIndex, vectorIndexes, wal);
+          register(name, collection);
 
           loadedCount++;
           log.info("Loaded collection: {} with ID: {}", name, collectionId);
@@ -129,7 +161,37 @@ public class CollectionManager {
     }
   }
 
-  public synchronized void createCollection(CollectionName name, SchemaBuilder schemaBuilder) {
+  /**
+   * Re-indexes documents that were acknowledged but not yet committed when the node stopped, then
+   * commits them and clears the log. The log does not hold chunk embeddings, so replayed documents
+   * keep only the vectors their index had snapshotted.
+   */
+  private void replayWriteAheadLog(
+      CollectionName name, TantivyIndex tantivyIndex, boolean hasVectors, WriteAheadLog wal) {
+    if (wal.sizeInBytes() == 0) {
+      return;
+    }
+    long replayed = wal.replay(tantivyIndex::addBatch);
+    if (replayed > 0) {
+      tantivyIndex.commit();
+      log.info("Replayed {} documents from the write-ahead log of collection: {}", replayed, name);
+      if (hasVectors) {
+        log.warn(
+            "Chunk embeddings are not in the write-ahead log of collection: {}; documents added"
+                + " since the last vector snapshot must be sent again to restore their vectors",
+            name);
+      }
+    }
+    wal.truncate();
+  }
+
+  public void createCollection(CollectionName name, SchemaBuilder schemaBuilder) {
+    createCollection(name, schemaBuilder, CollectionSettings.defaults());
+  }
+
+  /** Creates a collection with {@code schemaBuilder}'s fields and the given settings. */
+  public synchronized void createCollection(
+      CollectionName name, SchemaBuilder schemaBuilder, CollectionSettings settings) {
     if (collectionExists(name)) {
       throw new CollectionException("Collection already exists: " + name);
     }
@@ -147,10 +209,34 @@ public class CollectionManager {
     String collectionId = generateCollectionId(name.toString());
     Path collectionBasePath = getCollectionBasePath(collectionId);
     Path keywordIndexPath = getKeywordIndexPath(collectionId);
-    Path vectorIndexPath = getVectorIndexPath(collectionId);
 
-    UsearchIndex usearchIndex = new UsearchIndex();
-    TantivyIndex tantivyIndex = new TantivyIndex(keywordIndexPath);
+    String vectorQuantization = settings.getVectorQuantization();
+    Integer vectorShards = settings.getVectorShards();
+    List<VectorField> resolvedFields;
+    int resolvedShards;
+    Map<String, UsearchIndex> vectorIndexes;
+    try {
+      resolvedFields =
+          resolveVectorFields(schemaBuilder, vectorQuantization, settings.getVectorFields());
+      resolvedShards =
+          VectorIndexConfig.checkShards(
+              vectorShards != null ? vectorShards : vectorIndexConfig().getShards());
+      vectorIndexes =
+          vectorIndexes(
+              CollectionMetadata.builder()
+                  .vectorQuantization(vectorQuantization)
+                  .vectorFields(resolvedFields)
+                  .vectorShards(resolvedShards)
+                  .build());
+    } catch (IllegalArgumentException e) {
+      throw new CollectionException(e.getMessage());
+    }
+    Map<String, Path> vectorIndexPaths = vectorIndexPaths(collectionId, vectorIndexes);
+    TantivyIndex tantivyIndex =
+        new TantivyIndex(
+            keywordIndexPath,
+            keywordIndexConfig().writerBudget(null, null),
+            keywordIndexConfig().getMerge());
 
     try {
       Files.createDirectories(collectionBasePath);
@@ -161,10 +247,15 @@ public class CollectionManager {
         throw new CollectionException("Failed to create keyword index for collection: " + name);
       }
 
-      boolean isVectorIndexCreated = usearchIndex.createIndex(vectorIndexPath.toString());
-      if (!isVectorIndexCreated) {
-        cleanupCollectionDirectory(collectionBasePath);
-        throw new CollectionException("Failed to create vector index for collection: " + name);
+      for (Map.Entry<String, UsearchIndex> entry : vectorIndexes.entrySet()) {
+        Path vectorIndexPath = vectorIndexPaths.get(entry.getKey());
+        if (!entry.getValue().createIndex(vectorIndexPath.toString())) {
+          closeVectorIndexes(vectorIndexes);
+          cleanupCollectionDirectory(collectionBasePath);
+          throw new CollectionException(
+              String.format(
+                  "Failed to create vector index %s for collection: %s", entry.getKey(), name));
+        }
       }
 
       CollectionMetadata metadata =
@@ -175,16 +266,25 @@ public class CollectionManager {
               .updatedAt(now)
               .fields(schemaBuilder.getFields())
               .status(CollectionStatus.OPEN)
+              .vectorQuantization(
+                  vectorQuantization != null
+                      ? VectorIndexConfig.checkQuantization(vectorQuantization)
+                      : null)
+              .vectorFields(resolvedFields)
+              .vectorShards(resolvedShards)
+              .readMostly(settings.isReadMostly())
               .build();
 
       saveCollectionMetadata(collectionBasePath, metadata);
-      Collection collection = new Collection(metadata, tantivyIndex, usearchIndex);
-      collections.put(name, collection);
+      Collection collection =
+          new Collection(
+              metadata, tantivyIndex, vectorIndexes, WriteAheadLog.open(collectionBasePath));
+      register(name, collection);
 
       log.info(
           "Created new collection: {} with ID: {} at {}", name, collectionId, collectionBasePath);
       log.info("Keyword index: {}", keywordIndexPath);
-      log.info("Vector index: {}", vectorIndexPath);
+      log.info("Vector indexes: {}", vectorIndexPaths);
     } catch (CollectionException e) {
       throw e;
     } catch (JsonProcessingException e) {
@@ -239,11 +339,141 @@ public class CollectionManager {
       throw new CollectionException("Collection not found: " + name);
     }
 
+    MergeScheduler.getInstance().unregister(name.toString());
+    List<Meter.Id> registered = meters.remove(name);
+    if (registered != null) {
+      registered.forEach(Metrics.globalRegistry::remove);
+    }
+    for (String field : collection.getVectorIndexes().keySet()) {
+      VectorSnapshotScheduler.getInstance().unregister(snapshotName(name, field));
+    }
+    collection.close();
     Path indexDir = getCollectionBasePath(collection.getMetadata().getId());
     cleanupCollectionDirectory(indexDir);
     log.info("Deleted collection: {}", name);
   }
 
+  private void register(CollectionName name, Collection collection) {
+    collections.put(name, collection);
+    List<Meter.Id> registered = new ArrayList<>();
+    Gauge writerMemory =
+        Gauge.builder(
+                "nexo.index.writer.memory",
+                collection.getTantivyIndex(),
+                TantivyIndex::writerMemoryUsage)
+            .description("Arena reserved by the open keyword index writer")
+            .baseUnit("bytes")
+            .tag("collection", name.toString())
+            .register(Metrics.globalRegistry);
+    registered.add(writerMemory.getId());
+    MergeScheduler.getInstance().register(name.toString(), collection.getTantivyIndex());
+    for (Map.Entry<String, UsearchIndex> entry : collection.getVectorIndexes().entrySet()) {
+      FunctionCounter lost =
+          FunctionCounter.builder("nexo.vector.lost", entry.getValue(), UsearchIndex::lostVectors)
+              .description("Vectors accepted during a snapshot that failed to insert after it")
+              .tag("collection", name.toString())
+              .tag("field", entry.getKey())
+              .register(Metrics.globalRegistry);
+      registered.add(lost.getId());
+      VectorSnapshotScheduler.getInstance()
+          .register(snapshotName(name, entry.getKey()), entry.getValue());
+    }
+    meters.put(name, registered);
+  }
+
+  /** Name a vector index is snapshotted under: the collection, qualified by a vector field. */
+  private static String snapshotName(CollectionName name, String field) {
+    return Collection.DEFAULT_VECTOR_FIELD.equals(field) ? name.toString() : name + "/" + field;
+  }
+
+  /**
+   * Checks that every vector field names a distinct TEXT field of the schema and fixes its settings
+   * to what they resolve to now, so later config changes do not affect existing indexes.
+   */
+  private static List<VectorField> resolveVectorFields(
+      SchemaBuilder schemaBuilder, String vectorQuantization, List<VectorField> vectorFields) {
+    if (vectorFields == null || vectorFields.isEmpty()) {
+      return null;
+    }
+    Map<String, Field> schemaFields = new HashMap<>();
+    for (Field field : schemaBuilder.getFields()) {
+      schemaFields.put(field.getName(), field);
+    }
+    List<VectorField> resolved = new ArrayList<>(vectorFields.size());
+    Set<String> names = new HashSet<>();
+    for (VectorField field : vectorFields) {
+      Field schemaField = schemaFields.get(field.getName());
+      if (schemaField == null || schemaField.getType() != FieldType.TEXT) {
+        throw new IllegalArgumentException(
+            "Vector field must be a TEXT field of the schema: " + field.getName());
+      }
+      if (!names.add(field.getName())) {
+        throw new IllegalArgumentException("Duplicate vector field: " + field.getName());
+      }
+      VectorIndexConfig config =
+          vectorIndexConfig()
+              .forField(
+                  field.getDimension() > 0 ? field.getDimension() : null,
+                  field.getMetric(),
+                  field.getQuantization() != null ? field.getQuantization() : vectorQuantization);
+      resolved.add(
+          new VectorField(
+              field.getName(),
+              config.getDimension(),
+              config.getMetric(),
+              config.getQuantization()));
+    }
+    return resolved;
+  }
+
+  /** Unopened vector indexes for the vector fields of {@code metadata}, the default first. */
+  private static Map<String, UsearchIndex> vectorIndexes(CollectionMetadata metadata) {
+    int shards = metadata.getVectorShards() != null ? metadata.getVectorShards() : 1;
+    Map<String, UsearchIndex> indexes = new LinkedHashMap<>();
+    if (metadata.getVectorFields() == null || metadata.getVectorFields().isEmpty()) {
+      VectorIndexConfig config =
+          vectorIndexConfig().forCollection(metadata.getVectorQuantization());
+      config.setShards(shards);
+      indexes.put(Collection.DEFAULT_VECTOR_FIELD, new UsearchIndex(config));
+      return indexes;
+    }
+    for (VectorField field : metadata.getVectorFields()) {
+      VectorIndexConfig config =
+          vectorIndexConfig()
+              .forField(field.getDimension(), field.getMetric(), field.getQuantization());
+      config.setShards(shards);
+      indexes.put(field.getName(), new UsearchIndex(config));
+    }
+    return indexes;
+  }
+
+  private Map<String, Path> vectorIndexPaths(
+      String collectionId, Map<String, UsearchIndex> vectorIndexes) {
+    Map<String, Path> paths = new LinkedHashMap<>();
+    for (String field : vectorIndexes.keySet()) {
+      paths.put(field, getVectorIndexPath(collectionId, field));
+    }
+    return paths;
+  }
+
+  private static void closeVectorIndexes(Map<String, UsearchIndex> vectorIndexes) {
+    for (UsearchIndex index : vectorIndexes.values()) {
+      try {
+        index.close();
+      } catch (Exception e) {
+        log.warn("Error closing vector index during cleanup", e);
+      }
+    }
+  }
+
+  private static NexoConfig.KeywordIndexConfig keywordIndexConfig() {
+    return NexoConfig.getInstance().getKeywordIndex();
+  }
+
+  private static NexoConfig.VectorIndexConfig vectorIndexConfig() {
+    return NexoConfig.getInstance().getVectorIndex();
+  }
+
   private String generateCollectionId(String name) {
     if (name == null || name.trim().isEmpty()) {
       throw new IllegalArgumentException("Collection name cannot be null or empty");
@@ -283,8 +513,16 @@ public class CollectionManager {
     return getCollectionBasePath(collectionID).resolve(KEYWORD_INDEX_DIR);
   }
 
-  private Path getVectorIndexPath(String collectionID) {
-    return getCollectionBasePath(collectionID).resolve(VECTOR_INDEX);
+  /**
+   * The single vector index of a collection lives next to its keyword index; the index of each
+   * vector field has a directory of its own for its key map and vector store.
+   */
+  private Path getVectorIndexPath(String collectionID, String field) {
+    Path base = getCollectionBasePath(collectionID);
+    if (Collection.DEFAULT_VECTOR_FIELD.equals(field)) {
+      return base.resolve(VECTOR_INDEX);
+    }
+    return base.resolve(VECTOR_FIELDS_DIR).resolve(field).resolve(VECTOR_INDEX);
   }
 
   private void saveCollectionMetadata(Path collectionPath, CollectionMetadata metadata)
@@ -1,6 +1,7 @@
 package com.nexo.collection;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.nexo.index.CommitPolicy;
 import com.nexo.schema.Field;
 import java.time.Instant;
 import java.util.List;
@@ -43,4 +44,46 @@ public class CollectionMetadata {
   @JsonProperty("size_in_bytes")
   @Builder.Default
   private long sizeInBytes = 0;
+
+  /** Overrides {@code keywordIndex.commit} for this collection; unset values are inherited. */
+  @JsonProperty("commit_policy")
+  private CommitPolicy commitPolicy;
+
+  /** Overrides {@code keywordIndex.writerHeapSize} for this collection. */
+  @JsonProperty("writer_heap_size")
+  private Long writerHeapSize;
+
+  /** Overrides {@code keywordIndex.writerThreads} for this collection. */
+  @JsonProperty("writer_threads")
+  private Integer writerThreads;
+
+  /**
+   * Overrides {@code vectorIndex.quantization} for this collection. Fixed when the collection is
+   * created, since the graph stores its vectors in this form.
+   */
+  @JsonProperty("vector_quantization")
+  private String vectorQuantization;
+
+  /**
+   * Fields with a vector index of their own, the first being the default for searches and for
+   * {@code _chunks} given as an array. Without any, the collection has a single vector index
+   * configured by {@code vectorIndex}.
+   */
+  @JsonProperty("vector_fields")
+  private List<VectorField> vectorFields;
+
+  /**
+   * Number of graphs each vector index of this collection is sharded into, resolved from {@code
+   * vectorIndex.shards} when the collection is created and fixed from then on, since vectors are
+   * assigned to shards by key. Collections created before sharding have a single graph.
+   */
+  @JsonProperty("vector_shards")
+  private Integer vectorShards;
+
+  /**
+   * Marks a collection that is mostly queried. Its vector index is memory-mapped on startup instead
+   * of loaded, and only loaded into memory once it is written to.
+   */
+  @JsonProperty("read_mostly")
+  private boolean readMostly;
 }
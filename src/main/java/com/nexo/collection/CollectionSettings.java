@@ -0,0 +1,44 @@
+package com.nexo.collection;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Settings a collection is created with. Unset values come from {@code vectorIndex}; all of them
+ * are recorded in the collection metadata and fixed from then on.
+ */
+@Getter
+@Builder
+public class CollectionSettings {
+
+  /**
+   * Overrides {@code vectorIndex.quantization}. Lossy quantizations keep a full-precision copy on
+   * disk for re-ranking.
+   */
+  private final String vectorQuantization;
+
+  /**
+   * TEXT fields of the schema that get a vector index each, with their own dimension, metric and
+   * quantization; unset values come from {@code vectorIndex}, with {@link #vectorQuantization}
+   * taking precedence for the quantization. Without any the collection has a single vector index.
+   */
+  private final List<VectorField> vectorFields;
+
+  /**
+   * Overrides {@code vectorIndex.shards}, the number of graphs each vector index is sharded into.
+   * More shards let a single search use more cores.
+   */
+  private final Integer vectorShards;
+
+  /**
+   * Marks the collection as mostly queried, so that its vector indexes are memory-mapped rather
+   * than loaded whenever the node starts.
+   */
+  private final boolean readMostly;
+
+  /** Settings that take every value from the config. */
+  public static CollectionSettings defaults() {
+    return builder().build();
+  }
+}
@@ -0,0 +1,44 @@
+package com.nexo.collection;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A TEXT field of a collection whose chunk embeddings get their own vector index. The settings are
+ * resolved against {@code vectorIndex} when the collection is created and fixed from then on, since
+ * the graph is built for them.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class VectorField {
+
+  @JsonProperty("name")
+  private String name;
+
+  @JsonProperty("dimension")
+  private int dimension;
+
+  @JsonProperty("metric")
+  private String metric;
+
+  @JsonProperty("quantization")
+  private String quantization;
+
+  @Override
+  public String toString() {
+    return "VectorField{name="
+        + name
+        + ", dimension="
+        + dimension
+        + ", metric="
+        + metric
+        + ", quantization="
+        + quantization
+        + '}';
+  }
+}
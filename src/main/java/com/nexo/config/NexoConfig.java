@@ -2,9 +2,15 @@ package com.nexo.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.nexo.index.CommitPolicy;
+import com.nexo.index.MergePolicy;
+import com.nexo.index.SnapshotPolicy;
+import com.nexo.index.VectorMetric;
+import com.nexo.index.WriterBudget;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -21,7 +27,17 @@ public class NexoConfig {
   private int serverPort = 9090;
   private int workerThreads = Runtime.getRuntime().availableProcessors();
   private int searchThreads = Runtime.getRuntime().availableProcessors();
+  private long searchTimeoutMs = 10_000;
+  // Searches queued beyond the busy search threads; further ones are rejected as unavailable.
+  private int searchQueueCapacity = 1024;
+  // Largest k, expansion_search and num_candidates a search may ask for.
+  private int maxK = 10_000;
+  private int indexThreads = Runtime.getRuntime().availableProcessors();
+  private int ingestQueueCapacity = 64;
+  // Index threads one collection may occupy at once; defaults to half of indexThreads.
+  private int ingestThreadsPerCollection;
   private int maxContentLength = 1048576;
+  private int bulkBatchSize = 1000;
   private String indexPath = "data/index";
   private String clusterName = "nexo-cluster";
   private String nodeName = "nexo-node-1";
@@ -55,6 +71,80 @@ public class NexoConfig {
     private int expansionAdd = 200;
     private int expansionSearch = 200;
     private String quantization = "f32";
+    private int addThreads = 0;
+    private int rerankMultiplier = 4;
+    private int filterScanThreshold = 10_000;
+    private int exactSearchThreshold = 10_000;
+    private int shards = 1;
+    // Share of tombstoned vectors at which a graph is rebuilt without them; 0 disables compaction.
+    private double compactionThreshold = 0.2;
+    private SnapshotPolicy snapshot = SnapshotPolicy.defaults();
+
+    /** Scalar kinds a graph can store its vectors as; all but f64 and f32 are lossy. */
+    public static final Set<String> QUANTIZATIONS = Set.of("f64", "f32", "bf16", "f16", "i8", "b1");
+
+    public static final int MAX_SHARDS = 256;
+
+    /** Settings for a collection, preferring its own quantization when present. */
+    public VectorIndexConfig forCollection(String quantizationOverride) {
+      VectorIndexConfig config = new VectorIndexConfig();
+      config.dimension = dimension;
+      config.metric = metric;
+      config.connectivity = connectivity;
+      config.expansionAdd = expansionAdd;
+      config.expansionSearch = expansionSearch;
+      config.quantization =
+          quantizationOverride != null ? checkQuantization(quantizationOverride) : quantization;
+      config.addThreads = addThreads;
+      config.rerankMultiplier = rerankMultiplier;
+      config.filterScanThreshold = filterScanThreshold;
+      config.exactSearchThreshold = exactSearchThreshold;
+      config.shards = shards;
+      config.compactionThreshold = compactionThreshold;
+      config.snapshot = snapshot;
+      return config;
+    }
+
+    /**
+     * Settings for one vector field of a collection, preferring its own dimension, metric and
+     * quantization when present.
+     */
+    public VectorIndexConfig forField(
+        Integer dimensionOverride, String metricOverride, String quantizationOverride) {
+      VectorIndexConfig config = forCollection(quantizationOverride);
+      if (dimensionOverride != null) {
+        if (dimensionOverride < 1) {
+          throw new IllegalArgumentException("Vector dimension must be positive");
+        }
+        config.dimension = dimensionOverride;
+      }
+      if (metricOverride != null) {
+        config.metric = VectorMetric.of(metricOverride).getValue();
+      }
+      return config;
+    }
+
+    /** Whether vectors lose precision in the graph and need a full-precision copy to re-rank. */
+    public boolean isLossy() {
+      return !quantization.equals("f32") && !quantization.equals("f64");
+    }
+
+    public static int checkShards(int shards) {
+      if (shards < 1 || shards > MAX_SHARDS) {
+        throw new IllegalArgumentException(
+            "Vector index shards must be between 1 and " + MAX_SHARDS + ", got " + shards);
+      }
+      return shards;
+    }
+
+    public static String checkQuantization(String quantization) {
+      String normalized = quantization != null ? quantization.toLowerCase() : null;
+      if (normalized == null || !QUANTIZATIONS.contains(normalized)) {
+        throw new IllegalArgumentException(
+            "Unknown vector quantization: " + quantization + ", expected one of " + QUANTIZATIONS);
+      }
+      return normalized;
+    }
   }
 
   @Getter
@@ -64,6 +154,20 @@ public class NexoConfig {
     private boolean stemming = true;
     private boolean stopWords = true;
     private boolean caseSensitive = false;
+    private CommitPolicy commit = CommitPolicy.defaults();
+    private long writerHeapSize = WriterBudget.DEFAULT_HEAP_SIZE;
+    private int writerThreads = 0;
+    private long indexingMemoryBudget = 1024L * 1024 * 1024;
+    private long writerIdleTimeoutMs = 300_000;
+    private MergePolicy merge = MergePolicy.defaults();
+    private long mergeThrottleBytesPerSec = 50L * 1024 * 1024;
+
+    /** Writer budget for a collection, preferring its own overrides when present. */
+    public WriterBudget writerBudget(Long heapSizeOverride, Integer threadsOverride) {
+      return WriterBudget.of(
+          heapSizeOverride != null ? heapSizeOverride : writerHeapSize,
+          threadsOverride != null ? threadsOverride : writerThreads);
+    }
   }
 
   public static NexoConfig load(Path configPath) {
@@ -95,13 +199,49 @@ public class NexoConfig {
     if (searchThreads < 1) {
       searchThreads = Runtime.getRuntime().availableProcessors();
     }
+    if (searchTimeoutMs < 1) {
+      searchTimeoutMs = 10_000;
+    }
+    if (searchQueueCapacity < 1) {
+      searchQueueCapacity = 1024;
+    }
+    if (maxK < 1) {
+      throw new IllegalArgumentException("maxK must be positive");
+    }
+    if (indexThreads < 1) {
+      indexThreads = Runtime.getRuntime().availableProcessors();
+    }
+    if (ingestQueueCapacity < 1) {
+      ingestQueueCapacity = 64;
+    }
+    if (ingestThreadsPerCollection < 1) {
+      ingestThreadsPerCollection = Math.max(1, indexThreads / 2);
+    }
+    ingestThreadsPerCollection = Math.min(ingestThreadsPerCollection, indexThreads);
     if (maxContentLength < 1024) {
       maxContentLength = 1024;
     }
+    if (bulkBatchSize < 1) {
+      bulkBatchSize = 1000;
+    }
+
+    if (keywordIndex.indexingMemoryBudget < WriterBudget.MIN_HEAP_PER_THREAD) {
+      throw new IllegalArgumentException(
+          "Keyword indexingMemoryBudget must be at least " + WriterBudget.MIN_HEAP_PER_THREAD);
+    }
+    if (keywordIndex.commit == null) {
+      keywordIndex.commit = CommitPolicy.defaults();
+    }
+    keywordIndex.merge =
+        keywordIndex.merge != null ? keywordIndex.merge.withDefaults() : MergePolicy.defaults();
+    if (keywordIndex.mergeThrottleBytesPerSec < 0) {
+      keywordIndex.mergeThrottleBytesPerSec = 0;
+    }
 
     if (vectorIndex.dimension < 1) {
       throw new IllegalArgumentException("Vector dimension must be positive");
     }
+    VectorMetric.of(vectorIndex.metric);
     if (vectorIndex.connectivity < 1) {
       throw new IllegalArgumentException("Vector connectivity must be positive");
     }
@@ -111,26 +251,61 @@ public class NexoConfig {
     if (vectorIndex.expansionSearch < 1) {
       throw new IllegalArgumentException("Vector expansionSearch must be positive");
     }
+    if (vectorIndex.addThreads < 1) {
+      vectorIndex.addThreads = Runtime.getRuntime().availableProcessors();
+    }
+    vectorIndex.quantization = VectorIndexConfig.checkQuantization(vectorIndex.quantization);
+    if (vectorIndex.rerankMultiplier < 1) {
+      vectorIndex.rerankMultiplier = 1;
+    }
+    if (vectorIndex.filterScanThreshold < 0) {
+      throw new IllegalArgumentException("Vector filterScanThreshold cannot be negative");
+    }
+    if (vectorIndex.exactSearchThreshold < 0) {
+      throw new IllegalArgumentException("Vector exactSearchThreshold cannot be negative");
+    }
+    VectorIndexConfig.checkShards(vectorIndex.shards);
+    if (!(vectorIndex.compactionThreshold >= 0) || vectorIndex.compactionThreshold > 1) {
+      throw new IllegalArgumentException("Vector compactionThreshold must be between 0 and 1");
+    }
+    if (vectorIndex.snapshot == null) {
+      vectorIndex.snapshot = SnapshotPolicy.defaults();
+    }
 
     log.info(
-        "Configuration validated: host={}, port={}, workers={}, searchThreads={}",
+        "Configuration validated: host={}, port={}, workers={}, searchThreads={}, indexThreads={}",
         serverHost,
         serverPort,
         workerThreads,
-        searchThreads);
+        searchThreads,
+        indexThreads);
     log.info(
-        "Vector index config: dimension={}, metric={}, connectivity={}, expansionAdd={}, expansionSearch={}",
+        "Vector index config: dimension={}, metric={}, connectivity={}, expansionAdd={}, expansionSearch={}, quantization={}, addThreads={}, rerankMultiplier={}, filterScanThreshold={}, exactSearchThreshold={}, shards={}, compactionThreshold={}, snapshot={}",
         vectorIndex.dimension,
         vectorIndex.metric,
         vectorIndex.connectivity,
         vectorIndex.expansionAdd,
-        vectorIndex.expansionSearch);
+        vectorIndex.expansionSearch,
+        vectorIndex.quantization,
+        vectorIndex.addThreads,
+        vectorIndex.rerankMultiplier,
+        vectorIndex.filterScanThreshold,
+        vectorIndex.exactSearchThreshold,
+        vectorIndex.shards,
+        vectorIndex.compactionThreshold,
+        vectorIndex.snapshot);
     log.info(
-        "Keyword index config: analyzer={}, stemming={}, stopWords={}, caseSensitive={}",
+        "Keyword index config: analyzer={}, stemming={}, stopWords={}, caseSensitive={}, commit={}, writerHeapSize={}, writerThreads={}, indexingMemoryBudget={}, merge={}, mergeThrottleBytesPerSec={}",
         keywordIndex.defaultAnalyzer,
         keywordIndex.stemming,
         keywordIndex.stopWords,
-        keywordIndex.caseSensitive);
+        keywordIndex.caseSensitive,
+        keywordIndex.commit,
+        keywordIndex.writerHeapSize,
+        keywordIndex.writerThreads,
+        keywordIndex.indexingMemoryBudget,
+        keywordIndex.merge,
+        keywordIndex.mergeThrottleBytesPerSec);
   }
 
   @Override
@@ -145,8 +320,22 @@ public class NexoConfig {
         + workerThreads
         + ", searchThreads="
         + searchThreads
+        + ", searchTimeoutMs="
+        + searchTimeoutMs
+        + ", searchQueueCapacity="
+        + searchQueueCapacity
+        + ", maxK="
+        + maxK
+        + ", indexThreads="
+        + indexThreads
+        + ", ingestQueueCapacity="
+        + ingestQueueCapacity
+        + ", ingestThreadsPerCollection="
+        + ingestThreadsPerCollection
         + ", maxContentLength="
         + maxContentLength
+        + ", bulkBatchSize="
+        + bulkBatchSize
         + ", indexPath='"
         + indexPath
         + '\''
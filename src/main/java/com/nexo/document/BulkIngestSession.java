@@ -0,0 +1,195 @@
+package com.nexo.document;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.BulkResult;
+import com.nexo.index.BulkResult.ItemError;
+import com.nexo.index.NativeBatchBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Incremental ingest for one bulk request. Documents are streamed token by token into a native
+ * batch buffer and handed to the index whenever {@code batchSize} documents are buffered, so memory
+ * is bounded by one batch plus one NDJSON line regardless of the request size. Chunk embeddings are
+ * collected alongside and added to the vector index once their documents are indexed.
+ */
+@Slf4j
+public class BulkIngestSession implements AutoCloseable {
+
+  private static final int INITIAL_LINE_CAPACITY = 8192;
+
+  private final DocumentManager documentManager;
+  private final DocumentStreamParser parser;
+  private final int batchSize;
+  private final int maxLineLength;
+
+  private final int[] batchItems;
+  private final List<ItemError> failures = new ArrayList<>();
+  private final VectorBatches vectors;
+  private NativeBatchBuffer batch;
+
+  private byte[] line = new byte[INITIAL_LINE_CAPACITY];
+  private int lineLength;
+  private int items;
+
+  public BulkIngestSession(DocumentManager documentManager, int batchSize, int maxLineLength) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.documentManager = documentManager;
+    this.parser = documentManager.streamParser();
+    this.batchSize = batchSize;
+    this.maxLineLength = maxLineLength;
+    this.batchItems = new int[batchSize];
+    this.vectors = parser.newVectorBatches();
+  }
+
+  /** Consumes all remaining NDJSON bytes of {@code chunk}, indexing every batch that fills up. */
+  public void feed(ByteBuffer chunk) {
+    int start = chunk.position();
+    int limit = chunk.limit();
+    for (int i = start; i < limit; i++) {
+      if (chunk.get(i) == '\n') {
+        append(chunk, start, i);
+        completeLine();
+        start = i + 1;
+      }
+    }
+    append(chunk, start, limit);
+    chunk.position(limit);
+  }
+
+  /**
+   * Reads every document from a JSON array or a sequence of root-level objects. Malformed JSON
+   * aborts the whole request because the parser cannot resynchronize.
+   */
+  public void read(JsonParser jsonParser) throws IOException {
+    JsonToken token = jsonParser.nextToken();
+    if (token == JsonToken.START_ARRAY) {
+      while ((token = jsonParser.nextToken()) != JsonToken.END_ARRAY) {
+        if (token == null) {
+          throw new DocumentException("Unexpected end of JSON array");
+        }
+        accept(jsonParser, items++);
+      }
+      return;
+    }
+    while (token != null) {
+      accept(jsonParser, items++);
+      token = jsonParser.nextToken();
+    }
+  }
+
+  /** Indexes the trailing line and the last partial batch and returns the outcome per item. */
+  public BulkResult finish() {
+    if (lineLength > 0) {
+      completeLine();
+    }
+    flush();
+    close();
+    failures.sort(Comparator.comparingInt(ItemError::index));
+    return new BulkResult(items, failures);
+  }
+
+  @Override
+  public void close() {
+    if (batch != null) {
+      batch.close();
+      batch = null;
+    }
+  }
+
+  private void append(ByteBuffer chunk, int from, int to) {
+    int length = to - from;
+    if (length == 0) {
+      return;
+    }
+    if (lineLength + length > maxLineLength) {
+      throw new DocumentException(
+          String.format(
+              "Bulk line %d exceeds the maximum length of %d bytes", items, maxLineLength));
+    }
+    if (lineLength + length > line.length) {
+      line =
+          Arrays.copyOf(
+              line, Math.min(maxLineLength, Math.max(line.length * 2, lineLength + length)));
+    }
+    chunk.get(from, line, lineLength, length);
+    lineLength += length;
+  }
+
+  private void completeLine() {
+    int length = lineLength;
+    lineLength = 0;
+    if (length > 0 && line[length - 1] == '\r') {
+      length--;
+    }
+    if (isBlank(line, length)) {
+      return;
+    }
+
+    int item = items++;
+    try (JsonParser jsonParser = parser.createParser(line, 0, length)) {
+      jsonParser.nextToken();
+      accept(jsonParser, item);
+    } catch (JsonProcessingException e) {
+      failures.add(new ItemError(item, "Invalid JSON document: " + e.getOriginalMessage()));
+    } catch (IOException e) {
+      throw new DocumentException("Failed to read bulk line", e);
+    }
+  }
+
+  private void accept(JsonParser jsonParser, int item) throws IOException {
+    if (batch == null) {
+      batch = NativeBatchBuffer.acquire();
+    }
+    try {
+      parser.writeDocument(jsonParser, batch, vectors);
+      batchItems[batch.documentCount() - 1] = item;
+    } catch (DocumentException e) {
+      failures.add(new ItemError(item, e.getMessage()));
+    }
+
+    if (batch.documentCount() >= batchSize) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    if (batch == null || batch.isEmpty()) {
+      return;
+    }
+    try {
+      BulkResult result = documentManager.indexBatch(batch);
+      for (ItemError failure : result.getFailures()) {
+        failures.add(new ItemError(batchItems[failure.index()], failure.reason()));
+      }
+      if (vectors != null && !vectors.isEmpty()) {
+        documentManager.indexVectors(vectors, result);
+      }
+    } finally {
+      batch.reset();
+      if (vectors != null) {
+        vectors.reset();
+      }
+    }
+  }
+
+  private static boolean isBlank(byte[] bytes, int length) {
+    for (int i = 0; i < length; i++) {
+      byte b = bytes[i];
+      if (b != ' ' && b != '\t' && b != '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -3,12 +3,16 @@ package com.nexo.document;
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Pattern;
 import lombok.*;
 
 @Getter
@@ -18,10 +22,11 @@ public class Document {
 
   private static final ObjectMapper OBJECT_MAPPER =
       new ObjectMapper().registerModule(new JavaTimeModule());
+  private static final ObjectWriter STREAM_WRITER =
+      OBJECT_MAPPER.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
   private static final Set<String> RESERVED_FIELDS =
       Set.of("_id", "_score", "_version", "_timestamp", "_collection");
   private static final int MAX_FIELD_NAME_LENGTH = 255;
-  private static final Pattern VALID_FIELD_NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_.-]+$");
 
   @JsonProperty("_id")
   @EqualsAndHashCode.Include
@@ -33,10 +38,23 @@ public class Document {
   @EqualsAndHashCode.Include
   private final Instant createdAt;
 
-  private Document(String id, Map<String, Object> fields, Instant createdAt) {
+  /** Passages of this document whose embeddings go to the vector index, not the keyword index. */
+  @JsonIgnore private final List<Chunk> chunks;
+
+  /** Passages whose embeddings go to a named vector field of the collection, by field name. */
+  @JsonIgnore private final Map<String, List<Chunk>> fieldChunks;
+
+  private Document(
+      String id,
+      Map<String, Object> fields,
+      Instant createdAt,
+      List<Chunk> chunks,
+      Map<String, List<Chunk>> fieldChunks) {
     this.id = id;
     this.fields = fields != null ? fields : Map.of();
     this.createdAt = createdAt;
+    this.chunks = chunks != null ? chunks : List.of();
+    this.fieldChunks = fieldChunks != null ? fieldChunks : Map.of();
   }
 
   public static DocumentBuilder builder() {
@@ -47,7 +65,9 @@ public class Document {
     return new DocumentBuilder()
         .id(this.id)
         .fields(new HashMap<>(this.fields))
-        .createdAt(this.createdAt);
+        .createdAt(this.createdAt)
+        .chunks(this.chunks)
+        .fieldChunks(this.fieldChunks);
   }
 
   public Object getFieldValue(String name) {
@@ -80,11 +100,24 @@ public class Document {
         : OBJECT_MAPPER.writeValueAsString(this);
   }
 
+  /** Writes the compact JSON form of this document to {@code out} without closing it. */
+  public void writeJson(OutputStream out) throws JsonProcessingException {
+    try {
+      STREAM_WRITER.writeValue(out, this);
+    } catch (JsonProcessingException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   public static class DocumentBuilder {
 
     private String id;
     private Map<String, Object> fields;
     private Instant createdAt;
+    private List<Chunk> chunks;
+    private Map<String, List<Chunk>> fieldChunks;
 
     public DocumentBuilder id(String id) {
       this.id = (id != null && !id.isBlank()) ? id.trim() : null;
@@ -128,26 +161,66 @@ public class Document {
       return this;
     }
 
-    public Document build() {
-      String finalId = (id != null) ? id : UUID.randomUUID().toString();
-      Map<String, Object> finalFields = (fields != null) ? Map.copyOf(fields) : Map.of();
-      Instant finalCreatedAt = (createdAt != null) ? createdAt : Instant.now();
-      return new Document(finalId, finalFields, finalCreatedAt);
+    public DocumentBuilder chunk(Chunk chunk) {
+      if (chunk == null) {
+        throw new IllegalArgumentException("Chunk cannot be null");
+      }
+      if (this.chunks == null) {
+        this.chunks = new ArrayList<>();
+      }
+      this.chunks.add(chunk);
+      return this;
     }
 
-    private void validateFieldName(String name) {
-      if (name == null || name.isBlank()) {
-        throw new IllegalArgumentException("Field name cannot be null or blank");
+    public DocumentBuilder chunks(List<Chunk> chunks) {
+      if (chunks != null) {
+        chunks.forEach(this::chunk);
       }
-      if (name.length() > MAX_FIELD_NAME_LENGTH) {
-        throw new IllegalArgumentException("Field name too long: " + name.length());
+      return this;
+    }
+
+    /** Adds a chunk whose embedding goes to the vector field {@code field}. */
+    public DocumentBuilder chunk(String field, Chunk chunk) {
+      if (field == null || field.isBlank()) {
+        throw new IllegalArgumentException("Vector field name cannot be null or blank");
       }
-      if (name.startsWith("_")) {
-        throw new IllegalArgumentException("Field names cannot start with underscore");
+      if (chunk == null) {
+        throw new IllegalArgumentException("Chunk cannot be null");
       }
-      if (!VALID_FIELD_NAME_PATTERN.matcher(name).matches()) {
-        throw new IllegalArgumentException("Field name contains invalid characters: " + name);
+      if (this.fieldChunks == null) {
+        this.fieldChunks = new LinkedHashMap<>();
       }
+      this.fieldChunks.computeIfAbsent(field, f -> new ArrayList<>()).add(chunk);
+      return this;
+    }
+
+    public DocumentBuilder chunks(String field, List<Chunk> chunks) {
+      if (chunks != null) {
+        chunks.forEach(chunk -> chunk(field, chunk));
+      }
+      return this;
+    }
+
+    private DocumentBuilder fieldChunks(Map<String, List<Chunk>> fieldChunks) {
+      fieldChunks.forEach(this::chunks);
+      return this;
+    }
+
+    public Document build() {
+      String finalId = (id != null) ? id : IdGenerator.next();
+      Map<String, Object> finalFields = (fields != null) ? Map.copyOf(fields) : Map.of();
+      Instant finalCreatedAt = (createdAt != null) ? createdAt : Instant.now();
+      List<Chunk> finalChunks = (chunks != null) ? List.copyOf(chunks) : List.of();
+      Map<String, List<Chunk>> finalFieldChunks = new LinkedHashMap<>();
+      if (fieldChunks != null) {
+        fieldChunks.forEach((field, list) -> finalFieldChunks.put(field, List.copyOf(list)));
+      }
+      return new Document(
+          finalId,
+          finalFields,
+          finalCreatedAt,
+          finalChunks,
+          Collections.unmodifiableMap(finalFieldChunks));
     }
 
     private void validateFieldValue(Object value) {
@@ -156,4 +229,30 @@ public class Document {
       }
     }
   }
+
+  /** Checks a user field name: 1 to 255 of {@code [a-zA-Z0-9_.-]}, not starting with '_'. */
+  static void validateFieldName(String name) {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("Field name cannot be null or blank");
+    }
+    if (name.length() > MAX_FIELD_NAME_LENGTH) {
+      throw new IllegalArgumentException("Field name too long: " + name.length());
+    }
+    if (name.startsWith("_")) {
+      throw new IllegalArgumentException("Field names cannot start with underscore");
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      boolean valid =
+          (c >= 'a' && c <= 'z')
+              || (c >= 'A' && c <= 'Z')
+              || (c >= '0' && c <= '9')
+              || c == '_'
+              || c == '.'
+              || c == '-';
+      if (!valid) {
+        throw new IllegalArgumentException("Field name contains invalid characters: " + name);
+      }
+    }
+  }
 }
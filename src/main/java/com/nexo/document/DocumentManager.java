@@ -1,75 +1,215 @@
 package com.nexo.document;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.nexo.collection.Collection;
-import com.nexo.document.Document.DocumentBuilder;
+import com.nexo.config.NexoConfig;
 import com.nexo.exception.DocumentException;
-import com.nexo.schema.Field;
-import java.util.HashMap;
+import com.nexo.index.BulkResult;
+import com.nexo.index.NativeBatchBuffer;
+import com.nexo.index.UsearchIndex;
+import com.nexo.index.VectorBatch;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class DocumentManager {
 
   private final Collection collection;
-  private static final ObjectMapper OBJECT_MAPPER =
-      new ObjectMapper().registerModule(new JavaTimeModule());
-  private static final String ID_FIELD = "id";
-  private static final TypeReference<HashMap<String, Object>> MAP_TYPE_REF =
-      new TypeReference<HashMap<String, Object>>() {};
 
-  private final Map<String, Field> schemaFieldsCache;
+  private final DocumentStreamParser streamParser;
 
   public DocumentManager(Collection collection) {
     this.collection = collection;
-    List<Field> fieldsList = collection.getMetadata().getFields();
-    this.schemaFieldsCache = fieldsList.stream().collect(Collectors.toMap(Field::getName, f -> f));
+    Map<String, EmbeddingDecoder> decoders = new LinkedHashMap<>();
+    for (Map.Entry<String, UsearchIndex> entry : collection.getVectorIndexes().entrySet()) {
+      UsearchIndex vectorIndex = entry.getValue();
+      decoders.put(
+          entry.getKey(),
+          new EmbeddingDecoder(vectorIndex.dimensions(), vectorIndex.quantization()));
+    }
+    this.streamParser = new DocumentStreamParser(collection.getDocumentSchema(), decoders);
+  }
+
+  /**
+   * Returns an empty document bound to this collection's schema, for {@link #addBoundDocuments}.
+   */
+  public SchemaBoundDocument newDocument() {
+    return new SchemaBoundDocument(collection.getDocumentSchema());
   }
 
   public void addDocument(Document doc) throws JsonProcessingException {
-    this.collection.getTantivyIndex().addDocument(doc);
+    BulkResult result = addDocuments(List.of(doc));
+    if (result.hasFailures()) {
+      throw new DocumentException(result.getFailures().get(0).reason());
+    }
+  }
+
+  /**
+   * Indexes {@code docs} in the keyword index, then adds the embeddings of their chunks to the
+   * vector index of their field, the default one for chunks without a field. Vectors of documents
+   * rejected by the keyword index are not added.
+   *
+   * @throws DocumentException if a chunk names a vector field the collection does not have
+   */
+  public BulkResult addDocuments(List<Document> docs) throws JsonProcessingException {
+    if (docs == null || docs.isEmpty()) {
+      return BulkResult.empty();
+    }
+    // Vectors by the field they go to, in the order the fields first appear.
+    Map<String, VectorBatch> vectors = new LinkedHashMap<>();
+    BulkResult result;
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire()) {
+      for (Document doc : docs) {
+        Objects.requireNonNull(doc, "Document cannot be null");
+        appendEmbeddings(doc, null, doc.getChunks(), vectors, batch.documentCount());
+        for (Map.Entry<String, List<Chunk>> entry : doc.getFieldChunks().entrySet()) {
+          appendEmbeddings(doc, entry.getKey(), entry.getValue(), vectors, batch.documentCount());
+        }
+        doc.writeJson(batch.asOutputStream());
+        batch.endDocument();
+      }
+      result = indexBatch(batch);
+    }
+    for (Map.Entry<String, VectorBatch> entry : vectors.entrySet()) {
+      indexVectors(collection.getVectorIndex(entry.getKey()), entry.getValue(), result);
+    }
+    return result;
   }
 
-  public void addDocuments(List<Document> docs) throws JsonProcessingException {
-    this.collection.getTantivyIndex().addDocuments(docs);
+  /**
+   * Indexes documents built with {@link #newDocument()} as binary rows, without going through JSON.
+   * The documents are not retained and may be cleared and refilled once this returns.
+   */
+  public BulkResult addBoundDocuments(List<SchemaBoundDocument> docs) {
+    if (docs == null || docs.isEmpty()) {
+      return BulkResult.empty();
+    }
+    RowEncoder encoder = new RowEncoder(collection.getDocumentSchema());
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire(NativeBatchBuffer.Format.ROWS)) {
+      for (SchemaBoundDocument doc : docs) {
+        encoder.encode(Objects.requireNonNull(doc, "Document cannot be null"), batch);
+      }
+      return indexBatch(batch);
+    }
   }
 
-  public void addDocument(String jsonDocuments) {
+  public BulkResult addDocument(String jsonDocuments) {
     if (jsonDocuments == null || jsonDocuments.isEmpty()) {
       throw new DocumentException("Documents cannot be null or empty");
     }
+    try (BulkIngestSession session =
+            new BulkIngestSession(this, NexoConfig.getInstance().getBulkBatchSize(), 0);
+        JsonParser parser = streamParser.createParser(jsonDocuments)) {
+      session.read(parser);
+      return session.finish();
+    } catch (JsonProcessingException e) {
+      throw new DocumentException("Failed to parse JSON documents", e);
+    } catch (IOException e) {
+      throw new DocumentException("Failed to read JSON documents", e);
+    }
+  }
+
+  /**
+   * Parses and indexes {@code jsonDocuments} on the collection's ingest pipeline.
+   *
+   * @throws com.nexo.exception.BackpressureException if the ingest queue is full
+   */
+  public CompletableFuture<BulkResult> submitDocuments(String jsonDocuments) {
+    return collection.getIngestPipeline().submit(() -> addDocument(jsonDocuments));
+  }
+
+  /**
+   * Appends the embeddings of {@code chunks} to the batch of {@code field}, or of the default field
+   * if it is null.
+   */
+  private void appendEmbeddings(
+      Document doc,
+      String field,
+      List<Chunk> chunks,
+      Map<String, VectorBatch> vectors,
+      int document) {
+    if (chunks.isEmpty()) {
+      return;
+    }
+    String name = field != null ? field : collection.getDefaultVectorField();
+    UsearchIndex index;
     try {
-      List<HashMap<String, Object>> documentsFields =
-          OBJECT_MAPPER.readValue(
-              jsonDocuments, new TypeReference<List<HashMap<String, Object>>>() {});
-      List<Document> documents = new java.util.ArrayList<>();
-      for (HashMap<String, Object> fields : documentsFields) {
-        DocumentBuilder document = Document.builder();
-
-        for (String key : fields.keySet()) {
-          if (key.equals(ID_FIELD)) {
-            document.id((String) fields.get(key));
-          } else if (!schemaFieldsCache.containsKey(key)) {
-            log.warn("Field '{}' is not defined in the collection schema", key);
-          } else {
-            document.field(key, fields.get(key));
-          }
-        }
-        Document doc = document.build();
-        log.debug("Adding document: {}", doc);
-        documents.add(doc);
+      index = collection.getVectorIndex(name);
+    } catch (IllegalArgumentException e) {
+      throw new DocumentException(e.getMessage());
+    }
+    appendEmbeddings(
+        doc,
+        chunks,
+        vectors.computeIfAbsent(name, f -> new VectorBatch(index.dimensions())),
+        index.quantization(),
+        document);
+  }
+
+  private static void appendEmbeddings(
+      Document doc, List<Chunk> chunks, VectorBatch vectors, String quantization, int document) {
+    int from = vectors.size();
+    for (Chunk chunk : chunks) {
+      if (!chunk.hasEmbedding()) {
+        continue;
+      }
+      if (chunk.getEmbeddingDimension() != vectors.dimension()) {
+        throw new DocumentException(
+            String.format(
+                "Chunk %s of document %s has %d dimensions, the vector index expects %d",
+                chunk.getChunkId(),
+                doc.getId(),
+                chunk.getEmbeddingDimension(),
+                vectors.dimension()));
+      }
+      String invalid =
+          EmbeddingDecoder.checkRange(quantization, chunk.getEmbeddings(), 0, vectors.dimension());
+      if (invalid != null) {
+        throw new DocumentException(
+            String.format("Chunk %s of document %s: %s", chunk.getChunkId(), doc.getId(), invalid));
       }
+      int offset = vectors.append(document, chunk.getChunkIndex());
+      System.arraycopy(chunk.getEmbeddings(), 0, vectors.vectors(), offset, vectors.dimension());
+    }
+    vectors.identify(from, doc.getId());
+  }
 
-      addDocuments(documents);
+  /**
+   * Adds the vectors collected for a batch to the index of their vector field, skipping those of
+   * documents the keyword index rejected.
+   */
+  void indexVectors(VectorBatches vectors, BulkResult result) {
+    for (int i = 0; i < vectors.size(); i++) {
+      indexVectors(collection.getVectorIndex(vectors.field(i)), vectors.batch(i), result);
+    }
+  }
 
-    } catch (JsonProcessingException e) {
-      throw new DocumentException("Failed to parse JSON documents", e);
+  private static void indexVectors(UsearchIndex index, VectorBatch vectors, BulkResult result) {
+    vectors.removeFailed(result);
+    if (!vectors.isEmpty()) {
+      index.add(vectors);
     }
   }
+
+  /** Hands a batch of documents written by {@link #streamParser()} to the collection writer. */
+  BulkResult indexBatch(NativeBatchBuffer batch) {
+    BulkResult result = collection.getIngestPipeline().write(batch);
+    if (result.hasFailures()) {
+      log.warn(
+          "{} of {} documents were rejected by the index",
+          result.getFailures().size(),
+          result.getTotal());
+    }
+    return result;
+  }
+
+  DocumentStreamParser streamParser() {
+    return streamParser;
+  }
 }
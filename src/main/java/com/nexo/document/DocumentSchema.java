@@ -0,0 +1,105 @@
+package com.nexo.document;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.nexo.schema.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field layout of a collection, resolved once from its metadata. Every user field gets a slot and a
+ * pre-encoded JSON name, and field names are validated here instead of once per document. System
+ * fields such as {@code _id} are written by the documents themselves and get no slot.
+ */
+public final class DocumentSchema {
+
+  private static final String ID_FIELD = "_id";
+  private static final String TIMESTAMP_FIELD = "_timestamp";
+
+  private final Field[] fields;
+  private final SerializedString[] names;
+  private final int[] ordinals;
+  private final Map<String, Integer> slots;
+  private final int idOrdinal;
+  private final int timestampOrdinal;
+
+  private DocumentSchema(
+      List<Field> userFields, int[] ordinals, int idOrdinal, int timestampOrdinal) {
+    this.fields = userFields.toArray(Field[]::new);
+    this.ordinals = ordinals;
+    this.idOrdinal = idOrdinal;
+    this.timestampOrdinal = timestampOrdinal;
+    this.names = new SerializedString[fields.length];
+    this.slots = new HashMap<>(fields.length * 2);
+    for (int slot = 0; slot < fields.length; slot++) {
+      String name = fields[slot].getName();
+      if (slots.putIfAbsent(name, slot) != null) {
+        throw new IllegalArgumentException("Duplicate field in schema: " + name);
+      }
+      names[slot] = new SerializedString(name);
+    }
+  }
+
+  public static DocumentSchema of(List<Field> fields) {
+    List<Field> userFields = new ArrayList<>(fields.size());
+    int[] ordinals = new int[fields.size()];
+    int idOrdinal = -1;
+    int timestampOrdinal = -1;
+    for (int ordinal = 0; ordinal < fields.size(); ordinal++) {
+      Field field = fields.get(ordinal);
+      String name = field.getName();
+      if (name != null && name.startsWith("_")) {
+        if (ID_FIELD.equals(name)) {
+          idOrdinal = ordinal;
+        } else if (TIMESTAMP_FIELD.equals(name)) {
+          timestampOrdinal = ordinal;
+        }
+        continue;
+      }
+      Document.validateFieldName(name);
+      ordinals[userFields.size()] = ordinal;
+      userFields.add(field);
+    }
+    return new DocumentSchema(
+        userFields, Arrays.copyOf(ordinals, userFields.size()), idOrdinal, timestampOrdinal);
+  }
+
+  /** Slot of {@code name}, or -1 if the schema has no such field. */
+  public int slot(String name) {
+    Integer slot = slots.get(name);
+    return slot != null ? slot : -1;
+  }
+
+  public boolean contains(String name) {
+    return slots.containsKey(name);
+  }
+
+  public int size() {
+    return fields.length;
+  }
+
+  public Field field(int slot) {
+    return fields[slot];
+  }
+
+  /** Keyword index field id of {@code slot}. */
+  int ordinal(int slot) {
+    return ordinals[slot];
+  }
+
+  /** Keyword index field id of {@code _id}, or -1 if the schema has none. */
+  int idOrdinal() {
+    return idOrdinal;
+  }
+
+  /** Keyword index field id of {@code _timestamp}, or -1 if the schema has none. */
+  int timestampOrdinal() {
+    return timestampOrdinal;
+  }
+
+  SerializedString encodedName(int slot) {
+    return names[slot];
+  }
+}
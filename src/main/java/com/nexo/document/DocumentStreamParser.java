@@ -0,0 +1,164 @@
+package com.nexo.document;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.NativeBatchBuffer;
+import java.io.IOException;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copies JSON documents token by token from a parser into a {@link NativeBatchBuffer}, keeping only
+ * fields that are part of the collection schema. No intermediate maps or {@link Document} instances
+ * are built; the output matches what {@link Document#writeJson} produces. Chunk embeddings in
+ * {@code _chunks} go to separate {@link VectorBatches}, one per vector field of the collection.
+ */
+@Slf4j
+class DocumentStreamParser {
+
+  static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  private static final String ID_FIELD = "id";
+  private static final String SYSTEM_ID_FIELD = "_id";
+  private static final String TIMESTAMP_FIELD = "_timestamp";
+
+  private final DocumentSchema schema;
+  private final Map<String, EmbeddingDecoder> embeddings;
+
+  DocumentStreamParser(DocumentSchema schema) {
+    this(schema, Map.of());
+  }
+
+  /**
+   * {@code embeddings} holds a decoder per vector field, the default field first; when it is empty
+   * {@code _chunks} are ignored.
+   */
+  DocumentStreamParser(DocumentSchema schema, Map<String, EmbeddingDecoder> embeddings) {
+    this.schema = schema;
+    this.embeddings = embeddings;
+  }
+
+  /** Returns batches for the vectors of parsed documents, or null if chunks are ignored. */
+  VectorBatches newVectorBatches() {
+    return !embeddings.isEmpty() ? new VectorBatches(embeddings) : null;
+  }
+
+  JsonParser createParser(byte[] json, int offset, int length) throws IOException {
+    return OBJECT_MAPPER.createParser(json, offset, length);
+  }
+
+  JsonParser createParser(String json) throws IOException {
+    return OBJECT_MAPPER.createParser(json);
+  }
+
+  /**
+   * Writes the object the parser is positioned on as one NDJSON document. On a rejected document
+   * the parser is left at the end of that object and the buffer is rolled back, so the caller can
+   * continue with the next document.
+   *
+   * @throws DocumentException if the document is not valid for this collection
+   * @throws IOException if the input is not well-formed JSON
+   */
+  void writeDocument(JsonParser parser, NativeBatchBuffer batch) throws IOException {
+    writeDocument(parser, batch, null);
+  }
+
+  /**
+   * Like {@link #writeDocument(JsonParser, NativeBatchBuffer)}, appending the chunk embeddings of
+   * the document to {@code vectors} unless it is null. A rejected document leaves no vectors.
+   */
+  void writeDocument(JsonParser parser, NativeBatchBuffer batch, VectorBatches vectors)
+      throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      throw new DocumentException("Document must be a JSON object");
+    }
+
+    int mark = batch.position();
+    if (vectors != null) {
+      vectors.mark();
+    }
+    boolean written = false;
+    JsonGenerator generator = OBJECT_MAPPER.createGenerator(batch.asOutputStream());
+    try {
+      generator.writeStartObject();
+      String id = copyFields(parser, generator, vectors, batch.documentCount());
+      if (id == null) {
+        id = IdGenerator.next();
+      }
+      generator.writeStringField(SYSTEM_ID_FIELD, id);
+      if (vectors != null) {
+        vectors.identify(id);
+      }
+      generator.writeFieldName(TIMESTAMP_FIELD);
+      IngestTimestamp.write(generator);
+      generator.writeEndObject();
+      generator.flush();
+      written = true;
+    } finally {
+      generator.close();
+      if (!written) {
+        batch.truncate(mark);
+        if (vectors != null) {
+          vectors.rollback();
+        }
+      }
+    }
+    batch.endDocument();
+  }
+
+  private String copyFields(
+      JsonParser parser, JsonGenerator generator, VectorBatches vectors, int document)
+      throws IOException {
+    String id = null;
+    JsonToken token;
+    while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      JsonToken value = parser.nextToken();
+
+      if (ID_FIELD.equals(name) || SYSTEM_ID_FIELD.equals(name)) {
+        if (value != JsonToken.VALUE_STRING) {
+          skipRemaining(parser);
+          throw new DocumentException("Document id must be a string");
+        }
+        String text = parser.getText();
+        id = text.isBlank() ? null : text.trim();
+      } else if (vectors != null && EmbeddingDecoder.CHUNKS_FIELD.equals(name)) {
+        try {
+          vectors.read(parser, document);
+        } catch (DocumentException e) {
+          skipRemaining(parser);
+          throw e;
+        }
+      } else if (name.startsWith("_")) {
+        parser.skipChildren();
+      } else if (!schema.contains(name)) {
+        log.warn("Field '{}' is not defined in the collection schema", name);
+        parser.skipChildren();
+      } else if (value == JsonToken.VALUE_NULL) {
+        skipRemaining(parser);
+        throw new DocumentException("Field value cannot be null: " + name);
+      } else {
+        generator.writeFieldName(name);
+        generator.copyCurrentStructure(parser);
+      }
+    }
+    if (token != JsonToken.END_OBJECT) {
+      throw new DocumentException("Unexpected token in document: " + token);
+    }
+    return id;
+  }
+
+  private static void skipRemaining(JsonParser parser) throws IOException {
+    parser.skipChildren();
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_OBJECT && token != null) {
+      parser.nextToken();
+      parser.skipChildren();
+    }
+  }
+}
@@ -0,0 +1,299 @@
+package com.nexo.document;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nexo.enums.EmbeddingFormat;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.VectorBatch;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Reads the {@code _chunks} of a streamed JSON document into a {@link VectorBatch}. A {@code
+ * chunk_embeddings} value is either an array of numbers, a base64 string of little-endian f32
+ * values, or {@code {"dtype": "f16", "data": "<base64>"}} for the formats the index quantization
+ * allows. Numbers and base64 are decoded while they are read, straight into the batch's float
+ * array.
+ *
+ * <p>An i8 graph stores each component as {@code round(x * 127)}, so it can only represent vectors
+ * normalized to {@code [-1, 1]}; embeddings for an i8 index with a component outside that range are
+ * rejected rather than clipped. An i8 payload uses the symmetric range {@code [-127, 127]}, and
+ * {@code -128} reads as {@code -1}.
+ */
+final class EmbeddingDecoder {
+
+  static final String CHUNKS_FIELD = "_chunks";
+  private static final String EMBEDDINGS_FIELD = "chunk_embeddings";
+  private static final String DTYPE_FIELD = "dtype";
+  private static final String DATA_FIELD = "data";
+  private static final String I8 = "i8";
+
+  private final int dimension;
+  private final String quantization;
+
+  EmbeddingDecoder(int dimension, String quantization) {
+    this.dimension = dimension;
+    this.quantization = quantization;
+  }
+
+  VectorBatch newBatch() {
+    return new VectorBatch(dimension);
+  }
+
+  /**
+   * Appends the embedding of every chunk in the array the parser is positioned on. The whole array
+   * is consumed even when it is invalid, so the caller can go on with the next field.
+   *
+   * @throws DocumentException if a chunk or embedding is malformed
+   */
+  void readChunks(JsonParser parser, VectorBatch vectors, int document) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      throw new DocumentException("Field '" + CHUNKS_FIELD + "' must be an array of objects");
+    }
+    String error = null;
+    int chunk = -1;
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      chunk++;
+      if (token != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        error = "Chunk must be a JSON object";
+        continue;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        JsonToken value = parser.nextToken();
+        if (EMBEDDINGS_FIELD.equals(name) && value != JsonToken.VALUE_NULL) {
+          String invalid = readEmbedding(parser, vectors, document, chunk);
+          error = invalid != null ? invalid : error;
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+    if (error != null) {
+      throw new DocumentException(error);
+    }
+  }
+
+  /** Decodes one embedding value and returns why it is invalid, or null if it was appended. */
+  private String readEmbedding(JsonParser parser, VectorBatch vectors, int document, int chunk)
+      throws IOException {
+    return switch (parser.currentToken()) {
+      case START_ARRAY -> readNumbers(parser, vectors, document, chunk);
+      case VALUE_STRING -> readBase64(parser, EmbeddingFormat.F32, vectors, document, chunk);
+      case START_OBJECT -> readTyped(parser, vectors, document, chunk);
+      default -> {
+        parser.skipChildren();
+        yield "Chunk embeddings must be a number array, a base64 string or a dtype object";
+      }
+    };
+  }
+
+  private String readNumbers(JsonParser parser, VectorBatch vectors, int document, int chunk)
+      throws IOException {
+    int offset = vectors.append(document, chunk);
+    float[] target = vectors.vectors();
+    int count = 0;
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+        parser.skipChildren();
+        vectors.truncate(vectors.size() - 1);
+        skipArray(parser);
+        return "Chunk embeddings must only contain numbers";
+      }
+      if (count < dimension) {
+        target[offset + count] = parser.getFloatValue();
+      }
+      count++;
+    }
+    String invalid = checkDimension(vectors, count);
+    return invalid != null ? invalid : checkRange(vectors, offset);
+  }
+
+  private String readTyped(JsonParser parser, VectorBatch vectors, int document, int chunk)
+      throws IOException {
+    EmbeddingFormat format = null;
+    byte[] data = null;
+    String error = null;
+    boolean appended = false;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if (DTYPE_FIELD.equals(name) && value == JsonToken.VALUE_STRING) {
+        try {
+          format = EmbeddingFormat.fromValue(parser.getText());
+        } catch (IllegalArgumentException e) {
+          error = e.getMessage();
+        }
+      } else if (DATA_FIELD.equals(name) && value == JsonToken.VALUE_STRING) {
+        if (format != null && error == null && data == null && !appended) {
+          // The dtype came first, so the payload can be decoded while it is read.
+          error = readBase64(parser, format, vectors, document, chunk);
+          appended = error == null;
+        } else {
+          data = parser.getBinaryValue();
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    if (error != null || appended) {
+      if (error != null && appended) {
+        vectors.truncate(vectors.size() - 1);
+      }
+      return error;
+    }
+    if (data == null) {
+      return "Chunk embeddings object requires a base64 '" + DATA_FIELD + "' field";
+    }
+    format = format != null ? format : EmbeddingFormat.F32;
+    if (!format.allowedFor(quantization)) {
+      return unsupported(format);
+    }
+    VectorSink sink = new VectorSink(vectors, document, chunk, format);
+    sink.write(data, 0, data.length);
+    return sink.finish();
+  }
+
+  /**
+   * Streams a base64 string into a new vector slot.
+   *
+   * @throws com.fasterxml.jackson.core.JsonParseException if the string is not valid base64
+   */
+  private String readBase64(
+      JsonParser parser, EmbeddingFormat format, VectorBatch vectors, int document, int chunk)
+      throws IOException {
+    if (!format.allowedFor(quantization)) {
+      parser.skipChildren();
+      return unsupported(format);
+    }
+    VectorSink sink = new VectorSink(vectors, document, chunk, format);
+    parser.readBinaryValue(sink);
+    return sink.finish();
+  }
+
+  private String checkDimension(VectorBatch vectors, int count) {
+    if (count == dimension) {
+      return null;
+    }
+    vectors.truncate(vectors.size() - 1);
+    return String.format(
+        "Chunk embeddings have %d dimensions, the vector index expects %d", count, dimension);
+  }
+
+  /**
+   * Rejects the vector at {@code offset}, the last one of the batch, if the index quantization
+   * cannot represent it.
+   */
+  private String checkRange(VectorBatch vectors, int offset) {
+    String invalid = checkRange(quantization, vectors.vectors(), offset, dimension);
+    if (invalid != null) {
+      vectors.truncate(vectors.size() - 1);
+    }
+    return invalid;
+  }
+
+  /**
+   * Returns why the {@code dimension} values at {@code offset} cannot be stored in a graph of
+   * {@code quantization}, or null if they can.
+   */
+  static String checkRange(String quantization, float[] values, int offset, int dimension) {
+    if (!I8.equals(quantization)) {
+      return null;
+    }
+    for (int i = 0; i < dimension; i++) {
+      float value = values[offset + i];
+      if (!(value >= -1f && value <= 1f)) {
+        return String.format(
+            "Chunk embeddings for an i8 vector index must be normalized to [-1, 1], component %d"
+                + " is %s",
+            i, value);
+      }
+    }
+    return null;
+  }
+
+  private String unsupported(EmbeddingFormat format) {
+    return String.format(
+        "Embedding format %s cannot be stored in a %s vector index",
+        format.getValue(), quantization);
+  }
+
+  private static void skipArray(JsonParser parser) throws IOException {
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+      parser.skipChildren();
+    }
+  }
+
+  /**
+   * Converts decoded base64 bytes to floats as they arrive, writing them into the slot reserved in
+   * the batch. Bytes beyond the expected dimension are only counted.
+   */
+  private final class VectorSink extends OutputStream {
+
+    private final VectorBatch vectors;
+    private final EmbeddingFormat format;
+    private final float[] target;
+    private final int offset;
+    private final int limit;
+    private int received;
+    private int partial;
+
+    VectorSink(VectorBatch vectors, int document, int chunk, EmbeddingFormat format) {
+      this.vectors = vectors;
+      this.format = format;
+      this.offset = vectors.append(document, chunk);
+      this.target = vectors.vectors();
+      this.limit = dimension * format.getBytes();
+    }
+
+    @Override
+    public void write(int b) {
+      int position = received++;
+      if (position >= limit) {
+        return;
+      }
+      int shift = 8 * (position % format.getBytes());
+      partial |= (b & 0xFF) << shift;
+      if (shift == 8 * (format.getBytes() - 1)) {
+        target[offset + position / format.getBytes()] = toFloat(partial);
+        partial = 0;
+      }
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) {
+      for (int i = off; i < off + len; i++) {
+        write(bytes[i]);
+      }
+    }
+
+    private float toFloat(int bits) {
+      return switch (format) {
+        case F32 -> Float.intBitsToFloat(bits);
+        case F16 -> Float.float16ToFloat((short) bits);
+        case I8 -> Math.max(-127, (byte) bits) / 127f;
+      };
+    }
+
+    String finish() {
+      if (received == limit) {
+        return checkRange(vectors, offset);
+      }
+      vectors.truncate(vectors.size() - 1);
+      if (received % format.getBytes() != 0) {
+        return String.format(
+            "Chunk embeddings are %d bytes, not a multiple of the %s element size",
+            received, format.getValue());
+      }
+      return String.format(
+          "Chunk embeddings have %d dimensions, the vector index expects %d",
+          received / format.getBytes(), dimension);
+    }
+  }
+}
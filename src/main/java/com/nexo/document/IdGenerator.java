@@ -0,0 +1,38 @@
+package com.nexo.document;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered document ids in the UUID version 7 layout: 48 bits of epoch milliseconds,
+ * a 12 bit sequence and 62 random bits fixed per process. Ids from one process are strictly
+ * increasing; once the sequence of a millisecond is used up the generator borrows the next
+ * millisecond. Unlike {@link UUID#randomUUID()} no {@link SecureRandom} call is made per id.
+ */
+public final class IdGenerator {
+
+  private static final int SEQUENCE_BITS = 12;
+  private static final long VERSION_7 = 0x7000L;
+  private static final long VARIANT_RFC4122 = 0x8000_0000_0000_0000L;
+  private static final long NODE_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+  private static final long NODE = new SecureRandom().nextLong() & NODE_MASK | VARIANT_RFC4122;
+  private static final AtomicLong STATE = new AtomicLong();
+
+  private IdGenerator() {}
+
+  public static String next() {
+    long now = System.currentTimeMillis() << SEQUENCE_BITS;
+    long previous;
+    long next;
+    do {
+      previous = STATE.get();
+      next = Math.max(previous + 1, now);
+    } while (!STATE.compareAndSet(previous, next));
+
+    long millis = next >>> SEQUENCE_BITS;
+    long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+    return new UUID(millis << 16 | VERSION_7 | sequence, NODE).toString();
+  }
+}
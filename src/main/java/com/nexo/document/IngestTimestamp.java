@@ -0,0 +1,51 @@
+package com.nexo.document;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+
+/**
+ * The {@code _timestamp} of ingested documents, for both the JSON and the row encoding, so every
+ * path stamps a document from the same clock reading. The JSON form is encoded once per millisecond
+ * and shared by every document indexed within it, instead of serializing a new {@link Instant} per
+ * document.
+ */
+final class IngestTimestamp {
+
+  private static volatile Encoded current = encode(System.currentTimeMillis());
+
+  private IngestTimestamp() {}
+
+  static void write(JsonGenerator generator) throws IOException {
+    generator.writeNumber(current().json());
+  }
+
+  /** The ingest timestamp in milliseconds since the epoch. */
+  static long millis() {
+    return current().millis();
+  }
+
+  private static Encoded current() {
+    long now = System.currentTimeMillis();
+    Encoded encoded = current;
+    if (encoded.millis() != now) {
+      encoded = encode(now);
+      current = encoded;
+    }
+    return encoded;
+  }
+
+  private static Encoded encode(long millis) {
+    try {
+      return new Encoded(
+          millis,
+          DocumentStreamParser.OBJECT_MAPPER.writeValueAsString(Instant.ofEpochMilli(millis)));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private record Encoded(long millis, String json) {}
+}
@@ -0,0 +1,231 @@
+package com.nexo.document;
+
+import com.nexo.enums.FieldType;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.NativeBatchBuffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+
+/**
+ * Encodes {@link SchemaBoundDocument}s as binary rows for the keyword index, so documents from
+ * typed clients reach the native writer without being written or parsed as JSON. Fields are
+ * addressed by their ordinal in the index schema and values use typed encodings; the native decoder
+ * in {@code row_decoder.rs} documents the layout. An encoder is not thread-safe; use one per ingest
+ * thread.
+ */
+public final class RowEncoder {
+
+  static final byte TYPE_TEXT = 1;
+  static final byte TYPE_I64 = 2;
+  static final byte TYPE_U64 = 3;
+  static final byte TYPE_F64 = 4;
+  static final byte TYPE_DATE = 5;
+  static final byte TYPE_BOOL = 6;
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int MAX_ENTRIES = 0xFFFF;
+  private static final int ENTRY_HEADER_BYTES = 3;
+
+  private final DocumentSchema schema;
+  private final byte[] types;
+  private ByteBuffer row = ByteBuffer.allocate(INITIAL_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+
+  public RowEncoder(DocumentSchema schema) {
+    this.schema = schema;
+    this.types = new byte[schema.size()];
+    for (int slot = 0; slot < types.length; slot++) {
+      types[slot] = typeOf(schema.field(slot).getType());
+    }
+  }
+
+  /**
+   * Appends {@code document} to {@code batch} as one row.
+   *
+   * @throws DocumentException if a value does not match the type of its field
+   */
+  public void encode(SchemaBoundDocument document, NativeBatchBuffer batch) {
+    if (batch.format() != NativeBatchBuffer.Format.ROWS) {
+      throw new IllegalArgumentException("Rows can only be written to a ROWS batch");
+    }
+    ByteBuffer encoded = encode(document);
+    batch.put(encoded.array(), 0, encoded.limit());
+    batch.endDocument();
+  }
+
+  /** Encodes {@code document} into the reusable row buffer, returned flipped for reading. */
+  ByteBuffer encode(SchemaBoundDocument document) {
+    if (document.getSchema() != schema) {
+      throw new DocumentException("Document is bound to a different schema");
+    }
+
+    row.clear();
+    row.putInt(0);
+    row.putShort((short) 0);
+    int entries = 0;
+    for (int slot = 0; slot < types.length; slot++) {
+      Object value = document.get(slot);
+      if (value instanceof Iterable<?> values) {
+        for (Object item : values) {
+          putValue(slot, item);
+          entries++;
+        }
+      } else if (value != null) {
+        putValue(slot, value);
+        entries++;
+      }
+    }
+    if (schema.idOrdinal() >= 0) {
+      String id = document.getId();
+      putText(schema.idOrdinal(), id != null ? id : IdGenerator.next());
+      entries++;
+    }
+    if (schema.timestampOrdinal() >= 0) {
+      putLong(schema.timestampOrdinal(), TYPE_DATE, IngestTimestamp.millis() * 1000);
+      entries++;
+    }
+    if (entries > MAX_ENTRIES) {
+      throw new DocumentException("Document has more than " + MAX_ENTRIES + " values");
+    }
+    row.putInt(0, row.position() - Integer.BYTES);
+    row.putShort(Integer.BYTES, (short) entries);
+    return row.flip();
+  }
+
+  private void putValue(int slot, Object value) {
+    int ordinal = schema.ordinal(slot);
+    switch (types[slot]) {
+      case TYPE_TEXT -> {
+        if (!(value instanceof CharSequence text)) {
+          throw mismatch(slot, value);
+        }
+        putText(ordinal, text);
+      }
+      case TYPE_I64 -> putLong(ordinal, TYPE_I64, integral(slot, value));
+      case TYPE_U64 -> {
+        long unsigned = integral(slot, value);
+        if (unsigned < 0) {
+          throw new DocumentException(
+              "Field '" + schema.field(slot).getName() + "' requires a non-negative value");
+        }
+        putLong(ordinal, TYPE_U64, unsigned);
+      }
+      case TYPE_F64 -> {
+        if (!(value instanceof Number number)) {
+          throw mismatch(slot, value);
+        }
+        putLong(ordinal, TYPE_F64, Double.doubleToRawLongBits(number.doubleValue()));
+      }
+      case TYPE_DATE -> {
+        if (!(value instanceof Instant instant)) {
+          throw mismatch(slot, value);
+        }
+        long micros =
+            Math.addExact(
+                Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1000);
+        putLong(ordinal, TYPE_DATE, micros);
+      }
+      case TYPE_BOOL -> {
+        if (!(value instanceof Boolean bool)) {
+          throw mismatch(slot, value);
+        }
+        putHeader(ordinal, TYPE_BOOL, 1);
+        row.put(bool ? (byte) 1 : (byte) 0);
+      }
+      default ->
+          throw new DocumentException(
+              String.format(
+                  "Field '%s' of type %s cannot be written as a row",
+                  schema.field(slot).getName(), schema.field(slot).getType()));
+    }
+  }
+
+  private long integral(int slot, Object value) {
+    if (value instanceof Long
+        || value instanceof Integer
+        || value instanceof Short
+        || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    throw mismatch(slot, value);
+  }
+
+  private void putLong(int ordinal, byte type, long value) {
+    putHeader(ordinal, type, Long.BYTES);
+    row.putLong(value);
+  }
+
+  /** Writes {@code text} as UTF-8 straight into the row, without an intermediate byte array. */
+  private void putText(int ordinal, CharSequence text) {
+    int length = text.length();
+    putHeader(ordinal, TYPE_TEXT, Integer.BYTES + length * 3);
+    int lengthPosition = row.position();
+    row.putInt(0);
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        row.put((byte) c);
+      } else if (c < 0x800) {
+        row.put((byte) (0xC0 | c >> 6));
+        row.put((byte) (0x80 | c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, text.charAt(++i));
+        row.put((byte) (0xF0 | codePoint >> 18));
+        row.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+        row.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+        row.put((byte) (0x80 | codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        row.put((byte) '?');
+      } else {
+        row.put((byte) (0xE0 | c >> 12));
+        row.put((byte) (0x80 | c >> 6 & 0x3F));
+        row.put((byte) (0x80 | c & 0x3F));
+      }
+    }
+    row.putInt(lengthPosition, row.position() - lengthPosition - Integer.BYTES);
+  }
+
+  private void putHeader(int ordinal, byte type, int valueBytes) {
+    ensureCapacity(ENTRY_HEADER_BYTES + valueBytes);
+    row.putShort((short) ordinal);
+    row.put(type);
+  }
+
+  private void ensureCapacity(int additional) {
+    if (row.remaining() >= additional) {
+      return;
+    }
+    int required = Math.addExact(row.position(), additional);
+    ByteBuffer grown =
+        ByteBuffer.allocate(Math.max(required, row.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+    row.flip();
+    grown.put(row);
+    row = grown;
+  }
+
+  private DocumentException mismatch(int slot, Object value) {
+    return new DocumentException(
+        String.format(
+            "Field '%s' of type %s cannot hold a %s",
+            schema.field(slot).getName(),
+            schema.field(slot).getType(),
+            value.getClass().getSimpleName()));
+  }
+
+  private static byte typeOf(FieldType type) {
+    if (type == null) {
+      return 0;
+    }
+    return switch (type) {
+      case TEXT -> TYPE_TEXT;
+      case I64 -> TYPE_I64;
+      case U64 -> TYPE_U64;
+      case F64 -> TYPE_F64;
+      case DATE -> TYPE_DATE;
+      case BOOL -> TYPE_BOOL;
+      default -> 0;
+    };
+  }
+}
@@ -0,0 +1,78 @@
+package com.nexo.document;
+
+import java.util.Arrays;
+
+/**
+ * Ingest-path form of a document whose values are stored by {@link DocumentSchema} slot. It builds
+ * no maps, validates no field names and is reusable through {@link #clear()}, so bulk loads can
+ * fill one instance per batch slot instead of building a {@link Document} per input. It is written
+ * to the index as a binary row by {@link RowEncoder}. Use {@link #toDocument()} where the public
+ * representation is needed.
+ */
+public final class SchemaBoundDocument {
+
+  private final DocumentSchema schema;
+  private final Object[] values;
+  private String id;
+
+  public SchemaBoundDocument(DocumentSchema schema) {
+    this.schema = schema;
+    this.values = new Object[schema.size()];
+  }
+
+  public DocumentSchema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Sets the document id; a blank id is replaced by a generated one when the document is written.
+   */
+  public SchemaBoundDocument id(String id) {
+    this.id = (id != null && !id.isBlank()) ? id.trim() : null;
+    return this;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the schema has no field {@code name}
+   */
+  public SchemaBoundDocument set(String name, Object value) {
+    int slot = schema.slot(name);
+    if (slot < 0) {
+      throw new IllegalArgumentException(
+          "Field '" + name + "' is not defined in the collection schema");
+    }
+    return set(slot, value);
+  }
+
+  public SchemaBoundDocument set(int slot, Object value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Field value cannot be null");
+    }
+    values[slot] = value;
+    return this;
+  }
+
+  public Object get(int slot) {
+    return values[slot];
+  }
+
+  /** Drops the id and all values so the instance can be filled with the next document. */
+  public void clear() {
+    id = null;
+    Arrays.fill(values, null);
+  }
+
+  public Document toDocument() {
+    Document.DocumentBuilder builder = Document.builder().id(id);
+    for (int slot = 0; slot < values.length; slot++) {
+      if (values[slot] != null) {
+        builder.field(schema.field(slot).getName(), values[slot]);
+      }
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,134 @@
+package com.nexo.document;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.VectorBatch;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * One {@link VectorBatch} per vector field of a collection, filled from the {@code _chunks} of
+ * streamed documents. {@code _chunks} is either an array of chunks, which goes to the first
+ * (default) field, or an object mapping vector field names to such arrays. The batches are not
+ * thread-safe and are reused across flushes.
+ */
+final class VectorBatches {
+
+  private final String[] fields;
+  private final EmbeddingDecoder[] decoders;
+  private final VectorBatch[] batches;
+  private final int[] marks;
+
+  /** {@code decoders} must iterate in field order, the default field first. */
+  VectorBatches(Map<String, EmbeddingDecoder> decoders) {
+    if (decoders.isEmpty()) {
+      throw new IllegalArgumentException("At least one vector field is required");
+    }
+    this.fields = decoders.keySet().toArray(String[]::new);
+    this.decoders = decoders.values().toArray(EmbeddingDecoder[]::new);
+    this.batches = new VectorBatch[fields.length];
+    for (int i = 0; i < batches.length; i++) {
+      batches[i] = this.decoders[i].newBatch();
+    }
+    this.marks = new int[fields.length];
+  }
+
+  /** Number of vector fields. */
+  int size() {
+    return fields.length;
+  }
+
+  String field(int i) {
+    return fields[i];
+  }
+
+  VectorBatch batch(int i) {
+    return batches[i];
+  }
+
+  boolean isEmpty() {
+    for (VectorBatch batch : batches) {
+      if (!batch.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Appends the chunk embeddings of the {@code _chunks} value the parser is positioned on. The
+   * whole value is consumed even when it is invalid, so the caller can go on with the next field.
+   *
+   * @throws DocumentException if a chunk is malformed or names an unknown vector field
+   */
+  void read(JsonParser parser, int document) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.START_ARRAY) {
+      decoders[0].readChunks(parser, batches[0], document);
+      return;
+    }
+    if (token != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      throw new DocumentException(
+          "Field '"
+              + EmbeddingDecoder.CHUNKS_FIELD
+              + "' must be an array of chunks or an object of chunk arrays per vector field");
+    }
+    DocumentException error = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      parser.nextToken();
+      int field = indexOf(name);
+      if (field < 0) {
+        parser.skipChildren();
+        error = new DocumentException("Unknown vector field: " + name);
+        continue;
+      }
+      try {
+        decoders[field].readChunks(parser, batches[field], document);
+      } catch (DocumentException e) {
+        error = e;
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  /** Remembers the current size of every batch, before a document is read. */
+  void mark() {
+    for (int i = 0; i < batches.length; i++) {
+      marks[i] = batches[i].size();
+    }
+  }
+
+  /** Sets the document id of every vector appended since {@link #mark()}. */
+  void identify(String id) {
+    for (int i = 0; i < batches.length; i++) {
+      batches[i].identify(marks[i], id);
+    }
+  }
+
+  /** Drops every vector appended since {@link #mark()}, e.g. of a rejected document. */
+  void rollback() {
+    for (int i = 0; i < batches.length; i++) {
+      batches[i].truncate(marks[i]);
+    }
+  }
+
+  void reset() {
+    for (VectorBatch batch : batches) {
+      batch.reset();
+    }
+  }
+
+  private int indexOf(String name) {
+    for (int i = 0; i < fields.length; i++) {
+      if (fields[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
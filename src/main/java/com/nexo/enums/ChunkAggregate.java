@@ -0,0 +1,22 @@
+package com.nexo.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/** How the similarities of a document's matching chunks combine into the document's score. */
+public enum ChunkAggregate {
+  /** The similarity of the document's nearest chunk. */
+  MAX("max"),
+  /** The sum of the similarities of all matching chunks, favouring documents that match often. */
+  SUM("sum");
+
+  private final String value;
+
+  ChunkAggregate(String value) {
+    this.value = value;
+  }
+
+  @JsonValue
+  public String getValue() {
+    return value;
+  }
+}
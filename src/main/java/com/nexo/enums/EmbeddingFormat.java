@@ -0,0 +1,48 @@
+package com.nexo.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.Set;
+
+/** Element encodings accepted for binary (base64) chunk embeddings, all little-endian. */
+public enum EmbeddingFormat {
+  F32("f32", 4, Set.of("f64", "f32", "bf16", "f16", "i8", "b1")),
+  F16("f16", 2, Set.of("bf16", "f16", "i8", "b1")),
+  I8("i8", 1, Set.of("i8", "b1"));
+
+  private final String value;
+  private final int bytes;
+  private final Set<String> quantizations;
+
+  EmbeddingFormat(String value, int bytes, Set<String> quantizations) {
+    this.value = value;
+    this.bytes = bytes;
+    this.quantizations = quantizations;
+  }
+
+  @JsonValue
+  public String getValue() {
+    return value;
+  }
+
+  /** Encoded size of one vector element. */
+  public int getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Whether vectors in this format can be stored at {@code quantization} without the upload being
+   * less precise than the index itself.
+   */
+  public boolean allowedFor(String quantization) {
+    return quantization != null && quantizations.contains(quantization.toLowerCase());
+  }
+
+  public static EmbeddingFormat fromValue(String value) {
+    for (EmbeddingFormat format : values()) {
+      if (format.value.equalsIgnoreCase(value)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown embedding format: " + value);
+  }
+}
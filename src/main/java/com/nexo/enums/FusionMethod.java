@@ -0,0 +1,22 @@
+package com.nexo.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/** How the keyword and vector result lists of a hybrid search are merged into one ranking. */
+public enum FusionMethod {
+  /** Reciprocal rank fusion: each list contributes {@code 1 / (rankConstant + rank)}. */
+  RRF("rrf"),
+  /** Weighted sum of the min-max normalized BM25 scores and vector similarities. */
+  WEIGHTED("weighted");
+
+  private final String value;
+
+  FusionMethod(String value) {
+    this.value = value;
+  }
+
+  @JsonValue
+  public String getValue() {
+    return value;
+  }
+}
@@ -0,0 +1,15 @@
+package com.nexo.exception;
+
+import lombok.Getter;
+
+/** Rejects work while a bounded queue is full; clients should retry after the given delay. */
+@Getter
+public class BackpressureException extends NexoException {
+
+  private final int retryAfterSeconds;
+
+  public BackpressureException(String message, int retryAfterSeconds) {
+    super(ErrorType.TOO_MANY_REQUESTS, message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+}
@@ -13,6 +13,7 @@ public enum ErrorType {
   FORBIDDEN("FORBIDDEN", HttpResponseStatus.FORBIDDEN),
   CONFLICT("CONFLICT", HttpResponseStatus.CONFLICT),
   UNPROCESSABLE_ENTITY("UNPROCESSABLE_ENTITY", HttpResponseStatus.UNPROCESSABLE_ENTITY),
+  TOO_MANY_REQUESTS("TOO_MANY_REQUESTS", HttpResponseStatus.TOO_MANY_REQUESTS),
   SERVICE_UNAVAILABLE("SERVICE_UNAVAILABLE", HttpResponseStatus.SERVICE_UNAVAILABLE),
   GATEWAY_TIMEOUT("GATEWAY_TIMEOUT", HttpResponseStatus.GATEWAY_TIMEOUT);
 
@@ -0,0 +1,54 @@
+package com.nexo.index;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+@Getter
+public class BulkResult {
+
+  @JsonProperty("total")
+  private final int total;
+
+  @JsonProperty("failures")
+  private final List<ItemError> failures;
+
+  public BulkResult(int total, List<ItemError> failures) {
+    this.total = total;
+    this.failures = failures != null ? Collections.unmodifiableList(failures) : List.of();
+  }
+
+  public static BulkResult empty() {
+    return new BulkResult(0, List.of());
+  }
+
+  /** Builds a result from the per-item messages returned by the native writer. */
+  static BulkResult fromNative(int total, String[] errors) {
+    if (errors == null) {
+      return new BulkResult(total, List.of());
+    }
+    List<ItemError> failures = new ArrayList<>();
+    for (int i = 0; i < errors.length; i++) {
+      if (errors[i] != null) {
+        failures.add(new ItemError(i, errors[i]));
+      }
+    }
+    return new BulkResult(total, failures);
+  }
+
+  @JsonProperty("indexed")
+  public int getIndexed() {
+    return total - failures.size();
+  }
+
+  @JsonIgnore
+  public boolean hasFailures() {
+    return !failures.isEmpty();
+  }
+
+  public record ItemError(
+      @JsonProperty("index") int index, @JsonProperty("reason") String reason) {}
+}
@@ -0,0 +1,56 @@
+package com.nexo.index;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Decides when buffered documents are committed: after {@code maxDocs} documents, {@code maxBytes}
+ * of NDJSON or {@code intervalMs} milliseconds since the first uncommitted document, whichever
+ * comes first. A value of zero disables that trigger.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+public class CommitPolicy {
+
+  @JsonProperty("maxDocs")
+  private long maxDocs;
+
+  @JsonProperty("maxBytes")
+  private long maxBytes;
+
+  @JsonProperty("intervalMs")
+  private long intervalMs;
+
+  public static CommitPolicy defaults() {
+    return new CommitPolicy(10_000, 64L * 1024 * 1024, 1000);
+  }
+
+  /** Returns {@code override} with every unset (non-positive) value taken from {@code defaults}. */
+  public static CommitPolicy resolve(CommitPolicy override, CommitPolicy defaults) {
+    if (override == null) {
+      return defaults;
+    }
+    return new CommitPolicy(
+        override.maxDocs > 0 ? override.maxDocs : defaults.maxDocs,
+        override.maxBytes > 0 ? override.maxBytes : defaults.maxBytes,
+        override.intervalMs > 0 ? override.intervalMs : defaults.intervalMs);
+  }
+
+  @Override
+  public String toString() {
+    return "CommitPolicy{maxDocs="
+        + maxDocs
+        + ", maxBytes="
+        + maxBytes
+        + ", intervalMs="
+        + intervalMs
+        + '}';
+  }
+}
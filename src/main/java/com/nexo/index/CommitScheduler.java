@@ -0,0 +1,123 @@
+package com.nexo.index;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks documents written since the last commit and commits according to a {@link CommitPolicy}.
+ * It is not thread-safe; the ingest pipeline only calls it from its writer thread.
+ */
+@Slf4j
+class CommitScheduler {
+
+  private final String collection;
+  private final CommitPolicy policy;
+  private final Runnable commit;
+  private final LongSupplier nanoClock;
+  private final MeterRegistry registry;
+  private final DistributionSummary commitDocs;
+  private final DistributionSummary commitBytes;
+
+  private long pendingDocs;
+  private long pendingBytes;
+  private long firstPendingNanos;
+
+  CommitScheduler(String collection, CommitPolicy policy, Runnable commit) {
+    this(collection, policy, commit, System::nanoTime, Metrics.globalRegistry);
+  }
+
+  CommitScheduler(
+      String collection,
+      CommitPolicy policy,
+      Runnable commit,
+      LongSupplier nanoClock,
+      MeterRegistry registry) {
+    this.collection = collection;
+    this.policy = policy;
+    this.commit = commit;
+    this.nanoClock = nanoClock;
+    this.registry = registry;
+    this.commitDocs =
+        DistributionSummary.builder("nexo.index.commit.docs")
+            .description("Documents made durable by one commit")
+            .tag("collection", collection)
+            .register(registry);
+    this.commitBytes =
+        DistributionSummary.builder("nexo.index.commit.bytes")
+            .description("NDJSON bytes made durable by one commit")
+            .baseUnit("bytes")
+            .tag("collection", collection)
+            .register(registry);
+  }
+
+  /** Delay between interval checks, or zero if the interval trigger is disabled. */
+  long tickMillis() {
+    return policy.getIntervalMs() > 0 ? Math.max(10, policy.getIntervalMs() / 4) : 0;
+  }
+
+  void recordBatch(int docs, long bytes) {
+    if (docs <= 0) {
+      return;
+    }
+    if (pendingDocs == 0) {
+      firstPendingNanos = nanoClock.getAsLong();
+    }
+    pendingDocs += docs;
+    pendingBytes += bytes;
+
+    if (policy.getMaxDocs() > 0 && pendingDocs >= policy.getMaxDocs()) {
+      commit("docs");
+    } else if (policy.getMaxBytes() > 0 && pendingBytes >= policy.getMaxBytes()) {
+      commit("bytes");
+    }
+  }
+
+  void tick() {
+    if (pendingDocs > 0
+        && policy.getIntervalMs() > 0
+        && nanoClock.getAsLong() - firstPendingNanos
+            >= TimeUnit.MILLISECONDS.toNanos(policy.getIntervalMs())) {
+      commit("interval");
+    }
+  }
+
+  /** Commits whatever is pending, e.g. before the writer shuts down. */
+  void flush() {
+    if (pendingDocs > 0) {
+      commit("close");
+    }
+  }
+
+  long pendingDocs() {
+    return pendingDocs;
+  }
+
+  private void commit(String trigger) {
+    long start = nanoClock.getAsLong();
+    commit.run();
+    long elapsed = nanoClock.getAsLong() - start;
+
+    Timer.builder("nexo.index.commit.latency")
+        .description("Time spent committing the keyword index")
+        .tag("collection", collection)
+        .tag("trigger", trigger)
+        .register(registry)
+        .record(elapsed, TimeUnit.NANOSECONDS);
+    commitDocs.record(pendingDocs);
+    commitBytes.record(pendingBytes);
+    log.debug(
+        "Committed {} documents ({} bytes) for collection {} on {}",
+        pendingDocs,
+        pendingBytes,
+        collection,
+        trigger);
+
+    pendingDocs = 0;
+    pendingBytes = 0;
+  }
+}
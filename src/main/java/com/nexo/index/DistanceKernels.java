@@ -0,0 +1,35 @@
+package com.nexo.index;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Distance functions over slices of float arrays, behind {@link VectorMetric}. {@link #INSTANCE} is
+ * the Vector API implementation when the incubator module is resolved at runtime ({@code
+ * --add-modules jdk.incubator.vector}) and {@link ScalarKernels} otherwise. The Vector API one is
+ * loaded by name, so that none of the incubator classes is linked on a JVM without the module.
+ */
+interface DistanceKernels {
+
+  DistanceKernels INSTANCE = load();
+
+  float dot(float[] a, int aOffset, float[] b, int bOffset, int dimension);
+
+  float l2sq(float[] a, int aOffset, float[] b, int bOffset, int dimension);
+
+  /** Cosine distance: 0 for two zero vectors, 1 if only one of them is zero. */
+  float cos(float[] a, int aOffset, float[] b, int bOffset, int dimension);
+
+  private static DistanceKernels load() {
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return ScalarKernels.INSTANCE;
+    }
+    try {
+      return (DistanceKernels)
+          Class.forName("com.nexo.index.VectorKernels").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      LoggerFactory.getLogger(DistanceKernels.class)
+          .warn("Vector API kernels could not be loaded, using scalar loops", e);
+      return ScalarKernels.INSTANCE;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package com.nexo.index;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongPredicate;
+
+/**
+ * Exact k-NN over every key of an index, for indexes small enough that walking a graph costs recall
+ * without saving time. The key range is split in halves until blocks of {@link #BLOCK} keys remain,
+ * which are scored in parallel on the {@link VectorSearchPool}; each block keeps its nearest {@code
+ * k} in a bounded heap, and the heaps are merged on the way back up.
+ */
+final class ExactVectorScan {
+
+  static final int BLOCK = 1024;
+
+  /** Copies the full-precision vector of {@code key} into {@code target}. Must be thread-safe. */
+  @FunctionalInterface
+  interface VectorReader {
+    void read(long key, float[] target);
+  }
+
+  private ExactVectorScan() {}
+
+  /**
+   * Returns the {@code k} keys below {@code keys} accepted by {@code accept} that are nearest to
+   * {@code query}, scanning on the calling thread when there is only one block.
+   */
+  static TopK scan(
+      VectorReader reader,
+      VectorMetric metric,
+      float[] query,
+      int k,
+      long keys,
+      LongPredicate accept) {
+    ScanTask task = new ScanTask(reader, metric, query, k, 0, keys, accept);
+    TopK top = keys <= BLOCK ? task.scanBlock() : VectorSearchPool.POOL.invoke(task);
+    top.sort();
+    return top;
+  }
+
+  private static final class ScanTask extends RecursiveTask<TopK> {
+    private final VectorReader reader;
+    private final VectorMetric metric;
+    private final float[] query;
+    private final int k;
+    private final long from;
+    private final long to;
+    private final LongPredicate accept;
+
+    ScanTask(
+        VectorReader reader,
+        VectorMetric metric,
+        float[] query,
+        int k,
+        long from,
+        long to,
+        LongPredicate accept) {
+      this.reader = reader;
+      this.metric = metric;
+      this.query = query;
+      this.k = k;
+      this.from = from;
+      this.to = to;
+      this.accept = accept;
+    }
+
+    @Override
+    protected TopK compute() {
+      if (to - from <= BLOCK) {
+        return scanBlock();
+      }
+      long middle = (from + to) >>> 1;
+      ScanTask left = new ScanTask(reader, metric, query, k, from, middle, accept);
+      left.fork();
+      TopK top = new ScanTask(reader, metric, query, k, middle, to, accept).compute();
+      top.addAll(left.join());
+      return top;
+    }
+
+    TopK scanBlock() {
+      TopK top = new TopK(k);
+      float[] stored = new float[query.length];
+      for (long key = from; key < to; key++) {
+        if (accept.test(key)) {
+          reader.read(key, stored);
+          top.offer(metric.distance(query, 0, stored, 0, query.length), key);
+        }
+      }
+      return top;
+    }
+  }
+
+  /**
+   * The nearest keys seen so far, at most {@code k} of them, in a max-heap on distance so the
+   * farthest is replaced first. After {@link #sort()} they are ordered nearest first.
+   */
+  static final class TopK {
+    private final float[] distances;
+    private final long[] keys;
+    private int size;
+
+    TopK(int k) {
+      this.distances = new float[k];
+      this.keys = new long[k];
+    }
+
+    int size() {
+      return size;
+    }
+
+    long key(int i) {
+      return keys[i];
+    }
+
+    float distance(int i) {
+      return distances[i];
+    }
+
+    void offer(float distance, long key) {
+      if (size < keys.length) {
+        distances[size] = distance;
+        keys[size] = key;
+        siftUp(size++);
+      } else if (distance < distances[0]) {
+        distances[0] = distance;
+        keys[0] = key;
+        siftDown(0, size);
+      }
+    }
+
+    void addAll(TopK other) {
+      for (int i = 0; i < other.size; i++) {
+        offer(other.distances[i], other.keys[i]);
+      }
+    }
+
+    /** Orders the keys nearest first; the heap cannot be offered to afterwards. */
+    void sort() {
+      for (int end = size - 1; end > 0; end--) {
+        swap(0, end);
+        siftDown(0, end);
+      }
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (distances[parent] >= distances[i]) {
+          return;
+        }
+        swap(parent, i);
+        i = parent;
+      }
+    }
+
+    private void siftDown(int i, int end) {
+      while (true) {
+        int largest = i;
+        int left = 2 * i + 1;
+        int right = left + 1;
+        if (left < end && distances[left] > distances[largest]) {
+          largest = left;
+        }
+        if (right < end && distances[right] > distances[largest]) {
+          largest = right;
+        }
+        if (largest == i) {
+          return;
+        }
+        swap(i, largest);
+        i = largest;
+      }
+    }
+
+    private void swap(int i, int j) {
+      float distance = distances[i];
+      distances[i] = distances[j];
+      distances[j] = distance;
+      long key = keys[i];
+      keys[i] = keys[j];
+      keys[j] = key;
+    }
+  }
+}
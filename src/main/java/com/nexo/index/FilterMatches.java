@@ -0,0 +1,11 @@
+package com.nexo.index;
+
+import java.util.List;
+
+/**
+ * Documents matching a filter query: how many there are and, when there were few enough to list,
+ * their ids.
+ *
+ * @param documentIds ids of all matching documents, or null if more matched than were asked for
+ */
+public record FilterMatches(long count, List<String> documentIds) {}
@@ -0,0 +1,94 @@
+package com.nexo.index;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/** Progress of one force merge, reported by the force-merge admin API. */
+@Getter
+public class ForceMergeStatus {
+
+  public enum State {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  @JsonProperty("collection")
+  private final String collection;
+
+  @JsonProperty("max_segments")
+  private final int maxSegments;
+
+  @JsonProperty("state")
+  private volatile State state = State.QUEUED;
+
+  @JsonProperty("initial_segments")
+  private volatile int initialSegments = -1;
+
+  @JsonProperty("current_segments")
+  private volatile int currentSegments = -1;
+
+  @JsonProperty("merges")
+  private volatile int merges;
+
+  @JsonProperty("merged_bytes")
+  private volatile long mergedBytes;
+
+  @JsonProperty("error")
+  private volatile String error;
+
+  @JsonProperty("started_at")
+  private volatile long startedAt;
+
+  @JsonProperty("finished_at")
+  private volatile long finishedAt;
+
+  ForceMergeStatus(String collection, int maxSegments) {
+    this.collection = collection;
+    this.maxSegments = maxSegments;
+  }
+
+  /** Fraction of the segments above {@code maxSegments} that have been merged away, 0 to 1. */
+  @JsonProperty("progress")
+  public double getProgress() {
+    if (state == State.COMPLETED) {
+      return 1.0;
+    }
+    int excess = initialSegments - maxSegments;
+    if (state != State.RUNNING || excess <= 0) {
+      return 0.0;
+    }
+    int remaining = Math.max(0, currentSegments - maxSegments);
+    return (double) (excess - remaining) / excess;
+  }
+
+  public boolean isDone() {
+    return state == State.COMPLETED || state == State.FAILED;
+  }
+
+  synchronized void start(int segments) {
+    initialSegments = segments;
+    currentSegments = segments;
+    startedAt = System.currentTimeMillis();
+    state = State.RUNNING;
+  }
+
+  synchronized void merged(int segments, long bytes) {
+    currentSegments = segments;
+    mergedBytes += bytes;
+    merges++;
+  }
+
+  synchronized void complete(int segments) {
+    currentSegments = segments;
+    finishedAt = System.currentTimeMillis();
+    state = State.COMPLETED;
+  }
+
+  synchronized void fail(String message) {
+    error = message;
+    finishedAt = System.currentTimeMillis();
+    state = State.FAILED;
+  }
+}
@@ -0,0 +1,180 @@
+package com.nexo.index;
+
+import com.nexo.config.NexoConfig;
+import com.nexo.exception.BackpressureException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Node-wide budget for native writer arenas. Every writer reserves its arena here before it is
+ * opened. When the budget is exhausted the least recently used idle writers are committed and
+ * closed to make room, and writers idle for longer than {@code writerIdleTimeoutMs} are released in
+ * the background.
+ */
+@Slf4j
+public class IndexingMemoryManager {
+
+  private static volatile IndexingMemoryManager instance;
+  private static final Object LOCK = new Object();
+
+  /** A writer whose arena can be reclaimed while it is not in use. */
+  interface ManagedWriter {
+
+    long lastUsedNanos();
+
+    /** Commits and closes the writer unless it is busy; returns whether it was released. */
+    boolean releaseIdleWriter();
+  }
+
+  private final long budget;
+  private final long idleTimeoutNanos;
+  private final Map<ManagedWriter, Long> reservations = new IdentityHashMap<>();
+  private long reserved;
+
+  IndexingMemoryManager(long budget, long idleTimeoutMs) {
+    if (budget < WriterBudget.MIN_HEAP_PER_THREAD) {
+      throw new IllegalArgumentException(
+          "Indexing memory budget must be at least " + WriterBudget.MIN_HEAP_PER_THREAD + " bytes");
+    }
+    this.budget = budget;
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+  }
+
+  public static IndexingMemoryManager getInstance() {
+    if (instance == null) {
+      synchronized (LOCK) {
+        if (instance == null) {
+          NexoConfig.KeywordIndexConfig config = NexoConfig.getInstance().getKeywordIndex();
+          IndexingMemoryManager manager =
+              new IndexingMemoryManager(
+                  config.getIndexingMemoryBudget(), config.getWriterIdleTimeoutMs());
+          manager.startIdleSweeper();
+          instance = manager;
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Reserves an arena for {@code writer}. If the requested heap does not fit, idle writers are
+   * released first; if it still does not fit, a smaller arena is granted as long as it meets the
+   * per-thread minimum.
+   *
+   * @throws BackpressureException if not even the minimum arena is available
+   */
+  WriterBudget reserve(ManagedWriter writer, WriterBudget requested) {
+    List<ManagedWriter> candidates;
+    synchronized (this) {
+      release(writer);
+      if (reserved + requested.heapSize() <= budget) {
+        return grant(writer, requested);
+      }
+      candidates = idleCandidates(writer);
+    }
+
+    for (ManagedWriter candidate : candidates) {
+      synchronized (this) {
+        if (reserved + requested.heapSize() <= budget) {
+          break;
+        }
+      }
+      candidate.releaseIdleWriter();
+    }
+
+    synchronized (this) {
+      long available = budget - reserved;
+      if (available >= requested.heapSize()) {
+        return grant(writer, requested);
+      }
+      if (available >= WriterBudget.MIN_HEAP_PER_THREAD) {
+        return grant(writer, WriterBudget.of(available, requested.threads()));
+      }
+      throw new BackpressureException(
+          String.format(
+              "Indexing memory budget exhausted: %d of %d bytes reserved by %d writers",
+              reserved, budget, reservations.size()),
+          IngestPipeline.RETRY_AFTER_SECONDS);
+    }
+  }
+
+  synchronized void release(ManagedWriter writer) {
+    Long heapSize = reservations.remove(writer);
+    if (heapSize != null) {
+      reserved -= heapSize;
+    }
+  }
+
+  /** Releases every writer that has not been used within the idle timeout. */
+  void releaseIdleWriters() {
+    List<ManagedWriter> writers;
+    synchronized (this) {
+      writers = new ArrayList<>(reservations.keySet());
+    }
+    long now = System.nanoTime();
+    for (ManagedWriter writer : writers) {
+      if (now - writer.lastUsedNanos() >= idleTimeoutNanos) {
+        writer.releaseIdleWriter();
+      }
+    }
+  }
+
+  public long getBudget() {
+    return budget;
+  }
+
+  public synchronized long getReserved() {
+    return reserved;
+  }
+
+  public synchronized int getOpenWriters() {
+    return reservations.size();
+  }
+
+  private WriterBudget grant(ManagedWriter writer, WriterBudget budgetToGrant) {
+    reservations.put(writer, budgetToGrant.heapSize());
+    reserved += budgetToGrant.heapSize();
+    log.debug(
+        "Reserved {} bytes for index writer, {} of {} in use", budgetToGrant, reserved, budget);
+    return budgetToGrant;
+  }
+
+  private List<ManagedWriter> idleCandidates(ManagedWriter requester) {
+    return reservations.keySet().stream()
+        .filter(candidate -> candidate != requester)
+        .sorted(Comparator.comparingLong(ManagedWriter::lastUsedNanos))
+        .toList();
+  }
+
+  private void startIdleSweeper() {
+    if (idleTimeoutNanos <= 0) {
+      return;
+    }
+    ScheduledExecutorService sweeper =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "writer-idle-sweeper");
+              t.setDaemon(true);
+              return t;
+            });
+    long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 2);
+    sweeper.scheduleWithFixedDelay(
+        () -> {
+          try {
+            releaseIdleWriters();
+          } catch (Exception e) {
+            log.warn("Idle writer sweep failed", e);
+          }
+        },
+        period,
+        period,
+        TimeUnit.MILLISECONDS);
+  }
+}
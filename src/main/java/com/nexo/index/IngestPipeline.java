@@ -0,0 +1,302 @@
+package com.nexo.index;
+
+import com.nexo.config.NexoConfig;
+import com.nexo.exception.BackpressureException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-collection ingest pipeline. Requests are admitted into a bounded queue, parsed and validated
+ * on the node-wide ingest pool, and every batch is indexed by a single writer thread that owns the
+ * collection's {@link TantivyIndex} handle. When the queue is full new requests are rejected with a
+ * {@link BackpressureException} instead of stalling the calling thread.
+ *
+ * <p>A parse task blocks while its batches are written and made durable, so each collection runs at
+ * most {@code parseThreads} tasks on the shared pool at once and queues the rest. A collection with
+ * a slow writer or fsync then holds only its own slots and cannot stall ingest elsewhere.
+ */
+@Slf4j
+public class IngestPipeline implements AutoCloseable {
+
+  static final int RETRY_AFTER_SECONDS = 1;
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+  private final String name;
+  private final Function<NativeBatchBuffer, BulkResult> sink;
+  private final Executor parseExecutor;
+  private final ScheduledExecutorService writer;
+  private final CommitScheduler commitScheduler;
+  private final WriteAheadLog wal;
+  private final Lock writerLock;
+  private final Semaphore slots;
+  private final int capacity;
+  private volatile boolean closed;
+
+  public IngestPipeline(
+      String name,
+      TantivyIndex index,
+      WriteAheadLog wal,
+      int capacity,
+      int parseThreads,
+      CommitPolicy commitPolicy) {
+    this(
+        name,
+        index::addBatch,
+        new CommitScheduler(name, commitPolicy, index::commit),
+        wal,
+        index.getWriterLock(),
+        new BoundedExecutor(ParsePool.EXECUTOR, parseThreads),
+        capacity);
+    index.addCommitListener(wal::truncate);
+  }
+
+  /**
+   * {@code wal} may be null, in which case writes are only durable once committed. {@code
+   * parseExecutor} is used as is; wrap a shared pool in a {@link BoundedExecutor}.
+   */
+  IngestPipeline(
+      String name,
+      Function<NativeBatchBuffer, BulkResult> sink,
+      CommitScheduler commitScheduler,
+      WriteAheadLog wal,
+      Lock writerLock,
+      Executor parseExecutor,
+      int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Ingest queue capacity must be positive");
+    }
+    this.name = name;
+    this.sink = sink;
+    this.commitScheduler = commitScheduler;
+    this.wal = wal;
+    this.writerLock = writerLock;
+    this.parseExecutor = parseExecutor;
+    this.capacity = capacity;
+    this.slots = new Semaphore(capacity);
+    this.writer =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "ingest-writer-" + name);
+              t.setDaemon(true);
+              return t;
+            });
+
+    long tick = commitScheduler.tickMillis();
+    if (tick > 0) {
+      writer.scheduleWithFixedDelay(this::commitOnInterval, tick, tick, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Reserves a queue slot for one request. Every successful call must be paired with {@link
+   * #release()}.
+   *
+   * @throws BackpressureException if the queue is full
+   */
+  public void acquire() {
+    if (closed) {
+      throw new IllegalStateException("Ingest pipeline is closed: " + name);
+    }
+    if (!slots.tryAcquire()) {
+      throw new BackpressureException(
+          String.format("Ingest queue for collection %s is full (%d requests)", name, capacity),
+          RETRY_AFTER_SECONDS);
+    }
+  }
+
+  public void release() {
+    slots.release();
+  }
+
+  /** Runs the parse stage of one request on the ingest pool, holding a queue slot until done. */
+  public <T> CompletableFuture<T> submit(Supplier<T> task) {
+    acquire();
+    try {
+      return CompletableFuture.supplyAsync(task, parseExecutor).whenComplete((r, e) -> release());
+    } catch (RejectedExecutionException e) {
+      release();
+      throw new BackpressureException("Ingest pool is saturated", RETRY_AFTER_SECONDS);
+    }
+  }
+
+  public Executor parseExecutor() {
+    return parseExecutor;
+  }
+
+  /**
+   * Logs and indexes {@code batch} on the writer thread and waits until it is durable in the
+   * write-ahead log. The batch becomes searchable with the next commit chosen by the collection's
+   * {@link CommitPolicy}.
+   */
+  public BulkResult write(NativeBatchBuffer batch) {
+    try {
+      Written written =
+          CompletableFuture.supplyAsync(() -> writeAndMaybeCommit(batch), writer).join();
+      if (wal != null) {
+        wal.awaitDurable(written.sequence());
+      }
+      return written.result();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    } catch (RejectedExecutionException e) {
+      throw new IllegalStateException("Ingest pipeline is closed: " + name, e);
+    }
+  }
+
+  private Written writeAndMaybeCommit(NativeBatchBuffer batch) {
+    long sequence;
+    BulkResult result;
+    // A commit, including one by the memory manager releasing an idle writer, truncates the log,
+    // so appending and indexing must not be separated by one.
+    writerLock.lock();
+    try {
+      sequence = wal != null ? wal.append(batch) : 0;
+      result = sink.apply(batch);
+    } finally {
+      writerLock.unlock();
+    }
+    commitScheduler.recordBatch(result.getIndexed(), batch.size());
+    return new Written(result, sequence);
+  }
+
+  private void commitOnInterval() {
+    try {
+      commitScheduler.tick();
+    } catch (Exception e) {
+      log.error("Scheduled commit failed for collection {}", name, e);
+    }
+  }
+
+  /** Number of admitted requests that have not completed yet. */
+  public int queued() {
+    return capacity - slots.availablePermits();
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    writer.execute(
+        () -> {
+          try {
+            commitScheduler.flush();
+          } catch (Exception e) {
+            log.error("Final commit failed for collection {}", name, e);
+          }
+        });
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("Ingest writer for collection {} did not drain in time", name);
+        writer.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      writer.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private record Written(BulkResult result, long sequence) {}
+
+  /**
+   * Runs at most {@code limit} tasks on {@code delegate} at once and queues the rest in submission
+   * order. A finished task hands its slot to the next queued one by resubmitting it, so collections
+   * sharing the pool take turns.
+   */
+  static final class BoundedExecutor implements Executor {
+    private final Executor delegate;
+    private final int limit;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private int running;
+
+    BoundedExecutor(Executor delegate, int limit) {
+      if (limit < 1) {
+        throw new IllegalArgumentException("Parse thread limit must be positive");
+      }
+      this.delegate = delegate;
+      this.limit = limit;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      synchronized (this) {
+        if (running >= limit) {
+          tasks.add(task);
+          return;
+        }
+        running++;
+      }
+      try {
+        delegate.execute(() -> runAndHandOver(task));
+      } catch (RejectedExecutionException e) {
+        synchronized (this) {
+          running--;
+        }
+        throw e;
+      }
+    }
+
+    private void runAndHandOver(Runnable task) {
+      try {
+        task.run();
+      } finally {
+        Runnable next;
+        synchronized (this) {
+          next = tasks.poll();
+          if (next == null) {
+            running--;
+          }
+        }
+        if (next != null) {
+          handOver(next);
+        }
+      }
+    }
+
+    private void handOver(Runnable task) {
+      try {
+        delegate.execute(() -> runAndHandOver(task));
+      } catch (RejectedExecutionException e) {
+        // The pool is shutting down; finish the queued task here rather than drop it.
+        runAndHandOver(task);
+      }
+    }
+
+    /** Number of tasks waiting for a slot. */
+    synchronized int queued() {
+      return tasks.size();
+    }
+  }
+
+  /** Parse and validate stages of all collections share one pool sized by {@code indexThreads}. */
+  private static final class ParsePool {
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+    private static final ExecutorService EXECUTOR =
+        Executors.newFixedThreadPool(
+            NexoConfig.getInstance().getIndexThreads(),
+            r -> {
+              Thread t = new Thread(r, "ingest-" + THREAD_IDS.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+  }
+}
@@ -0,0 +1,7 @@
+package com.nexo.index;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** One keyword match: the document id and its BM25 score. */
+public record KeywordHit(
+    @JsonProperty("_id") String documentId, @JsonProperty("_score") float score) {}
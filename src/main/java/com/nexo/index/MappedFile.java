@@ -0,0 +1,190 @@
+package com.nexo.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A file mapped into memory in fixed power-of-two segments, grown by mapping more of them. Mapped
+ * segments never move, and the segment table is replaced as a whole when it grows, so reads need no
+ * lock; growing must not run concurrently with another grow. Values are little-endian, and {@code
+ * int}, {@code long} and {@code float} accesses must be aligned to their size so they never
+ * straddle two segments.
+ */
+@Slf4j
+final class MappedFile implements AutoCloseable {
+
+  private final Path path;
+  private final FileChannel channel;
+  private final int segmentShift;
+  private final long segmentMask;
+  private volatile Segment[] segments = new Segment[0];
+
+  private record Segment(MappedByteBuffer bytes, FloatBuffer floats) {}
+
+  private MappedFile(Path path, FileChannel channel, int segmentShift) {
+    this.path = path;
+    this.channel = channel;
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1L << segmentShift) - 1;
+  }
+
+  /**
+   * Opens or creates {@code path} and maps all of its existing content.
+   *
+   * @param segmentShift log2 of the segment size in bytes
+   */
+  static MappedFile open(Path path, int segmentShift) {
+    try {
+      FileChannel channel =
+          FileChannel.open(
+              path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      MappedFile file = new MappedFile(path, channel, segmentShift);
+      file.ensureCapacity(channel.size());
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open mapped file: " + path, e);
+    }
+  }
+
+  Path path() {
+    return path;
+  }
+
+  /** Bytes currently mapped, a multiple of the segment size. */
+  long capacity() {
+    return (long) segments.length << segmentShift;
+  }
+
+  /** Maps segments until {@code bytes} bytes are addressable, extending the file as needed. */
+  void ensureCapacity(long bytes) {
+    Segment[] current = segments;
+    long needed = (bytes + segmentMask) >>> segmentShift;
+    if (needed <= current.length) {
+      return;
+    }
+    Segment[] grown = Arrays.copyOf(current, (int) needed);
+    try {
+      for (int i = current.length; i < needed; i++) {
+        MappedByteBuffer mapping =
+            channel.map(
+                FileChannel.MapMode.READ_WRITE, (long) i << segmentShift, 1L << segmentShift);
+        mapping.order(ByteOrder.LITTLE_ENDIAN);
+        grown[i] = new Segment(mapping, mapping.asFloatBuffer());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to grow mapped file: " + path, e);
+    }
+    segments = grown;
+  }
+
+  int getInt(long position) {
+    return segment(position).bytes().getInt(offset(position));
+  }
+
+  void putInt(long position, int value) {
+    segment(position).bytes().putInt(offset(position), value);
+  }
+
+  long getLong(long position) {
+    return segment(position).bytes().getLong(offset(position));
+  }
+
+  void putLong(long position, long value) {
+    segment(position).bytes().putLong(offset(position), value);
+  }
+
+  byte getByte(long position) {
+    return segment(position).bytes().get(offset(position));
+  }
+
+  void putByte(long position, byte value) {
+    segment(position).bytes().put(offset(position), value);
+  }
+
+  /** Reads {@code length} bytes, which may span segments. */
+  void get(long position, byte[] target, int offset, int length) {
+    while (length > 0) {
+      int chunk = (int) Math.min(length, (1L << segmentShift) - offset(position));
+      segment(position).bytes().get(offset(position), target, offset, chunk);
+      position += chunk;
+      offset += chunk;
+      length -= chunk;
+    }
+  }
+
+  /** Writes {@code length} bytes, which may span segments. */
+  void put(long position, byte[] source, int offset, int length) {
+    while (length > 0) {
+      int chunk = (int) Math.min(length, (1L << segmentShift) - offset(position));
+      segment(position).bytes().put(offset(position), source, offset, chunk);
+      position += chunk;
+      offset += chunk;
+      length -= chunk;
+    }
+  }
+
+  /** Reads {@code length} floats, which may span segments. */
+  void getFloats(long position, float[] target, int offset, int length) {
+    while (length > 0) {
+      int chunk = (int) Math.min(length, ((1L << segmentShift) - offset(position)) / Float.BYTES);
+      segment(position).floats().get(offset(position) / Float.BYTES, target, offset, chunk);
+      position += (long) chunk * Float.BYTES;
+      offset += chunk;
+      length -= chunk;
+    }
+  }
+
+  /** Writes {@code length} floats, which may span segments. */
+  void putFloats(long position, float[] source, int offset, int length) {
+    while (length > 0) {
+      int chunk = (int) Math.min(length, ((1L << segmentShift) - offset(position)) / Float.BYTES);
+      segment(position).floats().put(offset(position) / Float.BYTES, source, offset, chunk);
+      position += (long) chunk * Float.BYTES;
+      offset += chunk;
+      length -= chunk;
+    }
+  }
+
+  /** Writes dirty pages back to the file. */
+  void flush() {
+    for (Segment segment : segments) {
+      segment.bytes().force();
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      flush();
+      channel.close();
+    } catch (IOException | UncheckedIOException e) {
+      log.warn("Error closing mapped file: {}", path, e);
+    }
+    segments = new Segment[0];
+  }
+
+  private Segment segment(long position) {
+    Segment[] current = segments;
+    int index = segmentIndex(position);
+    if (position < 0 || index >= current.length) {
+      throw new IndexOutOfBoundsException("Position " + position + " is not mapped in " + path);
+    }
+    return current[index];
+  }
+
+  private int segmentIndex(long position) {
+    return (int) (position >>> segmentShift);
+  }
+
+  private int offset(long position) {
+    return (int) (position & segmentMask);
+  }
+}
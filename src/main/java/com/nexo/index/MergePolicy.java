@@ -0,0 +1,59 @@
+package com.nexo.index;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Log-merge parameters used by the {@link MergeScheduler} to pick background merges. Segments are
+ * grouped into levels of {@code levelLogSize} (log of the doc count) and a level is merged once it
+ * holds {@code minNumSegments} segments. Segments smaller than {@code minLayerSize} docs share the
+ * lowest level, and segments with more than {@code maxDocsBeforeMerge} docs are never merged again.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergePolicy {
+
+  @JsonProperty("minNumSegments")
+  private int minNumSegments;
+
+  @JsonProperty("maxDocsBeforeMerge")
+  private int maxDocsBeforeMerge;
+
+  @JsonProperty("minLayerSize")
+  private int minLayerSize;
+
+  @JsonProperty("levelLogSize")
+  private double levelLogSize;
+
+  public static MergePolicy defaults() {
+    return new MergePolicy(8, 10_000_000, 10_000, 0.75);
+  }
+
+  /** Returns this policy with every unset (non-positive) value taken from {@link #defaults()}. */
+  public MergePolicy withDefaults() {
+    MergePolicy defaults = defaults();
+    return new MergePolicy(
+        minNumSegments > 1 ? minNumSegments : defaults.minNumSegments,
+        maxDocsBeforeMerge > 0 ? maxDocsBeforeMerge : defaults.maxDocsBeforeMerge,
+        minLayerSize > 0 ? minLayerSize : defaults.minLayerSize,
+        levelLogSize > 0 ? levelLogSize : defaults.levelLogSize);
+  }
+
+  @Override
+  public String toString() {
+    return "MergePolicy{minNumSegments="
+        + minNumSegments
+        + ", maxDocsBeforeMerge="
+        + maxDocsBeforeMerge
+        + ", minLayerSize="
+        + minLayerSize
+        + ", levelLogSize="
+        + levelLogSize
+        + '}';
+  }
+}
@@ -0,0 +1,209 @@
+package com.nexo.index;
+
+import com.nexo.config.NexoConfig;
+import com.nexo.exception.NexoException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Node-wide merge scheduler. A single background thread takes turns over the registered indexes and
+ * runs one merge at a time, picked by each index's {@link MergePolicy}. After every merge it pauses
+ * for as long as the merged bytes take at {@code mergeThrottleBytesPerSec}, so merges never average
+ * more disk bandwidth than that and foreground indexing and search keep the rest. Force merges
+ * requested through the admin API take priority over background merges and are throttled the same
+ * way.
+ */
+@Slf4j
+public class MergeScheduler {
+
+  private static final long IDLE_POLL_MS = 1000;
+
+  private static volatile MergeScheduler instance;
+  private static final Object LOCK = new Object();
+
+  /** An index whose segments can be merged by the scheduler. */
+  interface Mergeable {
+    /**
+     * Runs one merge and waits for it. With {@code targetSegments > 0} the smallest segments are
+     * merged towards that count, otherwise the merge policy picks the segments. A closed writer is
+     * only opened when {@code openWriter} is set.
+     *
+     * @return the size of the merged segments in bytes, or -1 if there was nothing to merge
+     */
+    long mergeOnce(int targetSegments, boolean openWriter);
+
+    int segmentCount();
+
+    void commit();
+  }
+
+  private final long maxBytesPerSec;
+  private final Map<String, Mergeable> indexes = new ConcurrentHashMap<>();
+  private final Map<String, ForceMergeStatus> forceMerges = new ConcurrentHashMap<>();
+  private final BlockingDeque<String> forceQueue = new LinkedBlockingDeque<>();
+  private int cursor;
+
+  MergeScheduler(long maxBytesPerSec) {
+    this.maxBytesPerSec = maxBytesPerSec;
+  }
+
+  public static MergeScheduler getInstance() {
+    if (instance == null) {
+      synchronized (LOCK) {
+        if (instance == null) {
+          MergeScheduler scheduler =
+              new MergeScheduler(
+                  NexoConfig.getInstance().getKeywordIndex().getMergeThrottleBytesPerSec());
+          scheduler.start();
+          instance = scheduler;
+        }
+      }
+    }
+    return instance;
+  }
+
+  public void register(String collection, TantivyIndex index) {
+    register(collection, (Mergeable) index);
+  }
+
+  void register(String collection, Mergeable index) {
+    indexes.put(collection, index);
+  }
+
+  public void unregister(String collection) {
+    indexes.remove(collection);
+    forceMerges.remove(collection);
+  }
+
+  /**
+   * Queues a force merge of {@code collection} down to at most {@code maxSegments} segments.
+   *
+   * @throws NexoException if a force merge of the collection is already pending
+   */
+  public ForceMergeStatus forceMerge(String collection, int maxSegments) {
+    if (maxSegments < 1) {
+      throw new IllegalArgumentException("max_segments must be positive");
+    }
+    if (!indexes.containsKey(collection)) {
+      throw new IllegalStateException("Collection is not registered for merging: " + collection);
+    }
+    ForceMergeStatus status = new ForceMergeStatus(collection, maxSegments);
+    ForceMergeStatus current =
+        forceMerges.compute(
+            collection,
+            (key, existing) -> existing != null && !existing.isDone() ? existing : status);
+    if (current != status) {
+      throw NexoException.conflict("A force merge is already running for collection " + collection);
+    }
+    forceQueue.add(collection);
+    log.info("Queued force merge of collection {} to {} segments", collection, maxSegments);
+    return status;
+  }
+
+  /** Status of the last force merge of {@code collection}, or null if there was none. */
+  public ForceMergeStatus getForceMergeStatus(String collection) {
+    return forceMerges.get(collection);
+  }
+
+  /**
+   * Runs one force merge step if any is queued, otherwise one background merge.
+   *
+   * @return the merged bytes, or -1 if there was nothing to do
+   */
+  long runOnce() {
+    String collection = forceQueue.poll();
+    if (collection != null) {
+      return forceMergeStep(collection);
+    }
+    return backgroundMerge();
+  }
+
+  /** How long to pause after merging {@code bytes} to stay under {@code maxBytesPerSec}. */
+  static long throttleNanos(long bytes, long maxBytesPerSec) {
+    if (bytes <= 0 || maxBytesPerSec <= 0) {
+      return 0;
+    }
+    return (long) ((double) bytes / maxBytesPerSec * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private long forceMergeStep(String collection) {
+    ForceMergeStatus status = forceMerges.get(collection);
+    Mergeable index = indexes.get(collection);
+    if (status == null || index == null || status.isDone()) {
+      return 0;
+    }
+    try {
+      if (status.getState() == ForceMergeStatus.State.QUEUED) {
+        index.commit();
+        status.start(index.segmentCount());
+      }
+      long bytes = index.mergeOnce(status.getMaxSegments(), true);
+      if (bytes < 0) {
+        status.complete(index.segmentCount());
+        log.info(
+            "Force merge of collection {} completed: {} -> {} segments, {} bytes merged",
+            collection,
+            status.getInitialSegments(),
+            status.getCurrentSegments(),
+            status.getMergedBytes());
+        return 0;
+      }
+      status.merged(index.segmentCount(), bytes);
+      forceQueue.addFirst(collection);
+      return bytes;
+    } catch (Exception e) {
+      log.error("Force merge of collection {} failed", collection, e);
+      status.fail(e.getMessage());
+      return 0;
+    }
+  }
+
+  private long backgroundMerge() {
+    List<Map.Entry<String, Mergeable>> entries = new ArrayList<>(indexes.entrySet());
+    for (int i = 0; i < entries.size(); i++) {
+      Map.Entry<String, Mergeable> entry = entries.get(Math.floorMod(cursor++, entries.size()));
+      try {
+        long bytes = entry.getValue().mergeOnce(0, false);
+        if (bytes >= 0) {
+          log.debug("Merged {} bytes in collection {}", bytes, entry.getKey());
+          return bytes;
+        }
+      } catch (Exception e) {
+        log.warn("Background merge failed for collection {}", entry.getKey(), e);
+      }
+    }
+    return -1;
+  }
+
+  private void start() {
+    Thread thread = new Thread(this::run, "merge-scheduler");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        long bytes = runOnce();
+        if (bytes < 0) {
+          String next = forceQueue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+          if (next != null) {
+            forceQueue.addFirst(next);
+          }
+        } else {
+          TimeUnit.NANOSECONDS.sleep(throttleNanos(bytes, maxBytesPerSec));
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        log.error("Merge scheduler iteration failed", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package com.nexo.index;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Growable direct buffer holding a batch of documents for a single JNI crossing, either as UTF-8
+ * NDJSON or as length-prefixed binary rows. Instances are pooled; obtain one with {@link
+ * #acquire()} and return it with {@link #close()}.
+ */
+public final class NativeBatchBuffer implements AutoCloseable {
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+  private static final int MAX_POOLED_CAPACITY = 16 * 1024 * 1024;
+  private static final int MAX_POOLED_BUFFERS = 32;
+  private static final byte NEWLINE = '\n';
+
+  private static final ConcurrentLinkedQueue<NativeBatchBuffer> POOL =
+      new ConcurrentLinkedQueue<>();
+
+  /** Encoding of the documents in a batch. */
+  public enum Format {
+    /** One JSON object per line. */
+    NDJSON,
+    /** Self-delimiting binary rows written by {@code RowEncoder}. */
+    ROWS
+  }
+
+  private ByteBuffer buffer;
+  private Format format = Format.NDJSON;
+  private int documentCount;
+  private final OutputStream outputStream = new BufferOutputStream();
+
+  private NativeBatchBuffer(int capacity) {
+    this.buffer = ByteBuffer.allocateDirect(capacity);
+  }
+
+  public static NativeBatchBuffer acquire() {
+    return acquire(Format.NDJSON);
+  }
+
+  public static NativeBatchBuffer acquire(Format format) {
+    NativeBatchBuffer pooled = POOL.poll();
+    NativeBatchBuffer batch = pooled != null ? pooled : new NativeBatchBuffer(INITIAL_CAPACITY);
+    batch.format = format;
+    return batch;
+  }
+
+  public Format format() {
+    return format;
+  }
+
+  /** Stream view used by serializers. Closing the stream does not release the buffer. */
+  public OutputStream asOutputStream() {
+    return outputStream;
+  }
+
+  /** Appends raw bytes of the current document. */
+  public void put(byte[] bytes, int offset, int length) {
+    ensureCapacity(length);
+    buffer.put(bytes, offset, length);
+  }
+
+  /**
+   * Terminates the document written since the previous call. NDJSON documents get a newline; rows
+   * carry their own length prefix.
+   */
+  public void endDocument() {
+    if (format == Format.NDJSON) {
+      ensureCapacity(1);
+      buffer.put(NEWLINE);
+    }
+    documentCount++;
+  }
+
+  /** Discards everything written after {@code position}, used to drop a rejected document. */
+  public void truncate(int position) {
+    if (position < 0 || position > buffer.position()) {
+      throw new IllegalArgumentException("Invalid truncate position: " + position);
+    }
+    buffer.position(position);
+  }
+
+  public int position() {
+    return buffer.position();
+  }
+
+  public int size() {
+    return buffer.position();
+  }
+
+  public int documentCount() {
+    return documentCount;
+  }
+
+  public boolean isEmpty() {
+    return documentCount == 0;
+  }
+
+  /** Direct buffer backing this batch; valid bytes are {@code [0, size())}. */
+  ByteBuffer buffer() {
+    return buffer;
+  }
+
+  /** Appends {@code documents} complete documents, such as a batch replayed from the WAL. */
+  void appendDocuments(ByteBuffer ndjson, int documents) {
+    ensureCapacity(ndjson.remaining());
+    buffer.put(ndjson);
+    documentCount += documents;
+  }
+
+  public void reset() {
+    buffer.clear();
+    documentCount = 0;
+  }
+
+  @Override
+  public void close() {
+    reset();
+    format = Format.NDJSON;
+    if (buffer.capacity() <= MAX_POOLED_CAPACITY && POOL.size() < MAX_POOLED_BUFFERS) {
+      POOL.offer(this);
+    }
+  }
+
+  private void ensureCapacity(int additional) {
+    if (buffer.remaining() >= additional) {
+      return;
+    }
+    long required = (long) buffer.position() + additional;
+    long newCapacity = Math.max(required, (long) buffer.capacity() * 2);
+    if (newCapacity > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Batch exceeds maximum buffer size: " + required);
+    }
+    ByteBuffer grown = ByteBuffer.allocateDirect((int) newCapacity);
+    buffer.flip();
+    grown.put(buffer);
+    buffer = grown;
+  }
+
+  private final class BufferOutputStream extends OutputStream {
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(1);
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      put(bytes, offset, length);
+    }
+  }
+}
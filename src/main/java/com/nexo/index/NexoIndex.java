@@ -8,7 +8,7 @@ public interface NexoIndex extends AutoCloseable {
 
   void addDocument(Document doc) throws JsonProcessingException;
 
-  void addDocuments(List<Document> docs) throws JsonProcessingException;
+  BulkResult addDocuments(List<Document> docs) throws JsonProcessingException;
 
   void commit();
 
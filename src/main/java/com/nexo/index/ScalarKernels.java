@@ -0,0 +1,46 @@
+package com.nexo.index;
+
+/** Distance kernels in plain loops, for JVMs started without the Vector API module. */
+final class ScalarKernels implements DistanceKernels {
+
+  static final ScalarKernels INSTANCE = new ScalarKernels();
+
+  private ScalarKernels() {}
+
+  @Override
+  public float dot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+    float dot = 0;
+    for (int i = 0; i < dimension; i++) {
+      dot += a[aOffset + i] * b[bOffset + i];
+    }
+    return dot;
+  }
+
+  @Override
+  public float l2sq(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+    float sum = 0;
+    for (int i = 0; i < dimension; i++) {
+      float d = a[aOffset + i] - b[bOffset + i];
+      sum += d * d;
+    }
+    return sum;
+  }
+
+  @Override
+  public float cos(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+    float dot = 0;
+    float aNorm = 0;
+    float bNorm = 0;
+    for (int i = 0; i < dimension; i++) {
+      float x = a[aOffset + i];
+      float y = b[bOffset + i];
+      dot += x * y;
+      aNorm += x * x;
+      bNorm += y * y;
+    }
+    if (aNorm == 0 || bNorm == 0) {
+      return aNorm == bNorm ? 0 : 1;
+    }
+    return 1 - dot / (float) Math.sqrt((double) aNorm * bNorm);
+  }
+}
@@ -0,0 +1,48 @@
+package com.nexo.index;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Decides when a vector index is snapshotted to disk: once {@code maxDirtyVectors} vectors were
+ * added since the last snapshot, or {@code intervalMs} milliseconds after it if any were, whichever
+ * comes first. A value of zero disables that trigger.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+public class SnapshotPolicy {
+
+  @JsonProperty("maxDirtyVectors")
+  private long maxDirtyVectors;
+
+  @JsonProperty("intervalMs")
+  private long intervalMs;
+
+  public static SnapshotPolicy defaults() {
+    return new SnapshotPolicy(100_000, 60_000);
+  }
+
+  /**
+   * Whether an index with {@code dirtyVectors} unsaved vectors, last saved {@code sinceMs} ago, is
+   * due.
+   */
+  boolean isDue(long dirtyVectors, long sinceMs) {
+    if (dirtyVectors <= 0) {
+      return false;
+    }
+    return (maxDirtyVectors > 0 && dirtyVectors >= maxDirtyVectors)
+        || (intervalMs > 0 && sinceMs >= intervalMs);
+  }
+
+  @Override
+  public String toString() {
+    return "SnapshotPolicy{maxDirtyVectors=" + maxDirtyVectors + ", intervalMs=" + intervalMs + '}';
+  }
+}
@@ -3,15 +3,23 @@ package com.nexo.index;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.nexo.document.Document;
 import com.nexo.utils.LoadNativeLibrary;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 @Getter
 @Slf4j
-public class TantivyIndex implements NexoIndex {
+public class TantivyIndex
+    implements NexoIndex, IndexingMemoryManager.ManagedWriter, MergeScheduler.Mergeable {
 
   static {
     try {
@@ -24,16 +32,53 @@ public class TantivyIndex implements NexoIndex {
 
   private volatile long nativeHandle = 0L;
   private volatile boolean closed = false;
+  private volatile long lastUsedNanos = System.nanoTime();
   private final Path indexPath;
+  private final WriterBudget writerBudget;
+  private final MergePolicy mergePolicy;
+  private WriterBudget activeBudget;
+
+  /**
+   * Guards the native writer handle. It is held while documents are added or committed and while
+   * the write-ahead log is appended, so an idle writer can be released without losing writes.
+   */
+  private final ReentrantLock writerLock = new ReentrantLock();
+
+  /**
+   * Guards the native searcher handle: searches hold the read lock, closing the index holds the
+   * write lock so the handle is not freed under a running query.
+   */
+  @Getter(AccessLevel.NONE)
+  private final ReadWriteLock searcherLock = new ReentrantReadWriteLock();
+
+  @Getter(AccessLevel.NONE)
+  private volatile long searcherHandle = 0L;
+
+  @Getter(AccessLevel.NONE)
+  private final List<Runnable> commitListeners = new CopyOnWriteArrayList<>();
 
   public TantivyIndex(Path indexPath) {
+    this(indexPath, WriterBudget.defaults());
+  }
+
+  public TantivyIndex(Path indexPath, WriterBudget writerBudget) {
+    this(indexPath, writerBudget, MergePolicy.defaults());
+  }
+
+  public TantivyIndex(Path indexPath, WriterBudget writerBudget, MergePolicy mergePolicy) {
     String path = indexPath != null ? indexPath.toString() : null;
     if (path == null || path.trim().isEmpty()) {
       throw new IllegalArgumentException("Index path cannot be null or empty");
     }
     this.indexPath = indexPath;
+    this.writerBudget = Objects.requireNonNull(writerBudget, "Writer budget cannot be null");
+    this.mergePolicy = Objects.requireNonNull(mergePolicy, "Merge policy cannot be null");
   }
 
+  /**
+   * Returns the native writer, opening it with an arena granted by the {@link
+   * IndexingMemoryManager} if it is not open. Must be called while holding the writer lock.
+   */
   public long getIndexWriter() {
     if (this.nativeHandle != 0) {
       return this.nativeHandle;
@@ -45,14 +90,29 @@ public class TantivyIndex implements NexoIndex {
       }
 
       String path = this.indexPath.toString();
+      IndexingMemoryManager memoryManager = IndexingMemoryManager.getInstance();
+      WriterBudget granted = memoryManager.reserve(this, writerBudget);
       try {
-        long handle = writerNative(path);
+        long handle = writerNative(path, granted.heapSize(), granted.threads());
         if (handle == 0) {
           throw new IllegalStateException(
               "Failed to create native TantivyIndex writer for path: " + path);
         }
+        setMergePolicyNative(
+            handle,
+            mergePolicy.getMinNumSegments(),
+            mergePolicy.getMaxDocsBeforeMerge(),
+            mergePolicy.getMinLayerSize(),
+            mergePolicy.getLevelLogSize());
+        this.activeBudget = granted;
         this.nativeHandle = handle;
+        log.info(
+            "Opened index writer at {} with heap={} bytes, threads={}",
+            path,
+            granted.heapSize(),
+            granted.threads());
       } catch (Exception e) {
+        memoryManager.release(this);
         log.error("Failed to open index writer at path: {}", path, e);
         throw new IllegalStateException(
             "Cannot open index writer. Ensure index exists at path: " + path, e);
@@ -61,6 +121,11 @@ public class TantivyIndex implements NexoIndex {
     }
   }
 
+  /** Registers a callback that runs under the writer lock after every successful commit. */
+  public void addCommitListener(Runnable listener) {
+    commitListeners.add(listener);
+  }
+
   public boolean createIndex(String schema) {
     if (schema == null || schema.trim().isEmpty()) {
       throw new IllegalArgumentException("Schema cannot be null or empty");
@@ -77,46 +142,234 @@ public class TantivyIndex implements NexoIndex {
     Objects.requireNonNull(doc, "Document cannot be null");
     ensureNotClosed();
 
-    long handle = getIndexWriter();
+    writerLock.lock();
     try {
+      long handle = getIndexWriter();
+      lastUsedNanos = System.nanoTime();
       addDocumentNative(handle, doc.toJsonString(false));
     } catch (Exception e) {
       log.error("Failed to add document", e);
       throw e;
+    } finally {
+      writerLock.unlock();
     }
   }
 
   @Override
-  public void addDocuments(List<Document> docs) throws JsonProcessingException {
+  public BulkResult addDocuments(List<Document> docs) throws JsonProcessingException {
     if (docs == null || docs.isEmpty()) {
       log.debug("No documents to add");
-      return;
+      return BulkResult.empty();
     }
 
-    ensureNotClosed();
-    long handle = getIndexWriter();
-
-    try {
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire()) {
       for (Document doc : docs) {
         Objects.requireNonNull(doc, "Document cannot be null");
-        addDocumentNative(handle, doc.toJsonString(false));
+        doc.writeJson(batch.asOutputStream());
+        batch.endDocument();
       }
-      log.debug("Added {} documents", docs.size());
+      return addBatch(batch);
+    }
+  }
+
+  /**
+   * Indexes every document in {@code batch}, NDJSON or binary rows, with a single native call.
+   * Documents rejected by the native writer are reported per item; the rest of the batch is still
+   * indexed.
+   */
+  public BulkResult addBatch(NativeBatchBuffer batch) {
+    Objects.requireNonNull(batch, "Batch cannot be null");
+    if (batch.isEmpty()) {
+      return BulkResult.empty();
+    }
+
+    ensureNotClosed();
+
+    writerLock.lock();
+    try {
+      long handle = getIndexWriter();
+      lastUsedNanos = System.nanoTime();
+      String[] errors =
+          batch.format() == NativeBatchBuffer.Format.ROWS
+              ? addRowsNative(handle, batch.buffer(), batch.size())
+              : addDocumentsNative(handle, batch.buffer(), batch.size());
+      BulkResult result = BulkResult.fromNative(batch.documentCount(), errors);
+      log.debug("Added {} of {} documents", result.getIndexed(), result.getTotal());
+      return result;
     } catch (Exception e) {
       log.error("Failed to add documents batch", e);
       throw e;
+    } finally {
+      writerLock.unlock();
     }
   }
 
+  /** Writer arena reserved by this index: the granted budget while a writer is open, else zero. */
+  public long writerMemoryUsage() {
+    WriterBudget budget = activeBudget;
+    return nativeHandle != 0 && budget != null ? budget.heapSize() : 0;
+  }
+
+  /**
+   * Commits buffered documents and notifies the commit listeners. Without an open writer there is
+   * nothing to commit, so no writer is opened just for this.
+   */
   public void commit() {
     ensureNotClosed();
 
-    long handle = getIndexWriter();
+    writerLock.lock();
+    try {
+      if (nativeHandle == 0) {
+        return;
+      }
+      commitLocked();
+    } finally {
+      writerLock.unlock();
+    }
+  }
+
+  /**
+   * Starts one merge under the writer lock and waits for it outside the lock, so documents can be
+   * added and committed while it runs. Merging does not count as use of the writer.
+   */
+  @Override
+  public long mergeOnce(int targetSegments, boolean openWriter) {
+    long[] merge;
+    writerLock.lock();
+    try {
+      if (closed || (nativeHandle == 0 && !openWriter)) {
+        return -1;
+      }
+      merge = startMergeNative(getIndexWriter(), targetSegments);
+    } finally {
+      writerLock.unlock();
+    }
+    if (merge == null) {
+      return -1;
+    }
+    awaitMergeNative(merge[0]);
+    log.debug("Merged {} segments ({} bytes) at {}", merge[2], merge[1], indexPath);
+    return merge[1];
+  }
+
+  /**
+   * Returns the best {@code limit} documents for a query in Tantivy query syntax, ranked by BM25.
+   * Only committed documents are visible; the searcher is opened on first use and follows later
+   * commits on its own.
+   *
+   * @throws IllegalArgumentException if the query cannot be parsed
+   */
+  public List<KeywordHit> search(String query, int limit) {
+    Objects.requireNonNull(query, "Query cannot be null");
+    if (limit < 0) {
+      throw new IllegalArgumentException("Search limit cannot be negative");
+    }
+    searcherLock.readLock().lock();
+    try {
+      ensureNotClosed();
+      float[] scores = new float[limit];
+      String[] ids = searchNative(getSearcher(), query, limit, scores);
+      List<KeywordHit> hits = new ArrayList<>(ids.length);
+      for (int i = 0; i < ids.length; i++) {
+        hits.add(new KeywordHit(ids[i], scores[i]));
+      }
+      return hits;
+    } finally {
+      searcherLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts the committed documents matching a filter in Tantivy query syntax and lists their ids if
+   * at most {@code limit} match.
+   *
+   * @throws IllegalArgumentException if the filter cannot be parsed
+   */
+  public FilterMatches filter(String query, int limit) {
+    Objects.requireNonNull(query, "Filter cannot be null");
+    if (limit < 0) {
+      throw new IllegalArgumentException("Filter limit cannot be negative");
+    }
+    searcherLock.readLock().lock();
+    try {
+      ensureNotClosed();
+      long[] count = new long[1];
+      String[] ids = filterNative(getSearcher(), query, limit, count);
+      return new FilterMatches(count[0], ids != null ? List.of(ids) : null);
+    } finally {
+      searcherLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns for each of {@code documentIds} whether the committed document with that id matches a
+   * filter in Tantivy query syntax. Only those documents are visited.
+   *
+   * @throws IllegalArgumentException if the filter cannot be parsed
+   */
+  public boolean[] matches(String query, String[] documentIds) {
+    Objects.requireNonNull(query, "Filter cannot be null");
+    searcherLock.readLock().lock();
+    try {
+      ensureNotClosed();
+      return matchesNative(getSearcher(), query, documentIds);
+    } finally {
+      searcherLock.readLock().unlock();
+    }
+  }
+
+  private long getSearcher() {
+    if (searcherHandle != 0) {
+      return searcherHandle;
+    }
+    synchronized (searcherLock) {
+      if (searcherHandle == 0) {
+        searcherHandle = searcherNative(indexPath.toString());
+      }
+      return searcherHandle;
+    }
+  }
+
+  /** Number of committed segments. Opens the writer if it is not open. */
+  @Override
+  public int segmentCount() {
+    ensureNotClosed();
+
+    writerLock.lock();
     try {
-      commitWriterNative(handle);
+      return segmentCountNative(getIndexWriter());
+    } finally {
+      writerLock.unlock();
+    }
+  }
+
+  @Override
+  public long lastUsedNanos() {
+    return lastUsedNanos;
+  }
+
+  /**
+   * Commits and closes the native writer if no other thread is using it, returning its arena to the
+   * {@link IndexingMemoryManager}. The writer is reopened on the next write.
+   */
+  @Override
+  public boolean releaseIdleWriter() {
+    if (!writerLock.tryLock()) {
+      return false;
+    }
+    try {
+      if (closed || nativeHandle == 0) {
+        return false;
+      }
+      commitLocked();
+      closeWriterLocked();
+      log.info("Released idle index writer at {}", indexPath);
+      return true;
     } catch (Exception e) {
-      log.error("Failed to commit", e);
-      throw new RuntimeException("Commit operation failed", e);
+      log.warn("Failed to release idle index writer at {}", indexPath, e);
+      return false;
+    } finally {
+      writerLock.unlock();
     }
   }
 
@@ -126,21 +379,57 @@ public class TantivyIndex implements NexoIndex {
       return;
     }
 
-    synchronized (this) {
+    writerLock.lock();
+    try {
       if (closed) {
         return;
       }
+      if (this.nativeHandle != 0) {
+        closeWriterLocked();
+      }
+    } catch (Exception e) {
+      log.warn("Error closing TantivyIndex", e);
+    } finally {
+      closed = true;
+      writerLock.unlock();
+    }
+    closeSearcher();
+  }
 
-      try {
-        if (this.nativeHandle != 0) {
-          closeWriterNative(this.nativeHandle);
-          this.nativeHandle = 0;
-        }
-      } catch (Exception e) {
-        log.warn("Error closing TantivyIndex", e);
-      } finally {
-        closed = true;
+  private void closeSearcher() {
+    searcherLock.writeLock().lock();
+    try {
+      if (searcherHandle != 0) {
+        long handle = searcherHandle;
+        searcherHandle = 0;
+        closeSearcherNative(handle);
       }
+    } finally {
+      searcherLock.writeLock().unlock();
+    }
+  }
+
+  private void commitLocked() {
+    try {
+      commitWriterNative(nativeHandle);
+      lastUsedNanos = System.nanoTime();
+    } catch (Exception e) {
+      log.error("Failed to commit", e);
+      throw new RuntimeException("Commit operation failed", e);
+    }
+    for (Runnable listener : commitListeners) {
+      listener.run();
+    }
+  }
+
+  private void closeWriterLocked() {
+    long handle = nativeHandle;
+    nativeHandle = 0;
+    activeBudget = null;
+    try {
+      closeWriterNative(handle);
+    } finally {
+      IndexingMemoryManager.getInstance().release(this);
     }
   }
 
@@ -152,11 +441,42 @@ public class TantivyIndex implements NexoIndex {
 
   private static native boolean createIndexNative(String indexPath, String schema);
 
-  private static native long writerNative(String indexPath);
+  private static native long writerNative(String indexPath, long memoryBudget, int numThreads);
 
   private static native void addDocumentNative(long nativeHandle, String documents);
 
+  private static native String[] addDocumentsNative(
+      long nativeHandle, ByteBuffer ndjson, int length);
+
+  private static native String[] addRowsNative(long nativeHandle, ByteBuffer rows, int length);
+
   private static native void commitWriterNative(long nativeHandle);
 
   private static native void closeWriterNative(long nativeHandle);
+
+  private static native void setMergePolicyNative(
+      long nativeHandle,
+      int minNumSegments,
+      int maxDocsBeforeMerge,
+      int minLayerSize,
+      double levelLogSize);
+
+  private static native long[] startMergeNative(long nativeHandle, int targetSegments);
+
+  private static native void awaitMergeNative(long mergeHandle);
+
+  private static native int segmentCountNative(long nativeHandle);
+
+  private static native long searcherNative(String indexPath);
+
+  private static native String[] searchNative(
+      long searcherHandle, String query, int limit, float[] scores);
+
+  private static native String[] filterNative(
+      long searcherHandle, String query, int limit, long[] count);
+
+  private static native boolean[] matchesNative(
+      long searcherHandle, String query, String[] documentIds);
+
+  private static native void closeSearcherNative(long searcherHandle);
 }
@@ -2,16 +2,86 @@ package com.nexo.index;
 
 import cloud.unum.usearch.Index;
 import com.nexo.config.NexoConfig;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * The vector index of a collection: one or more USearch graphs, with a key map resolving keys to
+ * document chunks and, for quantized graphs, a full-precision copy of every vector. With {@code
+ * vectorIndex.shards} above one, vectors are spread over that many graphs by key, so batches insert
+ * into all of them at once and searches fan out to every graph and merge their candidates. Shard
+ * {@code i > 0} is saved next to the index file with the suffix {@code .i}.
+ *
+ * <p>The previous vectors of re-added documents stay in the graphs as tombstones of the key map and
+ * are skipped by searches. Once they exceed {@code vectorIndex.compactionThreshold} of the vectors,
+ * {@link #compact()} rebuilds the graphs from the live vectors and swaps them in.
+ */
 @Slf4j
-public class UsearchIndex {
+public class UsearchIndex implements VectorSnapshotScheduler.Snapshottable {
+
+  static final long MIN_CAPACITY = 1024;
+  private static final int MIN_SLICE = 64;
+  // Adds arriving during a snapshot are held in memory up to this size, then wait for it.
+  private static final long MAX_STAGED_BYTES = 64L * 1024 * 1024;
+  // Live vectors copied into the rebuilt graphs per parallel insert during a compaction.
+  private static final int COMPACTION_BATCH = 16 * 1024;
 
   private final NexoConfig.VectorIndexConfig config;
-  private Index index;
+  private final int addThreads;
+  // Adds hold the read lock; growing the graph, saving and closing hold the write lock.
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Adds hold the read side from admission until their vectors are in the graph; snapshots and
+  // closing hold the write side, so the graph is saved while searches, but no inserts, run.
+  private final ReadWriteLock mutationLock = new ReentrantReadWriteLock();
+  private final AtomicLong dirtyVectors = new AtomicLong();
+  // Vectors accepted by an add whose deferred insert failed; their keys are forgotten.
+  private final AtomicLong lostVectors = new AtomicLong();
+  private volatile long lastSnapshotNanos = System.nanoTime();
+  // Batches added while a snapshot is written, inserted when it completes. Guarded by itself.
+  private final List<StagedAdd> staged = new ArrayList<>();
+  private long stagedBytes;
+  private boolean snapshotting;
+  private final AtomicLong nextKey = new AtomicLong();
+  private final AtomicBoolean compacting = new AtomicBoolean();
+  // Key runs recorded in the key map whose vectors are not in the graph yet, by first key, so exact
+  // scans and compactions skip them. Allocation and registration happen under its monitor.
+  private final Map<Long, Integer> unindexedRuns = new ConcurrentHashMap<>();
+  // Vectors being inserted into each shard, reserved for when it is grown.
+  private final AtomicLongArray pendingAdds;
+  private final VectorMetric metric;
+  private volatile Index[] shards;
+  private volatile boolean viewing;
+  private VectorKeyMap keyMap;
+  // Full-precision copies of the vectors, kept only when the graph quantizes them.
+  private VectorStore store;
   private Path indexPath;
 
   public UsearchIndex(NexoConfig.VectorIndexConfig config) {
@@ -19,6 +89,15 @@ public class UsearchIndex {
       throw new IllegalArgumentException("Vector index config cannot be null");
     }
     this.config = config;
+    this.addThreads =
+        config.getAddThreads() > 0
+            ? config.getAddThreads()
+            : Runtime.getRuntime().availableProcessors();
+    this.metric = VectorMetric.of(config.getMetric());
+    if (config.getShards() < 1) {
+      throw new IllegalArgumentException("Vector index needs at least one shard");
+    }
+    this.pendingAdds = new AtomicLongArray(config.getShards());
   }
 
   public UsearchIndex() {
@@ -30,42 +109,65 @@ public class UsearchIndex {
       throw new IllegalArgumentException("Index path cannot be null or empty");
     }
 
-    Index vectorIndex = null;
+    Index[] created = new Index[config.getShards()];
     try {
       this.indexPath = Paths.get(indexPathStr);
       Files.createDirectories(this.indexPath.getParent());
 
-      vectorIndex =
-          new Index.Config()
-              .dimensions(config.getDimension())
-              .metric(config.getMetric())
-              .quantization(config.getQuantization())
-              .connectivity(config.getConnectivity())
-              .expansion_add(config.getExpansionAdd())
-              .expansion_search(config.getExpansionSearch())
-              .build();
-
-      vectorIndex.save(indexPathStr);
-      log.info("Created USearch index at: {}", indexPathStr);
-
-      this.index = vectorIndex;
-      vectorIndex = null;
+      for (int shard = 0; shard < created.length; shard++) {
+        created[shard] = newIndex();
+        created[shard].save(shardPath(shard).toString());
+        reserveThreads(created[shard]);
+      }
+      log.info("Created USearch index with {} shards at: {}", created.length, indexPathStr);
+
+      openSideFiles();
+      this.shards = created;
+      this.nextKey.set(keyMap.size());
+      this.lastSnapshotNanos = System.nanoTime();
+      created = null;
       return true;
     } catch (Exception e) {
       log.error("Error creating USearch index: {}", e.getMessage(), e);
       return false;
     } finally {
-      if (vectorIndex != null) {
+      if (created != null) {
+        closeShards(created);
+      }
+    }
+  }
+
+  /** File of graph {@code shard}; the first one is the index file itself. */
+  private Path shardPath(int shard) {
+    return shard == 0 ? indexPath : indexPath.resolveSibling(indexPath.getFileName() + "." + shard);
+  }
+
+  private int shardOf(long key) {
+    return (int) Math.floorMod(key, (long) config.getShards());
+  }
+
+  private static void closeShards(Index[] graphs) {
+    for (Index graph : graphs) {
+      if (graph != null) {
         try {
-          vectorIndex.close();
+          graph.close();
         } catch (Exception e) {
-          log.warn("Error closing temporary index: {}", e.getMessage());
+          log.warn("Error closing USearch graph: {}", e.getMessage());
         }
       }
     }
   }
 
   public void open(String indexPathStr) throws Exception {
+    open(indexPathStr, false);
+  }
+
+  /**
+   * Opens an existing index. With {@code view} the graph is memory-mapped instead of loaded, so
+   * opening is immediate and searches are served from the page cache; the first add loads it fully
+   * before writing.
+   */
+  public void open(String indexPathStr, boolean view) throws Exception {
     if (indexPathStr == null || indexPathStr.trim().isEmpty()) {
       throw new IllegalArgumentException("Index path cannot be null or empty");
     }
@@ -75,29 +177,1307 @@ public class UsearchIndex {
       throw new IllegalArgumentException("Index does not exist at: " + indexPathStr);
     }
 
-    this.index =
-        new Index.Config()
-            .dimensions(config.getDimension())
-            .metric(config.getMetric())
-            .quantization(config.getQuantization())
-            .connectivity(config.getConnectivity())
-            .expansion_add(config.getExpansionAdd())
-            .expansion_search(config.getExpansionSearch())
-            .build();
+    if (Files.exists(shardPath(config.getShards()))) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Index at %s has more than the %d configured shards",
+              indexPathStr, config.getShards()));
+    }
 
-    this.index.load(indexPathStr);
-    log.info("Opened USearch index from: {}", indexPathStr);
+    Index[] opened = new Index[config.getShards()];
+    long vectors = 0;
+    try {
+      for (int shard = 0; shard < opened.length; shard++) {
+        Path path = shardPath(shard);
+        if (!Files.exists(path)) {
+          throw new IllegalArgumentException("Index shard does not exist at: " + path);
+        }
+        opened[shard] = newIndex();
+        if (view) {
+          opened[shard].view(path.toString());
+        } else {
+          opened[shard].load(path.toString());
+          reserveThreads(opened[shard]);
+        }
+        vectors += opened[shard].size();
+      }
+    } catch (Exception e) {
+      closeShards(opened);
+      throw e;
+    }
+    this.shards = opened;
+    this.viewing = view;
+    openSideFiles();
+    forgetUnsavedKeys(opened);
+    // Keys recorded after the last save belong to vectors lost in a crash; never hand them out
+    // again.
+    this.nextKey.set(Math.max(vectors, keyMap.size()));
+    this.dirtyVectors.set(0);
+    this.lastSnapshotNanos = System.nanoTime();
+    log.info("{} USearch index from: {}", view ? "Memory-mapped" : "Opened", indexPathStr);
   }
 
-  public void close() throws Exception {
-    if (index != null) {
+  /**
+   * Forgets the keys recorded since the graphs were last saved whose vectors are not in them, which
+   * were lost in a crash, so that no search reads them.
+   */
+  private void forgetUnsavedKeys(Index[] current) {
+    long keys = keyMap.size();
+    float[] vector = new float[dimensions()];
+    long[] lost = new long[64];
+    int lostCount = 0;
+    for (long key = keyMap.savedKeys(); key < keys; key++) {
+      if (keyMap.ordinal(key) < 0 && !keyMap.isTombstone(key)) {
+        continue;
+      }
+      try {
+        current[shardOf(key)].getInto(key, vector);
+      } catch (IllegalArgumentException e) {
+        if (lostCount == lost.length) {
+          lost = Arrays.copyOf(lost, lost.length * 2);
+        }
+        lost[lostCount++] = key;
+      }
+    }
+    if (lostCount > 0) {
+      keyMap.forget(lost, lostCount);
+      log.warn("Forgot {} vectors lost before they were saved to {}", lostCount, indexPath);
+    }
+    keyMap.markSaved(keys);
+  }
+
+  private Index newIndex() {
+    return new Index.Config()
+        .dimensions(config.getDimension())
+        .metric(config.getMetric())
+        .quantization(config.getQuantization())
+        .connectivity(config.getConnectivity())
+        .expansion_add(config.getExpansionAdd())
+        .expansion_search(config.getExpansionSearch())
+        .build();
+  }
+
+  /** Whether the graph is memory-mapped from its file rather than loaded. */
+  public boolean isViewing() {
+    return viewing;
+  }
+
+  /**
+   * Replaces memory-mapped graphs with loaded copies that can take writes. Must be called while
+   * holding the write lock.
+   */
+  private Index[] loadForWrite(Index[] current) {
+    if (!viewing) {
+      return current;
+    }
+    Index[] loaded = new Index[current.length];
+    try {
+      for (int shard = 0; shard < loaded.length; shard++) {
+        loaded[shard] = newIndex();
+        loaded[shard].load(shardPath(shard).toString());
+        reserveThreads(loaded[shard]);
+      }
+    } catch (RuntimeException e) {
+      closeShards(loaded);
+      throw e;
+    }
+    shards = loaded;
+    viewing = false;
+    closeShards(current);
+    log.info("Loaded memory-mapped USearch index for writing: {}", indexPath);
+    return loaded;
+  }
+
+  private void openSideFiles() {
+    this.keyMap = VectorKeyMap.open(indexPath.getParent());
+    this.store = config.isLossy() ? VectorStore.open(indexPath.getParent(), dimensions()) : null;
+  }
+
+  /** Sizes the per-thread contexts of a new or loaded graph for the add and search pools. */
+  private void reserveThreads(Index vectorIndex) {
+    vectorIndex.reserve(
+        Math.max(MIN_CAPACITY, vectorIndex.capacity()),
+        addThreads,
+        NexoConfig.getInstance().getSearchThreads());
+  }
+
+  public int dimensions() {
+    return config.getDimension();
+  }
+
+  public String quantization() {
+    return config.getQuantization();
+  }
+
+  public VectorMetric metric() {
+    return metric;
+  }
+
+  public long size() {
+    Index[] current = shards;
+    if (current == null) {
+      return 0;
+    }
+    long size = 0;
+    for (Index shard : current) {
+      size += shard.size();
+    }
+    return size;
+  }
+
+  /** Number of graphs the vectors are spread over. */
+  public int shardCount() {
+    return config.getShards();
+  }
+
+  /** Number of documents with vectors in the index. */
+  public int documentCount() {
+    lock.readLock().lock();
+    try {
+      return keyMap != null ? keyMap.documentCount() : 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Filters matching at most this many documents are answered by {@link #scan}. */
+  public int filterScanThreshold() {
+    return config.getFilterScanThreshold();
+  }
+
+  public long capacity() {
+    Index[] current = shards;
+    if (current == null) {
+      return 0;
+    }
+    long capacity = 0;
+    for (Index shard : current) {
+      capacity += shard.capacity();
+    }
+    return capacity;
+  }
+
+  /**
+   * Reserves {@code count} consecutive vector keys and returns the first. Keys are never reused, so
+   * a key identifies one vector for the lifetime of the index.
+   */
+  public long allocateKeys(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Key count cannot be negative");
+    }
+    return nextKey.getAndAdd(count);
+  }
+
+  /**
+   * Grows the graphs so that they hold at least {@code capacity} vectors without reallocating,
+   * assuming vectors spread evenly over the shards.
+   */
+  public void reserve(long capacity) {
+    mutationLock.readLock().lock();
+    lock.writeLock().lock();
+    try {
+      Index[] current = loadForWrite(ensureOpen());
+      for (Index shard : current) {
+        grow(shard, Math.ceilDiv(capacity, current.length));
+      }
+    } finally {
+      lock.writeLock().unlock();
+      mutationLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds every vector of {@code batch} under freshly allocated keys, recording the document id and
+   * chunk index of each so search hits can be resolved.
+   *
+   * @return the key of the first vector; the others follow consecutively
+   */
+  public long add(VectorBatch batch) {
+    int count = batch.size();
+    long firstKey;
+    synchronized (unindexedRuns) {
+      firstKey = allocateKeys(count);
+      unindexedRuns.put(firstKey, count);
+    }
+    long[] keys = batch.keys();
+    for (int i = 0; i < count; i++) {
+      keys[i] = firstKey + i;
+    }
+    boolean queued;
+    try {
+      keyMap.put(keys, batch, count);
+      queued = addVectors(keys, batch.vectors(), count);
+    } catch (RuntimeException e) {
+      keyMap.forget(keys, count);
+      unindexedRuns.remove(firstKey);
+      throw e;
+    }
+    if (!queued) {
+      unindexedRuns.remove(firstKey);
+    }
+    return firstKey;
+  }
+
+  /** Number of vectors still in the graphs that a re-add of their document replaced. */
+  public long tombstones() {
+    lock.readLock().lock();
+    try {
+      return keyMap != null ? keyMap.tombstones() : 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds {@code keys.length} vectors stored back to back in {@code vectors}.
+   *
+   * @see #add(long[], float[], int)
+   */
+  public void add(long[] keys, float[] vectors) {
+    add(keys, vectors, keys.length);
+  }
+
+  /**
+   * Adds the first {@code count} keys with their vectors, which are stored back to back in {@code
+   * vectors}. Capacity for the whole batch is reserved up front, growing geometrically, and slices
+   * of the batch are inserted concurrently on the node-wide vector add pool, each into the shards
+   * of its keys. While a snapshot is being written the batch is copied and inserted once it
+   * completes instead; if that insert fails, the vectors are counted by {@link #lostVectors()}.
+   */
+  public void add(long[] keys, float[] vectors, int count) {
+    addVectors(keys, vectors, count);
+  }
+
+  /**
+   * @see #add(long[], float[], int)
+   * @return whether the batch was queued behind a snapshot rather than inserted
+   */
+  private boolean addVectors(long[] keys, float[] vectors, int count) {
+    int dimension = dimensions();
+    if (count == 0) {
+      return false;
+    }
+    if (count < 0 || count > keys.length) {
+      throw new IllegalArgumentException("Vector count out of range: " + count);
+    }
+    if ((long) count * dimension > vectors.length) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Expected %d values for %d vectors of dimension %d, got %d",
+              (long) count * dimension, count, dimension, vectors.length));
+    }
+
+    if (stage(keys, vectors, count)) {
+      return true;
+    }
+    try {
+      insert(keys, vectors, count);
+    } finally {
+      mutationLock.readLock().unlock();
+    }
+    return false;
+  }
+
+  /**
+   * Queues a batch that arrives during a snapshot while there is room for it. Otherwise admits the
+   * batch by taking the read side of the mutation lock, waiting for the snapshot if it is full.
+   *
+   * @return whether the batch was queued
+   * @throws IllegalStateException if the index is closed
+   */
+  private boolean stage(long[] keys, float[] vectors, int count) {
+    int dimension = dimensions();
+    synchronized (staged) {
+      if (!snapshotting) {
+        mutationLock.readLock().lock();
+        return false;
+      }
+      ensureOpen();
+      long bytes = (long) count * dimension * Float.BYTES;
+      if (stagedBytes + bytes <= MAX_STAGED_BYTES) {
+        staged.add(
+            new StagedAdd(Arrays.copyOf(keys, count), Arrays.copyOf(vectors, count * dimension)));
+        stagedBytes += bytes;
+        return true;
+      }
+    }
+    mutationLock.readLock().lock();
+    return false;
+  }
+
+  private record StagedAdd(long[] keys, float[] vectors) {}
+
+  private void insert(long[] keys, float[] vectors, int count) {
+    int dimension = dimensions();
+    int[][] positions = partitionByShard(keys, count);
+    long maxKey = -1;
+    for (int i = 0; i < count; i++) {
+      maxKey = Math.max(maxKey, keys[i]);
+    }
+    reserveFor(positions, maxKey);
+    lock.readLock().lock();
+    try {
+      addSlices(ensureOpen(), store, keys, vectors, positions, dimension);
+      dirtyVectors.addAndGet(count);
+    } finally {
+      lock.readLock().unlock();
+      for (int shard = 0; shard < positions.length; shard++) {
+        pendingAdds.addAndGet(shard, -positions[shard].length);
+      }
+    }
+  }
+
+  /**
+   * Inserts the vectors at {@code positions[shard]} into each graph, in slices run concurrently on
+   * the node-wide vector add pool.
+   */
+  private void addSlices(
+      Index[] graphs,
+      VectorStore target,
+      long[] keys,
+      float[] vectors,
+      int[][] positions,
+      int dimension) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int shard = 0; shard < graphs.length; shard++) {
+      Index graph = graphs[shard];
+      int[] shardPositions = positions[shard];
+      int shardCount = shardPositions.length;
+      int slices = Math.clamp((shardCount + MIN_SLICE - 1) / MIN_SLICE, 1, addThreads);
+      for (int slice = 0; slice < slices && shardCount > 0; slice++) {
+        int from = (int) ((long) shardCount * slice / slices);
+        int to = (int) ((long) shardCount * (slice + 1) / slices);
+        futures.add(
+            CompletableFuture.runAsync(
+                () -> addRange(graph, target, keys, vectors, shardPositions, from, to, dimension),
+                VectorAddPool.EXECUTOR));
+      }
+    }
+    try {
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /** Positions of the first {@code count} keys, grouped by the shard each key belongs to. */
+  private int[][] partitionByShard(long[] keys, int count) {
+    int shardCount = config.getShards();
+    int[][] positions = new int[shardCount][];
+    if (shardCount == 1) {
+      positions[0] = new int[count];
+      Arrays.setAll(positions[0], i -> i);
+      return positions;
+    }
+    int[] sizes = new int[shardCount];
+    for (int i = 0; i < count; i++) {
+      sizes[shardOf(keys[i])]++;
+    }
+    for (int shard = 0; shard < shardCount; shard++) {
+      positions[shard] = new int[sizes[shard]];
+      sizes[shard] = 0;
+    }
+    for (int i = 0; i < count; i++) {
+      int shard = shardOf(keys[i]);
+      positions[shard][sizes[shard]++] = i;
+    }
+    return positions;
+  }
+
+  @Override
+  public long dirtyVectors() {
+    return dirtyVectors.get();
+  }
+
+  @Override
+  public long lastSnapshotNanos() {
+    return lastSnapshotNanos;
+  }
+
+  /**
+   * Saves the graph if vectors were added since the last snapshot. Searches keep running while it
+   * is written; adds that arrive meanwhile are queued and inserted when it completes. Skipped while
+   * a compaction runs, which saves the graphs it swaps in itself.
+   */
+  @Override
+  public boolean snapshot() {
+    synchronized (staged) {
+      if (snapshotting || compacting.get()) {
+        return false;
+      }
+      snapshotting = true;
+    }
+    mutationLock.writeLock().lock();
+    try {
+      Index[] current = shards;
+      long dirty = dirtyVectors.get();
+      if (current == null || viewing || dirty == 0) {
+        return false;
+      }
+      save(current);
+      dirtyVectors.addAndGet(-dirty);
+      lastSnapshotNanos = System.nanoTime();
+      return true;
+    } finally {
+      try {
+        insertStaged();
+      } finally {
+        mutationLock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Inserts the batches queued during a snapshot. Must be called holding the mutation lock. The
+   * adds of those batches already returned, so a batch that fails to insert has its keys forgotten
+   * and is counted by {@link #lostVectors()}.
+   */
+  private void insertStaged() {
+    List<StagedAdd> pending;
+    synchronized (staged) {
+      pending = new ArrayList<>(staged);
+      staged.clear();
+      stagedBytes = 0;
+      snapshotting = false;
+      staged.notifyAll();
+    }
+    for (StagedAdd batch : pending) {
+      long[] keys = batch.keys();
+      try {
+        insert(keys, batch.vectors(), keys.length);
+      } catch (RuntimeException e) {
+        keyMap.forget(keys, keys.length);
+        lostVectors.addAndGet(keys.length);
+        log.error(
+            "Lost {} vectors queued during a snapshot of {}: insert failed",
+            keys.length,
+            indexPath,
+            e);
+      } finally {
+        unindexedRuns.remove(keys[0]);
+      }
+    }
+  }
+
+  /** Number of vectors whose adds returned but that never made it into the graph. */
+  public long lostVectors() {
+    return lostVectors.get();
+  }
+
+  /** Whether tombstones make up at least {@code vectorIndex.compactionThreshold} of the vectors. */
+  @Override
+  public boolean needsCompaction() {
+    double threshold = config.getCompactionThreshold();
+    long dead = tombstones();
+    return threshold > 0 && dead > 0 && !viewing && dead >= threshold * size();
+  }
+
+  /**
+   * Rebuilds the graphs from the live vectors and swaps them in, dropping the tombstoned ones. The
+   * live vectors are copied, a catch-up round copies those added meanwhile, and the new graphs are
+   * saved next to the shard files, all while searches and adds keep running on the old graphs. Only
+   * a last catch-up round in memory and the rename over the shard files hold the mutation lock,
+   * during which adds are queued as during a snapshot. The vectors of that last round reach the
+   * disk with the next snapshot: the key map records the saved graphs as holding the keys up to the
+   * earlier round only. Snapshots are skipped while a compaction runs, so the old shard files never
+   * hold keys the new ones lack. The key map forgets the dropped keys only after the rename, so a
+   * crash leaves either graph consistent with it.
+   *
+   * @return whether the graphs were rebuilt
+   */
+  @Override
+  public boolean compact() {
+    if (!needsCompaction() || !compacting.compareAndSet(false, true)) {
+      return false;
+    }
+    Index[] rebuilt = new Index[config.getShards()];
+    Path[] temps = null;
+    try {
+      synchronized (staged) {
+        // Let a snapshot already writing finish; later ones are skipped until this one is done.
+        while (snapshotting) {
+          staged.wait();
+        }
+      }
+      for (int shard = 0; shard < rebuilt.length; shard++) {
+        rebuilt[shard] = newIndex();
+        reserveThreads(rebuilt[shard]);
+      }
+      KeyList dropped = new KeyList();
+      IndexedKeys copied = copyLive(rebuilt, IndexedKeys.NONE, indexedKeys(), dropped);
+      copied = copyLive(rebuilt, copied, indexedKeys(), dropped);
+      IndexedKeys saved = copied;
+      keyMap.flush();
+      if (store != null) {
+        store.flush();
+      }
+      temps = saveRebuilt(rebuilt);
+
+      synchronized (staged) {
+        while (snapshotting) {
+          staged.wait();
+        }
+        snapshotting = true;
+      }
+      mutationLock.writeLock().lock();
+      try {
+        Index[] current = shards;
+        if (current == null) {
+          return false;
+        }
+        copyLive(rebuilt, copied, indexedKeys(), dropped);
+        keyMap.flush();
+        if (store != null) {
+          store.flush();
+        }
+        replaceShards(current, rebuilt, temps);
+        rebuilt = null;
+        temps = null;
+        keyMap.forget(dropped.keys, dropped.size);
+        keyMap.markSaved(saved.saved());
+      } finally {
+        try {
+          insertStaged();
+        } finally {
+          mutationLock.writeLock().unlock();
+        }
+      }
+      log.info("Compacted {} vectors out of USearch index: {}", dropped.size, indexPath);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      if (temps != null) {
+        deleteTemps(temps);
+      }
+      if (rebuilt != null) {
+        closeShards(rebuilt);
+      }
+      compacting.set(false);
+    }
+  }
+
+  /**
+   * Copies into {@code rebuilt} the live vectors of the keys indexed as of {@code to} but not as of
+   * {@code from}, and collects the tombstoned ones in {@code dropped}. Vectors are read in batches,
+   * each from the graphs current at the time. A key whose vector is missing from the graph cannot
+   * be resolved by any search, so it is dropped too.
+   *
+   * @return {@code to}
+   */
+  private IndexedKeys copyLive(Index[] rebuilt, IndexedKeys from, IndexedKeys to, KeyList dropped) {
+    int dimension = dimensions();
+    long[] keys = new long[COMPACTION_BATCH];
+    float[] vectors = new float[COMPACTION_BATCH * dimension];
+    float[] vector = new float[dimension];
+    int count = 0;
+    long missing = 0;
+    PrimitiveIterator.OfLong candidates = from.addedIn(to);
+    while (candidates.hasNext()) {
+      lock.readLock().lock();
       try {
-        index.save(indexPath.toString());
-        index.close();
-        log.info("Closed USearch index at: {}", indexPath);
+        Index[] current = ensureOpen();
+        while (count < keys.length && candidates.hasNext()) {
+          long key = candidates.nextLong();
+          if (keyMap.isTombstone(key)) {
+            dropped.add(key);
+          } else if (keyMap.ordinal(key) >= 0) {
+            try {
+              readVector(current, key, vector);
+            } catch (IllegalArgumentException e) {
+              dropped.add(key);
+              missing++;
+              continue;
+            }
+            System.arraycopy(vector, 0, vectors, count * dimension, dimension);
+            keys[count++] = key;
+          }
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+      addCompacted(rebuilt, keys, vectors, count);
+      count = 0;
+    }
+    if (missing > 0) {
+      log.warn("Dropped {} keys without a vector in the graph of {}", missing, indexPath);
+    }
+    return to;
+  }
+
+  /** A growable list of keys. */
+  private static final class KeyList {
+    private long[] keys = new long[64];
+    private int size;
+
+    void add(long key) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      keys[size++] = key;
+    }
+  }
+
+  /** Inserts the first {@code count} live vectors copied during a compaction. */
+  private void addCompacted(Index[] rebuilt, long[] keys, float[] vectors, int count) {
+    if (count == 0) {
+      return;
+    }
+    int[][] positions = partitionByShard(keys, count);
+    for (int shard = 0; shard < rebuilt.length; shard++) {
+      long required = rebuilt[shard].size() + positions[shard].length;
+      if (required > rebuilt[shard].capacity()) {
+        grow(rebuilt[shard], Math.max(required, rebuilt[shard].capacity() * 2));
+      }
+    }
+    addSlices(rebuilt, null, keys, vectors, positions, dimensions());
+  }
+
+  /**
+   * Saves and syncs the rebuilt graphs next to the shard files. A failed save deletes what it
+   * wrote.
+   *
+   * @return the files written, one per shard
+   */
+  Path[] saveRebuilt(Index[] rebuilt) {
+    Path[] temps = new Path[rebuilt.length];
+    try {
+      for (int shard = 0; shard < rebuilt.length; shard++) {
+        Path path = shardPath(shard);
+        temps[shard] = path.resolveSibling(path.getFileName() + ".compact");
+        rebuilt[shard].save(temps[shard].toString());
+        try (FileChannel channel = FileChannel.open(temps[shard], StandardOpenOption.WRITE)) {
+          channel.force(true);
+        }
+      }
+      return temps;
+    } catch (IOException e) {
+      deleteTemps(temps);
+      throw new UncheckedIOException("Failed to save compacted vector index: " + indexPath, e);
+    } catch (RuntimeException e) {
+      deleteTemps(temps);
+      throw e;
+    }
+  }
+
+  /**
+   * Renames the saved rebuilt graphs over the shard files and swaps them in under the write lock,
+   * closing the old graphs once no search can use them.
+   */
+  private void replaceShards(Index[] current, Index[] rebuilt, Path[] temps) {
+    try {
+      lock.writeLock().lock();
+      try {
+        for (int shard = 0; shard < rebuilt.length; shard++) {
+          Files.move(
+              temps[shard],
+              shardPath(shard),
+              StandardCopyOption.ATOMIC_MOVE,
+              StandardCopyOption.REPLACE_EXISTING);
+        }
+        shards = rebuilt;
       } finally {
-        index = null;
+        lock.writeLock().unlock();
+      }
+      try (FileChannel directory =
+          FileChannel.open(indexPath.getParent(), StandardOpenOption.READ)) {
+        directory.force(true);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to replace compacted vector index: " + indexPath, e);
+    }
+    closeShards(current);
+  }
+
+  /** Deletes the rebuilt graphs a failed compaction left next to the shard files. */
+  private static void deleteTemps(Path[] temps) {
+    for (Path temp : temps) {
+      if (temp == null) {
+        continue;
+      }
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException e) {
+        log.warn("Failed to delete {}: {}", temp, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Writes each graph to a temporary file, syncs it and renames it over its shard file, so a crash
+   * leaves either the previous or the new snapshot of every shard. The key map and full-precision
+   * store are synced first so every saved key can be resolved, and once the graphs are in place the
+   * key map records up to which key they hold every vector. Must be called holding the mutation
+   * lock.
+   */
+  void save(Index[] current) {
+    long saved = indexedKeys().saved();
+    keyMap.flush();
+    if (store != null) {
+      store.flush();
+    }
+    try {
+      for (int shard = 0; shard < current.length; shard++) {
+        Path path = shardPath(shard);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        current[shard].save(temp.toString());
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+          channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      }
+      try (FileChannel directory =
+          FileChannel.open(indexPath.getParent(), StandardOpenOption.READ)) {
+        directory.force(true);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to save vector index: " + indexPath, e);
+    }
+    keyMap.markSaved(saved);
+  }
+
+  /**
+   * Returns the {@code k} nearest vectors to {@code query}, closest first. {@code expansion} widens
+   * the candidate list the graph search keeps beyond {@code k}, trading latency for recall on this
+   * query; distances are recomputed exactly from the stored vectors before the top {@code k} are
+   * kept. A quantized graph fetches {@code rerankMultiplier} times as many candidates and re-ranks
+   * them against the full-precision copies. Indexes of at most {@code exactSearchThreshold} vectors
+   * are scanned exactly instead.
+   */
+  public List<VectorHit> search(float[] query, int k, int expansion) {
+    checkQuery(query, k);
+    lock.readLock().lock();
+    try {
+      Index[] current = ensureOpen();
+      if (searchesExactly()) {
+        return exactSearch(current, query, k, key -> keyMap.ordinal(key) >= 0);
+      }
+      long[] keys = searchShards(current, query, withTombstones(candidates(k, expansion)));
+      int live = 0;
+      for (long key : keys) {
+        if (keyMap.ordinal(key) >= 0) {
+          keys[live++] = key;
+        }
+      }
+      return rank(current, query, keys, live, k);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Decides which documents a filtered search may return. */
+  @FunctionalInterface
+  public interface DocumentPredicate {
+    /** Returns for each of {@code documentIds} whether its chunks are eligible. */
+    boolean[] test(String[] documentIds);
+  }
+
+  /**
+   * Returns the {@code k} nearest vectors to {@code query} among the chunks of documents accepted
+   * by {@code filter}. The graph is searched with a candidate list widened by the inverse of {@code
+   * selectivity}, the expected share of documents that match; each candidate document is tested
+   * once and the list is doubled until enough candidates pass or the whole index was searched. On
+   * indexes searched exactly, every document is tested and only accepted chunks are scanned.
+   */
+  public List<VectorHit> search(
+      float[] query, int k, int expansion, double selectivity, DocumentPredicate filter) {
+    checkQuery(query, k);
+    if (!(selectivity > 0) || selectivity > 1) {
+      throw new IllegalArgumentException("Filter selectivity must be in (0, 1]");
+    }
+    lock.readLock().lock();
+    try {
+      Index[] current = ensureOpen();
+      if (searchesExactly()) {
+        BitSet accepted = testAllDocuments(filter);
+        return exactSearch(
+            current,
+            query,
+            k,
+            key -> {
+              int ordinal = keyMap.ordinal(key);
+              return ordinal >= 0 && accepted.get(ordinal);
+            });
+      }
+      long wanted = candidates(k, expansion);
+      long indexed = Math.max(size(), 1);
+      long window = Math.min(indexed, (long) Math.ceil(withTombstones(wanted) / selectivity));
+      BitSet tested = new BitSet();
+      BitSet accepted = new BitSet();
+      while (true) {
+        long[] keys = searchShards(current, query, window);
+        testDocuments(keys, tested, accepted, filter);
+        int kept = 0;
+        for (long key : keys) {
+          int ordinal = keyMap.ordinal(key);
+          if (ordinal >= 0 && accepted.get(ordinal)) {
+            keys[kept++] = key;
+          }
+        }
+        if (kept >= wanted || window >= indexed) {
+          return rank(current, query, keys, kept, k);
+        }
+        window = Math.min(indexed, window * 2);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the {@code k} vectors nearest to {@code query} among the chunks of {@code documentIds}
+   * by comparing the query with every one of them, without the graph. Unknown ids are skipped.
+   */
+  public List<VectorHit> scan(float[] query, int k, List<String> documentIds) {
+    checkQuery(query, k);
+    lock.readLock().lock();
+    try {
+      Index[] current = ensureOpen();
+      IndexedKeys indexed = indexedKeys();
+      long[] keys = new long[Math.max(documentIds.size(), 16)];
+      int count = 0;
+      for (String documentId : documentIds) {
+        long[] range = keyMap.keysOf(documentId);
+        if (range == null) {
+          continue;
+        }
+        if (count + range[1] > keys.length) {
+          keys = Arrays.copyOf(keys, (int) Math.max(keys.length * 2L, count + range[1]));
+        }
+        for (long key = range[0]; key < range[0] + range[1]; key++) {
+          if (keyMap.ordinal(key) >= 0 && indexed.contains(key)) {
+            keys[count++] = key;
+          }
+        }
+      }
+      return rank(current, query, keys, count, k);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void checkQuery(float[] query, int k) {
+    int dimension = dimensions();
+    if (query.length != dimension) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Query vector has %d dimensions, the index expects %d", query.length, dimension));
+    }
+    if (k < 1) {
+      throw new IllegalArgumentException("k must be positive");
+    }
+  }
+
+  private long candidates(int k, int expansion) {
+    return Math.max(store != null ? (long) k * config.getRerankMultiplier() : k, expansion);
+  }
+
+  /** Widens a graph search by the share of tombstones among the vectors, which are skipped. */
+  private long withTombstones(long candidates) {
+    long vectors = size();
+    long dead = Math.min(keyMap.tombstones(), vectors);
+    if (dead == 0) {
+      return candidates;
+    }
+    return (long) Math.ceil((double) candidates * vectors / Math.max(1, vectors - dead));
+  }
+
+  private boolean searchesExactly() {
+    int threshold = config.getExactSearchThreshold();
+    return threshold > 0 && size() <= threshold;
+  }
+
+  /**
+   * Returns the {@code count} nearest keys of every shard, searching the shards in parallel on the
+   * vector search pool when there are several.
+   */
+  private static long[] searchShards(Index[] current, float[] query, long count) {
+    if (current.length == 1) {
+      return current[0].search(query, count);
+    }
+    List<CompletableFuture<long[]>> searches = new ArrayList<>(current.length);
+    for (Index shard : current) {
+      searches.add(
+          CompletableFuture.supplyAsync(() -> shard.search(query, count), VectorSearchPool.POOL));
+    }
+    long[][] found = new long[current.length][];
+    int total = 0;
+    try {
+      for (int shard = 0; shard < found.length; shard++) {
+        found[shard] = searches.get(shard).join();
+        total += found[shard].length;
+      }
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    long[] keys = new long[total];
+    int offset = 0;
+    for (long[] shardKeys : found) {
+      System.arraycopy(shardKeys, 0, keys, offset, shardKeys.length);
+      offset += shardKeys.length;
+    }
+    return keys;
+  }
+
+  /**
+   * Scans every key in the graph accepted by {@code accept} and resolves the nearest {@code k}.
+   * Keys of batches still being inserted are skipped.
+   */
+  private List<VectorHit> exactSearch(Index[] current, float[] query, int k, LongPredicate accept) {
+    IndexedKeys indexed = indexedKeys();
+    ExactVectorScan.TopK top =
+        ExactVectorScan.scan(
+            (key, target) -> readVector(current, key, target),
+            metric,
+            query,
+            k,
+            Math.min(keyMap.size(), indexed.bound()),
+            key -> indexed.contains(key) && accept.test(key));
+    List<VectorHit> hits = new ArrayList<>(top.size());
+    for (int i = 0; i < top.size(); i++) {
+      long key = top.key(i);
+      hits.add(new VectorHit(key, keyMap.documentId(key), keyMap.chunkIndex(key), top.distance(i)));
+    }
+    return hits;
+  }
+
+  /** Runs {@code filter} over every document of the index and returns the accepted ordinals. */
+  private BitSet testAllDocuments(DocumentPredicate filter) {
+    int documents = keyMap.documentCount();
+    String[] documentIds = new String[documents];
+    for (int ordinal = 0; ordinal < documents; ordinal++) {
+      documentIds[ordinal] = keyMap.documentIdOf(ordinal);
+    }
+    boolean[] matches = filter.test(documentIds);
+    BitSet accepted = new BitSet(documents);
+    for (int ordinal = 0; ordinal < documents; ordinal++) {
+      if (matches[ordinal]) {
+        accepted.set(ordinal);
+      }
+    }
+    return accepted;
+  }
+
+  /** Runs {@code filter} once over the documents of {@code keys} not tested yet. */
+  private void testDocuments(
+      long[] keys, BitSet tested, BitSet accepted, DocumentPredicate filter) {
+    int[] ordinals = new int[keys.length];
+    int pending = 0;
+    for (long key : keys) {
+      int ordinal = keyMap.ordinal(key);
+      if (ordinal >= 0 && !tested.get(ordinal)) {
+        tested.set(ordinal);
+        ordinals[pending++] = ordinal;
+      }
+    }
+    if (pending == 0) {
+      return;
+    }
+    String[] documentIds = new String[pending];
+    for (int i = 0; i < pending; i++) {
+      documentIds[i] = keyMap.documentIdOf(ordinals[i]);
+    }
+    boolean[] matches = filter.test(documentIds);
+    for (int i = 0; i < pending; i++) {
+      if (matches[i]) {
+        accepted.set(ordinals[i]);
+      }
+    }
+  }
+
+  /**
+   * Ranks the first {@code count} keys by their exact distance to {@code query} and resolves the
+   * nearest {@code k}. Keys are ranked as (sortable distance bits, position) pairs so that only the
+   * hits returned are materialized.
+   */
+  private List<VectorHit> rank(Index[] current, float[] query, long[] keys, int count, int k) {
+    float[] stored = new float[query.length];
+    long[] ranked = new long[count];
+    float[] distances = new float[count];
+    for (int i = 0; i < count; i++) {
+      readVector(current, keys[i], stored);
+      distances[i] = metric.distance(query, stored);
+      ranked[i] = (long) sortableBits(distances[i]) << 32 | i;
+    }
+    Arrays.sort(ranked);
+    List<VectorHit> hits = new ArrayList<>(Math.min(k, count));
+    for (int i = 0; i < count && hits.size() < k; i++) {
+      int candidate = (int) ranked[i];
+      long key = keys[candidate];
+      hits.add(
+          new VectorHit(key, keyMap.documentId(key), keyMap.chunkIndex(key), distances[candidate]));
+    }
+    return hits;
+  }
+
+  /**
+   * Reports the memory footprint of the index and, with {@code recallSample > 0}, estimates the
+   * recall at {@code recallK} of {@link #search} by querying with that many stored vectors and
+   * comparing the hits with an exact scan over all full-precision vectors.
+   */
+  public VectorIndexStats stats(int recallSample, int recallK) {
+    Double recall = recallSample > 0 ? estimateRecall(recallSample, recallK) : null;
+    lock.readLock().lock();
+    try {
+      Index[] current = ensureOpen();
+      long vectors = size();
+      long graphBytes = 0;
+      for (Index shard : current) {
+        graphBytes += shard.memoryUsage();
       }
+      return new VectorIndexStats(
+          quantization(),
+          dimensions(),
+          vectors,
+          keyMap.tombstones(),
+          lostVectors.get(),
+          capacity(),
+          current.length,
+          graphBytes,
+          store != null ? store.sizeInBytes() : 0,
+          viewing,
+          vectors > 0 ? graphBytes / vectors : 0,
+          recall,
+          recall != null ? recallK : null);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Queries with {@code sample} stored vectors spread over the live keys and returns the share of
+   * their exact {@code k} nearest neighbours that {@link #search} finds. Every live vector is read
+   * once, ranked against all sample queries in primitive top-k heaps.
+   */
+  private Double estimateRecall(int sample, int k) {
+    if (k < 1) {
+      throw new IllegalArgumentException("k must be positive");
     }
+    lock.readLock().lock();
+    try {
+      Index[] current = ensureOpen();
+      IndexedKeys indexed = indexedKeys();
+      long bound = Math.min(keyMap.size(), indexed.bound());
+      KeyList live = new KeyList();
+      for (long key = 0; key < bound; key++) {
+        if (keyMap.ordinal(key) >= 0 && indexed.contains(key)) {
+          live.add(key);
+        }
+      }
+      if (live.size == 0) {
+        return null;
+      }
+      int queries = Math.min(sample, live.size);
+      int dimension = dimensions();
+      float[][] vectors = new float[queries][dimension];
+      ExactVectorScan.TopK[] exact = new ExactVectorScan.TopK[queries];
+      for (int q = 0; q < queries; q++) {
+        readVector(current, live.keys[(int) ((long) q * live.size / queries)], vectors[q]);
+        exact[q] = new ExactVectorScan.TopK(k);
+      }
+      float[] stored = new float[dimension];
+      for (int i = 0; i < live.size; i++) {
+        readVector(current, live.keys[i], stored);
+        for (int q = 0; q < queries; q++) {
+          exact[q].offer(metric.distance(vectors[q], stored), live.keys[i]);
+        }
+      }
+
+      long found = 0;
+      long expected = 0;
+      for (int q = 0; q < queries; q++) {
+        List<VectorHit> hits = search(vectors[q], k, 0);
+        long[] approximate = new long[hits.size()];
+        for (int i = 0; i < approximate.length; i++) {
+          approximate[i] = hits.get(i).key();
+        }
+        Arrays.sort(approximate);
+        expected += exact[q].size();
+        for (int i = 0; i < exact[q].size(); i++) {
+          if (Arrays.binarySearch(approximate, exact[q].key(i)) >= 0) {
+            found++;
+          }
+        }
+      }
+      return (double) found / expected;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Keys whose vectors are in the graph as of now. */
+  private IndexedKeys indexedKeys() {
+    synchronized (unindexedRuns) {
+      return new IndexedKeys(
+          nextKey.get(), unindexedRuns.isEmpty() ? null : new TreeMap<>(unindexedRuns));
+    }
+  }
+
+  /**
+   * The keys allocated below {@code bound}, except the runs in {@code unindexed}, whose batches are
+   * still being inserted.
+   */
+  private record IndexedKeys(long bound, NavigableMap<Long, Integer> unindexed) {
+
+    static final IndexedKeys NONE = new IndexedKeys(0, null);
+
+    boolean contains(long key) {
+      if (key >= bound) {
+        return false;
+      }
+      if (unindexed == null) {
+        return true;
+      }
+      Map.Entry<Long, Integer> run = unindexed.floorEntry(key);
+      return run == null || key >= run.getKey() + run.getValue();
+    }
+
+    /** First key whose vector may not be in the graph yet. */
+    long saved() {
+      return unindexed == null ? bound : Math.min(bound, unindexed.firstKey());
+    }
+
+    /** The keys of {@code later}, a snapshot taken after this one, that this one lacks. */
+    PrimitiveIterator.OfLong addedIn(IndexedKeys later) {
+      LongStream runs =
+          unindexed == null
+              ? LongStream.empty()
+              : unindexed.entrySet().stream()
+                  .flatMapToLong(
+                      run -> LongStream.range(run.getKey(), run.getKey() + run.getValue()));
+      return LongStream.concat(runs, LongStream.range(bound, later.bound))
+          .filter(later::contains)
+          .iterator();
+    }
+  }
+
+  /** Maps a float to an int with the same ordering under signed comparison. */
+  private static int sortableBits(float value) {
+    int bits = Float.floatToIntBits(value);
+    return bits ^ (bits >> 31 & 0x7FFFFFFF);
+  }
+
+  private void readVector(Index[] current, long key, float[] target) {
+    if (store != null) {
+      store.get(key, target);
+    } else {
+      current[shardOf(key)].getInto(key, target);
+    }
+  }
+
+  /** Adds the vectors at {@code positions[from..to)} of the batch to one graph. */
+  private static void addRange(
+      Index index,
+      VectorStore store,
+      long[] keys,
+      float[] vectors,
+      int[] positions,
+      int from,
+      int to,
+      int dimension) {
+    float[] vector = new float[dimension];
+    for (int p = from; p < to; p++) {
+      int i = positions[p];
+      if (store != null) {
+        store.put(keys[i], vectors, i * dimension);
+      }
+      System.arraycopy(vectors, i * dimension, vector, 0, dimension);
+      index.add(keys[i], vector);
+    }
+  }
+
+  /**
+   * Makes room in every shard for the vectors at {@code positions} on top of those already added or
+   * being added by concurrent batches, at least doubling the capacity whenever a graph has to grow,
+   * and maps the full-precision store up to {@code maxKey}.
+   */
+  private void reserveFor(int[][] positions, long maxKey) {
+    lock.writeLock().lock();
+    for (int shard = 0; shard < positions.length; shard++) {
+      pendingAdds.addAndGet(shard, positions[shard].length);
+    }
+    try {
+      Index[] current = loadForWrite(ensureOpen());
+      for (int shard = 0; shard < current.length; shard++) {
+        long required = current[shard].size() + pendingAdds.get(shard);
+        long capacity = current[shard].capacity();
+        if (required > capacity) {
+          grow(current[shard], Math.max(required, Math.max(MIN_CAPACITY, capacity * 2)));
+        }
+      }
+      if (store != null && maxKey >= store.capacity()) {
+        store.reserve(Math.max(maxKey + 1, store.capacity() * 2));
+      }
+    } catch (RuntimeException e) {
+      for (int shard = 0; shard < positions.length; shard++) {
+        pendingAdds.addAndGet(shard, -positions[shard].length);
+      }
+      throw e;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void grow(Index current, long capacity) {
+    if (capacity > current.capacity()) {
+      current.reserve(capacity, addThreads, NexoConfig.getInstance().getSearchThreads());
+    }
+  }
+
+  private Index[] ensureOpen() {
+    Index[] current = shards;
+    if (current == null) {
+      throw new IllegalStateException("Vector index is not open: " + indexPath);
+    }
+    return current;
+  }
+
+  public void close() throws Exception {
+    mutationLock.writeLock().lock();
+    lock.writeLock().lock();
+    try {
+      if (shards != null) {
+        try {
+          if (!viewing && dirtyVectors.get() > 0) {
+            save(shards);
+            dirtyVectors.set(0);
+          }
+          closeShards(shards);
+          log.info("Closed USearch index at: {}", indexPath);
+        } finally {
+          shards = null;
+          keyMap.close();
+          if (store != null) {
+            store.close();
+          }
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+      mutationLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Vector inserts of all collections share one pool sized by {@code vectorIndex.addThreads}, which
+   * is also the number of concurrent adders reserved in every graph.
+   */
+  private static final class VectorAddPool {
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+    private static final ExecutorService EXECUTOR =
+        Executors.newFixedThreadPool(
+            NexoConfig.getInstance().getVectorIndex().getAddThreads(),
+            r -> {
+              Thread t = new Thread(r, "vector-add-" + THREAD_IDS.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
   }
 }
@@ -0,0 +1,137 @@
+package com.nexo.index;
+
+import java.util.Arrays;
+
+/**
+ * Embeddings collected for one ingest batch, stored back to back in a single {@code float[]} that
+ * is handed to {@link UsearchIndex#add(VectorBatch)} as is. Each vector remembers the position of
+ * its document in the keyword batch, so vectors of rejected documents can be dropped before they
+ * reach the vector index, and the document id and chunk index it is looked up by. A batch is not
+ * thread-safe and is reused across flushes.
+ */
+public final class VectorBatch {
+
+  private static final int INITIAL_VECTORS = 16;
+
+  private final int dimension;
+  private float[] vectors;
+  private int[] documents;
+  private String[] ids;
+  private int[] chunks;
+  private long[] keys;
+  private int size;
+
+  public VectorBatch(int dimension) {
+    if (dimension < 1) {
+      throw new IllegalArgumentException("Vector dimension must be positive");
+    }
+    this.dimension = dimension;
+    this.vectors = new float[INITIAL_VECTORS * dimension];
+    this.documents = new int[INITIAL_VECTORS];
+    this.ids = new String[INITIAL_VECTORS];
+    this.chunks = new int[INITIAL_VECTORS];
+  }
+
+  public int dimension() {
+    return dimension;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Appends a vector for chunk {@code chunk} of the document at {@code document} in the keyword
+   * batch and returns the offset of its {@link #dimension()} values in {@link #vectors()}, for the
+   * caller to fill in. The document id is set with {@link #identify} once it is known.
+   */
+  public int append(int document, int chunk) {
+    if (size == documents.length) {
+      int grown = Math.multiplyExact(documents.length, 2);
+      documents = Arrays.copyOf(documents, grown);
+      ids = Arrays.copyOf(ids, grown);
+      chunks = Arrays.copyOf(chunks, grown);
+      vectors = Arrays.copyOf(vectors, Math.multiplyExact(grown, dimension));
+    }
+    documents[size] = document;
+    ids[size] = null;
+    chunks[size] = chunk;
+    int offset = size * dimension;
+    Arrays.fill(vectors, offset, offset + dimension, 0f);
+    size++;
+    return offset;
+  }
+
+  /** Backing array of the batch; fetch it again after {@link #append}, which may replace it. */
+  public float[] vectors() {
+    return vectors;
+  }
+
+  public int document(int vector) {
+    return documents[vector];
+  }
+
+  /** Sets the document id of every vector appended from {@code from} on. */
+  public void identify(int from, String id) {
+    Arrays.fill(ids, from, size, id);
+  }
+
+  public String id(int vector) {
+    return ids[vector];
+  }
+
+  public int chunk(int vector) {
+    return chunks[vector];
+  }
+
+  /** Drops every vector appended after the first {@code size}, e.g. of a rejected document. */
+  public void truncate(int size) {
+    if (size < 0 || size > this.size) {
+      throw new IllegalArgumentException("Invalid vector batch size: " + size);
+    }
+    this.size = size;
+  }
+
+  /** Removes the vectors of the documents that {@code result} reports as failed. */
+  public void removeFailed(BulkResult result) {
+    if (!result.hasFailures() || size == 0) {
+      return;
+    }
+    boolean[] failed = new boolean[documents[size - 1] + 1];
+    for (BulkResult.ItemError failure : result.getFailures()) {
+      if (failure.index() < failed.length) {
+        failed[failure.index()] = true;
+      }
+    }
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      if (failed[documents[i]]) {
+        continue;
+      }
+      if (kept != i) {
+        documents[kept] = documents[i];
+        ids[kept] = ids[i];
+        chunks[kept] = chunks[i];
+        System.arraycopy(vectors, i * dimension, vectors, kept * dimension, dimension);
+      }
+      kept++;
+    }
+    size = kept;
+  }
+
+  public void reset() {
+    size = 0;
+  }
+
+  /** Key array with room for every vector in the batch, filled in by the vector index. */
+  long[] keys() {
+    if (keys == null || keys.length < size) {
+      keys = new long[documents.length];
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,11 @@
+package com.nexo.index;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** One nearest neighbour: the chunk a vector was added for and its distance to the query. */
+public record VectorHit(
+    @JsonIgnore long key,
+    @JsonProperty("_id") String documentId,
+    @JsonProperty("_chunk_index") int chunkIndex,
+    @JsonProperty("_distance") float distance) {}
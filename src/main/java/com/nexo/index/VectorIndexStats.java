@@ -0,0 +1,28 @@
+package com.nexo.index;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Footprint of a vector index: the graph in memory, including its quantized vectors, and the
+ * memory-mapped full-precision copy, summed over the shards of the index. A memory-mapped graph is
+ * served from the page cache rather than held in memory. Tombstones are the replaced vectors of
+ * re-added documents, which the graph holds until it is compacted; lost vectors were accepted while
+ * a snapshot was written but failed to insert after it. The recall estimate is present only when it
+ * was requested.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record VectorIndexStats(
+    @JsonProperty("quantization") String quantization,
+    @JsonProperty("dimensions") int dimensions,
+    @JsonProperty("vectors") long vectors,
+    @JsonProperty("tombstones") long tombstones,
+    @JsonProperty("lost_vectors") long lostVectors,
+    @JsonProperty("capacity") long capacity,
+    @JsonProperty("shards") int shards,
+    @JsonProperty("graph_memory_bytes") long graphMemoryBytes,
+    @JsonProperty("full_precision_bytes") long fullPrecisionBytes,
+    @JsonProperty("memory_mapped") boolean memoryMapped,
+    @JsonProperty("bytes_per_vector") long bytesPerVector,
+    @JsonProperty("recall") Double recall,
+    @JsonProperty("recall_k") Integer recallK) {}
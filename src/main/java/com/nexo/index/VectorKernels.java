@@ -0,0 +1,89 @@
+package com.nexo.index;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Distance kernels on the JDK Vector API, processing as many floats per instruction as the CPU's
+ * preferred vector width allows and finishing the tail of each vector with scalar code. Only {@link
+ * DistanceKernels} instantiates it, by name and once the incubator module is known to be resolved.
+ * This is the only source compiled against the module, in a compiler execution of its own (see
+ * {@code pom.xml}).
+ */
+final class VectorKernels implements DistanceKernels {
+
+  private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+  VectorKernels() {}
+
+  @Override
+  public float dot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+    VectorSpecies<Float> species = SPECIES;
+    FloatVector sum = FloatVector.zero(species);
+    int bound = species.loopBound(dimension);
+    int i = 0;
+    for (; i < bound; i += species.length()) {
+      FloatVector x = FloatVector.fromArray(species, a, aOffset + i);
+      FloatVector y = FloatVector.fromArray(species, b, bOffset + i);
+      sum = x.fma(y, sum);
+    }
+    float dot = sum.reduceLanes(VectorOperators.ADD);
+    for (; i < dimension; i++) {
+      dot += a[aOffset + i] * b[bOffset + i];
+    }
+    return dot;
+  }
+
+  @Override
+  public float l2sq(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+    VectorSpecies<Float> species = SPECIES;
+    FloatVector sum = FloatVector.zero(species);
+    int bound = species.loopBound(dimension);
+    int i = 0;
+    for (; i < bound; i += species.length()) {
+      FloatVector d =
+          FloatVector.fromArray(species, a, aOffset + i)
+              .sub(FloatVector.fromArray(species, b, bOffset + i));
+      sum = d.fma(d, sum);
+    }
+    float l2 = sum.reduceLanes(VectorOperators.ADD);
+    for (; i < dimension; i++) {
+      float d = a[aOffset + i] - b[bOffset + i];
+      l2 += d * d;
+    }
+    return l2;
+  }
+
+  /** Cosine distance, computing the dot product and both norms in one pass. */
+  @Override
+  public float cos(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+    VectorSpecies<Float> species = SPECIES;
+    FloatVector dotSum = FloatVector.zero(species);
+    FloatVector aSum = FloatVector.zero(species);
+    FloatVector bSum = FloatVector.zero(species);
+    int bound = species.loopBound(dimension);
+    int i = 0;
+    for (; i < bound; i += species.length()) {
+      FloatVector x = FloatVector.fromArray(species, a, aOffset + i);
+      FloatVector y = FloatVector.fromArray(species, b, bOffset + i);
+      dotSum = x.fma(y, dotSum);
+      aSum = x.fma(x, aSum);
+      bSum = y.fma(y, bSum);
+    }
+    float dot = dotSum.reduceLanes(VectorOperators.ADD);
+    float aNorm = aSum.reduceLanes(VectorOperators.ADD);
+    float bNorm = bSum.reduceLanes(VectorOperators.ADD);
+    for (; i < dimension; i++) {
+      float x = a[aOffset + i];
+      float y = b[bOffset + i];
+      dot += x * y;
+      aNorm += x * x;
+      bNorm += y * y;
+    }
+    if (aNorm == 0 || bNorm == 0) {
+      return aNorm == bNorm ? 0 : 1;
+    }
+    return 1 - dot / (float) Math.sqrt((double) aNorm * bNorm);
+  }
+}
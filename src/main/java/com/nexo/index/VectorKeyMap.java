@@ -0,0 +1,357 @@
+package com.nexo.index;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Maps vector keys to the document and chunk they were added for, and documents back to their keys,
+ * in memory-mapped files next to the vector index so that tens of millions of chunks cost no heap:
+ *
+ * <ul>
+ *   <li>{@code vector_keys.keys}: per key, {@code [document ordinal + 1][chunk index]}; keys are
+ *       allocated consecutively by {@link UsearchIndex}, so this is an array indexed by key. A
+ *       negated ordinal marks a tombstone: a vector replaced by a re-add of its document, still in
+ *       the graph until it is compacted.
+ *   <li>{@code vector_keys.docs}: a header, then per document ordinal {@code [id offset][first
+ *       key][key count][id hash][id length]}. The keys of a document are the run added last.
+ *   <li>{@code vector_keys.ids}: the UTF-8 document ids, back to back.
+ *   <li>{@code vector_keys.hash}: an open-addressing table from id hash to document ordinal.
+ * </ul>
+ *
+ * Lookups by key read no lock and allocate nothing until a document id is decoded. There is one
+ * writer at a time; counts in the header are published after the records they cover.
+ */
+final class VectorKeyMap implements AutoCloseable {
+
+  static final String KEYS_FILE = "vector_keys.keys";
+  static final String DOCS_FILE = "vector_keys.docs";
+  static final String IDS_FILE = "vector_keys.ids";
+  static final String HASH_FILE = "vector_keys.hash";
+
+  private static final int MAGIC = 0x4E4B4D32;
+  private static final int HEADER_BYTES = 48;
+  private static final int KEY_BYTES = 8;
+  private static final int DOC_BYTES = 32;
+  private static final int DOC_FIRST_KEY = 8;
+  private static final int DOC_KEY_COUNT = 16;
+  private static final int DOC_HASH = 20;
+  private static final int DOC_ID_LENGTH = 24;
+  private static final int HEADER_TOMBSTONES = 20;
+  private static final int HEADER_SAVED_KEYS = 32;
+  private static final int MIN_HASH_SLOTS = 1024;
+  private static final int MAX_ID_BYTES = 0xFFFF;
+
+  private final MappedFile keyFile;
+  private final MappedFile docFile;
+  private final MappedFile idFile;
+  private final MappedFile hashFile;
+
+  private volatile long size;
+  private volatile int documents;
+  private volatile int tombstones;
+  private long savedKeys;
+  private long idBytes;
+  private int hashSlots;
+
+  private VectorKeyMap(Path directory) {
+    this.keyFile = MappedFile.open(directory.resolve(KEYS_FILE), 23);
+    this.docFile = MappedFile.open(directory.resolve(DOCS_FILE), 22);
+    this.idFile = MappedFile.open(directory.resolve(IDS_FILE), 22);
+    this.hashFile = MappedFile.open(directory.resolve(HASH_FILE), 22);
+  }
+
+  /** Opens the map stored in {@code directory}, creating an empty one if there is none. */
+  static VectorKeyMap open(Path directory) {
+    VectorKeyMap map = new VectorKeyMap(directory);
+    try {
+      map.readHeader();
+      return map;
+    } catch (RuntimeException e) {
+      map.close();
+      throw e;
+    }
+  }
+
+  /** One past the highest key in the map. */
+  long size() {
+    return size;
+  }
+
+  /** Number of distinct documents that have keys. */
+  int documentCount() {
+    return documents;
+  }
+
+  /** Number of tombstoned keys, whose vectors are still in the graph. */
+  int tombstones() {
+    return tombstones;
+  }
+
+  /** Keys below this had their vectors in the graph files when those were last saved. */
+  synchronized long savedKeys() {
+    return savedKeys;
+  }
+
+  /**
+   * Records that the vectors of every known key below {@code keys} are in the saved graph files and
+   * syncs the map.
+   */
+  synchronized void markSaved(long keys) {
+    savedKeys = keys;
+    publish(size);
+    flush();
+  }
+
+  /**
+   * Ordinal of the document {@code key} was added for, or -1 if the key is unknown or tombstoned.
+   */
+  int ordinal(long key) {
+    int entry = key >= 0 && key < size ? keyFile.getInt(key * KEY_BYTES) : 0;
+    return entry > 0 ? entry - 1 : -1;
+  }
+
+  boolean isTombstone(long key) {
+    return key >= 0 && key < size && keyFile.getInt(key * KEY_BYTES) < 0;
+  }
+
+  int chunkIndex(long key) {
+    return key >= 0 && key < size ? keyFile.getInt(key * KEY_BYTES + Integer.BYTES) : -1;
+  }
+
+  String documentId(long key) {
+    int ordinal = ordinal(key);
+    return ordinal >= 0 ? documentIdOf(ordinal) : null;
+  }
+
+  /** Decodes the id of a document ordinal. */
+  String documentIdOf(int ordinal) {
+    long record = docRecord(ordinal);
+    byte[] id = new byte[docFile.getInt(record + DOC_ID_LENGTH)];
+    idFile.get(docFile.getLong(record), id, 0, id.length);
+    return new String(id, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the keys last added for {@code documentId} as {@code [first key, count]}, or null if
+   * the document has none.
+   */
+  synchronized long[] keysOf(String documentId) {
+    byte[] id = documentId.getBytes(StandardCharsets.UTF_8);
+    int ordinal = find(id, hash(id));
+    if (ordinal < 0) {
+      return null;
+    }
+    long record = docRecord(ordinal);
+    int count = docFile.getInt(record + DOC_KEY_COUNT);
+    return count > 0 ? new long[] {docFile.getLong(record + DOC_FIRST_KEY), count} : null;
+  }
+
+  /**
+   * Forgets the first {@code count} of {@code keys}, whose vectors are not in the graph: tombstones
+   * compacted away, or vectors whose insert failed. Forgotten keys are unknown to every lookup.
+   */
+  synchronized void forget(long[] keys, int count) {
+    for (int i = 0; i < count; i++) {
+      if (keys[i] < 0 || keys[i] >= size) {
+        continue;
+      }
+      long position = keys[i] * KEY_BYTES;
+      if (keyFile.getInt(position) < 0) {
+        tombstones--;
+      }
+      keyFile.putInt(position, 0);
+    }
+    publish(size);
+  }
+
+  /** Records the ids of the first {@code count} vectors of {@code batch} under {@code keys}. */
+  synchronized void put(long[] keys, VectorBatch batch, int count) {
+    long maxKey = -1;
+    for (int i = 0; i < count; i++) {
+      maxKey = Math.max(maxKey, keys[i]);
+    }
+    ensureKeys(maxKey);
+    int ordinal = -1;
+    for (int i = 0; i < count; i++) {
+      String id = Objects.requireNonNull(batch.id(i), "Vector has no document id");
+      boolean sameRun = i > 0 && keys[i] == keys[i - 1] + 1 && id.equals(batch.id(i - 1));
+      ordinal = assign(keys[i], sameRun ? ordinal : -1, id, batch.chunk(i));
+    }
+    publish(maxKey + 1);
+  }
+
+  /** Forces written records to disk. */
+  synchronized void flush() {
+    keyFile.flush();
+    docFile.flush();
+    idFile.flush();
+    hashFile.flush();
+  }
+
+  @Override
+  public synchronized void close() {
+    keyFile.close();
+    docFile.close();
+    idFile.close();
+    hashFile.close();
+  }
+
+  /**
+   * Points {@code key} at its document, continuing the key run of {@code runOrdinal} or, when that
+   * is -1, starting a new run for {@code id} and tombstoning the run it replaces.
+   */
+  private int assign(long key, int runOrdinal, String id, int chunk) {
+    int ordinal = runOrdinal;
+    if (ordinal < 0) {
+      ordinal = ordinalFor(id);
+      tombstoneRun(ordinal);
+      long record = docRecord(ordinal);
+      docFile.putLong(record + DOC_FIRST_KEY, key);
+      docFile.putInt(record + DOC_KEY_COUNT, 0);
+    }
+    long record = docRecord(ordinal);
+    docFile.putInt(record + DOC_KEY_COUNT, docFile.getInt(record + DOC_KEY_COUNT) + 1);
+    keyFile.putInt(key * KEY_BYTES, ordinal + 1);
+    keyFile.putInt(key * KEY_BYTES + Integer.BYTES, chunk);
+    return ordinal;
+  }
+
+  /** Tombstones the keys of the last run of {@code ordinal}. */
+  private void tombstoneRun(int ordinal) {
+    long record = docRecord(ordinal);
+    long first = docFile.getLong(record + DOC_FIRST_KEY);
+    int count = docFile.getInt(record + DOC_KEY_COUNT);
+    for (long key = first; key < first + count; key++) {
+      if (keyFile.getInt(key * KEY_BYTES) == ordinal + 1) {
+        keyFile.putInt(key * KEY_BYTES, -(ordinal + 1));
+        tombstones++;
+      }
+    }
+  }
+
+  private int ordinalFor(String documentId) {
+    byte[] id = documentId.getBytes(StandardCharsets.UTF_8);
+    if (id.length > MAX_ID_BYTES) {
+      throw new IllegalArgumentException("Document id too long for the vector key map");
+    }
+    int hash = hash(id);
+    int ordinal = find(id, hash);
+    if (ordinal >= 0) {
+      return ordinal;
+    }
+
+    ordinal = documents;
+    docFile.ensureCapacity(HEADER_BYTES + (ordinal + 1L) * DOC_BYTES);
+    idFile.ensureCapacity(idBytes + id.length);
+    idFile.put(idBytes, id, 0, id.length);
+    long record = docRecord(ordinal);
+    docFile.putLong(record, idBytes);
+    docFile.putInt(record + DOC_HASH, hash);
+    docFile.putInt(record + DOC_ID_LENGTH, id.length);
+    idBytes += id.length;
+    if ((ordinal + 1L) * 2 > hashSlots) {
+      rehash(Math.max(MIN_HASH_SLOTS, hashSlots * 2), ordinal + 1);
+    } else {
+      insert(ordinal, hash);
+    }
+    documents = ordinal + 1;
+    return ordinal;
+  }
+
+  private int find(byte[] id, int hash) {
+    if (hashSlots == 0) {
+      return -1;
+    }
+    int mask = hashSlots - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = hashFile.getInt((long) slot * Integer.BYTES);
+      if (entry == 0) {
+        return -1;
+      }
+      int ordinal = entry - 1;
+      long record = docRecord(ordinal);
+      if (docFile.getInt(record + DOC_HASH) == hash && idEquals(record, id)) {
+        return ordinal;
+      }
+    }
+  }
+
+  private boolean idEquals(long record, byte[] id) {
+    if (docFile.getInt(record + DOC_ID_LENGTH) != id.length) {
+      return false;
+    }
+    long offset = docFile.getLong(record);
+    for (int i = 0; i < id.length; i++) {
+      if (idFile.getByte(offset + i) != id[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void insert(int ordinal, int hash) {
+    int mask = hashSlots - 1;
+    int slot = hash & mask;
+    while (hashFile.getInt((long) slot * Integer.BYTES) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    hashFile.putInt((long) slot * Integer.BYTES, ordinal + 1);
+  }
+
+  /** Rebuilds the hash table with {@code slots} slots from the first {@code count} documents. */
+  private void rehash(int slots, int count) {
+    hashFile.ensureCapacity((long) slots * Integer.BYTES);
+    for (long slot = 0; slot < slots; slot++) {
+      hashFile.putInt(slot * Integer.BYTES, 0);
+    }
+    hashSlots = slots;
+    for (int ordinal = 0; ordinal < count; ordinal++) {
+      insert(ordinal, docFile.getInt(docRecord(ordinal) + DOC_HASH));
+    }
+  }
+
+  private void ensureKeys(long maxKey) {
+    long required = (maxKey + 1) * KEY_BYTES;
+    if (required > keyFile.capacity()) {
+      keyFile.ensureCapacity(Math.max(required, keyFile.capacity() * 2));
+    }
+  }
+
+  private void publish(long keys) {
+    docFile.putInt(0, MAGIC);
+    docFile.putInt(4, hashSlots);
+    docFile.putLong(8, Math.max(size, keys));
+    docFile.putInt(16, documents);
+    docFile.putInt(HEADER_TOMBSTONES, tombstones);
+    docFile.putLong(24, idBytes);
+    docFile.putLong(HEADER_SAVED_KEYS, savedKeys);
+    size = Math.max(size, keys);
+  }
+
+  private void readHeader() {
+    docFile.ensureCapacity(HEADER_BYTES);
+    if (docFile.getInt(0) != MAGIC) {
+      return;
+    }
+    hashSlots = docFile.getInt(4);
+    idBytes = docFile.getLong(24);
+    documents = docFile.getInt(16);
+    size = docFile.getLong(8);
+    tombstones = docFile.getInt(HEADER_TOMBSTONES);
+    savedKeys = docFile.getLong(HEADER_SAVED_KEYS);
+  }
+
+  private long docRecord(int ordinal) {
+    return HEADER_BYTES + (long) ordinal * DOC_BYTES;
+  }
+
+  private static int hash(byte[] id) {
+    int h = Arrays.hashCode(id);
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    return h;
+  }
+}
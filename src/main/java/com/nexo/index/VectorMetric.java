@@ -0,0 +1,60 @@
+package com.nexo.index;
+
+/**
+ * Distance functions matching the USearch metrics a collection can be configured with. Smaller is
+ * closer for all of them, as in USearch. Distances are computed by {@link DistanceKernels}, on the
+ * Vector API when its module is resolved and in plain loops otherwise.
+ */
+public enum VectorMetric {
+  COS("cos") {
+    @Override
+    public float distance(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+      return DistanceKernels.INSTANCE.cos(a, aOffset, b, bOffset, dimension);
+    }
+  },
+  IP("ip") {
+    @Override
+    public float distance(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+      return 1 - DistanceKernels.INSTANCE.dot(a, aOffset, b, bOffset, dimension);
+    }
+  },
+  L2SQ("l2sq") {
+    @Override
+    public float distance(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+      return DistanceKernels.INSTANCE.l2sq(a, aOffset, b, bOffset, dimension);
+    }
+  };
+
+  private final String value;
+
+  VectorMetric(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Maps a distance to a similarity where larger is closer: {@code 1 - distance} for cos and ip,
+   * whose distances are one minus a similarity, and {@code 1 / (1 + distance)} for l2sq.
+   */
+  public float similarity(float distance) {
+    return this == L2SQ ? 1 / (1 + distance) : 1 - distance;
+  }
+
+  public float distance(float[] a, float[] b) {
+    return distance(a, 0, b, 0, a.length);
+  }
+
+  public abstract float distance(float[] a, int aOffset, float[] b, int bOffset, int dimension);
+
+  public static VectorMetric of(String metric) {
+    for (VectorMetric candidate : values()) {
+      if (candidate.value.equalsIgnoreCase(metric)) {
+        return candidate;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported vector metric: " + metric);
+  }
+}
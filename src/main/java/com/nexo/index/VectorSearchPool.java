@@ -0,0 +1,30 @@
+package com.nexo.index;
+
+import com.nexo.config.NexoConfig;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Work a single vector search splits into, exact scan blocks and per-shard graph searches, runs on
+ * one fork-join pool of {@code searchThreads} shared by all collections. It is kept apart from the
+ * search pool, whose threads block while the parts of their search run here.
+ */
+final class VectorSearchPool {
+
+  private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+  static final ForkJoinPool POOL =
+      new ForkJoinPool(
+          NexoConfig.getInstance().getSearchThreads(),
+          pool -> {
+            ForkJoinWorkerThread t =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("vector-search-" + THREAD_IDS.incrementAndGet());
+            return t;
+          },
+          null,
+          false);
+
+  private VectorSearchPool() {}
+}
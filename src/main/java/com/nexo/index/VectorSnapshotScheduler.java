@@ -0,0 +1,181 @@
+package com.nexo.index;
+
+import com.nexo.config.NexoConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Node-wide vector snapshot scheduler. A single background thread checks the registered indexes
+ * against the {@link SnapshotPolicy} and writes one snapshot at a time, so a crash loses at most
+ * the vectors added since the last snapshot and closing an index only has to save what is left. The
+ * same thread compacts indexes whose tombstones passed their threshold.
+ */
+@Slf4j
+public class VectorSnapshotScheduler {
+
+  private static final long MIN_TICK_MS = 10;
+  private static final long MAX_TICK_MS = 1000;
+
+  private static volatile VectorSnapshotScheduler instance;
+  private static final Object LOCK = new Object();
+
+  /** A vector index that can be saved in the background. */
+  interface Snapshottable {
+    /** Vectors added since the last snapshot. */
+    long dirtyVectors();
+
+    /** {@link System#nanoTime()} of the last snapshot, or of opening the index. */
+    long lastSnapshotNanos();
+
+    /**
+     * Saves the index if it has unsaved vectors.
+     *
+     * @return whether a snapshot was written
+     */
+    boolean snapshot();
+
+    /** Whether enough vectors are tombstoned for a compaction to pay off. */
+    boolean needsCompaction();
+
+    /**
+     * Rebuilds the index without its tombstoned vectors.
+     *
+     * @return whether the index was compacted
+     */
+    boolean compact();
+  }
+
+  private final SnapshotPolicy policy;
+  private final LongSupplier nanoClock;
+  private final MeterRegistry registry;
+  private final Map<String, Snapshottable> indexes = new ConcurrentHashMap<>();
+
+  VectorSnapshotScheduler(SnapshotPolicy policy, LongSupplier nanoClock, MeterRegistry registry) {
+    this.policy = policy;
+    this.nanoClock = nanoClock;
+    this.registry = registry;
+  }
+
+  public static VectorSnapshotScheduler getInstance() {
+    if (instance == null) {
+      synchronized (LOCK) {
+        if (instance == null) {
+          VectorSnapshotScheduler scheduler =
+              new VectorSnapshotScheduler(
+                  NexoConfig.getInstance().getVectorIndex().getSnapshot(),
+                  System::nanoTime,
+                  Metrics.globalRegistry);
+          scheduler.start();
+          instance = scheduler;
+        }
+      }
+    }
+    return instance;
+  }
+
+  public void register(String collection, UsearchIndex index) {
+    register(collection, (Snapshottable) index);
+  }
+
+  void register(String collection, Snapshottable index) {
+    indexes.put(collection, index);
+  }
+
+  public void unregister(String collection) {
+    indexes.remove(collection);
+  }
+
+  /**
+   * Snapshots every registered index that is due, and compacts those that need it.
+   *
+   * @return the number of snapshots written
+   */
+  int runOnce() {
+    int written = 0;
+    for (Map.Entry<String, Snapshottable> entry : indexes.entrySet()) {
+      if (snapshotIfDue(entry.getKey(), entry.getValue())) {
+        written++;
+      }
+      compactIfNeeded(entry.getKey(), entry.getValue());
+    }
+    return written;
+  }
+
+  private boolean snapshotIfDue(String collection, Snapshottable index) {
+    long dirty = index.dirtyVectors();
+    long sinceMs = TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - index.lastSnapshotNanos());
+    if (!policy.isDue(dirty, sinceMs)) {
+      return false;
+    }
+    String trigger =
+        policy.getMaxDirtyVectors() > 0 && dirty >= policy.getMaxDirtyVectors()
+            ? "vectors"
+            : "interval";
+    try {
+      long start = nanoClock.getAsLong();
+      if (index.snapshot()) {
+        Timer.builder("nexo.vector.snapshot.latency")
+            .description("Time spent writing a vector index snapshot")
+            .tag("collection", collection)
+            .tag("trigger", trigger)
+            .register(registry)
+            .record(nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+        log.debug("Snapshotted {} vectors of collection {} on {}", dirty, collection, trigger);
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("Vector snapshot failed for collection {}", collection, e);
+    }
+    return false;
+  }
+
+  private void compactIfNeeded(String collection, Snapshottable index) {
+    try {
+      if (!index.needsCompaction()) {
+        return;
+      }
+      long start = nanoClock.getAsLong();
+      if (index.compact()) {
+        Timer.builder("nexo.vector.compaction.latency")
+            .description("Time spent rebuilding a vector index without its tombstones")
+            .tag("collection", collection)
+            .register(registry)
+            .record(nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+      }
+    } catch (Exception e) {
+      log.error("Vector compaction failed for collection {}", collection, e);
+    }
+  }
+
+  /** Delay between policy checks. */
+  long tickMillis() {
+    return policy.getIntervalMs() > 0
+        ? Math.clamp(policy.getIntervalMs() / 4, MIN_TICK_MS, MAX_TICK_MS)
+        : MAX_TICK_MS;
+  }
+
+  private void start() {
+    Thread thread = new Thread(this::run, "vector-snapshot-scheduler");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        runOnce();
+        TimeUnit.MILLISECONDS.sleep(tickMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        log.error("Vector snapshot scheduler iteration failed", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.nexo.index;
+
+import java.nio.file.Path;
+
+/**
+ * Full-precision copy of the vectors of a quantized index, kept in a memory-mapped file next to it
+ * so that search candidates can be re-ranked with exact distances. The vector of key {@code k} is
+ * stored as little-endian floats at offset {@code k * dimension * 4}. Pages of vectors that are
+ * never re-ranked stay on disk.
+ */
+final class VectorStore implements AutoCloseable {
+
+  static final String FILE_NAME = "vectors.f32";
+  private static final int SEGMENT_SHIFT = 26;
+
+  private final MappedFile file;
+  private final int dimension;
+  private final long vectorBytes;
+
+  private VectorStore(MappedFile file, int dimension) {
+    this.file = file;
+    this.dimension = dimension;
+    this.vectorBytes = (long) dimension * Float.BYTES;
+  }
+
+  /** Opens the store in {@code directory}, mapping every vector already written to it. */
+  static VectorStore open(Path directory, int dimension) {
+    return new VectorStore(MappedFile.open(directory.resolve(FILE_NAME), SEGMENT_SHIFT), dimension);
+  }
+
+  /** Maps the file far enough to hold keys below {@code keys}. Must not run concurrently. */
+  void reserve(long keys) {
+    file.ensureCapacity(keys * vectorBytes);
+  }
+
+  /** Number of keys the mapped file can hold. */
+  long capacity() {
+    return file.capacity() / vectorBytes;
+  }
+
+  /** Writes the vector of {@code key}, read from {@code vectors} at {@code offset}. */
+  void put(long key, float[] vectors, int offset) {
+    file.putFloats(position(key), vectors, offset, dimension);
+  }
+
+  /** Reads the vector of {@code key} into {@code target}. */
+  void get(long key, float[] target) {
+    file.getFloats(position(key), target, 0, dimension);
+  }
+
+  /** Bytes of the mapped file, whether or not they are resident. */
+  long sizeInBytes() {
+    return file.capacity();
+  }
+
+  /** Writes dirty pages back to the file. */
+  void flush() {
+    file.flush();
+  }
+
+  @Override
+  public void close() {
+    file.close();
+  }
+
+  private long position(long key) {
+    if (key < 0 || key >= capacity()) {
+      throw new IllegalArgumentException("Vector key out of range of the vector store: " + key);
+    }
+    return key * vectorBytes;
+  }
+}
@@ -0,0 +1,264 @@
+package com.nexo.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of the batches written since the last keyword index commit. Each record is framed
+ * as {@code [length][documents][crc32c][payload]}; the top bit of {@code documents} marks a batch
+ * of binary rows rather than NDJSON. Appends are not forced individually: a syncer thread fsyncs
+ * everything appended so far in one call, so concurrent writers waiting in {@link
+ * #awaitDurable(long)} share a single fsync. The log is truncated once a commit has made its
+ * records durable in the index.
+ *
+ * <p>Only keyword documents are logged. Chunk embeddings go straight to the vector index, which is
+ * durable only up to its last snapshot, so a replay after a crash restores documents without the
+ * vectors added since that snapshot. Those documents must be sent again to be found by vector
+ * search.
+ */
+@Slf4j
+public class WriteAheadLog implements AutoCloseable {
+
+  public static final String FILE_NAME = "wal.log";
+  private static final int HEADER_BYTES = 12;
+  private static final int ROWS_FLAG = 1 << 31;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final Object lock = new Object();
+  private final Thread syncer;
+
+  private long appendedSequence;
+  private long syncedSequence;
+  private IOException syncFailure;
+  private boolean closed;
+
+  private WriteAheadLog(Path path, FileChannel channel) {
+    this.path = path;
+    this.channel = channel;
+    this.syncer = Thread.ofPlatform().daemon().name("wal-sync-" + path).unstarted(this::syncLoop);
+  }
+
+  /** Opens or creates the log in {@code directory}. */
+  public static WriteAheadLog open(Path directory) {
+    Path path = directory.resolve(FILE_NAME);
+    try {
+      FileChannel channel =
+          FileChannel.open(
+              path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      WriteAheadLog wal = new WriteAheadLog(path, channel);
+      wal.syncer.start();
+      return wal;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open write-ahead log: " + path, e);
+    }
+  }
+
+  /**
+   * Appends the batch without forcing it to disk.
+   *
+   * @return the sequence number to pass to {@link #awaitDurable(long)}
+   */
+  public long append(NativeBatchBuffer batch) {
+    ByteBuffer payload = batch.buffer().duplicate().flip();
+    CRC32C crc = new CRC32C();
+    crc.update(payload.duplicate());
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    int documents = batch.documentCount();
+    if (batch.format() == NativeBatchBuffer.Format.ROWS) {
+      documents |= ROWS_FLAG;
+    }
+    header.putInt(payload.remaining()).putInt(documents).putInt((int) crc.getValue());
+    header.flip();
+
+    synchronized (lock) {
+      ensureOpen();
+      try {
+        channel.position(channel.size());
+        ByteBuffer[] record = {header, payload};
+        while (header.hasRemaining() || payload.hasRemaining()) {
+          channel.write(record);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to append to write-ahead log: " + path, e);
+      }
+      lock.notifyAll();
+      return ++appendedSequence;
+    }
+  }
+
+  /** Blocks until the record with {@code sequence} has been fsynced or committed. */
+  public void awaitDurable(long sequence) {
+    synchronized (lock) {
+      while (syncedSequence < sequence) {
+        if (syncFailure != null) {
+          throw new UncheckedIOException("Write-ahead log sync failed: " + path, syncFailure);
+        }
+        ensureOpen();
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for write-ahead log sync", e);
+        }
+      }
+    }
+  }
+
+  /** Drops every record; called after a commit made them durable in the index. */
+  public void truncate() {
+    synchronized (lock) {
+      ensureOpen();
+      try {
+        channel.truncate(0);
+        channel.force(true);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to truncate write-ahead log: " + path, e);
+      }
+      syncedSequence = appendedSequence;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Feeds every intact record to {@code consumer} in append order. A torn or corrupt tail left by a
+   * crash ends the replay and is cut off.
+   *
+   * @return number of replayed documents
+   */
+  public long replay(Consumer<NativeBatchBuffer> consumer) {
+    long documents = 0;
+    synchronized (lock) {
+      ensureOpen();
+      NativeBatchBuffer ndjson = NativeBatchBuffer.acquire(NativeBatchBuffer.Format.NDJSON);
+      NativeBatchBuffer rows = NativeBatchBuffer.acquire(NativeBatchBuffer.Format.ROWS);
+      try (ndjson;
+          rows) {
+        long position = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES <= size) {
+          header.clear();
+          readFully(header, position);
+          header.flip();
+          int length = header.getInt();
+          int flaggedCount = header.getInt();
+          int count = flaggedCount & ~ROWS_FLAG;
+          int checksum = header.getInt();
+          if (length < 0 || count < 0 || position + HEADER_BYTES + length > size) {
+            break;
+          }
+
+          ByteBuffer payload = ByteBuffer.allocate(length);
+          readFully(payload, position + HEADER_BYTES);
+          payload.flip();
+          CRC32C crc = new CRC32C();
+          crc.update(payload.duplicate());
+          if ((int) crc.getValue() != checksum) {
+            break;
+          }
+
+          NativeBatchBuffer batch = (flaggedCount & ROWS_FLAG) != 0 ? rows : ndjson;
+          batch.reset();
+          batch.appendDocuments(payload, count);
+          consumer.accept(batch);
+          documents += count;
+          position += HEADER_BYTES + length;
+        }
+        if (position < size) {
+          log.warn("Discarding {} bytes of torn write-ahead log tail: {}", size - position, path);
+          channel.truncate(position);
+          channel.force(true);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to replay write-ahead log: " + path, e);
+      }
+    }
+    return documents;
+  }
+
+  public long sizeInBytes() {
+    try {
+      return channel.size();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      lock.notifyAll();
+    }
+    try {
+      syncer.join();
+      channel.force(true);
+      channel.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      log.warn("Error closing write-ahead log: {}", path, e);
+    }
+  }
+
+  private void syncLoop() {
+    while (true) {
+      long target;
+      synchronized (lock) {
+        while (!closed && syncedSequence >= appendedSequence) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (closed) {
+          return;
+        }
+        target = appendedSequence;
+      }
+
+      try {
+        channel.force(false);
+        synchronized (lock) {
+          syncedSequence = Math.max(syncedSequence, target);
+          lock.notifyAll();
+        }
+      } catch (IOException e) {
+        log.error("Failed to sync write-ahead log: {}", path, e);
+        synchronized (lock) {
+          syncFailure = e;
+          lock.notifyAll();
+        }
+        return;
+      }
+    }
+  }
+
+  private void readFully(ByteBuffer target, long position) throws IOException {
+    while (target.hasRemaining()) {
+      int read = channel.read(target, position + target.position());
+      if (read < 0) {
+        throw new IOException("Unexpected end of write-ahead log");
+      }
+    }
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("Write-ahead log is closed: " + path);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.nexo.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Memory arena and indexing thread count of a native index writer. Tantivy splits the heap evenly
+ * across its threads and rejects per-thread arenas outside {@code [15MB, 4GB - 1MB]} as well as
+ * more than eight threads, so requested values are clamped to what the writer will accept.
+ */
+@Slf4j
+public record WriterBudget(long heapSize, int threads) {
+
+  public static final long DEFAULT_HEAP_SIZE = 50_000_000L;
+  public static final long MIN_HEAP_PER_THREAD = 15_000_000L;
+  static final long MAX_HEAP_PER_THREAD = 0xFFFF_FFFFL - 1_000_000L;
+  static final int MAX_THREADS = 8;
+
+  public static WriterBudget defaults() {
+    return of(DEFAULT_HEAP_SIZE, 0);
+  }
+
+  /**
+   * Clamps a requested budget. A non-positive thread count picks one thread per core, reduced until
+   * each thread gets at least the minimum arena.
+   */
+  public static WriterBudget of(long requestedHeapSize, int requestedThreads) {
+    long heapSize = Math.max(requestedHeapSize, MIN_HEAP_PER_THREAD);
+    int threads =
+        requestedThreads > 0
+            ? Math.min(requestedThreads, MAX_THREADS)
+            : Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS);
+    threads = (int) Math.max(1, Math.min(threads, heapSize / MIN_HEAP_PER_THREAD));
+    heapSize = Math.min(heapSize, MAX_HEAP_PER_THREAD * threads);
+
+    WriterBudget budget = new WriterBudget(heapSize, threads);
+    if (heapSize != requestedHeapSize || (requestedThreads > 0 && threads != requestedThreads)) {
+      log.warn(
+          "Writer budget heap={} threads={} adjusted to {}",
+          requestedHeapSize,
+          requestedThreads,
+          budget);
+    }
+    return budget;
+  }
+}
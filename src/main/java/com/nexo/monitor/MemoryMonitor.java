@@ -1,6 +1,8 @@
 package com.nexo.monitor;
 
+import com.nexo.index.IndexingMemoryManager;
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
 import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
@@ -39,6 +41,21 @@ public class MemoryMonitor {
     new JvmThreadMetrics().bindTo(meterRegistry);
     new ProcessorMetrics().bindTo(meterRegistry);
 
+    IndexingMemoryManager indexingMemory = IndexingMemoryManager.getInstance();
+    Gauge.builder(
+            "nexo.indexing.memory.reserved", indexingMemory, IndexingMemoryManager::getReserved)
+        .description("Native writer arenas reserved across all collections")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("nexo.indexing.memory.budget", indexingMemory, IndexingMemoryManager::getBudget)
+        .description("Node-wide budget for native writer arenas")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder(
+            "nexo.indexing.writers.open", indexingMemory, IndexingMemoryManager::getOpenWriters)
+        .description("Native index writers currently open")
+        .register(meterRegistry);
+
     Metrics.addRegistry(meterRegistry);
   }
 
@@ -79,6 +96,9 @@ public class MemoryMonitor {
       long nonHeapUsed =
           (long) meterRegistry.get("jvm.memory.used").tag("area", "nonheap").gauge().value();
       int threadCount = (int) meterRegistry.get("jvm.threads.live").gauge().value();
+      long writerMemory = (long) meterRegistry.get("nexo.indexing.memory.reserved").gauge().value();
+      long writerBudget = (long) meterRegistry.get("nexo.indexing.memory.budget").gauge().value();
+      int openWriters = (int) meterRegistry.get("nexo.indexing.writers.open").gauge().value();
 
       String cpuInfo = "N/A";
       try {
@@ -91,10 +111,13 @@ public class MemoryMonitor {
       }
 
       log.info(
-          "Memory Stats: heap=[used={}, max={}] nonHeap=[used={}] threads={} cpu={}",
+          "Memory Stats: heap=[used={}, max={}] nonHeap=[used={}] writers=[open={}, reserved={}, budget={}] threads={} cpu={}",
           formatBytes(heapUsed),
           formatBytes(heapMax),
           formatBytes(nonHeapUsed),
+          openWriters,
+          formatBytes(writerMemory),
+          formatBytes(writerBudget),
           threadCount,
           cpuInfo);
     } catch (Exception e) {
@@ -0,0 +1,93 @@
+package com.nexo.search;
+
+import com.nexo.enums.ChunkAggregate;
+import com.nexo.index.VectorHit;
+import com.nexo.index.VectorMetric;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Turns the chunk hits of a vector search into the {@code k} best documents. Chunks are fetched in
+ * rounds: the first asks for {@code k}, and while fewer than {@code k} distinct documents come back
+ * the next round asks for enough chunks to find them at the number of chunks per document seen so
+ * far, at least twice as many as before, until the index has no more to return. A {@link
+ * ChunkAggregate#SUM} score only adds up the chunks fetched by the last round.
+ */
+final class DocumentGrouping {
+
+  // Extra chunks requested on top of the estimate, since documents are rarely spread evenly.
+  private static final double OVERFETCH = 1.25;
+
+  private DocumentGrouping() {}
+
+  /**
+   * @param chunks returns the given number of nearest chunks, or fewer if there are no more
+   * @param vectors number of vectors in the index, the most a round can ask for
+   */
+  static List<DocumentHit> search(
+      IntFunction<List<VectorHit>> chunks,
+      int k,
+      long vectors,
+      ChunkAggregate aggregate,
+      VectorMetric metric) {
+    long limit = Math.min(Integer.MAX_VALUE, Math.max(vectors, k));
+    int wanted = k;
+    while (true) {
+      List<VectorHit> hits = chunks.apply(wanted);
+      Map<String, Group> groups = group(hits);
+      if (groups.size() >= k || hits.size() < wanted || wanted >= limit) {
+        return top(groups, k, aggregate, metric);
+      }
+      double chunksPerDocument = (double) hits.size() / Math.max(1, groups.size());
+      long estimate = (long) Math.ceil(chunksPerDocument * k * OVERFETCH);
+      wanted = (int) Math.min(limit, Math.max(2L * wanted, estimate));
+    }
+  }
+
+  /** Groups hits by document, keeping documents in the order of their nearest chunk. */
+  private static Map<String, Group> group(List<VectorHit> hits) {
+    Map<String, Group> groups = new LinkedHashMap<>();
+    for (VectorHit hit : hits) {
+      groups
+          .computeIfAbsent(hit.documentId(), id -> new Group(id, new ArrayList<>()))
+          .chunks()
+          .add(new DocumentHit.ChunkHit(hit.chunkIndex(), hit.distance()));
+    }
+    return groups;
+  }
+
+  private static List<DocumentHit> top(
+      Map<String, Group> groups, int k, ChunkAggregate aggregate, VectorMetric metric) {
+    List<DocumentHit> documents = new ArrayList<>(groups.size());
+    for (Group group : groups.values()) {
+      documents.add(group.toHit(aggregate, metric));
+    }
+    if (aggregate == ChunkAggregate.SUM) {
+      documents.sort(Comparator.comparingDouble(DocumentHit::score).reversed());
+    }
+    return documents.size() > k ? List.copyOf(documents.subList(0, k)) : documents;
+  }
+
+  private record Group(String documentId, List<DocumentHit.ChunkHit> chunks) {
+
+    DocumentHit toHit(ChunkAggregate aggregate, VectorMetric metric) {
+      float nearest = chunks.get(0).distance();
+      float score =
+          switch (aggregate) {
+            case MAX -> metric.similarity(nearest);
+            case SUM -> {
+              float sum = 0;
+              for (DocumentHit.ChunkHit chunk : chunks) {
+                sum += metric.similarity(chunk.distance());
+              }
+              yield sum;
+            }
+          };
+      return new DocumentHit(documentId, score, nearest, List.copyOf(chunks));
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.nexo.search;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+/**
+ * One document of a k-NN search grouped by document: its aggregated score, the distance of its
+ * nearest chunk and the matching chunks, nearest first.
+ */
+public record DocumentHit(
+    @JsonProperty("_id") String documentId,
+    @JsonProperty("_score") float score,
+    @JsonProperty("_distance") float distance,
+    @JsonProperty("_chunks") List<ChunkHit> chunks) {
+
+  /** A chunk of the document among the nearest vectors. */
+  public record ChunkHit(
+      @JsonProperty("_chunk_index") int chunkIndex, @JsonProperty("_distance") float distance) {}
+}
@@ -0,0 +1,16 @@
+package com.nexo.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One document of a hybrid search with its fused score. The keyword score and the distance of the
+ * document's nearest chunk are present only if the document was found by that leg.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HybridHit(
+    @JsonProperty("_id") String documentId,
+    @JsonProperty("_score") double score,
+    @JsonProperty("_keyword_score") Float keywordScore,
+    @JsonProperty("_chunk_index") Integer chunkIndex,
+    @JsonProperty("_distance") Float distance) {}
@@ -0,0 +1,33 @@
+package com.nexo.search;
+
+import com.nexo.enums.FusionMethod;
+import lombok.Builder;
+import lombok.Getter;
+
+/** Parameters of one hybrid search; each leg has its own deadline. */
+@Getter
+@Builder
+public class HybridQuery {
+
+  public static final int DEFAULT_RANK_CONSTANT = 60;
+  public static final int DEFAULT_CANDIDATES = 100;
+
+  private final String query;
+  private final float[] vector;
+  private final int k;
+
+  /** Hits fetched from each leg before fusion, at least {@code k}. */
+  private final int numCandidates;
+
+  /** Candidate list size of the vector leg, or 0 for the index default. */
+  private final int expansionSearch;
+
+  @Builder.Default private final FusionMethod fusion = FusionMethod.RRF;
+  @Builder.Default private final int rankConstant = DEFAULT_RANK_CONSTANT;
+
+  /** Share of the vector leg in the fused score, between 0 and 1. */
+  @Builder.Default private final float vectorWeight = 0.5f;
+
+  private final long keywordTimeoutMs;
+  private final long vectorTimeoutMs;
+}
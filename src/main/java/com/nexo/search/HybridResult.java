@@ -0,0 +1,27 @@
+package com.nexo.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import lombok.Getter;
+
+@Getter
+public class HybridResult {
+
+  @JsonProperty("took_ms")
+  private final long tookMs;
+
+  @JsonProperty("hits")
+  private final List<HybridHit> hits;
+
+  /** Legs that timed out or failed; the hits were ranked from the remaining leg only. */
+  @JsonProperty("degraded")
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  private final List<String> degraded;
+
+  public HybridResult(long tookMs, List<HybridHit> hits, List<String> degraded) {
+    this.tookMs = tookMs;
+    this.hits = hits != null ? List.copyOf(hits) : List.of();
+    this.degraded = degraded != null ? List.copyOf(degraded) : List.of();
+  }
+}
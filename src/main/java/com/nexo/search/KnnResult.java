@@ -0,0 +1,39 @@
+package com.nexo.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.nexo.index.VectorHit;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Result of a k-NN search: the nearest chunks, or the nearest documents with their matching chunks
+ * when the search was grouped by document.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class KnnResult {
+
+  @JsonProperty("took_ms")
+  private final long tookMs;
+
+  @JsonProperty("hits")
+  private final List<VectorHit> hits;
+
+  @JsonProperty("documents")
+  private final List<DocumentHit> documents;
+
+  public KnnResult(long tookMs, List<VectorHit> hits) {
+    this(tookMs, hits != null ? List.copyOf(hits) : List.of(), null);
+  }
+
+  private KnnResult(long tookMs, List<VectorHit> hits, List<DocumentHit> documents) {
+    this.tookMs = tookMs;
+    this.hits = hits;
+    this.documents = documents;
+  }
+
+  public static KnnResult grouped(long tookMs, List<DocumentHit> documents) {
+    return new KnnResult(tookMs, null, documents != null ? List.copyOf(documents) : List.of());
+  }
+}
@@ -0,0 +1,127 @@
+package com.nexo.search;
+
+import com.nexo.enums.FusionMethod;
+import com.nexo.index.KeywordHit;
+import com.nexo.index.VectorHit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the keyword and vector legs of a hybrid search into one ranking of documents. Vector hits
+ * are chunks, so a document takes the rank and distance of its nearest chunk. Either list may be
+ * empty when its leg was skipped.
+ */
+final class RankFusion {
+
+  private RankFusion() {}
+
+  /**
+   * Returns the best {@code k} documents of both lists.
+   *
+   * @param keyword keyword hits, best first
+   * @param vector vector hits, nearest first
+   * @param vectorWeight share of the vector leg in the fused score, the keyword leg gets the rest
+   */
+  static List<HybridHit> fuse(
+      List<KeywordHit> keyword,
+      List<VectorHit> vector,
+      FusionMethod method,
+      int k,
+      int rankConstant,
+      float vectorWeight) {
+    Map<String, Candidate> candidates = new LinkedHashMap<>();
+    int keywordRank = 0;
+    for (KeywordHit hit : keyword) {
+      Candidate candidate = candidates.computeIfAbsent(hit.documentId(), Candidate::new);
+      if (candidate.keywordRank == 0) {
+        candidate.keywordRank = ++keywordRank;
+        candidate.keywordScore = hit.score();
+      }
+    }
+    int vectorRank = 0;
+    for (VectorHit hit : vector) {
+      Candidate candidate = candidates.computeIfAbsent(hit.documentId(), Candidate::new);
+      if (candidate.vectorRank == 0) {
+        candidate.vectorRank = ++vectorRank;
+        candidate.distance = hit.distance();
+        candidate.chunkIndex = hit.chunkIndex();
+      }
+    }
+
+    float keywordWeight = 1 - vectorWeight;
+    switch (method) {
+      case RRF -> {
+        for (Candidate candidate : candidates.values()) {
+          candidate.score =
+              reciprocal(candidate.keywordRank, rankConstant) * keywordWeight
+                  + reciprocal(candidate.vectorRank, rankConstant) * vectorWeight;
+        }
+      }
+      case WEIGHTED -> {
+        Range scores = Range.of(keyword.stream().map(KeywordHit::score).toList());
+        Range distances = Range.of(vector.stream().map(VectorHit::distance).toList());
+        for (Candidate candidate : candidates.values()) {
+          if (candidate.keywordScore != null) {
+            candidate.score += scores.normalize(candidate.keywordScore) * keywordWeight;
+          }
+          if (candidate.distance != null) {
+            candidate.score += distances.invert(candidate.distance) * vectorWeight;
+          }
+        }
+      }
+    }
+
+    return candidates.values().stream()
+        .sorted(Comparator.comparingDouble((Candidate c) -> c.score).reversed())
+        .limit(k)
+        .map(Candidate::toHit)
+        .toList();
+  }
+
+  private static double reciprocal(int rank, int rankConstant) {
+    return rank > 0 ? 1.0 / (rankConstant + rank) : 0;
+  }
+
+  private static final class Candidate {
+    private final String documentId;
+    private int keywordRank;
+    private Float keywordScore;
+    private int vectorRank;
+    private Float distance;
+    private Integer chunkIndex;
+    private double score;
+
+    private Candidate(String documentId) {
+      this.documentId = documentId;
+    }
+
+    private HybridHit toHit() {
+      return new HybridHit(documentId, score, keywordScore, chunkIndex, distance);
+    }
+  }
+
+  /** Min-max normalization of one leg's values to [0, 1]; equal values all map to 1. */
+  private record Range(float min, float max) {
+
+    static Range of(List<Float> values) {
+      float min = Float.POSITIVE_INFINITY;
+      float max = Float.NEGATIVE_INFINITY;
+      for (float value : values) {
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      return new Range(min, max);
+    }
+
+    double normalize(float value) {
+      return max > min ? (value - min) / (max - min) : 1;
+    }
+
+    /** Normalizes a distance so that the nearest value maps to 1. */
+    double invert(float value) {
+      return max > min ? (max - value) / (max - min) : 1;
+    }
+  }
+}
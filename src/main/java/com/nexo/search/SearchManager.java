@@ -0,0 +1,396 @@
+package com.nexo.search;
+
+import com.nexo.collection.Collection;
+import com.nexo.config.NexoConfig;
+import com.nexo.enums.ChunkAggregate;
+import com.nexo.exception.ErrorType;
+import com.nexo.exception.NexoException;
+import com.nexo.index.FilterMatches;
+import com.nexo.index.KeywordHit;
+import com.nexo.index.TantivyIndex;
+import com.nexo.index.UsearchIndex;
+import com.nexo.index.VectorHit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the searches of one collection on the {@link SearchPool}. Every query has a deadline; when
+ * it passes the caller gets a {@code GATEWAY_TIMEOUT} error while the native search, which cannot
+ * be interrupted, finishes in the background.
+ */
+@Slf4j
+public class SearchManager {
+
+  private final String collectionName;
+  private final KeywordSearch keywordSearch;
+  private final KeywordFilter keywordFilter;
+  private final UsearchIndex vectorIndex;
+  private final Executor executor;
+  private final MeterRegistry registry;
+
+  /** The keyword leg of a hybrid search, backed by the collection's Tantivy index. */
+  @FunctionalInterface
+  interface KeywordSearch {
+    List<KeywordHit> search(String query, int limit);
+  }
+
+  /** Evaluates the filter of a filtered k-NN search against the collection's Tantivy index. */
+  interface KeywordFilter {
+    FilterMatches filter(String query, int limit);
+
+    boolean[] matches(String query, String[] documentIds);
+  }
+
+  public SearchManager(Collection collection) {
+    this(collection, null);
+  }
+
+  /**
+   * Searches the vector index of {@code vectorField}, or of the default vector field if it is null.
+   *
+   * @throws IllegalArgumentException if the collection has no such vector field
+   */
+  public SearchManager(Collection collection, String vectorField) {
+    this(
+        collection.getMetadata().getName(),
+        collection.getTantivyIndex()::search,
+        keywordFilter(collection.getTantivyIndex()),
+        collection.getVectorIndex(vectorField),
+        SearchPool.executor(),
+        Metrics.globalRegistry);
+  }
+
+  SearchManager(
+      String collectionName,
+      KeywordSearch keywordSearch,
+      KeywordFilter keywordFilter,
+      UsearchIndex vectorIndex,
+      Executor executor,
+      MeterRegistry registry) {
+    this.collectionName = collectionName;
+    this.keywordSearch = keywordSearch;
+    this.keywordFilter = keywordFilter;
+    this.vectorIndex = vectorIndex;
+    this.executor = executor;
+    this.registry = registry;
+  }
+
+  /**
+   * Finds the {@code k} chunks nearest to {@code vector}.
+   *
+   * @param expansionSearch candidate list size for this query, or 0 for the index default
+   * @param timeoutMs deadline for the query in milliseconds
+   */
+  public CompletableFuture<KnnResult> knn(
+      float[] vector, int k, int expansionSearch, long timeoutMs) {
+    return knn(vector, k, expansionSearch, null, timeoutMs);
+  }
+
+  /**
+   * Finds the {@code k} chunks nearest to {@code vector} among the documents matching {@code
+   * filter}, a query in Tantivy syntax, or among all chunks if it is null. A filter matching at
+   * most {@code filterScanThreshold} documents is answered by an exact scan of their chunks; a
+   * broader one restricts the graph search, which tests candidate documents against the filter as
+   * it widens.
+   */
+  public CompletableFuture<KnnResult> knn(
+      float[] vector, int k, int expansionSearch, String filter, long timeoutMs) {
+    validateVectorQuery(vector, k, expansionSearch);
+    if (filter != null && filter.isBlank()) {
+      throw NexoException.badRequest("filter cannot be blank");
+    }
+
+    long start = System.nanoTime();
+    return submit(() -> chunkSearch(vector, expansionSearch, filter).apply(k), timeoutMs)
+        .handle(
+            (hits, error) -> {
+              long elapsed = System.nanoTime() - start;
+              record("knn", outcome(error), elapsed);
+              if (error != null) {
+                throw failure(error, timeoutMs);
+              }
+              return new KnnResult(TimeUnit.NANOSECONDS.toMillis(elapsed), hits);
+            });
+  }
+
+  /**
+   * Finds the {@code k} documents with the nearest chunks to {@code vector}, optionally among the
+   * documents matching {@code filter}, each scored by {@code aggregate} over its matching chunks.
+   * More chunks are fetched until {@code k} distinct documents are found, so documents with many
+   * chunks do not crowd others out.
+   */
+  public CompletableFuture<KnnResult> knnDocuments(
+      float[] vector,
+      int k,
+      int expansionSearch,
+      String filter,
+      ChunkAggregate aggregate,
+      long timeoutMs) {
+    validateVectorQuery(vector, k, expansionSearch);
+    if (filter != null && filter.isBlank()) {
+      throw NexoException.badRequest("filter cannot be blank");
+    }
+
+    long start = System.nanoTime();
+    return submit(
+            () ->
+                DocumentGrouping.search(
+                    chunkSearch(vector, expansionSearch, filter),
+                    k,
+                    vectorIndex.size(),
+                    aggregate != null ? aggregate : ChunkAggregate.MAX,
+                    vectorIndex.metric()),
+            timeoutMs)
+        .handle(
+            (documents, error) -> {
+              long elapsed = System.nanoTime() - start;
+              record("knn", outcome(error), elapsed);
+              if (error != null) {
+                throw failure(error, timeoutMs);
+              }
+              return KnnResult.grouped(TimeUnit.NANOSECONDS.toMillis(elapsed), documents);
+            });
+  }
+
+  /**
+   * Returns a search for a given number of nearest chunks, restricted to the documents matching
+   * {@code filter} unless it is null. The filter is evaluated once per document, however often the
+   * search runs: a broad filter's answers are remembered across rounds that widen the search.
+   */
+  private IntFunction<List<VectorHit>> chunkSearch(
+      float[] vector, int expansionSearch, String filter) {
+    if (filter == null) {
+      return k -> vectorIndex.search(vector, k, expansionSearch);
+    }
+    FilterMatches matches = keywordFilter.filter(filter, vectorIndex.filterScanThreshold());
+    if (matches.count() == 0) {
+      return k -> List.of();
+    }
+    if (matches.documentIds() != null) {
+      return k -> vectorIndex.scan(vector, k, matches.documentIds());
+    }
+    double selectivity =
+        Math.min(1, (double) matches.count() / Math.max(1, vectorIndex.documentCount()));
+    Map<String, Boolean> verdicts = new HashMap<>();
+    UsearchIndex.DocumentPredicate predicate = ids -> matches(filter, ids, verdicts);
+    return k -> vectorIndex.search(vector, k, expansionSearch, selectivity, predicate);
+  }
+
+  /**
+   * Tests {@code documentIds} against {@code filter}, asking the keyword index only about the
+   * documents missing from {@code verdicts} and adding its answers there.
+   */
+  private boolean[] matches(String filter, String[] documentIds, Map<String, Boolean> verdicts) {
+    String[] pending = new String[documentIds.length];
+    int count = 0;
+    for (String documentId : documentIds) {
+      if (!verdicts.containsKey(documentId)) {
+        pending[count++] = documentId;
+      }
+    }
+    if (count > 0) {
+      boolean[] matches =
+          keywordFilter.matches(
+              filter, count == pending.length ? pending : Arrays.copyOf(pending, count));
+      for (int i = 0; i < count; i++) {
+        verdicts.put(pending[i], matches[i]);
+      }
+    }
+    boolean[] result = new boolean[documentIds.length];
+    for (int i = 0; i < documentIds.length; i++) {
+      result[i] = verdicts.get(documentIds[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Runs the keyword and the vector leg of {@code query} concurrently and fuses their hits. A leg
+   * that times out or fails is left out and named in {@link HybridResult#getDegraded()}; the search
+   * fails only if both legs do, or if the query itself is invalid.
+   */
+  public CompletableFuture<HybridResult> hybrid(HybridQuery query) {
+    if (query.getQuery() == null || query.getQuery().isBlank()) {
+      throw NexoException.badRequest("Query text is required");
+    }
+    validateVectorQuery(query.getVector(), query.getK(), query.getExpansionSearch());
+    if (query.getVectorWeight() < 0 || query.getVectorWeight() > 1) {
+      throw NexoException.badRequest("vector_weight must be between 0 and 1");
+    }
+    if (query.getRankConstant() < 1) {
+      throw NexoException.badRequest("rank_constant must be positive");
+    }
+    int maxK = NexoConfig.getInstance().getMaxK();
+    if (query.getNumCandidates() < 1 || query.getNumCandidates() > maxK) {
+      throw NexoException.badRequest("num_candidates must be between 1 and " + maxK);
+    }
+
+    int window = Math.max(query.getK(), query.getNumCandidates());
+    long start = System.nanoTime();
+    CompletableFuture<Leg<List<KeywordHit>>> keyword =
+        leg(
+            "keyword",
+            () -> keywordSearch.search(query.getQuery(), window),
+            query.getKeywordTimeoutMs());
+    CompletableFuture<Leg<List<VectorHit>>> vector =
+        leg(
+            "vector",
+            () -> vectorIndex.search(query.getVector(), window, query.getExpansionSearch()),
+            query.getVectorTimeoutMs());
+
+    return keyword.thenCombine(
+        vector,
+        (keywordLeg, vectorLeg) -> {
+          for (Leg<?> leg : List.of(keywordLeg, vectorLeg)) {
+            if (leg.error() != null && isInvalidQuery(leg.error())) {
+              throw rejected(leg, start);
+            }
+          }
+          if (keywordLeg.error() != null && vectorLeg.error() != null) {
+            throw rejected(keywordLeg, start);
+          }
+
+          List<String> degraded = new ArrayList<>(2);
+          for (Leg<?> leg : List.of(keywordLeg, vectorLeg)) {
+            if (leg.error() != null) {
+              degraded.add(leg.name());
+            }
+          }
+          List<HybridHit> hits =
+              RankFusion.fuse(
+                  keywordLeg.hits() != null ? keywordLeg.hits() : List.of(),
+                  vectorLeg.hits() != null ? vectorLeg.hits() : List.of(),
+                  query.getFusion(),
+                  query.getK(),
+                  query.getRankConstant(),
+                  query.getVectorWeight());
+          long elapsed = System.nanoTime() - start;
+          record("hybrid", degraded.isEmpty() ? "success" : "degraded", elapsed);
+          return new HybridResult(TimeUnit.NANOSECONDS.toMillis(elapsed), hits, degraded);
+        });
+  }
+
+  /** Outcome of one leg of a hybrid search: its hits, or the error that ended it. */
+  private record Leg<T>(String name, T hits, Throwable error, long timeoutMs) {}
+
+  private <T> CompletableFuture<Leg<T>> leg(String name, Supplier<T> task, long timeoutMs) {
+    long start = System.nanoTime();
+    return submit(task, timeoutMs)
+        .handle(
+            (hits, error) -> {
+              record(name, outcome(error), System.nanoTime() - start);
+              if (error != null && !isInvalidQuery(error)) {
+                log.warn(
+                    "Hybrid search leg {} on collection {} failed, continuing without it: {}",
+                    name,
+                    collectionName,
+                    unwrap(error).toString());
+              }
+              return new Leg<>(name, hits, error, timeoutMs);
+            });
+  }
+
+  private RuntimeException rejected(Leg<?> leg, long start) {
+    record("hybrid", outcome(leg.error()), System.nanoTime() - start);
+    return failure(leg.error(), leg.timeoutMs());
+  }
+
+  private static KeywordFilter keywordFilter(TantivyIndex index) {
+    return new KeywordFilter() {
+      @Override
+      public FilterMatches filter(String query, int limit) {
+        return index.filter(query, limit);
+      }
+
+      @Override
+      public boolean[] matches(String query, String[] documentIds) {
+        return index.matches(query, documentIds);
+      }
+    };
+  }
+
+  private void validateVectorQuery(float[] vector, int k, int expansionSearch) {
+    if (vector == null || vector.length != vectorIndex.dimensions()) {
+      throw NexoException.badRequest(
+          String.format("Query vector must have %d dimensions", vectorIndex.dimensions()));
+    }
+    int maxK = NexoConfig.getInstance().getMaxK();
+    if (k < 1 || k > maxK) {
+      throw NexoException.badRequest("k must be between 1 and " + maxK);
+    }
+    if (expansionSearch < 0 || expansionSearch > maxK) {
+      throw NexoException.badRequest("expansion_search must be between 0 and " + maxK);
+    }
+  }
+
+  private static boolean isInvalidQuery(Throwable error) {
+    Throwable cause = unwrap(error);
+    return cause instanceof IllegalArgumentException
+        || (cause instanceof NexoException nexoException
+            && nexoException.getErrorType() == ErrorType.BAD_REQUEST);
+  }
+
+  private <T> CompletableFuture<T> submit(Supplier<T> task, long timeoutMs) {
+    try {
+      return CompletableFuture.supplyAsync(task, executor)
+          .orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      throw new NexoException(ErrorType.SERVICE_UNAVAILABLE, "Search pool is saturated");
+    }
+  }
+
+  private void record(String type, String outcome, long elapsedNanos) {
+    Timer.builder("nexo.search.latency")
+        .description("Time from accepting a search to its result")
+        .tag("collection", collectionName)
+        .tag("type", type)
+        .tag("outcome", outcome)
+        .register(registry)
+        .record(elapsedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private static String outcome(Throwable error) {
+    if (error == null) {
+      return "success";
+    }
+    return unwrap(error) instanceof TimeoutException ? "timeout" : "error";
+  }
+
+  private RuntimeException failure(Throwable error, long timeoutMs) {
+    Throwable cause = unwrap(error);
+    if (cause instanceof TimeoutException) {
+      return new NexoException(
+          ErrorType.GATEWAY_TIMEOUT,
+          String.format(
+              "Search on collection %s timed out after %d ms", collectionName, timeoutMs));
+    }
+    if (cause instanceof NexoException nexoException) {
+      return nexoException;
+    }
+    if (cause instanceof IllegalArgumentException) {
+      return NexoException.badRequest(cause.getMessage());
+    }
+    log.error("Search failed on collection {}", collectionName, cause);
+    return NexoException.internalError("Search failed", cause);
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause()
+        : error;
+  }
+}
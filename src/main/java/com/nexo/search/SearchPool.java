@@ -0,0 +1,36 @@
+package com.nexo.search;
+
+import com.nexo.config.NexoConfig;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches of all collections share one pool sized by {@code searchThreads}, kept apart from the
+ * ingest pool so heavy indexing cannot starve queries. At most {@code searchQueueCapacity} searches
+ * wait for a thread; the pool rejects any beyond that.
+ */
+public final class SearchPool {
+
+  private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+  private static final ExecutorService EXECUTOR =
+      new ThreadPoolExecutor(
+          NexoConfig.getInstance().getSearchThreads(),
+          NexoConfig.getInstance().getSearchThreads(),
+          0,
+          TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(NexoConfig.getInstance().getSearchQueueCapacity()),
+          r -> {
+            Thread t = new Thread(r, "search-" + THREAD_IDS.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          });
+
+  private SearchPool() {}
+
+  public static ExecutorService executor() {
+    return EXECUTOR;
+  }
+}
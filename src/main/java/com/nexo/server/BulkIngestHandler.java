@@ -0,0 +1,214 @@
+package com.nexo.server;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import com.nexo.collection.Collection;
+import com.nexo.collection.CollectionManager;
+import com.nexo.collection.CollectionName;
+import com.nexo.config.NexoConfig;
+import com.nexo.document.BulkIngestSession;
+import com.nexo.document.DocumentManager;
+import com.nexo.exception.CollectionException;
+import com.nexo.exception.NexoException;
+import com.nexo.index.IngestPipeline;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams {@code POST /collections/:name/_bulk} request bodies straight into the index. It sits in
+ * front of the {@code HttpObjectAggregator}, so bulk uploads are not bound by {@code
+ * maxContentLength}; every other request is passed through untouched.
+ */
+@Slf4j
+public class BulkIngestHandler extends ChannelInboundHandlerAdapter {
+
+  private static final RoutePattern BULK_ROUTE =
+      new RoutePattern("/collections/:name/_bulk", HttpMethod.POST);
+
+  private final NexoConfig config;
+  private final AtomicInteger chunksInFlight = new AtomicInteger();
+
+  private boolean streaming;
+  private boolean prettyPrint;
+  private BulkIngestSession session;
+  private IngestPipeline pipeline;
+  private CompletableFuture<Void> pending;
+
+  public BulkIngestHandler(NexoConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    if (msg instanceof HttpRequest request) {
+      streaming = request.decoderResult().isSuccess() && isBulkRoute(request);
+      if (!streaming) {
+        ctx.fireChannelRead(msg);
+        return;
+      }
+    } else if (!streaming) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+
+    try {
+      if (msg instanceof HttpRequest request) {
+        startRequest(ctx, request);
+      }
+      if (msg instanceof HttpContent content && session != null) {
+        enqueue(ctx, content.content());
+      }
+      if (msg instanceof LastHttpContent) {
+        completeRequest(ctx);
+      }
+    } catch (Exception e) {
+      failRequest(ctx, e);
+    } finally {
+      ReferenceCountUtil.release(msg);
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    abandonSession();
+    streaming = false;
+    super.channelInactive(ctx);
+  }
+
+  private void startRequest(ChannelHandlerContext ctx, HttpRequest request) {
+    String uri = request.uri();
+    PathParams pathParams = BULK_ROUTE.extractParams(pathOf(uri));
+    prettyPrint = "true".equals(new QueryParams(uri).get("pretty"));
+
+    Collection collection;
+    try {
+      collection =
+          CollectionManager.getInstance().getCollection(CollectionName.of(pathParams.get("name")));
+    } catch (CollectionException e) {
+      throw NexoException.notFound(e.getMessage());
+    }
+
+    IngestPipeline collectionPipeline = collection.getIngestPipeline();
+    collectionPipeline.acquire();
+    pipeline = collectionPipeline;
+    pending = CompletableFuture.completedFuture(null);
+
+    if (HttpUtil.is100ContinueExpected(request)) {
+      ctx.writeAndFlush(
+          new DefaultFullHttpResponse(
+              HTTP_1_1, HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER));
+    }
+
+    session =
+        new BulkIngestSession(
+            new DocumentManager(collection),
+            config.getBulkBatchSize(),
+            config.getMaxContentLength());
+    log.debug("Started bulk ingest for collection: {}", collection.getMetadata().getName());
+  }
+
+  /**
+   * Feeds a body chunk to the session on the ingest pool. Reads from the socket are paused while
+   * chunks are in flight, so a slow index pushes back on the client through TCP flow control.
+   */
+  private void enqueue(ChannelHandlerContext ctx, ByteBuf content) {
+    if (!content.isReadable()) {
+      return;
+    }
+    BulkIngestSession current = session;
+    ByteBuf chunk = content.retain();
+    chunksInFlight.incrementAndGet();
+    ctx.channel().config().setAutoRead(false);
+
+    pending =
+        pending
+            .thenRunAsync(() -> current.feed(chunk.nioBuffer()), pipeline.parseExecutor())
+            .whenComplete(
+                (ignored, error) -> {
+                  chunk.release();
+                  if (chunksInFlight.decrementAndGet() == 0) {
+                    ctx.channel().config().setAutoRead(true);
+                  }
+                });
+  }
+
+  private void completeRequest(ChannelHandlerContext ctx) {
+    streaming = false;
+    if (session == null) {
+      return;
+    }
+    BulkIngestSession finished = session;
+    IngestPipeline finishedPipeline = pipeline;
+    boolean pretty = prettyPrint;
+    session = null;
+    pipeline = null;
+
+    pending
+        .thenApplyAsync(ignored -> finished.finish(), finishedPipeline.parseExecutor())
+        .whenComplete(
+            (result, error) -> {
+              finishedPipeline.release();
+              if (error == null) {
+                HttpResponses.sendSuccess(ctx, result, pretty);
+              } else {
+                finished.close();
+                sendFailure(
+                    ctx, error instanceof CompletionException ? error.getCause() : error, pretty);
+              }
+            });
+  }
+
+  private void failRequest(ChannelHandlerContext ctx, Throwable e) {
+    abandonSession();
+    sendFailure(ctx, e, prettyPrint);
+  }
+
+  private static void sendFailure(ChannelHandlerContext ctx, Throwable e, boolean prettyPrint) {
+    NexoException nexoException =
+        e instanceof NexoException ne ? ne : NexoException.internalError("Bulk ingest failed", e);
+    log.warn("Bulk ingest error: {}", nexoException.getMessage(), e);
+    HttpResponses.sendError(ctx, nexoException, prettyPrint);
+  }
+
+  private void abandonSession() {
+    if (session == null) {
+      return;
+    }
+    BulkIngestSession abandoned = session;
+    IngestPipeline abandonedPipeline = pipeline;
+    session = null;
+    pipeline = null;
+    pending.whenComplete(
+        (ignored, error) -> {
+          abandoned.close();
+          abandonedPipeline.release();
+        });
+  }
+
+  private static boolean isBulkRoute(HttpRequest request) {
+    return BULK_ROUTE.matches(pathOf(request.uri()), request.method());
+  }
+
+  private static String pathOf(String uri) {
+    int queryStart = uri.indexOf('?');
+    String path = queryStart >= 0 ? uri.substring(0, queryStart) : uri;
+    if (path.length() > 1 && path.endsWith("/")) {
+      path = path.substring(0, path.length() - 1);
+    }
+    return path;
+  }
+}
@@ -1,7 +1,9 @@
 package com.nexo.server;
 
 import com.nexo.api.collection.CollectionController;
+import com.nexo.api.document.DocumentController;
 import com.nexo.api.home.HomeController;
+import com.nexo.api.search.SearchController;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpRequest;
@@ -15,6 +17,8 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
     RequestRouter router = new RequestRouter();
     router.registerController(new HomeController());
     router.registerController(new CollectionController());
+    router.registerController(new DocumentController());
+    router.registerController(new SearchController());
     log.info("Registered routes: {}", router.getRegisteredRoutes());
     return router;
   }
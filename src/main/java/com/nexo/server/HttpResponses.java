@@ -0,0 +1,83 @@
+package com.nexo.server;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nexo.exception.BackpressureException;
+import com.nexo.exception.NexoException;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.util.CharsetUtil;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/** JSON response writers shared by the request router and the streaming handlers. */
+@Slf4j
+final class HttpResponses {
+
+  static final ObjectMapper OBJECT_MAPPER =
+      new ObjectMapper()
+          .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+          .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private HttpResponses() {}
+
+  static void sendSuccess(ChannelHandlerContext ctx, Object content, boolean prettyPrint) {
+    try {
+      String json =
+          prettyPrint
+              ? OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(content)
+              : OBJECT_MAPPER.writeValueAsString(content);
+      FullHttpResponse response =
+          new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.copiedBuffer(json, CharsetUtil.UTF_8));
+
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
+      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+      response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+
+      ctx.writeAndFlush(response);
+    } catch (Exception e) {
+      log.error("Error serializing response", e);
+      sendError(ctx, NexoException.internalError("Serialization error", e), prettyPrint);
+    }
+  }
+
+  static void sendError(ChannelHandlerContext ctx, NexoException exception, boolean prettyPrint) {
+    Map<String, Object> error =
+        Map.of(
+            "error", true,
+            "message", exception.getMessage(),
+            "status", exception.getStatus().code(),
+            "errorCode", exception.getErrorCode(),
+            "timestamp", System.currentTimeMillis());
+
+    try {
+      String json =
+          prettyPrint
+              ? OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(error)
+              : OBJECT_MAPPER.writeValueAsString(error);
+      FullHttpResponse response =
+          new DefaultFullHttpResponse(
+              HTTP_1_1, exception.getStatus(), Unpooled.copiedBuffer(json, CharsetUtil.UTF_8));
+
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
+      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+      if (exception instanceof BackpressureException backpressure) {
+        response.headers().set(HttpHeaderNames.RETRY_AFTER, backpressure.getRetryAfterSeconds());
+      }
+
+      ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    } catch (Exception e) {
+      log.error("Error sending error response", e);
+      ctx.close();
+    }
+  }
+}
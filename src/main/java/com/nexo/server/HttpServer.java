@@ -56,6 +56,7 @@ public class HttpServer {
 
                   pipeline.addLast("decoder", new HttpRequestDecoder());
                   pipeline.addLast("encoder", new HttpResponseEncoder());
+                  pipeline.addLast("bulk", new BulkIngestHandler(config));
                   pipeline.addLast(
                       "aggregator", new HttpObjectAggregator(config.getMaxContentLength()));
                   pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
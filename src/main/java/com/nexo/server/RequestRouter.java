@@ -1,28 +1,23 @@
 package com.nexo.server;
 
-import static io.netty.handler.codec.http.HttpResponseStatus.*;
-import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
-
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.nexo.exception.NexoException;
 import com.nexo.server.annotation.Controller;
 import com.nexo.server.annotation.Route;
-import io.netty.buffer.Unpooled;
-import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
 import io.netty.util.CharsetUtil;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class RequestRouter {
 
-  private static final ObjectMapper OBJECT_MAPPER = createOptimizedObjectMapper();
+  private static final ObjectMapper OBJECT_MAPPER = HttpResponses.OBJECT_MAPPER;
   private static final jakarta.validation.ValidatorFactory VALIDATOR_FACTORY =
       jakarta.validation.Validation.buildDefaultValidatorFactory();
   private static final jakarta.validation.Validator VALIDATOR = VALIDATOR_FACTORY.getValidator();
@@ -38,12 +33,6 @@ public class RequestRouter {
     Object handle(ChannelHandlerContext ctx, RequestContext requestContext) throws Exception;
   }
 
-  private static ObjectMapper createOptimizedObjectMapper() {
-    return new ObjectMapper()
-        .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
-        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-  }
-
   private io.netty.handler.codec.http.HttpMethod convertHttpMethod(
       com.nexo.server.annotation.HttpMethod method) {
     return switch (method) {
@@ -160,20 +149,8 @@ public class RequestRouter {
     if (staticHandler != null) {
       RequestContext requestContext = new RequestContext(request, PathParams.EMPTY, queryParams);
 
-      try {
-        Object result = staticHandler.handle(ctx, requestContext);
-        sendSuccessResponse(ctx, result, prettyPrint);
-        return;
-      } catch (Exception e) {
-        NexoException nexoException =
-            e instanceof NexoException
-                ? (NexoException) e
-                : NexoException.internalError("Internal server error", e);
-
-        log.warn("Request handling error: {}", nexoException.getMessage(), e);
-        sendError(ctx, nexoException, prettyPrint);
-        return;
-      }
+      dispatch(ctx, staticHandler, requestContext, prettyPrint);
+      return;
     }
 
     for (RouteEntry entry : dynamicRoutes) {
@@ -181,20 +158,8 @@ public class RequestRouter {
         PathParams pathParams = entry.pattern.extractParams(path);
         RequestContext requestContext = new RequestContext(request, pathParams, queryParams);
 
-        try {
-          Object result = entry.handler.handle(ctx, requestContext);
-          sendSuccessResponse(ctx, result, prettyPrint);
-          return;
-        } catch (Exception e) {
-          NexoException nexoException =
-              e instanceof NexoException
-                  ? (NexoException) e
-                  : NexoException.internalError("Internal server error", e);
-
-          log.warn("Request handling error: {}", nexoException.getMessage(), e);
-          sendError(ctx, nexoException, prettyPrint);
-          return;
-        }
+        dispatch(ctx, entry.handler, requestContext, prettyPrint);
+        return;
       }
     }
 
@@ -202,52 +167,57 @@ public class RequestRouter {
     sendError(ctx, notFound, prettyPrint);
   }
 
-  private void sendSuccessResponse(ChannelHandlerContext ctx, Object content, boolean prettyPrint) {
+  /**
+   * Invokes the handler and writes its result. Handlers that return a {@link CompletableFuture} are
+   * answered when the future completes, so slow work never runs on the event loop. The request is
+   * released once this method returns; such handlers must read the body before going async.
+   */
+  private void dispatch(
+      ChannelHandlerContext ctx,
+      RouteHandler handler,
+      RequestContext requestContext,
+      boolean prettyPrint) {
+    Object result;
     try {
-      String json =
-          prettyPrint
-              ? OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(content)
-              : OBJECT_MAPPER.writeValueAsString(content);
-      FullHttpResponse response =
-          new DefaultFullHttpResponse(HTTP_1_1, OK, Unpooled.copiedBuffer(json, CharsetUtil.UTF_8));
-
-      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
-      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
-      response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
-
-      ctx.writeAndFlush(response);
+      result = handler.handle(ctx, requestContext);
     } catch (Exception e) {
-      log.error("Error serializing response", e);
-      sendError(ctx, NexoException.internalError("Serialization error", e), prettyPrint);
+      sendFailure(ctx, e, prettyPrint);
+      return;
+    }
+
+    if (result instanceof CompletableFuture<?> future) {
+      future.whenComplete(
+          (value, error) -> {
+            if (error != null) {
+              sendFailure(
+                  ctx,
+                  error instanceof CompletionException ? error.getCause() : error,
+                  prettyPrint);
+            } else {
+              sendSuccessResponse(ctx, value, prettyPrint);
+            }
+          });
+    } else {
+      sendSuccessResponse(ctx, result, prettyPrint);
     }
   }
 
-  private void sendError(ChannelHandlerContext ctx, NexoException exception, boolean prettyPrint) {
-    Map<String, Object> error =
-        Map.of(
-            "error", true,
-            "message", exception.getMessage(),
-            "status", exception.getStatus().code(),
-            "errorCode", exception.getErrorCode(),
-            "timestamp", System.currentTimeMillis());
+  private void sendFailure(ChannelHandlerContext ctx, Throwable error, boolean prettyPrint) {
+    NexoException nexoException =
+        error instanceof NexoException
+            ? (NexoException) error
+            : NexoException.internalError("Internal server error", error);
 
-    try {
-      String json =
-          prettyPrint
-              ? OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(error)
-              : OBJECT_MAPPER.writeValueAsString(error);
-      FullHttpResponse response =
-          new DefaultFullHttpResponse(
-              HTTP_1_1, exception.getStatus(), Unpooled.copiedBuffer(json, CharsetUtil.UTF_8));
-
-      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
-      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
-
-      ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
-    } catch (Exception e) {
-      log.error("Error sending error response", e);
-      ctx.close();
-    }
+    log.warn("Request handling error: {}", nexoException.getMessage(), error);
+    sendError(ctx, nexoException, prettyPrint);
+  }
+
+  private void sendSuccessResponse(ChannelHandlerContext ctx, Object content, boolean prettyPrint) {
+    HttpResponses.sendSuccess(ctx, content, prettyPrint);
+  }
+
+  private void sendError(ChannelHandlerContext ctx, NexoException exception, boolean prettyPrint) {
+    HttpResponses.sendError(ctx, exception, prettyPrint);
   }
 
   public List<RoutePattern> getRegisteredRoutes() {
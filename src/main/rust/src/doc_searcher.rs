@@ -0,0 +1,129 @@
+use std::collections::HashSet;
+use std::path::Path;
+
+use tantivy::collector::{Count, DocSetCollector, TopDocs};
+use tantivy::query::{BooleanQuery, Occur, Query, QueryParser, TermSetQuery};
+use tantivy::schema::{Field, FieldType, Value};
+use tantivy::{
+    DocAddress, Index, IndexReader, ReloadPolicy, Searcher, TantivyDocument, Term,
+};
+
+use crate::doc_writer::{DocumentError, DocumentResult};
+
+const ID_FIELD: &str = "_id";
+
+/// Runs BM25 queries against the committed segments of an index. The reader follows
+/// commits of the writer on its own, so one searcher serves an index for its lifetime.
+pub struct DocumentSearcher {
+    reader: IndexReader,
+    query_parser: QueryParser,
+    id_field: Field,
+}
+
+impl DocumentSearcher {
+    pub fn open<P: AsRef<Path>>(index_path: P) -> DocumentResult<Self> {
+        let index = Index::open_in_dir(index_path)?;
+        let schema = index.schema();
+        let id_field = schema
+            .get_field(ID_FIELD)
+            .map_err(|_| DocumentError::FieldNotFound(ID_FIELD.to_string()))?;
+        let default_fields = schema
+            .fields()
+            .filter(|(field, entry)| {
+                *field != id_field
+                    && entry.is_indexed()
+                    && matches!(entry.field_type(), FieldType::Str(_))
+            })
+            .map(|(field, _)| field)
+            .collect();
+        let query_parser = QueryParser::for_index(&index, default_fields);
+        let reader = index
+            .reader_builder()
+            .reload_policy(ReloadPolicy::OnCommitWithDelay)
+            .try_into()?;
+        Ok(Self {
+            reader,
+            query_parser,
+            id_field,
+        })
+    }
+
+    /// Returns the `_id` and BM25 score of the best `limit` matches, best first. Terms
+    /// without a field prefix are matched against every indexed text field.
+    pub fn search(
+        &self,
+        query: &str,
+        limit: usize,
+    ) -> DocumentResult<Vec<(String, f32)>> {
+        let query = self.parse(query)?;
+        if limit == 0 {
+            return Ok(Vec::new());
+        }
+        let searcher = self.reader.searcher();
+        let top_docs = searcher.search(&query, &TopDocs::with_limit(limit))?;
+        top_docs
+            .into_iter()
+            .map(|(score, address)| Ok((self.document_id(&searcher, address)?, score)))
+            .collect()
+    }
+
+    /// Counts the documents matching a filter query and returns their `_id`s as well
+    /// when there are at most `limit` of them, in no particular order.
+    pub fn filter(
+        &self,
+        query: &str,
+        limit: usize,
+    ) -> DocumentResult<(usize, Option<Vec<String>>)> {
+        let query = self.parse(query)?;
+        let searcher = self.reader.searcher();
+        let count = searcher.search(&query, &Count)?;
+        if count > limit {
+            return Ok((count, None));
+        }
+        let ids = searcher
+            .search(&query, &DocSetCollector)?
+            .into_iter()
+            .map(|address| self.document_id(&searcher, address))
+            .collect::<DocumentResult<Vec<_>>>()?;
+        Ok((count, Some(ids)))
+    }
+
+    /// Tells for each of `ids` whether its document matches a filter query. Only the
+    /// given documents are visited, however many others match.
+    pub fn matches(&self, query: &str, ids: &[String]) -> DocumentResult<Vec<bool>> {
+        let query = self.parse(query)?;
+        let terms = ids
+            .iter()
+            .map(|id| Term::from_field_text(self.id_field, id));
+        let restricted = BooleanQuery::new(vec![
+            (Occur::Must, query),
+            (Occur::Must, Box::new(TermSetQuery::new(terms)) as Box<dyn Query>),
+        ]);
+        let searcher = self.reader.searcher();
+        let matched = searcher
+            .search(&restricted, &DocSetCollector)?
+            .into_iter()
+            .map(|address| self.document_id(&searcher, address))
+            .collect::<DocumentResult<HashSet<_>>>()?;
+        Ok(ids.iter().map(|id| matched.contains(id)).collect())
+    }
+
+    fn parse(&self, query: &str) -> DocumentResult<Box<dyn Query>> {
+        self.query_parser
+            .parse_query(query)
+            .map_err(|e| DocumentError::Query(e.to_string()))
+    }
+
+    fn document_id(
+        &self,
+        searcher: &Searcher,
+        address: DocAddress,
+    ) -> DocumentResult<String> {
+        let doc: TantivyDocument = searcher.doc(address)?;
+        Ok(doc
+            .get_first(self.id_field)
+            .and_then(|value| value.as_str())
+            .unwrap_or_default()
+            .to_string())
+    }
+}
@@ -1,10 +1,13 @@
 use serde_json::Value;
-use std::path::Path;
+use std::path::{Path, PathBuf};
+use tantivy::indexer::{LogMergePolicy, MergePolicy, NoMergePolicy};
 use tantivy::schema::{Field, Schema};
-use tantivy::{Index, IndexWriter, TantivyDocument};
+use tantivy::{FutureResult, Index, IndexWriter, SegmentId, SegmentMeta, TantivyDocument};
 
 use thiserror::Error;
 
+use crate::row_decoder::{decode_row, RowReader};
+
 #[warn(dead_code)]
 #[derive(Error, Debug)]
 pub enum DocumentError {
@@ -18,27 +21,106 @@ pub enum DocumentError {
     FieldNotFound(String),
     #[error("Error parsing field: {0}")]
     FieldError(String),
+    #[error("Invalid row: {0}")]
+    Row(String),
+    #[error("Invalid query: {0}")]
+    Query(String),
 }
 
 pub type DocumentResult<T> = Result<T, DocumentError>;
-const MAX_MEMORY_LIMIT: usize = 50_000_000;
+const DEFAULT_MEMORY_BUDGET: usize = 50_000_000;
+const MAX_FORCE_MERGE_WIDTH: usize = 10;
 
 pub struct DocumentWriter {
     index_writer: IndexWriter,
     schema: Schema,
+    index_path: PathBuf,
+    merge_policy: Option<LogMergePolicy>,
+}
+
+/// A merge started by [`DocumentWriter::start_merge`]. It runs on Tantivy's merge
+/// threads and can be awaited without holding the writer.
+pub struct PendingMerge {
+    future: FutureResult<Option<SegmentMeta>>,
+    pub input_bytes: u64,
+    pub input_segments: usize,
+}
+
+impl PendingMerge {
+    pub fn wait(self) -> DocumentResult<()> {
+        self.future.wait()?;
+        Ok(())
+    }
 }
 
 impl DocumentWriter {
     pub fn new<P: AsRef<Path>>(index_path: P) -> DocumentResult<Self> {
-        let index = Index::open_in_dir(index_path)?;
-        let writer = index.writer(MAX_MEMORY_LIMIT)?;
+        let index = Index::open_in_dir(&index_path)?;
+        let writer = index.writer(DEFAULT_MEMORY_BUDGET)?;
+        Ok(Self {
+            index_writer: writer,
+            schema: index.schema(),
+            index_path: index_path.as_ref().to_path_buf(),
+            merge_policy: None,
+        })
+    }
+
+    /// Opens a writer with an explicit arena budget shared by `num_threads` indexing
+    /// threads. Tantivy rejects budgets below 15MB or above ~4GB per thread.
+    pub fn with_budget<P: AsRef<Path>>(
+        index_path: P,
+        memory_budget: usize,
+        num_threads: usize,
+    ) -> DocumentResult<Self> {
+        let index = Index::open_in_dir(&index_path)?;
+        let writer = index.writer_with_num_threads(num_threads, memory_budget)?;
         Ok(Self {
             index_writer: writer,
             schema: index.schema(),
+            index_path: index_path.as_ref().to_path_buf(),
+            merge_policy: None,
         })
     }
 
     pub fn add_document(&mut self, doc_json: &str) -> DocumentResult<()> {
+        self.add_document_bytes(doc_json.as_bytes())
+    }
+
+    /// Indexes a batch of newline-delimited JSON documents. The returned vector has one
+    /// entry per line: `None` when the document was indexed, the error message
+    /// otherwise.
+    pub fn add_documents_ndjson(&mut self, batch: &[u8]) -> Vec<Option<String>> {
+        let batch = batch.strip_suffix(b"\n").unwrap_or(batch);
+        if batch.is_empty() {
+            return Vec::new();
+        }
+        batch
+            .split(|b| *b == b'\n')
+            .map(|line| self.add_document_bytes(line).err().map(|e| e.to_string()))
+            .collect()
+    }
+
+    /// Indexes a batch of binary rows written by `RowEncoder`. Like
+    /// [`DocumentWriter::add_documents_ndjson`] it returns one entry per row.
+    pub fn add_rows(&mut self, batch: &[u8]) -> Vec<Option<String>> {
+        let field_types: Vec<_> = self
+            .schema
+            .fields()
+            .map(|(_, entry)| entry.field_type())
+            .collect();
+        let mut reader = RowReader::new(batch);
+        let mut results = Vec::new();
+        while !reader.is_empty() {
+            let result = reader
+                .next_row()
+                .and_then(|row| decode_row(&self.schema, &field_types, row))
+                .and_then(|doc| Ok(self.index_writer.add_document(doc)?));
+            results.push(result.err().map(|e| e.to_string()));
+        }
+        results
+    }
+
+    fn add_document_bytes(&mut self, doc_json: &[u8]) -> DocumentResult<()> {
         let doc = parse_document(&self.schema, doc_json)?;
         self.index_writer.add_document(doc)?;
         Ok(())
@@ -48,6 +130,68 @@ impl DocumentWriter {
         self.index_writer.commit()?;
         Ok(())
     }
+
+    /// Takes merge selection away from Tantivy: the writer no longer merges on its own
+    /// and [`DocumentWriter::start_merge`] picks candidates with `policy` instead.
+    pub fn set_merge_policy(&mut self, policy: LogMergePolicy) {
+        self.index_writer.set_merge_policy(Box::new(NoMergePolicy));
+        self.merge_policy = Some(policy);
+    }
+
+    pub fn segment_count(&self) -> DocumentResult<usize> {
+        Ok(self.index_writer.index().searchable_segment_metas()?.len())
+    }
+
+    /// Starts the next merge. With `target_segments > 0` the smallest segments are
+    /// merged, at most `MAX_FORCE_MERGE_WIDTH` at a time, until that many remain;
+    /// otherwise the configured merge policy picks the candidate. Returns `None` if
+    /// there is nothing to merge.
+    pub fn start_merge(
+        &mut self,
+        target_segments: usize,
+    ) -> DocumentResult<Option<PendingMerge>> {
+        let mut segments = self.index_writer.index().searchable_segment_metas()?;
+        let ids: Vec<SegmentId> = if target_segments > 0 {
+            if segments.len() <= target_segments {
+                return Ok(None);
+            }
+            segments.sort_by_key(|meta| meta.num_docs());
+            let width =
+                (segments.len() - target_segments + 1).min(MAX_FORCE_MERGE_WIDTH);
+            segments.iter().take(width).map(|meta| meta.id()).collect()
+        } else {
+            let Some(policy) = &self.merge_policy else {
+                return Ok(None);
+            };
+            match policy.compute_merge_candidates(&segments).into_iter().next() {
+                Some(candidate) => candidate.0,
+                None => return Ok(None),
+            }
+        };
+        if ids.len() < 2 {
+            return Ok(None);
+        }
+
+        let input_bytes = segments
+            .iter()
+            .filter(|meta| ids.contains(&meta.id()))
+            .map(|meta| self.segment_bytes(meta))
+            .sum();
+        let future = self.index_writer.merge(&ids);
+        Ok(Some(PendingMerge {
+            future,
+            input_bytes,
+            input_segments: ids.len(),
+        }))
+    }
+
+    fn segment_bytes(&self, meta: &SegmentMeta) -> u64 {
+        meta.list_files()
+            .iter()
+            .filter_map(|file| std::fs::metadata(self.index_path.join(file)).ok())
+            .map(|metadata| metadata.len())
+            .sum()
+    }
 }
 fn add_number(
     doc: &mut TantivyDocument,
@@ -84,8 +228,8 @@ fn add_value(
         )),
     }
 }
-fn parse_document(schema: &Schema, json_doc: &str) -> DocumentResult<TantivyDocument> {
-    let doc_value: Value = serde_json::from_str(json_doc)
+fn parse_document(schema: &Schema, json_doc: &[u8]) -> DocumentResult<TantivyDocument> {
+    let doc_value: Value = serde_json::from_slice(json_doc)
         .map_err(|e| DocumentError::JsonParse(e.to_string()))?;
     let mut doc = TantivyDocument::default();
     let obj = doc_value
@@ -30,3 +30,8 @@ pub fn convert_index_error(err: IndexError) -> tantivy::TantivyError {
 pub fn throw_java_exception(mut env: JNIEnv, msg: &str) {
     let _ = env.throw_new("java/io/IOException", msg);
 }
+
+/// Throw a Java IllegalArgumentException for errors caused by the caller's input
+pub fn throw_illegal_argument(mut env: JNIEnv, msg: &str) {
+    let _ = env.throw_new("java/lang/IllegalArgumentException", msg);
+}
@@ -1,18 +1,24 @@
 // Core modules
+mod doc_searcher;
 mod doc_writer;
 mod index;
+mod row_decoder;
 mod tests;
 
 // JNI bindings
 mod jni_fs_index;
 mod jni_utils;
 
-use jni::objects::{JClass, JString};
-use jni::sys::{jint, jlong};
+use jni::objects::{
+    JByteBuffer, JClass, JFloatArray, JLongArray, JObject, JObjectArray, JString,
+};
+use jni::sys::{jbooleanArray, jdouble, jint, jlong, jlongArray, jobjectArray};
 use jni::JNIEnv;
 
-use crate::doc_writer::DocumentWriter;
-use crate::jni_utils::{throw_java_exception, validate_path};
+use crate::doc_searcher::DocumentSearcher;
+use crate::doc_writer::{DocumentError, DocumentWriter, PendingMerge};
+use tantivy::indexer::LogMergePolicy;
+use crate::jni_utils::{throw_illegal_argument, throw_java_exception, validate_path};
 
 //Document Processing
 #[no_mangle]
@@ -20,7 +26,16 @@ pub extern "system" fn Java_com_nexo_index_TantivyIndex_writerNative(
     mut env: JNIEnv,
     _class: JClass,
     index_path: JString,
+    memory_budget: jlong,
+    num_threads: jint,
 ) -> jlong {
+    if memory_budget <= 0 || num_threads <= 0 {
+        throw_java_exception(
+            env,
+            "Writer memory budget and thread count must be positive",
+        );
+        return 0;
+    }
     let path: String = match env.get_string(&index_path) {
         Ok(s) => s.into(),
         Err(e) => {
@@ -34,7 +49,8 @@ pub extern "system" fn Java_com_nexo_index_TantivyIndex_writerNative(
         return 0;
     }
 
-    match DocumentWriter::new(path) {
+    let budget = memory_budget as usize;
+    match DocumentWriter::with_budget(path, budget, num_threads as usize) {
         Ok(writer) => Box::into_raw(Box::new(writer)) as jlong,
         Err(e) => {
             throw_java_exception(env, &format!("Failed to create writer: {}", e));
@@ -75,6 +91,132 @@ pub extern "system" fn Java_com_nexo_index_TantivyIndex_addDocumentNative(
     }
 }
 
+/// Indexes a batch of NDJSON documents read from a direct buffer. Returns `null` when
+/// every document was indexed, otherwise a `String[]` with one slot per document holding
+/// the error message of rejected documents and `null` for indexed ones.
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_addDocumentsNative(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    buffer: JByteBuffer,
+    length: jint,
+) -> jobjectArray {
+    if handle == 0 {
+        throw_java_exception(env, "Invalid writer handle (null)");
+        return std::ptr::null_mut();
+    }
+    if length < 0 {
+        throw_java_exception(env, "Invalid batch length");
+        return std::ptr::null_mut();
+    }
+
+    let batch = match direct_batch(&mut env, &buffer, length) {
+        Ok(batch) => batch,
+        Err(e) => {
+            throw_java_exception(env, &e);
+            return std::ptr::null_mut();
+        },
+    };
+    let writer = unsafe { &mut *(handle as *mut DocumentWriter) };
+    let results = writer.add_documents_ndjson(batch);
+
+    if results.iter().all(Option::is_none) {
+        return std::ptr::null_mut();
+    }
+
+    match new_error_array(&mut env, &results) {
+        Ok(array) => array,
+        Err(e) => {
+            throw_java_exception(
+                env,
+                &format!("Failed to report batch errors: {:?}", e),
+            );
+            std::ptr::null_mut()
+        },
+    }
+}
+
+/// Indexes a batch of binary rows written by `com.nexo.document.RowEncoder`, reporting
+/// rejected rows the same way as `addDocumentsNative`.
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_addRowsNative(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    buffer: JByteBuffer,
+    length: jint,
+) -> jobjectArray {
+    if handle == 0 {
+        throw_java_exception(env, "Invalid writer handle (null)");
+        return std::ptr::null_mut();
+    }
+    if length < 0 {
+        throw_java_exception(env, "Invalid batch length");
+        return std::ptr::null_mut();
+    }
+
+    let batch = match direct_batch(&mut env, &buffer, length) {
+        Ok(batch) => batch,
+        Err(e) => {
+            throw_java_exception(env, &e);
+            return std::ptr::null_mut();
+        },
+    };
+    let writer = unsafe { &mut *(handle as *mut DocumentWriter) };
+    let results = writer.add_rows(batch);
+
+    if results.iter().all(Option::is_none) {
+        return std::ptr::null_mut();
+    }
+
+    match new_error_array(&mut env, &results) {
+        Ok(array) => array,
+        Err(e) => {
+            throw_java_exception(
+                env,
+                &format!("Failed to report batch errors: {:?}", e),
+            );
+            std::ptr::null_mut()
+        },
+    }
+}
+
+/// Borrows the first `length` bytes of a direct buffer. The slice is only valid while
+/// the Java caller keeps the buffer alive, which it does for the duration of the call.
+fn direct_batch<'a>(
+    env: &mut JNIEnv,
+    buffer: &JByteBuffer,
+    length: jint,
+) -> Result<&'a [u8], String> {
+    let address = env
+        .get_direct_buffer_address(buffer)
+        .map_err(|e| format!("Invalid batch buffer: {:?}", e))?;
+    let capacity = env.get_direct_buffer_capacity(buffer).unwrap_or(0);
+    if length as usize > capacity {
+        return Err("Batch length exceeds buffer capacity".to_string());
+    }
+    Ok(unsafe { std::slice::from_raw_parts(address, length as usize) })
+}
+
+fn new_error_array(
+    env: &mut JNIEnv,
+    results: &[Option<String>],
+) -> jni::errors::Result<jobjectArray> {
+    let array = env.new_object_array(
+        results.len() as i32,
+        "java/lang/String",
+        JObject::null(),
+    )?;
+    for (i, result) in results.iter().enumerate() {
+        if let Some(message) = result {
+            let message = env.new_string(message)?;
+            env.set_object_array_element(&array, i as i32, message)?;
+        }
+    }
+    Ok(array.into_raw())
+}
+
 #[no_mangle]
 pub extern "system" fn Java_com_nexo_index_TantivyIndex_commitWriterNative(
     env: JNIEnv,
@@ -106,3 +248,356 @@ pub extern "system" fn Java_com_nexo_index_TantivyIndex_closeWriterNative(
         }
     }
 }
+
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_setMergePolicyNative(
+    env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    min_num_segments: jint,
+    max_docs_before_merge: jint,
+    min_layer_size: jint,
+    level_log_size: jdouble,
+) {
+    if handle == 0 {
+        throw_java_exception(env, "Invalid writer handle (null)");
+        return;
+    }
+    let mut policy = LogMergePolicy::default();
+    policy.set_min_num_segments(min_num_segments.max(2) as usize);
+    policy.set_max_docs_before_merge(max_docs_before_merge.max(1) as usize);
+    policy.set_min_layer_size(min_layer_size.max(1) as u32);
+    policy.set_level_log_size(level_log_size);
+
+    let writer = unsafe { &mut *(handle as *mut DocumentWriter) };
+    writer.set_merge_policy(policy);
+}
+
+/// Starts one merge and returns `[pendingMergeHandle, inputBytes, inputSegments]`, or
+/// `null` when there is nothing to merge. The handle must be passed to
+/// `awaitMergeNative` exactly once.
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_startMergeNative(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    target_segments: jint,
+) -> jlongArray {
+    if handle == 0 {
+        throw_java_exception(env, "Invalid writer handle (null)");
+        return std::ptr::null_mut();
+    }
+    let writer = unsafe { &mut *(handle as *mut DocumentWriter) };
+    let merge = match writer.start_merge(target_segments.max(0) as usize) {
+        Ok(Some(merge)) => merge,
+        Ok(None) => return std::ptr::null_mut(),
+        Err(e) => {
+            throw_java_exception(env, &format!("Failed to start merge: {}", e));
+            return std::ptr::null_mut();
+        },
+    };
+
+    let input_bytes = merge.input_bytes as jlong;
+    let input_segments = merge.input_segments as jlong;
+    let merge_handle = Box::into_raw(Box::new(merge)) as jlong;
+    match new_long_array(&mut env, &[merge_handle, input_bytes, input_segments]) {
+        Ok(array) => array,
+        Err(e) => {
+            let merge = unsafe { Box::from_raw(merge_handle as *mut PendingMerge) };
+            let _ = merge.wait();
+            throw_java_exception(env, &format!("Failed to report merge: {:?}", e));
+            std::ptr::null_mut()
+        },
+    }
+}
+
+fn new_long_array(
+    env: &mut JNIEnv,
+    values: &[jlong],
+) -> jni::errors::Result<jlongArray> {
+    let array = env.new_long_array(values.len() as i32)?;
+    env.set_long_array_region(&array, 0, values)?;
+    Ok(array.into_raw())
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_awaitMergeNative(
+    env: JNIEnv,
+    _class: JClass,
+    merge_handle: jlong,
+) {
+    if merge_handle == 0 {
+        throw_java_exception(env, "Invalid merge handle (null)");
+        return;
+    }
+    let merge = unsafe { Box::from_raw(merge_handle as *mut PendingMerge) };
+    if let Err(e) = merge.wait() {
+        throw_java_exception(env, &format!("Merge failed: {}", e));
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_segmentCountNative(
+    env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jint {
+    if handle == 0 {
+        throw_java_exception(env, "Invalid writer handle (null)");
+        return -1;
+    }
+    let writer = unsafe { &*(handle as *const DocumentWriter) };
+    match writer.segment_count() {
+        Ok(count) => count as jint,
+        Err(e) => {
+            throw_java_exception(env, &format!("Failed to count segments: {}", e));
+            -1
+        },
+    }
+}
+
+//Search
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_searcherNative(
+    mut env: JNIEnv,
+    _class: JClass,
+    index_path: JString,
+) -> jlong {
+    let path: String = match env.get_string(&index_path) {
+        Ok(s) => s.into(),
+        Err(e) => {
+            throw_java_exception(env, &format!("Invalid path string: {:?}", e));
+            return 0;
+        },
+    };
+
+    if let Err(e) = validate_path(&path) {
+        throw_java_exception(env, &e);
+        return 0;
+    }
+
+    match DocumentSearcher::open(path) {
+        Ok(searcher) => Box::into_raw(Box::new(searcher)) as jlong,
+        Err(e) => {
+            throw_java_exception(env, &format!("Failed to open searcher: {}", e));
+            0
+        },
+    }
+}
+
+/// Runs a BM25 query and returns the `_id` of each hit, best first. The score of hit
+/// `i` is written to `scores[i]`, which must hold at least `limit` values.
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_searchNative(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    query: JString,
+    limit: jint,
+    scores: JFloatArray,
+) -> jobjectArray {
+    if handle == 0 {
+        throw_java_exception(env, "Invalid searcher handle (null)");
+        return std::ptr::null_mut();
+    }
+    let capacity = env.get_array_length(&scores).unwrap_or(0);
+    if limit < 0 || limit > capacity {
+        throw_illegal_argument(env, "Search limit exceeds the score buffer");
+        return std::ptr::null_mut();
+    }
+    let query: String = match env.get_string(&query) {
+        Ok(s) => s.into(),
+        Err(e) => {
+            throw_java_exception(env, &format!("Invalid query string: {:?}", e));
+            return std::ptr::null_mut();
+        },
+    };
+
+    let searcher = unsafe { &*(handle as *const DocumentSearcher) };
+    let hits = match searcher.search(&query, limit as usize) {
+        Ok(hits) => hits,
+        Err(DocumentError::Query(e)) => {
+            throw_illegal_argument(env, &format!("Invalid query: {}", e));
+            return std::ptr::null_mut();
+        },
+        Err(e) => {
+            throw_java_exception(env, &format!("Search failed: {}", e));
+            return std::ptr::null_mut();
+        },
+    };
+
+    match new_hit_array(&mut env, &hits, &scores) {
+        Ok(array) => array,
+        Err(e) => {
+            throw_java_exception(env, &format!("Failed to report hits: {:?}", e));
+            std::ptr::null_mut()
+        },
+    }
+}
+
+fn new_hit_array(
+    env: &mut JNIEnv,
+    hits: &[(String, f32)],
+    scores: &JFloatArray,
+) -> jni::errors::Result<jobjectArray> {
+    let array =
+        env.new_object_array(hits.len() as i32, "java/lang/String", JObject::null())?;
+    let values: Vec<f32> = hits.iter().map(|(_, score)| *score).collect();
+    env.set_float_array_region(scores, 0, &values)?;
+    for (i, (id, _)) in hits.iter().enumerate() {
+        let id = env.new_string(id)?;
+        env.set_object_array_element(&array, i as i32, id)?;
+    }
+    Ok(array.into_raw())
+}
+
+/// Counts the documents matching a filter query into `count[0]` and returns their
+/// `_id`s, or null when more than `limit` documents match.
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_filterNative(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    query: JString,
+    limit: jint,
+    count: JLongArray,
+) -> jobjectArray {
+    if handle == 0 {
+        throw_java_exception(env, "Invalid searcher handle (null)");
+        return std::ptr::null_mut();
+    }
+    if limit < 0 || env.get_array_length(&count).unwrap_or(0) < 1 {
+        throw_illegal_argument(env, "Invalid filter limit or count buffer");
+        return std::ptr::null_mut();
+    }
+    let query: String = match env.get_string(&query) {
+        Ok(s) => s.into(),
+        Err(e) => {
+            throw_java_exception(env, &format!("Invalid query string: {:?}", e));
+            return std::ptr::null_mut();
+        },
+    };
+
+    let searcher = unsafe { &*(handle as *const DocumentSearcher) };
+    let (matched, ids) = match searcher.filter(&query, limit as usize) {
+        Ok(result) => result,
+        Err(DocumentError::Query(e)) => {
+            throw_illegal_argument(env, &format!("Invalid filter: {}", e));
+            return std::ptr::null_mut();
+        },
+        Err(e) => {
+            throw_java_exception(env, &format!("Filter failed: {}", e));
+            return std::ptr::null_mut();
+        },
+    };
+
+    if let Err(e) = env.set_long_array_region(&count, 0, &[matched as i64]) {
+        throw_java_exception(env, &format!("Failed to report filter count: {:?}", e));
+        return std::ptr::null_mut();
+    }
+    let Some(ids) = ids else {
+        return std::ptr::null_mut();
+    };
+    match new_id_array(&mut env, &ids) {
+        Ok(array) => array,
+        Err(e) => {
+            throw_java_exception(env, &format!("Failed to report filter ids: {:?}", e));
+            std::ptr::null_mut()
+        },
+    }
+}
+
+/// Returns for each of `ids` whether its document matches a filter query.
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_matchesNative(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    query: JString,
+    ids: JObjectArray,
+) -> jbooleanArray {
+    if handle == 0 {
+        throw_java_exception(env, "Invalid searcher handle (null)");
+        return std::ptr::null_mut();
+    }
+    let query: String = match env.get_string(&query) {
+        Ok(s) => s.into(),
+        Err(e) => {
+            throw_java_exception(env, &format!("Invalid query string: {:?}", e));
+            return std::ptr::null_mut();
+        },
+    };
+    let ids = match read_id_array(&mut env, &ids) {
+        Ok(ids) => ids,
+        Err(e) => {
+            throw_java_exception(env, &format!("Invalid document ids: {:?}", e));
+            return std::ptr::null_mut();
+        },
+    };
+
+    let searcher = unsafe { &*(handle as *const DocumentSearcher) };
+    let matches = match searcher.matches(&query, &ids) {
+        Ok(matches) => matches,
+        Err(DocumentError::Query(e)) => {
+            throw_illegal_argument(env, &format!("Invalid filter: {}", e));
+            return std::ptr::null_mut();
+        },
+        Err(e) => {
+            throw_java_exception(env, &format!("Filter failed: {}", e));
+            return std::ptr::null_mut();
+        },
+    };
+
+    let values: Vec<u8> = matches.iter().map(|&matched| matched as u8).collect();
+    let array = match env.new_boolean_array(values.len() as i32) {
+        Ok(array) => array,
+        Err(e) => {
+            throw_java_exception(env, &format!("Failed to report matches: {:?}", e));
+            return std::ptr::null_mut();
+        },
+    };
+    if let Err(e) = env.set_boolean_array_region(&array, 0, &values) {
+        throw_java_exception(env, &format!("Failed to report matches: {:?}", e));
+        return std::ptr::null_mut();
+    }
+    array.into_raw()
+}
+
+fn new_id_array(env: &mut JNIEnv, ids: &[String]) -> jni::errors::Result<jobjectArray> {
+    let array =
+        env.new_object_array(ids.len() as i32, "java/lang/String", JObject::null())?;
+    for (i, id) in ids.iter().enumerate() {
+        let id = env.new_string(id)?;
+        env.set_object_array_element(&array, i as i32, &id)?;
+        env.delete_local_ref(id)?;
+    }
+    Ok(array.into_raw())
+}
+
+fn read_id_array(
+    env: &mut JNIEnv,
+    ids: &JObjectArray,
+) -> jni::errors::Result<Vec<String>> {
+    let length = env.get_array_length(ids)?;
+    let mut values = Vec::with_capacity(length as usize);
+    for i in 0..length {
+        let id = JString::from(env.get_object_array_element(ids, i)?);
+        let value: String = env.get_string(&id)?.into();
+        env.delete_local_ref(id)?;
+        values.push(value);
+    }
+    Ok(values)
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_nexo_index_TantivyIndex_closeSearcherNative(
+    _env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) {
+    if handle != 0 {
+        unsafe {
+            let _ = Box::from_raw(handle as *mut DocumentSearcher);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+//! Decoder for the binary row batches written by `com.nexo.document.RowEncoder`.
+//!
+//! A batch is a sequence of rows framed as `[u32 length][payload]`. A payload is a
+//! `u16` entry count followed by `[u16 field ordinal][u8 type][value]` entries. TEXT
+//! values are `[u32 length][utf-8 bytes]`, I64, U64 and DATE (microseconds since the
+//! epoch) are 8 byte integers, F64 is the IEEE 754 bit pattern and BOOL is one byte.
+//! All integers are little-endian.
+
+use tantivy::schema::{Field, FieldType, Schema};
+use tantivy::{DateTime, TantivyDocument};
+
+use crate::doc_writer::{DocumentError, DocumentResult};
+
+pub const TYPE_TEXT: u8 = 1;
+pub const TYPE_I64: u8 = 2;
+pub const TYPE_U64: u8 = 3;
+pub const TYPE_F64: u8 = 4;
+pub const TYPE_DATE: u8 = 5;
+pub const TYPE_BOOL: u8 = 6;
+
+/// Little-endian cursor over a row batch or a single row.
+pub struct RowReader<'a> {
+    bytes: &'a [u8],
+    pos: usize,
+}
+
+impl<'a> RowReader<'a> {
+    pub fn new(bytes: &'a [u8]) -> Self {
+        Self { bytes, pos: 0 }
+    }
+
+    pub fn is_empty(&self) -> bool {
+        self.pos >= self.bytes.len()
+    }
+
+    /// Returns the next framed row. A length prefix that runs past the end of the
+    /// batch consumes the rest of it, since later rows cannot be located.
+    pub fn next_row(&mut self) -> DocumentResult<&'a [u8]> {
+        let row = self.u32().and_then(|length| self.take(length as usize));
+        if row.is_err() {
+            self.pos = self.bytes.len();
+        }
+        row
+    }
+
+    fn take(&mut self, n: usize) -> DocumentResult<&'a [u8]> {
+        let end = self
+            .pos
+            .checked_add(n)
+            .filter(|end| *end <= self.bytes.len())
+            .ok_or_else(|| DocumentError::Row("truncated row".into()))?;
+        let slice = &self.bytes[self.pos..end];
+        self.pos = end;
+        Ok(slice)
+    }
+
+    fn array<const N: usize>(&mut self) -> DocumentResult<[u8; N]> {
+        let mut array = [0u8; N];
+        array.copy_from_slice(self.take(N)?);
+        Ok(array)
+    }
+
+    fn u8(&mut self) -> DocumentResult<u8> {
+        Ok(self.take(1)?[0])
+    }
+
+    fn u16(&mut self) -> DocumentResult<u16> {
+        Ok(u16::from_le_bytes(self.array()?))
+    }
+
+    fn u32(&mut self) -> DocumentResult<u32> {
+        Ok(u32::from_le_bytes(self.array()?))
+    }
+
+    fn u64(&mut self) -> DocumentResult<u64> {
+        Ok(u64::from_le_bytes(self.array()?))
+    }
+}
+
+/// Builds a document from one row payload, checking every entry against the schema.
+pub fn decode_row(
+    schema: &Schema,
+    field_types: &[&FieldType],
+    row: &[u8],
+) -> DocumentResult<TantivyDocument> {
+    let mut reader = RowReader::new(row);
+    let entries = reader.u16()?;
+    let mut doc = TantivyDocument::default();
+    for _ in 0..entries {
+        let ordinal = reader.u16()? as usize;
+        let tag = reader.u8()?;
+        let field_type = field_types.get(ordinal).ok_or_else(|| {
+            DocumentError::Row(format!("unknown field ordinal {}", ordinal))
+        })?;
+        let field = Field::from_field_id(ordinal as u32);
+        if !accepts(field_type, tag) {
+            return Err(DocumentError::FieldError(format!(
+                "field '{}' does not accept value type {}",
+                schema.get_field_name(field),
+                tag
+            )));
+        }
+        match tag {
+            TYPE_TEXT => {
+                let length = reader.u32()? as usize;
+                let text = std::str::from_utf8(reader.take(length)?)
+                    .map_err(|e| DocumentError::Row(e.to_string()))?;
+                doc.add_text(field, text);
+            },
+            TYPE_I64 => doc.add_i64(field, reader.u64()? as i64),
+            TYPE_U64 => doc.add_u64(field, reader.u64()?),
+            TYPE_F64 => doc.add_f64(field, f64::from_bits(reader.u64()?)),
+            TYPE_DATE => {
+                let micros = reader.u64()? as i64;
+                doc.add_date(field, DateTime::from_timestamp_micros(micros));
+            },
+            TYPE_BOOL => doc.add_bool(field, reader.u8()? != 0),
+            _ => unreachable!("checked by accepts"),
+        }
+    }
+    if !reader.is_empty() {
+        return Err(DocumentError::Row("trailing bytes after last entry".into()));
+    }
+    Ok(doc)
+}
+
+fn accepts(field_type: &FieldType, tag: u8) -> bool {
+    matches!(
+        (field_type, tag),
+        (FieldType::Str(_), TYPE_TEXT)
+            | (FieldType::I64(_), TYPE_I64)
+            | (FieldType::U64(_), TYPE_U64)
+            | (FieldType::F64(_), TYPE_F64)
+            | (FieldType::Date(_), TYPE_DATE)
+            | (FieldType::Bool(_), TYPE_BOOL)
+    )
+}
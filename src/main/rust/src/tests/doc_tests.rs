@@ -132,4 +132,127 @@ mod tests {
 
         doc_writer.commit().expect("Failed to commit");
     }
+
+    #[test]
+    #[serial(index)]
+    fn test_add_documents_ndjson_reports_per_item_errors() {
+        let (_temp_dir, index_path) = get_temp_path("test_index_ndjson");
+        create_index(&index_path, &DOC_TEST_SCHEMA).expect("Failed to create index");
+
+        let mut doc_writer =
+            DocumentWriter::new(&index_path).expect("Failed to open index");
+
+        let batch = concat!(
+            r#"{"id": 9, "title": "Doc 1"}"#,
+            "\n",
+            r#"{"id": 10, "unknown": "field"}"#,
+            "\n",
+            r#"{"id": 11, "title": "Doc 3"}"#,
+            "\n",
+        );
+
+        let results = doc_writer.add_documents_ndjson(batch.as_bytes());
+        assert_eq!(results.len(), 3);
+        assert!(results[0].is_none());
+        assert!(results[1].is_some(), "Expected unknown field error");
+        assert!(results[2].is_none());
+        doc_writer.commit().expect("Failed to commit");
+    }
+
+    #[test]
+    #[serial(index)]
+    fn test_writer_with_explicit_budget() {
+        let (_temp_dir, index_path) = get_temp_path("test_index_budget");
+        create_index(&index_path, &DOC_TEST_SCHEMA).expect("Failed to create index");
+
+        let mut doc_writer = DocumentWriter::with_budget(&index_path, 30_000_000, 2)
+            .expect("Failed to open index");
+        doc_writer
+            .add_document(r#"{"id": 12, "title": "Budgeted"}"#)
+            .expect("Failed to add document");
+        doc_writer.commit().expect("Failed to commit");
+        drop(doc_writer);
+
+        let too_small = DocumentWriter::with_budget(&index_path, 1_000_000, 1);
+        assert!(too_small.is_err(), "Expected budget below the minimum to fail");
+    }
+
+    #[test]
+    #[serial(index)]
+    fn test_force_merge_reduces_segments() {
+        let (_temp_dir, index_path) = get_temp_path("test_index_merge");
+        create_index(&index_path, &DOC_TEST_SCHEMA).expect("Failed to create index");
+
+        let mut doc_writer =
+            DocumentWriter::new(&index_path).expect("Failed to open index");
+        doc_writer.set_merge_policy(tantivy::indexer::LogMergePolicy::default());
+        for id in 20..23 {
+            doc_writer
+                .add_document(&format!(r#"{{"id": {}, "title": "Segment"}}"#, id))
+                .expect("Failed to add document");
+            doc_writer.commit().expect("Failed to commit");
+        }
+        assert_eq!(doc_writer.segment_count().unwrap(), 3);
+
+        let merge = doc_writer
+            .start_merge(1)
+            .expect("Failed to start merge")
+            .expect("Expected a merge candidate");
+        assert_eq!(merge.input_segments, 3);
+        assert!(merge.input_bytes > 0);
+        merge.wait().expect("Merge failed");
+
+        assert_eq!(doc_writer.segment_count().unwrap(), 1);
+        assert!(doc_writer.start_merge(1).unwrap().is_none());
+    }
+
+    fn row(entries: &[(u16, u8, Vec<u8>)]) -> Vec<u8> {
+        let mut payload = (entries.len() as u16).to_le_bytes().to_vec();
+        for (ordinal, tag, value) in entries {
+            payload.extend_from_slice(&ordinal.to_le_bytes());
+            payload.push(*tag);
+            payload.extend_from_slice(value);
+        }
+        let mut framed = (payload.len() as u32).to_le_bytes().to_vec();
+        framed.extend_from_slice(&payload);
+        framed
+    }
+
+    fn text(value: &str) -> Vec<u8> {
+        let mut bytes = (value.len() as u32).to_le_bytes().to_vec();
+        bytes.extend_from_slice(value.as_bytes());
+        bytes
+    }
+
+    #[test]
+    #[serial(index)]
+    fn test_add_rows_reports_rejected_rows() {
+        use crate::row_decoder::{TYPE_BOOL, TYPE_F64, TYPE_I64, TYPE_TEXT};
+
+        let (_temp_dir, index_path) = get_temp_path("test_index_rows");
+        create_index(&index_path, &DOC_TEST_SCHEMA).expect("Failed to create index");
+        let mut doc_writer =
+            DocumentWriter::new(&index_path).expect("Failed to open index");
+
+        let mut batch = row(&[
+            (0, TYPE_I64, 30i64.to_le_bytes().to_vec()),
+            (2, TYPE_F64, 4.5f64.to_bits().to_le_bytes().to_vec()),
+            (3, TYPE_TEXT, text("Binary row")),
+            (6, TYPE_BOOL, vec![1]),
+        ]);
+        batch.extend(row(&[(3, TYPE_I64, 1i64.to_le_bytes().to_vec())]));
+        batch.extend(row(&[(42, TYPE_TEXT, text("nowhere"))]));
+        batch.extend(row(&[(0, TYPE_I64, 31i64.to_le_bytes().to_vec())]));
+
+        let results = doc_writer.add_rows(&batch);
+        assert_eq!(results.len(), 4);
+        assert!(results[0].is_none());
+        assert!(results[1].as_deref().unwrap().contains("title"));
+        assert!(results[2].as_deref().unwrap().contains("ordinal 42"));
+        assert!(results[3].is_none());
+        doc_writer.commit().expect("Failed to commit");
+
+        let truncated = &row(&[(3, TYPE_TEXT, text("cut"))])[..6];
+        assert_eq!(doc_writer.add_rows(truncated).len(), 1);
+    }
 }
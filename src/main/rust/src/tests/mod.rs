@@ -1,3 +1,4 @@
 pub mod doc_tests;
 pub mod index_tests;
+pub mod search_tests;
 pub mod test_utils;
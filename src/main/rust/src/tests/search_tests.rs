@@ -0,0 +1,93 @@
+#[cfg(test)]
+mod tests {
+    use crate::doc_searcher::DocumentSearcher;
+    use crate::doc_writer::{DocumentError, DocumentWriter};
+    use crate::index::create_index;
+    use crate::tests::test_utils::get_temp_path;
+    use serial_test::serial;
+    use tantivy::schema::{Schema, STORED, STRING, TEXT};
+
+    fn search_schema() -> Schema {
+        let mut schema_builder = Schema::builder();
+        schema_builder.add_text_field("_id", STRING | STORED);
+        schema_builder.add_text_field("title", TEXT | STORED);
+        schema_builder.add_text_field("content", TEXT);
+        schema_builder.build()
+    }
+
+    #[test]
+    #[serial(index)]
+    fn test_search_returns_ids_by_score() {
+        let (_temp_dir, index_path) = get_temp_path("test_search_ids");
+        create_index(&index_path, &search_schema()).expect("Failed to create index");
+
+        let mut doc_writer =
+            DocumentWriter::new(&index_path).expect("Failed to open index");
+        let batch = concat!(
+            r#"{"_id": "a", "title": "vector search", "content": "search search"}"#,
+            "\n",
+            r#"{"_id": "b", "title": "keyword", "content": "search"}"#,
+            "\n",
+            r#"{"_id": "c", "title": "unrelated", "content": "nothing here"}"#,
+        );
+        let results = doc_writer.add_documents_ndjson(batch.as_bytes());
+        assert!(results.iter().all(Option::is_none));
+        doc_writer.commit().expect("Failed to commit");
+
+        let searcher = DocumentSearcher::open(&index_path).expect("Failed to open");
+        let hits = searcher.search("search", 10).expect("Search failed");
+
+        let ids: Vec<&str> = hits.iter().map(|(id, _)| id.as_str()).collect();
+        assert_eq!(ids, vec!["a", "b"]);
+        assert!(hits[0].1 > hits[1].1);
+    }
+
+    #[test]
+    #[serial(index)]
+    fn test_search_rejects_invalid_query() {
+        let (_temp_dir, index_path) = get_temp_path("test_search_invalid");
+        create_index(&index_path, &search_schema()).expect("Failed to create index");
+
+        let searcher = DocumentSearcher::open(&index_path).expect("Failed to open");
+
+        assert!(matches!(
+            searcher.search("missing_field:term", 10),
+            Err(DocumentError::Query(_))
+        ));
+    }
+
+    #[test]
+    #[serial(index)]
+    fn test_filter_lists_ids_up_to_limit_and_matches_candidates() {
+        let (_temp_dir, index_path) = get_temp_path("test_search_filter");
+        create_index(&index_path, &search_schema()).expect("Failed to create index");
+
+        let mut doc_writer =
+            DocumentWriter::new(&index_path).expect("Failed to open index");
+        let batch = concat!(
+            r#"{"_id": "a", "title": "red", "content": "one"}"#,
+            "\n",
+            r#"{"_id": "b", "title": "red", "content": "two"}"#,
+            "\n",
+            r#"{"_id": "c", "title": "blue", "content": "three"}"#,
+        );
+        let results = doc_writer.add_documents_ndjson(batch.as_bytes());
+        assert!(results.iter().all(Option::is_none));
+        doc_writer.commit().expect("Failed to commit");
+
+        let searcher = DocumentSearcher::open(&index_path).expect("Failed to open");
+        let (count, ids) = searcher.filter("title:red", 2).expect("Filter failed");
+        let mut ids = ids.expect("Ids within limit");
+        ids.sort();
+        assert_eq!(count, 2);
+        assert_eq!(ids, vec!["a", "b"]);
+
+        let (count, ids) = searcher.filter("title:red", 1).expect("Filter failed");
+        assert_eq!(count, 2);
+        assert!(ids.is_none());
+
+        let candidates = vec!["c".to_string(), "b".to_string(), "x".to_string()];
+        let matches = searcher.matches("title:red", &candidates).expect("Failed");
+        assert_eq!(matches, vec![false, true, false]);
+    }
+}
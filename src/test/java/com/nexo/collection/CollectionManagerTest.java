@@ -4,10 +4,15 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import com.nexo.collection.store.FileMetadataStore;
 import com.nexo.exception.CollectionException;
+import com.nexo.index.UsearchIndex;
 import com.nexo.testutil.TempDirUtil;
 import com.nexo.testutil.TestSchemaUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -56,4 +61,86 @@ class CollectionManagerTest {
     CollectionName name = CollectionName.of("test-collection");
     assertThrows(CollectionException.class, () -> collectionManager.createCollection(name, null));
   }
+
+  @Test
+  void testCreateCollectionWithVectorFields() {
+    CollectionName name = CollectionName.of("test-collection");
+    collectionManager.createCollection(name, TestSchemaUtils.getTestSchema(), vectorFields());
+
+    Collection collection = collectionManager.getCollection(name);
+    assertEquals(List.of("title", "content"), List.copyOf(collection.getVectorIndexes().keySet()));
+    assertEquals(4, collection.getVectorIndex("title").dimensions());
+    assertEquals(8, collection.getVectorIndex("content").dimensions());
+    Path vectors = tempDir.resolve(collection.getMetadata().getId()).resolve("vectors");
+    assertTrue(Files.isDirectory(vectors.resolve("title")));
+    assertTrue(Files.isDirectory(vectors.resolve("content")));
+
+    collection.close();
+    Collection reloaded = new CollectionManager(tempDir).getCollection(name);
+    assertEquals(List.of("title", "content"), List.copyOf(reloaded.getVectorIndexes().keySet()));
+    assertEquals(8, reloaded.getVectorIndex("content").dimensions());
+    assertThrows(IllegalArgumentException.class, () -> reloaded.getVectorIndex("views"));
+    reloaded.close();
+  }
+
+  @Test
+  void testCreateCollectionWithUnknownVectorField() {
+    CollectionName name = CollectionName.of("test-collection");
+    CollectionSettings settings =
+        CollectionSettings.builder()
+            .vectorFields(List.of(new VectorField("summary", 4, null, null)))
+            .build();
+
+    assertThrows(
+        CollectionException.class,
+        () -> collectionManager.createCollection(name, TestSchemaUtils.getTestSchema(), settings));
+    assertFalse(collectionManager.collectionExists(name));
+  }
+
+  @Test
+  void testDeletedCollectionMetersAreRemoved() {
+    CollectionName name = CollectionName.of("metered-collection");
+    collectionManager.createCollection(name, TestSchemaUtils.getTestSchema());
+    UsearchIndex first = collectionManager.getCollection(name).getUsearchIndex();
+    assertEquals(1, lostVectorCounters(name).size());
+
+    collectionManager.deleteCollection(name);
+
+    assertTrue(lostVectorCounters(name).isEmpty());
+    assertNull(
+        Metrics.globalRegistry
+            .find("nexo.index.writer.memory")
+            .tag("collection", name.toString())
+            .gauge());
+
+    collectionManager.createCollection(name, TestSchemaUtils.getTestSchema());
+    try {
+      UsearchIndex second = collectionManager.getCollection(name).getUsearchIndex();
+      assertNotSame(first, second);
+      assertEquals(1, lostVectorCounters(name).size());
+      assertEquals(second.lostVectors(), lostVectorCounters(name).iterator().next().count());
+      assertNotNull(
+          Metrics.globalRegistry
+              .find("nexo.index.writer.memory")
+              .tag("collection", name.toString())
+              .gauge());
+    } finally {
+      collectionManager.deleteCollection(name);
+    }
+  }
+
+  private static java.util.Collection<FunctionCounter> lostVectorCounters(CollectionName name) {
+    return Metrics.globalRegistry
+        .find("nexo.vector.lost")
+        .tag("collection", name.toString())
+        .functionCounters();
+  }
+
+  private static CollectionSettings vectorFields() {
+    return CollectionSettings.builder()
+        .vectorFields(
+            List.of(
+                new VectorField("title", 4, null, null), new VectorField("content", 8, null, null)))
+        .build();
+  }
 }
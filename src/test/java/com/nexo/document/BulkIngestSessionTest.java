@@ -0,0 +1,108 @@
+package com.nexo.document;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.nexo.enums.FieldType;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.BulkResult;
+import com.nexo.index.NativeBatchBuffer;
+import com.nexo.schema.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkIngestSessionTest {
+
+  private DocumentManager documentManager;
+  private final List<Integer> batchSizes = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    documentManager = mock(DocumentManager.class);
+    when(documentManager.streamParser())
+        .thenReturn(
+            new DocumentStreamParser(
+                DocumentSchema.of(
+                    List.of(
+                        new Field("title", FieldType.TEXT, null),
+                        new Field("n", FieldType.I64, null)))));
+    when(documentManager.indexBatch(any()))
+        .thenAnswer(
+            invocation -> {
+              NativeBatchBuffer batch = invocation.getArgument(0);
+              batchSizes.add(batch.documentCount());
+              return new BulkResult(batch.documentCount(), List.of());
+            });
+  }
+
+  @Test
+  void testLinesSplitAcrossChunks() {
+    BulkIngestSession session = new BulkIngestSession(documentManager, 10, 1024);
+    session.feed(utf8("{\"title\":\"a\"}\n{\"ti"));
+    session.feed(utf8("tle\":\"b\"}\r\n\n{\"title\":\"c\"}"));
+
+    BulkResult result = session.finish();
+
+    assertEquals(3, result.getTotal());
+    assertEquals(3, result.getIndexed());
+    assertEquals(List.of(3), batchSizes);
+  }
+
+  @Test
+  void testBatchesAreBounded() {
+    BulkIngestSession session = new BulkIngestSession(documentManager, 2, 1024);
+    session.feed(utf8("{\"n\":1}\n{\"n\":2}\n{\"n\":3}\n{\"n\":4}\n{\"n\":5}\n"));
+
+    BulkResult result = session.finish();
+
+    assertEquals(5, result.getTotal());
+    assertEquals(List.of(2, 2, 1), batchSizes);
+  }
+
+  @Test
+  void testInvalidLinesAreReportedPerItem() {
+    BulkIngestSession session = new BulkIngestSession(documentManager, 10, 1024);
+    session.feed(utf8("{\"n\":1}\n{bad\n{\"n\":3}\n"));
+
+    BulkResult result = session.finish();
+
+    assertEquals(3, result.getTotal());
+    assertEquals(2, result.getIndexed());
+    assertEquals(1, result.getFailures().get(0).index());
+  }
+
+  @Test
+  void testJsonArrayIsReadTokenByToken() throws Exception {
+    BulkIngestSession session = new BulkIngestSession(documentManager, 2, 0);
+    try (JsonParser parser =
+        DocumentStreamParser.OBJECT_MAPPER.createParser(
+            "[{\"title\":\"a\",\"extra\":1},{\"id\":7},{\"n\":3},{\"title\":\"d\"}]")) {
+      session.read(parser);
+    }
+
+    BulkResult result = session.finish();
+
+    assertEquals(4, result.getTotal());
+    assertEquals(3, result.getIndexed());
+    assertEquals(1, result.getFailures().get(0).index());
+    assertEquals("Document id must be a string", result.getFailures().get(0).reason());
+    assertEquals(List.of(2, 1), batchSizes);
+  }
+
+  @Test
+  void testLineLengthIsLimited() {
+    BulkIngestSession session = new BulkIngestSession(documentManager, 10, 16);
+    assertThrows(
+        DocumentException.class, () -> session.feed(utf8("{\"title\":\"far too long\"}\n")));
+  }
+
+  private static ByteBuffer utf8(String value) {
+    return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
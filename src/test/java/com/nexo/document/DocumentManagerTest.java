@@ -1,15 +1,32 @@
 package com.nexo.document;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.nexo.collection.Collection;
 import com.nexo.collection.CollectionManager;
+import com.nexo.collection.CollectionMetadata;
 import com.nexo.collection.CollectionName;
 import com.nexo.document.Document.DocumentBuilder;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.BulkResult;
+import com.nexo.index.IngestPipeline;
+import com.nexo.index.UsearchIndex;
+import com.nexo.index.VectorBatch;
+import com.nexo.index.WriteAheadLog;
 import com.nexo.schema.SchemaBuilder;
+import com.nexo.testutil.TempDirUtil;
 import com.nexo.testutil.TestSchemaUtils;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 class DocumentManagerTest {
 
@@ -61,4 +78,101 @@ class DocumentManagerTest {
       }
     }
   }
+
+  @Test
+  void testChunksGoToTheIndexOfTheirVectorField() throws JsonProcessingException {
+    UsearchIndex title = vectorIndex(2);
+    UsearchIndex content = vectorIndex(3);
+    DocumentManager documentManager = new DocumentManager(collection(title, content));
+
+    documentManager.addDocuments(
+        List.of(
+            Document.builder()
+                .id("doc-1")
+                .chunk(chunk("c0", 0, 1, 0))
+                .chunk("content", chunk("c1", 0, 0, 1, 0))
+                .chunk("content", chunk("c2", 1, 0, 0, 1))
+                .build()));
+
+    ArgumentCaptor<VectorBatch> titleVectors = ArgumentCaptor.forClass(VectorBatch.class);
+    verify(title).add(titleVectors.capture());
+    assertEquals(1, titleVectors.getValue().size());
+    assertEquals("doc-1", titleVectors.getValue().id(0));
+    ArgumentCaptor<VectorBatch> contentVectors = ArgumentCaptor.forClass(VectorBatch.class);
+    verify(content).add(contentVectors.capture());
+    assertEquals(2, contentVectors.getValue().size());
+    assertEquals(1, contentVectors.getValue().chunk(1));
+  }
+
+  @Test
+  void testChunksOfAnUnknownVectorFieldAreRejected() {
+    UsearchIndex title = vectorIndex(2);
+    DocumentManager documentManager = new DocumentManager(collection(title, vectorIndex(3)));
+
+    Document doc = Document.builder().chunk("summary", chunk("c0", 0, 1, 0)).build();
+
+    assertThrows(DocumentException.class, () -> documentManager.addDocuments(List.of(doc)));
+    verify(title, never()).add(any(VectorBatch.class));
+  }
+
+  @Test
+  void testWriteAheadLogReplaysDocumentsWithoutTheirChunks() throws Exception {
+    Path dir = TempDirUtil.createTempDir();
+    try {
+      UsearchIndex title = vectorIndex(2);
+      Collection collection = collection(title, vectorIndex(3));
+      try (WriteAheadLog wal = WriteAheadLog.open(dir)) {
+        when(collection.getIngestPipeline().write(any()))
+            .thenAnswer(
+                invocation -> {
+                  wal.awaitDurable(wal.append(invocation.getArgument(0)));
+                  return new BulkResult(1, List.of());
+                });
+        new DocumentManager(collection)
+            .addDocuments(
+                List.of(Document.builder().id("doc-1").chunk(chunk("c0", 0, 1, 0)).build()));
+      }
+      verify(title).add(any(VectorBatch.class));
+
+      String logged =
+          new String(
+              Files.readAllBytes(dir.resolve(WriteAheadLog.FILE_NAME)), StandardCharsets.UTF_8);
+      try (WriteAheadLog wal = WriteAheadLog.open(dir)) {
+        assertEquals(1, wal.replay(batch -> {}));
+      }
+      // The document comes back, but its embeddings were only ever in the vector index.
+      assertTrue(logged.contains("\"doc-1\""));
+      assertFalse(logged.contains("c0"));
+    } finally {
+      TempDirUtil.deleteRecursively(dir);
+    }
+  }
+
+  private static UsearchIndex vectorIndex(int dimensions) {
+    UsearchIndex index = mock(UsearchIndex.class);
+    when(index.dimensions()).thenReturn(dimensions);
+    when(index.quantization()).thenReturn("f32");
+    return index;
+  }
+
+  /** A collection with vector fields "title", the default, and "content", indexing everything. */
+  private static Collection collection(UsearchIndex title, UsearchIndex content) {
+    Map<String, UsearchIndex> indexes = new LinkedHashMap<>();
+    indexes.put("title", title);
+    indexes.put("content", content);
+    CollectionMetadata metadata =
+        CollectionMetadata.builder()
+            .name("docs")
+            .fields(TestSchemaUtils.getTestSchema().getFields())
+            .build();
+    Collection collection = spy(new Collection(metadata, null, indexes, null));
+    IngestPipeline pipeline = mock(IngestPipeline.class);
+    when(pipeline.write(any())).thenReturn(new BulkResult(1, List.of()));
+    doReturn(pipeline).when(collection).getIngestPipeline();
+    return collection;
+  }
+
+  private static Chunk chunk(String id, int index, float... embeddings) {
+    return Chunk.builder().chunkId(id).chunkIndex(index).embeddings(embeddings).build();
+  }
 }
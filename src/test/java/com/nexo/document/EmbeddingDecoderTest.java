@@ -0,0 +1,188 @@
+package com.nexo.document;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.nexo.collection.Collection;
+import com.nexo.enums.FieldType;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.NativeBatchBuffer;
+import com.nexo.index.VectorBatch;
+import com.nexo.schema.Field;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class EmbeddingDecoderTest {
+
+  private static final DocumentSchema SCHEMA =
+      DocumentSchema.of(
+          List.of(
+              new Field("title", FieldType.TEXT, null), new Field("body", FieldType.TEXT, null)));
+
+  @Test
+  void testNumberArrayAndBase64DecodeToTheSameVector() throws IOException {
+    DocumentStreamParser parser = parser("f32");
+    VectorBatches vectors = parser.newVectorBatches();
+    String base64 = base64(ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN), 0.5f, -1f, 2f);
+
+    write(
+        parser,
+        vectors,
+        "{\"title\":\"a\",\"_chunks\":[{\"chunk_embeddings\":[0.5,-1,2]},"
+            + "{\"chunk_text\":\"x\",\"chunk_embeddings\":\""
+            + base64
+            + "\"}]}");
+
+    VectorBatch batch = vectors.batch(0);
+    assertEquals(2, batch.size());
+    assertArrayEquals(
+        new float[] {0.5f, -1f, 2f, 0.5f, -1f, 2f}, Arrays.copyOf(batch.vectors(), 6));
+  }
+
+  @Test
+  void testTypedFormatsFollowQuantization() throws IOException {
+    DocumentStreamParser parser = parser("i8");
+    VectorBatches vectors = parser.newVectorBatches();
+    ByteBuffer halves = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN);
+    for (float value : new float[] {1f, 0.25f, -0.75f}) {
+      halves.putShort(Float.floatToFloat16(value));
+    }
+    String f16 = Base64.getEncoder().encodeToString(halves.array());
+    String i8 = Base64.getEncoder().encodeToString(new byte[] {127, 0, -127});
+
+    write(
+        parser,
+        vectors,
+        "{\"_chunks\":[{\"chunk_embeddings\":{\"data\":\""
+            + f16
+            + "\",\"dtype\":\"f16\"}},"
+            + "{\"chunk_embeddings\":{\"dtype\":\"i8\",\"data\":\""
+            + i8
+            + "\"}}]}");
+
+    assertArrayEquals(
+        new float[] {1f, 0.25f, -0.75f, 1f, 0f, -1f}, Arrays.copyOf(vectors.batch(0).vectors(), 6));
+    DocumentStreamParser f32 = parser("f32");
+    DocumentException e =
+        assertThrows(
+            DocumentException.class,
+            () ->
+                write(
+                    f32,
+                    f32.newVectorBatches(),
+                    "{\"_chunks\":[{\"chunk_embeddings\":{\"dtype\":\"i8\",\"data\":\""
+                        + i8
+                        + "\"}}]}"));
+    assertTrue(e.getMessage().contains("i8"));
+  }
+
+  @Test
+  void testI8IndexRejectsUnnormalizedEmbeddings() throws IOException {
+    DocumentStreamParser parser = parser("i8");
+    VectorBatches vectors = parser.newVectorBatches();
+    String f32 = base64(ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN), 0.5f, 1.5f, 0f);
+    String i8 = Base64.getEncoder().encodeToString(new byte[] {-128, 127, 0});
+
+    DocumentException numbers =
+        assertThrows(
+            DocumentException.class,
+            () -> write(parser, vectors, "{\"_chunks\":[{\"chunk_embeddings\":[0.5,-2,0]}]}"));
+    assertThrows(
+        DocumentException.class,
+        () -> write(parser, vectors, "{\"_chunks\":[{\"chunk_embeddings\":\"" + f32 + "\"}]}"));
+    write(
+        parser,
+        vectors,
+        "{\"_chunks\":[{\"chunk_embeddings\":{\"dtype\":\"i8\",\"data\":\"" + i8 + "\"}}]}");
+
+    assertTrue(numbers.getMessage().contains("[-1, 1]"));
+    assertEquals(1, vectors.batch(0).size());
+    assertArrayEquals(new float[] {-1f, 1f, 0f}, Arrays.copyOf(vectors.batch(0).vectors(), 3));
+  }
+
+  @Test
+  void testRejectedDocumentLeavesNoVectors() throws IOException {
+    DocumentStreamParser parser = parser("f32");
+    VectorBatches vectors = parser.newVectorBatches();
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire();
+        JsonParser json =
+            parser.createParser(
+                "{\"_chunks\":[{\"chunk_embeddings\":[1,2,3]},{\"chunk_embeddings\":[1,2]}],"
+                    + "\"title\":\"a\"} {\"title\":\"b\"}")) {
+      json.nextToken();
+      assertThrows(DocumentException.class, () -> parser.writeDocument(json, batch, vectors));
+      json.nextToken();
+      parser.writeDocument(json, batch, vectors);
+
+      assertEquals(1, batch.documentCount());
+      assertTrue(vectors.isEmpty());
+    }
+  }
+
+  @Test
+  void testChunksObjectFillsOneBatchPerVectorField() throws IOException {
+    Map<String, EmbeddingDecoder> decoders = new LinkedHashMap<>();
+    decoders.put("title", new EmbeddingDecoder(3, "f32"));
+    decoders.put("body", new EmbeddingDecoder(2, "f32"));
+    DocumentStreamParser parser = new DocumentStreamParser(SCHEMA, decoders);
+    VectorBatches vectors = parser.newVectorBatches();
+
+    write(
+        parser,
+        vectors,
+        "{\"id\":\"d1\",\"_chunks\":{\"body\":[{\"chunk_embeddings\":[1,2]},"
+            + "{\"chunk_embeddings\":[3,4]}],\"title\":[{\"chunk_embeddings\":[5,6,7]}]}}");
+    write(parser, vectors, "{\"id\":\"d2\",\"_chunks\":[{\"chunk_embeddings\":[8,9,10]}]}");
+
+    VectorBatch title = vectors.batch(0);
+    VectorBatch body = vectors.batch(1);
+    assertEquals("title", vectors.field(0));
+    assertEquals(2, title.size());
+    assertEquals("d2", title.id(1));
+    assertArrayEquals(new float[] {5, 6, 7, 8, 9, 10}, Arrays.copyOf(title.vectors(), 6));
+    assertEquals(2, body.size());
+    assertEquals("d1", body.id(1));
+    assertEquals(1, body.chunk(1));
+    assertArrayEquals(new float[] {1, 2, 3, 4}, Arrays.copyOf(body.vectors(), 4));
+
+    DocumentException e =
+        assertThrows(
+            DocumentException.class,
+            () ->
+                write(
+                    parser,
+                    vectors,
+                    "{\"_chunks\":{\"body\":[{\"chunk_embeddings\":[1,2]}],"
+                        + "\"summary\":[{\"chunk_embeddings\":[1,2]}]}}"));
+    assertTrue(e.getMessage().contains("summary"));
+    assertEquals(2, body.size());
+  }
+
+  private static DocumentStreamParser parser(String quantization) {
+    return new DocumentStreamParser(
+        SCHEMA, Map.of(Collection.DEFAULT_VECTOR_FIELD, new EmbeddingDecoder(3, quantization)));
+  }
+
+  private static void write(DocumentStreamParser parser, VectorBatches vectors, String json)
+      throws IOException {
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire();
+        JsonParser jsonParser = parser.createParser(json)) {
+      jsonParser.nextToken();
+      parser.writeDocument(jsonParser, batch, vectors);
+    }
+  }
+
+  private static String base64(ByteBuffer buffer, float... values) {
+    for (float value : values) {
+      buffer.putFloat(value);
+    }
+    return Base64.getEncoder().encodeToString(buffer.array());
+  }
+}
@@ -0,0 +1,101 @@
+package com.nexo.document;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.enums.FieldType;
+import com.nexo.exception.DocumentException;
+import com.nexo.index.NativeBatchBuffer;
+import com.nexo.schema.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RowEncoderTest {
+
+  private static final DocumentSchema SCHEMA =
+      DocumentSchema.of(
+          List.of(
+              new Field("_id", FieldType.TEXT, null),
+              new Field("_timestamp", FieldType.DATE, null),
+              new Field("title", FieldType.TEXT, null),
+              new Field("views", FieldType.I64, null),
+              new Field("rating", FieldType.F64, null),
+              new Field("published", FieldType.DATE, null),
+              new Field("draft", FieldType.BOOL, null),
+              new Field("tags", FieldType.TEXT, null)));
+
+  private final RowEncoder encoder = new RowEncoder(SCHEMA);
+
+  @Test
+  void testEncodesTypedValuesByOrdinal() {
+    SchemaBoundDocument doc =
+        new SchemaBoundDocument(SCHEMA)
+            .id("doc-1")
+            .set("title", "Grüße 😀")
+            .set("views", 42)
+            .set("rating", 4.5)
+            .set("published", Instant.ofEpochSecond(10, 5_000))
+            .set("draft", true)
+            .set("tags", List.of("a", "b"));
+
+    ByteBuffer row = encoder.encode(doc);
+
+    assertEquals(row.limit() - Integer.BYTES, row.getInt());
+    assertEquals(9, row.getShort());
+    assertText(row, 2, "Grüße 😀");
+    assertEntry(row, 3, RowEncoder.TYPE_I64);
+    assertEquals(42, row.getLong());
+    assertEntry(row, 4, RowEncoder.TYPE_F64);
+    assertEquals(4.5, Double.longBitsToDouble(row.getLong()));
+    assertEntry(row, 5, RowEncoder.TYPE_DATE);
+    assertEquals(10_000_005, row.getLong());
+    assertEntry(row, 6, RowEncoder.TYPE_BOOL);
+    assertEquals(1, row.get());
+    assertText(row, 7, "a");
+    assertText(row, 7, "b");
+    assertText(row, 0, "doc-1");
+    assertEntry(row, 1, RowEncoder.TYPE_DATE);
+    assertTrue(row.getLong() > 0);
+    assertFalse(row.hasRemaining());
+  }
+
+  @Test
+  void testRowsAreAppendedWithoutDelimiter() {
+    SchemaBoundDocument doc = new SchemaBoundDocument(SCHEMA).set("views", 1L);
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire(NativeBatchBuffer.Format.ROWS)) {
+      encoder.encode(doc, batch);
+      int first = batch.size();
+      encoder.encode(doc, batch);
+
+      assertEquals(2, batch.documentCount());
+      assertEquals(2 * first, batch.size());
+    }
+  }
+
+  @Test
+  void testMismatchedValuesAreRejected() {
+    SchemaBoundDocument doc = new SchemaBoundDocument(SCHEMA).set("views", "many");
+    DocumentException e = assertThrows(DocumentException.class, () -> encoder.encode(doc));
+    assertTrue(e.getMessage().contains("views"));
+
+    try (NativeBatchBuffer ndjson = NativeBatchBuffer.acquire()) {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> encoder.encode(new SchemaBoundDocument(SCHEMA), ndjson));
+    }
+  }
+
+  private static void assertEntry(ByteBuffer row, int ordinal, byte type) {
+    assertEquals(ordinal, row.getShort());
+    assertEquals(type, row.get());
+  }
+
+  private static void assertText(ByteBuffer row, int ordinal, String expected) {
+    assertEntry(row, ordinal, RowEncoder.TYPE_TEXT);
+    byte[] bytes = new byte[row.getInt()];
+    row.get(bytes);
+    assertEquals(expected, new String(bytes, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,74 @@
+package com.nexo.document;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.enums.FieldType;
+import com.nexo.schema.Field;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class SchemaBoundDocumentTest {
+
+  private static final DocumentSchema SCHEMA =
+      DocumentSchema.of(
+          List.of(
+              new Field("_id", FieldType.TEXT, null),
+              new Field("title", FieldType.TEXT, null),
+              new Field("n", FieldType.I64, null)));
+
+  @Test
+  void testSchemaSkipsSystemFieldsAndValidatesNames() {
+    assertEquals(2, SCHEMA.size());
+    assertEquals(0, SCHEMA.slot("title"));
+    assertEquals(1, SCHEMA.ordinal(0));
+    assertEquals(0, SCHEMA.idOrdinal());
+    assertEquals(-1, SCHEMA.timestampOrdinal());
+    assertEquals(-1, SCHEMA.slot("_id"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> DocumentSchema.of(List.of(new Field("bad name", FieldType.TEXT, null))));
+  }
+
+  @Test
+  void testConvertsToDocument() {
+    SchemaBoundDocument doc = new SchemaBoundDocument(SCHEMA).id("a1").set("title", "x").set(1, 7L);
+
+    Document document = doc.toDocument();
+
+    assertEquals("a1", document.getId());
+    assertEquals(Map.of("title", "x", "n", 7L), document.getFields());
+  }
+
+  @Test
+  void testClearDropsIdAndValues() {
+    SchemaBoundDocument doc = new SchemaBoundDocument(SCHEMA).id("a1").set("title", "x");
+    doc.clear();
+
+    assertNull(doc.getId());
+    assertNull(doc.get(0));
+  }
+
+  @Test
+  void testUnknownFieldsAreRejected() {
+    SchemaBoundDocument doc = new SchemaBoundDocument(SCHEMA);
+    assertThrows(IllegalArgumentException.class, () -> doc.set("missing", "x"));
+    assertThrows(IllegalArgumentException.class, () -> doc.set("title", null));
+  }
+
+  @Test
+  void testGeneratedIdsAreUniqueAndOrdered() {
+    Set<String> ids = new HashSet<>();
+    String previous = IdGenerator.next();
+    assertEquals(7, UUID.fromString(previous).version());
+    for (int i = 0; i < 10_000; i++) {
+      String id = IdGenerator.next();
+      assertTrue(id.compareTo(previous) > 0, id + " <= " + previous);
+      assertTrue(ids.add(id));
+      previous = id;
+    }
+  }
+}
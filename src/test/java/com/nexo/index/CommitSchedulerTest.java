@@ -0,0 +1,74 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class CommitSchedulerTest {
+
+  private final AtomicInteger commits = new AtomicInteger();
+  private final AtomicLong now = new AtomicLong();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  void testCommitsAfterMaxDocs() {
+    CommitScheduler scheduler = scheduler(new CommitPolicy(10, 0, 0));
+
+    scheduler.recordBatch(6, 100);
+    assertEquals(0, commits.get());
+    scheduler.recordBatch(4, 100);
+
+    assertEquals(1, commits.get());
+    assertEquals(0, scheduler.pendingDocs());
+    assertEquals(10, registry.get("nexo.index.commit.docs").summary().totalAmount());
+    assertEquals(
+        1, registry.get("nexo.index.commit.latency").tag("trigger", "docs").timer().count());
+  }
+
+  @Test
+  void testCommitsAfterMaxBytes() {
+    CommitScheduler scheduler = scheduler(new CommitPolicy(0, 1024, 0));
+
+    scheduler.recordBatch(1, 1000);
+    scheduler.recordBatch(1, 100);
+
+    assertEquals(1, commits.get());
+    assertEquals(1100, registry.get("nexo.index.commit.bytes").summary().totalAmount());
+  }
+
+  @Test
+  void testCommitsAfterIntervalSinceFirstPendingDocument() {
+    CommitScheduler scheduler = scheduler(new CommitPolicy(0, 0, 1000));
+
+    scheduler.tick();
+    assertEquals(0, commits.get());
+
+    scheduler.recordBatch(1, 10);
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+    scheduler.tick();
+    assertEquals(0, commits.get());
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    scheduler.tick();
+    assertEquals(1, commits.get());
+    assertEquals(250, scheduler.tickMillis());
+  }
+
+  @Test
+  void testCollectionOverrideInheritsUnsetValues() {
+    CommitPolicy policy =
+        CommitPolicy.resolve(new CommitPolicy(500, 0, 0), new CommitPolicy(10_000, 2048, 1000));
+
+    assertEquals(500, policy.getMaxDocs());
+    assertEquals(2048, policy.getMaxBytes());
+    assertEquals(1000, policy.getIntervalMs());
+  }
+
+  private CommitScheduler scheduler(CommitPolicy policy) {
+    return new CommitScheduler("test", policy, commits::incrementAndGet, now::get, registry);
+  }
+}
@@ -0,0 +1,106 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class ExactVectorScanTest {
+
+  @Test
+  void testKernelsFollowTheVectorModule() {
+    boolean resolved = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    String expected = System.getProperty("nexo.test.kernels");
+    if (expected != null) {
+      assertEquals("vector".equals(expected), resolved);
+    }
+    assertEquals(
+        resolved ? "VectorKernels" : "ScalarKernels",
+        DistanceKernels.INSTANCE.getClass().getSimpleName());
+  }
+
+  @Test
+  void testKernelsMatchScalarDistances() {
+    Random random = new Random(7);
+    DistanceKernels kernels = DistanceKernels.INSTANCE;
+    DistanceKernels scalar = ScalarKernels.INSTANCE;
+    for (int dimension : new int[] {1, 7, 16, 37, 1024}) {
+      float[] a = randomVector(random, dimension + 3);
+      float[] b = randomVector(random, dimension);
+      float tolerance = 1e-4f * dimension;
+      assertEquals(
+          scalar.dot(a, 3, b, 0, dimension), kernels.dot(a, 3, b, 0, dimension), tolerance);
+      assertEquals(
+          scalar.l2sq(a, 3, b, 0, dimension), kernels.l2sq(a, 3, b, 0, dimension), tolerance);
+      assertEquals(
+          scalar.cos(a, 3, b, 0, dimension), kernels.cos(a, 3, b, 0, dimension), tolerance);
+    }
+    float[] zero = new float[5];
+    assertEquals(0f, VectorMetric.COS.distance(zero, zero));
+    assertEquals(1f, VectorMetric.COS.distance(zero, new float[] {1, 0, 0, 0, 0}));
+  }
+
+  @Test
+  void testScanAcrossBlocksReturnsNearestAcceptedKeys() {
+    int dimension = 12;
+    int keys = 5 * ExactVectorScan.BLOCK + 17;
+    Random random = new Random(11);
+    float[][] vectors = new float[keys][];
+    for (int key = 0; key < keys; key++) {
+      vectors[key] = randomVector(random, dimension);
+    }
+    float[] query = randomVector(random, dimension);
+
+    ExactVectorScan.TopK top =
+        ExactVectorScan.scan(
+            (key, target) -> System.arraycopy(vectors[(int) key], 0, target, 0, dimension),
+            VectorMetric.L2SQ,
+            query,
+            10,
+            keys,
+            key -> key % 3 != 0);
+
+    long[] expected =
+        LongStream.range(0, keys)
+            .filter(key -> key % 3 != 0)
+            .boxed()
+            .sorted(
+                Comparator.comparingDouble(
+                    key -> VectorMetric.L2SQ.distance(query, vectors[key.intValue()])))
+            .limit(10)
+            .mapToLong(Long::longValue)
+            .toArray();
+    long[] actual = new long[top.size()];
+    for (int i = 0; i < top.size(); i++) {
+      actual[i] = top.key(i);
+      if (i > 0) {
+        assertTrue(top.distance(i - 1) <= top.distance(i));
+      }
+    }
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  void testTopKKeepsFewerWhenFewerAreOffered() {
+    ExactVectorScan.TopK top = new ExactVectorScan.TopK(4);
+    top.offer(3f, 30);
+    top.offer(1f, 10);
+    top.sort();
+
+    assertEquals(2, top.size());
+    assertEquals(10, top.key(0));
+    assertEquals(30, top.key(1));
+    assertEquals(1f, top.distance(0));
+    assertEquals(3f, top.distance(1));
+  }
+
+  private static float[] randomVector(Random random, int dimension) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      vector[i] = random.nextFloat() * 2 - 1;
+    }
+    return vector;
+  }
+}
@@ -0,0 +1,92 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.exception.BackpressureException;
+import org.junit.jupiter.api.Test;
+
+class IndexingMemoryManagerTest {
+
+  private static final long MB = 1_000_000L;
+
+  @Test
+  void testIdleWritersAreReleasedToMakeRoom() {
+    IndexingMemoryManager manager = new IndexingMemoryManager(100 * MB, 0);
+    FakeWriter older = new FakeWriter(manager, 1, true);
+    FakeWriter newer = new FakeWriter(manager, 2, true);
+    manager.reserve(older, new WriterBudget(50 * MB, 1));
+    manager.reserve(newer, new WriterBudget(50 * MB, 1));
+
+    WriterBudget granted =
+        manager.reserve(new FakeWriter(manager, 3, true), new WriterBudget(40 * MB, 1));
+
+    assertEquals(40 * MB, granted.heapSize());
+    assertTrue(older.released);
+    assertFalse(newer.released);
+    assertEquals(90 * MB, manager.getReserved());
+  }
+
+  @Test
+  void testSmallerArenaIsGrantedWhenWritersAreBusy() {
+    IndexingMemoryManager manager = new IndexingMemoryManager(100 * MB, 0);
+    manager.reserve(new FakeWriter(manager, 1, false), new WriterBudget(70 * MB, 1));
+
+    WriterBudget granted =
+        manager.reserve(new FakeWriter(manager, 2, false), new WriterBudget(50 * MB, 2));
+
+    assertEquals(30 * MB, granted.heapSize());
+    assertEquals(2, granted.threads());
+    assertEquals(100 * MB, manager.getReserved());
+  }
+
+  @Test
+  void testExhaustedBudgetAppliesBackpressure() {
+    IndexingMemoryManager manager = new IndexingMemoryManager(20 * MB, 0);
+    manager.reserve(new FakeWriter(manager, 1, false), new WriterBudget(15 * MB, 1));
+
+    assertThrows(
+        BackpressureException.class,
+        () -> manager.reserve(new FakeWriter(manager, 2, false), new WriterBudget(15 * MB, 1)));
+  }
+
+  @Test
+  void testIdleTimeoutReleasesWriters() {
+    IndexingMemoryManager manager = new IndexingMemoryManager(100 * MB, 1);
+    FakeWriter writer = new FakeWriter(manager, System.nanoTime() - 10_000_000L, true);
+    manager.reserve(writer, new WriterBudget(20 * MB, 1));
+
+    manager.releaseIdleWriters();
+
+    assertTrue(writer.released);
+    assertEquals(0, manager.getReserved());
+    assertEquals(0, manager.getOpenWriters());
+  }
+
+  private static final class FakeWriter implements IndexingMemoryManager.ManagedWriter {
+    private final IndexingMemoryManager manager;
+    private final long lastUsed;
+    private final boolean idle;
+    private boolean released;
+
+    FakeWriter(IndexingMemoryManager manager, long lastUsed, boolean idle) {
+      this.manager = manager;
+      this.lastUsed = lastUsed;
+      this.idle = idle;
+    }
+
+    @Override
+    public long lastUsedNanos() {
+      return lastUsed;
+    }
+
+    @Override
+    public boolean releaseIdleWriter() {
+      if (!idle) {
+        return false;
+      }
+      released = true;
+      manager.release(this);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.exception.BackpressureException;
+import com.nexo.exception.ErrorType;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class IngestPipelineTest {
+
+  private final ExecutorService parsePool = Executors.newFixedThreadPool(2);
+
+  @AfterEach
+  void tearDown() {
+    parsePool.shutdownNow();
+  }
+
+  @Test
+  void testFullQueueIsRejected() throws Exception {
+    CountDownLatch blocked = new CountDownLatch(1);
+    try (IngestPipeline pipeline =
+        new IngestPipeline(
+            "test",
+            batch -> BulkResult.empty(),
+            noCommits(),
+            null,
+            new ReentrantLock(),
+            parsePool,
+            1)) {
+      CompletableFuture<Boolean> first = pipeline.submit(() -> await(blocked));
+
+      BackpressureException e =
+          assertThrows(BackpressureException.class, () -> pipeline.submit(() -> true));
+      assertEquals(ErrorType.TOO_MANY_REQUESTS, e.getErrorType());
+      assertEquals(IngestPipeline.RETRY_AFTER_SECONDS, e.getRetryAfterSeconds());
+      assertEquals(1, pipeline.queued());
+
+      blocked.countDown();
+      assertTrue(first.get(5, TimeUnit.SECONDS));
+      assertTrue(pipeline.submit(() -> true).get(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void testBatchesAreWrittenOnTheWriterThread() throws Exception {
+    try (IngestPipeline pipeline =
+            new IngestPipeline(
+                "test",
+                batch -> {
+                  assertEquals("ingest-writer-test", Thread.currentThread().getName());
+                  return new BulkResult(batch.documentCount(), List.of());
+                },
+                noCommits(),
+                null,
+                new ReentrantLock(),
+                parsePool,
+                4);
+        NativeBatchBuffer batch = NativeBatchBuffer.acquire()) {
+      batch.asOutputStream().write("{}".getBytes());
+      batch.endDocument();
+
+      BulkResult result = pipeline.submit(() -> pipeline.write(batch)).get(5, TimeUnit.SECONDS);
+
+      assertEquals(1, result.getIndexed());
+      assertEquals(0, pipeline.queued());
+    }
+  }
+
+  @Test
+  void testBlockedCollectionDoesNotHoldEveryParseThread() throws Exception {
+    CountDownLatch blocked = new CountDownLatch(1);
+    try (IngestPipeline slow = pipeline("slow", 1);
+        IngestPipeline other = pipeline("other", 1)) {
+      CompletableFuture<Boolean> first = slow.submit(() -> await(blocked));
+      CompletableFuture<Boolean> second = slow.submit(() -> await(blocked));
+
+      assertTrue(other.submit(() -> true).get(5, TimeUnit.SECONDS));
+      assertFalse(first.isDone());
+      assertFalse(second.isDone());
+
+      blocked.countDown();
+      assertTrue(first.get(5, TimeUnit.SECONDS));
+      assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void testBoundedExecutorQueuesTasksBeyondTheLimit() throws Exception {
+    CountDownLatch blocked = new CountDownLatch(1);
+    IngestPipeline.BoundedExecutor executor = new IngestPipeline.BoundedExecutor(parsePool, 1);
+    CompletableFuture<Boolean> first =
+        CompletableFuture.supplyAsync(() -> await(blocked), executor);
+    CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> true, executor);
+
+    assertEquals(1, executor.queued());
+    assertFalse(second.isDone());
+
+    blocked.countDown();
+    assertTrue(first.get(5, TimeUnit.SECONDS));
+    assertTrue(second.get(5, TimeUnit.SECONDS));
+    assertEquals(0, executor.queued());
+  }
+
+  private IngestPipeline pipeline(String name, int parseThreads) {
+    return new IngestPipeline(
+        name,
+        batch -> BulkResult.empty(),
+        noCommits(),
+        null,
+        new ReentrantLock(),
+        new IngestPipeline.BoundedExecutor(parsePool, parseThreads),
+        4);
+  }
+
+  private static CommitScheduler noCommits() {
+    return new CommitScheduler("test", new CommitPolicy(), () -> {});
+  }
+
+  private static boolean await(CountDownLatch latch) {
+    try {
+      return latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
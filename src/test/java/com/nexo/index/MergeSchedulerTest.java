@@ -0,0 +1,132 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.exception.NexoException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class MergeSchedulerTest {
+
+  @Test
+  void testThrottlePausesForMergedBytes() {
+    assertEquals(TimeUnit.SECONDS.toNanos(2), MergeScheduler.throttleNanos(100, 50));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), MergeScheduler.throttleNanos(25, 50));
+    assertEquals(0, MergeScheduler.throttleNanos(100, 0));
+    assertEquals(0, MergeScheduler.throttleNanos(-1, 50));
+  }
+
+  @Test
+  void testBackgroundMergesTakeTurns() {
+    MergeScheduler scheduler = new MergeScheduler(0);
+    FakeIndex first = new FakeIndex(3, 100);
+    FakeIndex second = new FakeIndex(3, 200);
+    first.mergeable = true;
+    second.mergeable = true;
+    scheduler.register("first", first);
+    scheduler.register("second", second);
+
+    scheduler.runOnce();
+    scheduler.runOnce();
+
+    assertEquals(1, first.backgroundMerges);
+    assertEquals(1, second.backgroundMerges);
+  }
+
+  @Test
+  void testClosedWritersAreNotMergedInBackground() {
+    MergeScheduler scheduler = new MergeScheduler(0);
+    FakeIndex index = new FakeIndex(10, 100);
+    scheduler.register("idle", index);
+
+    assertEquals(-1, scheduler.runOnce());
+    assertEquals(0, index.backgroundMerges);
+  }
+
+  @Test
+  void testForceMergeReportsProgress() {
+    MergeScheduler scheduler = new MergeScheduler(0);
+    FakeIndex index = new FakeIndex(5, 100);
+    scheduler.register("logs", index);
+
+    ForceMergeStatus status = scheduler.forceMerge("logs", 1);
+    assertEquals(ForceMergeStatus.State.QUEUED, status.getState());
+    assertThrows(NexoException.class, () -> scheduler.forceMerge("logs", 1));
+
+    assertEquals(100, scheduler.runOnce());
+    assertEquals(ForceMergeStatus.State.RUNNING, status.getState());
+    assertTrue(index.committed);
+    assertEquals(5, status.getInitialSegments());
+    assertEquals(4, status.getCurrentSegments());
+    assertEquals(0.25, status.getProgress(), 1e-9);
+
+    while (!status.isDone()) {
+      scheduler.runOnce();
+    }
+
+    assertEquals(ForceMergeStatus.State.COMPLETED, status.getState());
+    assertEquals(1, status.getCurrentSegments());
+    assertEquals(4, status.getMerges());
+    assertEquals(400, status.getMergedBytes());
+    assertEquals(1.0, status.getProgress());
+    assertSame(status, scheduler.getForceMergeStatus("logs"));
+  }
+
+  @Test
+  void testFailedForceMergeIsReported() {
+    MergeScheduler scheduler = new MergeScheduler(0);
+    FakeIndex index = new FakeIndex(5, 100);
+    index.failure = new IllegalStateException("disk full");
+    scheduler.register("logs", index);
+
+    ForceMergeStatus status = scheduler.forceMerge("logs", 1);
+    scheduler.runOnce();
+
+    assertEquals(ForceMergeStatus.State.FAILED, status.getState());
+    assertEquals("disk full", status.getError());
+    assertNotNull(scheduler.forceMerge("logs", 2));
+  }
+
+  private static final class FakeIndex implements MergeScheduler.Mergeable {
+    private int segments;
+    private final long bytesPerMerge;
+    private boolean mergeable;
+    private boolean committed;
+    private int backgroundMerges;
+    private RuntimeException failure;
+
+    FakeIndex(int segments, long bytesPerMerge) {
+      this.segments = segments;
+      this.bytesPerMerge = bytesPerMerge;
+    }
+
+    @Override
+    public long mergeOnce(int targetSegments, boolean openWriter) {
+      if (failure != null) {
+        throw failure;
+      }
+      if (targetSegments == 0) {
+        if (!openWriter && !mergeable) {
+          return -1;
+        }
+        backgroundMerges++;
+        return bytesPerMerge;
+      }
+      if (segments <= targetSegments) {
+        return -1;
+      }
+      segments--;
+      return bytesPerMerge;
+    }
+
+    @Override
+    public int segmentCount() {
+      return segments;
+    }
+
+    @Override
+    public void commit() {
+      committed = true;
+    }
+  }
+}
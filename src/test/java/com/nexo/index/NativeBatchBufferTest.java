@@ -0,0 +1,58 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class NativeBatchBufferTest {
+
+  @Test
+  void testDocumentsAreNewlineDelimited() throws IOException {
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire()) {
+      batch.asOutputStream().write("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+      batch.endDocument();
+      batch.asOutputStream().write("{\"b\":2}".getBytes(StandardCharsets.UTF_8));
+      batch.endDocument();
+
+      assertEquals(2, batch.documentCount());
+      assertEquals("{\"a\":1}\n{\"b\":2}\n", contents(batch));
+    }
+  }
+
+  @Test
+  void testTruncateDropsPartialDocument() throws IOException {
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire()) {
+      batch.asOutputStream().write("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+      batch.endDocument();
+      int mark = batch.position();
+      batch.asOutputStream().write("{\"broken\":".getBytes(StandardCharsets.UTF_8));
+      batch.truncate(mark);
+
+      assertEquals(1, batch.documentCount());
+      assertEquals("{\"a\":1}\n", contents(batch));
+    }
+  }
+
+  @Test
+  void testBufferGrowsBeyondInitialCapacity() throws IOException {
+    byte[] large = new byte[200 * 1024];
+    java.util.Arrays.fill(large, (byte) 'x');
+    try (NativeBatchBuffer batch = NativeBatchBuffer.acquire()) {
+      batch.asOutputStream().write(large);
+      batch.endDocument();
+
+      assertEquals(large.length + 1, batch.size());
+      assertTrue(batch.buffer().isDirect());
+    }
+  }
+
+  private static String contents(NativeBatchBuffer batch) {
+    ByteBuffer view = batch.buffer().duplicate().flip();
+    byte[] bytes = new byte[view.remaining()];
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
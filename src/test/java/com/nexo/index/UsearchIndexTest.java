@@ -0,0 +1,620 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cloud.unum.usearch.Index;
+import com.nexo.config.NexoConfig;
+import com.nexo.testutil.TempDirUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UsearchIndexTest {
+
+  private static final int DIMENSION = 8;
+  private static final String FILE = "vectors.nexo";
+
+  private Path tempDir;
+  private UsearchIndex index;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = TempDirUtil.createTempDir();
+    index = new UsearchIndex(config());
+    assertTrue(index.createIndex(tempDir.resolve(FILE).toString()));
+  }
+
+  private static NexoConfig.VectorIndexConfig config() {
+    NexoConfig.VectorIndexConfig config = new NexoConfig.VectorIndexConfig();
+    config.setDimension(DIMENSION);
+    config.setAddThreads(4);
+    config.setExactSearchThreshold(0);
+    return config;
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    index.close();
+    TempDirUtil.deleteRecursively(tempDir);
+  }
+
+  @Test
+  void testBatchAddReservesCapacityAhead() {
+    int count = 1500;
+    long first = index.allocateKeys(count);
+    long[] keys = new long[count];
+    float[] vectors = new float[count * DIMENSION];
+    for (int i = 0; i < count; i++) {
+      keys[i] = first + i;
+      vectors[i * DIMENSION + i % DIMENSION] = 1 + i;
+    }
+
+    index.add(keys, vectors);
+
+    assertEquals(count, index.size());
+    assertTrue(index.capacity() >= 2 * UsearchIndex.MIN_CAPACITY);
+    assertEquals(count, index.allocateKeys(1));
+  }
+
+  @Test
+  void testAddRejectsShortVectorBuffer() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> index.add(new long[] {0, 1}, new float[DIMENSION + 1]));
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  void testReopenContinuesKeysAfterStoredVectors() throws Exception {
+    index.add(new long[] {0, 1, 2}, new float[3 * DIMENSION]);
+    index.close();
+
+    index.open(tempDir.resolve(FILE).toString());
+
+    assertEquals(3, index.size());
+    assertEquals(3, index.allocateKeys(2));
+  }
+
+  @Test
+  void testSearchResolvesDocumentsAndChunks() throws Exception {
+    VectorBatch batch = new VectorBatch(DIMENSION);
+    for (int i = 0; i < DIMENSION; i++) {
+      batch.vectors()[batch.append(i, i % 2)] = 0;
+      batch.vectors()[i * DIMENSION + i] = 1;
+      batch.identify(i, "doc-" + i);
+    }
+    index.add(batch);
+
+    float[] query = new float[DIMENSION];
+    query[3] = 1;
+    query[4] = 0.5f;
+    List<VectorHit> hits = index.search(query, 2, 0);
+
+    assertEquals(List.of("doc-3", "doc-4"), hits.stream().map(VectorHit::documentId).toList());
+    assertEquals(1, hits.get(0).chunkIndex());
+    assertTrue(hits.get(0).distance() < hits.get(1).distance());
+
+    index.close();
+    index.open(tempDir.resolve(FILE).toString());
+    assertEquals("doc-3", index.search(query, 1, 16).get(0).documentId());
+    assertEquals(DIMENSION, index.allocateKeys(0));
+  }
+
+  @Test
+  void testQuantizedIndexReranksWithFullPrecisionVectors() throws Exception {
+    NexoConfig.VectorIndexConfig config = new NexoConfig.VectorIndexConfig();
+    config.setDimension(DIMENSION);
+    config.setAddThreads(2);
+    Path dir = tempDir.resolve("quantized");
+    UsearchIndex quantized = new UsearchIndex(config.forCollection("I8"));
+    assertTrue(quantized.createIndex(dir.resolve(FILE).toString()));
+    try {
+      VectorBatch batch = new VectorBatch(DIMENSION);
+      for (int i = 0; i < 200; i++) {
+        int offset = batch.append(i, 0);
+        for (int d = 0; d < DIMENSION; d++) {
+          batch.vectors()[offset + d] = (float) Math.sin(i * 0.37 + d);
+        }
+        batch.identify(i, "doc-" + i);
+      }
+      quantized.add(batch);
+
+      float[] query = new float[DIMENSION];
+      for (int d = 0; d < DIMENSION; d++) {
+        query[d] = (float) Math.sin(42 * 0.37 + d);
+      }
+      VectorHit nearest = quantized.search(query, 5, 0).get(0);
+      assertEquals("doc-42", nearest.documentId());
+      assertEquals(0f, nearest.distance(), 1e-5f);
+
+      VectorIndexStats stats = quantized.stats(20, 5);
+      assertEquals("i8", stats.quantization());
+      assertEquals(200, stats.vectors());
+      assertTrue(stats.fullPrecisionBytes() >= 200L * DIMENSION * Float.BYTES);
+      assertTrue(stats.recall() > 0.8, "recall " + stats.recall());
+    } finally {
+      quantized.close();
+    }
+
+    assertTrue(Files.size(dir.resolve(VectorStore.FILE_NAME)) >= 200L * DIMENSION * Float.BYTES);
+    quantized.open(dir.resolve(FILE).toString());
+    assertEquals(200, quantized.stats(0, 10).vectors());
+    quantized.close();
+  }
+
+  @Test
+  void testUnknownQuantizationIsRejected() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new NexoConfig.VectorIndexConfig().forCollection("f8"));
+  }
+
+  @Test
+  void testViewServesSearchesAndLoadsOnFirstWrite() throws Exception {
+    VectorBatch batch = new VectorBatch(DIMENSION);
+    for (int i = 0; i < DIMENSION; i++) {
+      batch.vectors()[batch.append(i, 0) + i] = 1;
+      batch.identify(i, "doc-" + i);
+    }
+    index.add(batch);
+    index.close();
+
+    index.open(tempDir.resolve(FILE).toString(), true);
+    assertTrue(index.isViewing());
+    assertTrue(index.stats(0, 10).memoryMapped());
+    float[] query = new float[DIMENSION];
+    query[5] = 1;
+    List<CompletableFuture<List<VectorHit>>> searches = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      searches.add(CompletableFuture.supplyAsync(() -> index.search(query, 1, 0)));
+    }
+    for (CompletableFuture<List<VectorHit>> search : searches) {
+      assertEquals("doc-5", search.join().get(0).documentId());
+    }
+
+    index.add(new long[] {index.allocateKeys(1)}, new float[DIMENSION]);
+    assertFalse(index.isViewing());
+    assertEquals(DIMENSION + 1, index.size());
+    index.close();
+
+    index.open(tempDir.resolve(FILE).toString());
+    assertEquals(DIMENSION + 1, index.size());
+  }
+
+  @Test
+  void testFilteredSearchOnlyReturnsAcceptedDocuments() {
+    VectorBatch batch = new VectorBatch(DIMENSION);
+    for (int i = 0; i < 300; i++) {
+      int offset = batch.append(i, 0);
+      for (int d = 0; d < DIMENSION; d++) {
+        batch.vectors()[offset + d] = (float) Math.sin(i * 0.37 + d);
+      }
+      batch.identify(i, "doc-" + i);
+    }
+    index.add(batch);
+    float[] query = new float[DIMENSION];
+    for (int d = 0; d < DIMENSION; d++) {
+      query[d] = (float) Math.sin(42 * 0.37 + d);
+    }
+
+    List<VectorHit> hits =
+        index.search(
+            query,
+            5,
+            0,
+            0.1,
+            ids -> {
+              boolean[] matches = new boolean[ids.length];
+              for (int i = 0; i < ids.length; i++) {
+                matches[i] = Integer.parseInt(ids[i].substring(4)) % 10 == 3;
+              }
+              return matches;
+            });
+    List<VectorHit> scanned =
+        index.scan(query, 5, List.of("doc-3", "doc-43", "doc-143", "doc-243", "doc-33", "doc-93"));
+
+    assertEquals(5, hits.size());
+    assertTrue(hits.stream().allMatch(hit -> hit.documentId().endsWith("3")));
+    assertEquals(5, scanned.size());
+    assertEquals(scanned.get(0).documentId(), hits.get(0).documentId());
+    assertTrue(index.scan(query, 5, List.of("missing")).isEmpty());
+  }
+
+  @Test
+  void testSmallIndexIsSearchedExactly() throws Exception {
+    NexoConfig.VectorIndexConfig config = config();
+    config.setExactSearchThreshold(1000);
+    UsearchIndex exact = new UsearchIndex(config);
+    assertTrue(exact.createIndex(tempDir.resolve("exact").resolve(FILE).toString()));
+    try {
+      VectorBatch batch = new VectorBatch(DIMENSION);
+      for (int i = 0; i < 300; i++) {
+        int offset = batch.append(i, 0);
+        for (int d = 0; d < DIMENSION; d++) {
+          batch.vectors()[offset + d] = (float) Math.sin(i * 0.37 + d);
+        }
+        batch.identify(i, "doc-" + i);
+      }
+      index.add(batch);
+      exact.add(batch);
+      float[] query = new float[DIMENSION];
+      for (int d = 0; d < DIMENSION; d++) {
+        query[d] = (float) Math.sin(42 * 0.37 + d);
+      }
+
+      List<VectorHit> hits = exact.search(query, 5, 0);
+      List<VectorHit> filtered = exact.search(query, 3, 0, 0.1, ids -> matchesSuffix(ids, "7"));
+
+      assertEquals(
+          index.scan(query, 5, allDocuments(300)).stream().map(VectorHit::key).toList(),
+          hits.stream().map(VectorHit::key).toList());
+      assertEquals("doc-42", hits.get(0).documentId());
+      assertEquals(3, filtered.size());
+      assertTrue(filtered.stream().allMatch(hit -> hit.documentId().endsWith("7")));
+    } finally {
+      exact.close();
+    }
+  }
+
+  @Test
+  void testShardedIndexSpreadsVectorsAndMergesSearches() throws Exception {
+    NexoConfig.VectorIndexConfig config = config();
+    config.setShards(3);
+    Path file = tempDir.resolve("sharded").resolve(FILE);
+    UsearchIndex sharded = new UsearchIndex(config);
+    assertTrue(sharded.createIndex(file.toString()));
+    VectorBatch batch = new VectorBatch(DIMENSION);
+    for (int i = 0; i < 300; i++) {
+      int offset = batch.append(i, 0);
+      for (int d = 0; d < DIMENSION; d++) {
+        batch.vectors()[offset + d] = (float) Math.sin(i * 0.37 + d);
+      }
+      batch.identify(i, "doc-" + i);
+    }
+    float[] query = new float[DIMENSION];
+    for (int d = 0; d < DIMENSION; d++) {
+      query[d] = (float) Math.sin(42 * 0.37 + d);
+    }
+    try {
+      sharded.add(batch);
+
+      assertEquals(300, sharded.size());
+      assertEquals(3, sharded.stats(0, 10).shards());
+      assertEquals("doc-42", sharded.search(query, 5, 0).get(0).documentId());
+    } finally {
+      sharded.close();
+    }
+
+    assertTrue(Files.exists(file.resolveSibling(FILE + ".1")));
+    assertTrue(Files.exists(file.resolveSibling(FILE + ".2")));
+    sharded.open(file.toString(), true);
+    try {
+      assertEquals(300, sharded.size());
+      assertEquals("doc-42", sharded.search(query, 1, 0).get(0).documentId());
+    } finally {
+      sharded.close();
+    }
+    config.setShards(2);
+    assertThrows(
+        IllegalArgumentException.class, () -> new UsearchIndex(config).open(file.toString()));
+  }
+
+  private static boolean[] matchesSuffix(String[] ids, String suffix) {
+    boolean[] matches = new boolean[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      matches[i] = ids[i].endsWith(suffix);
+    }
+    return matches;
+  }
+
+  private static List<String> allDocuments(int count) {
+    List<String> ids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ids.add("doc-" + i);
+    }
+    return ids;
+  }
+
+  @Test
+  void testReaddedVectorsAreSkippedAndCompactedAway() throws Exception {
+    VectorBatch batch = new VectorBatch(DIMENSION);
+    for (int i = 0; i < 300; i++) {
+      int offset = batch.append(i, 0);
+      for (int d = 0; d < DIMENSION; d++) {
+        batch.vectors()[offset + d] = (float) Math.sin(i * 0.37 + d);
+      }
+      batch.identify(i, "doc-" + i);
+    }
+    index.add(batch);
+    float[] query = new float[DIMENSION];
+    for (int d = 0; d < DIMENSION; d++) {
+      query[d] = (float) Math.sin(42 * 0.37 + d);
+    }
+    // doc-42 moves far away from the query, then so do doc-100 to doc-199.
+    index.add(movedAway(42, 1));
+    assertFalse(index.needsCompaction());
+    index.add(movedAway(100, 100));
+
+    List<VectorHit> hits = index.search(query, 5, 0);
+
+    assertEquals(101, index.tombstones());
+    assertEquals(401, index.size());
+    assertEquals(5, hits.size());
+    assertTrue(hits.stream().noneMatch(hit -> hit.key() == 42));
+    assertTrue(index.needsCompaction());
+
+    assertTrue(index.compact());
+
+    assertEquals(0, index.tombstones());
+    assertEquals(300, index.size());
+    assertFalse(index.needsCompaction());
+    assertFalse(Files.exists(tempDir.resolve(FILE + ".compact")));
+    assertEquals(
+        hits.stream().map(VectorHit::key).toList(),
+        index.search(query, 5, 0).stream().map(VectorHit::key).toList());
+    index.close();
+    index.open(tempDir.resolve(FILE).toString());
+    assertEquals(300, index.size());
+    assertEquals(0, index.tombstones());
+    assertEquals(401, index.allocateKeys(0));
+  }
+
+  @Test
+  void testSnapshotPersistsVectorsWithoutClosing() throws Exception {
+    assertFalse(index.snapshot());
+    VectorBatch batch = new VectorBatch(DIMENSION);
+    for (int i = 0; i < DIMENSION; i++) {
+      batch.vectors()[batch.append(i, 0) + i] = 1;
+      batch.identify(i, "doc-" + i);
+    }
+    index.add(batch);
+    assertEquals(DIMENSION, index.dirtyVectors());
+
+    assertTrue(index.snapshot());
+
+    assertEquals(0, index.dirtyVectors());
+    assertFalse(Files.exists(tempDir.resolve(FILE + ".tmp")));
+    UsearchIndex reader = new UsearchIndex(config());
+    reader.open(tempDir.resolve(FILE).toString(), true);
+    try {
+      float[] query = new float[DIMENSION];
+      query[2] = 1;
+      assertEquals(DIMENSION, reader.size());
+      assertEquals("doc-2", reader.search(query, 1, 0).get(0).documentId());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  void testAddsDuringSnapshotAreInsertedAfterIt() throws Exception {
+    List<Long> sizesDuringSave = new ArrayList<>();
+    UsearchIndex staging =
+        indexSaving(
+            config(),
+            tempDir.resolve("staging").resolve(FILE),
+            saving -> {
+              for (int i = 0; i < 4; i++) {
+                saving.add(new long[] {saving.allocateKeys(1)}, new float[DIMENSION]);
+              }
+              sizesDuringSave.add(saving.size());
+            });
+    try {
+      staging.add(new long[] {staging.allocateKeys(1)}, new float[DIMENSION]);
+
+      assertTrue(staging.snapshot());
+
+      assertEquals(List.of(1L), sizesDuringSave);
+      assertEquals(5, staging.size());
+      assertEquals(4, staging.dirtyVectors());
+      assertEquals(0, staging.lostVectors());
+    } finally {
+      staging.close();
+    }
+  }
+
+  @Test
+  void testFailedInsertAfterSnapshotIsCounted() throws Exception {
+    UsearchIndex staging =
+        indexSaving(
+            config(),
+            tempDir.resolve("staging").resolve(FILE),
+            // Key 0 is already in the graph, so its insert fails once the snapshot completes.
+            saving -> saving.add(new long[] {0}, new float[DIMENSION]));
+    try {
+      staging.add(new long[] {staging.allocateKeys(1)}, new float[DIMENSION]);
+
+      assertTrue(staging.snapshot());
+
+      assertEquals(1, staging.size());
+      assertEquals(1, staging.lostVectors());
+      assertEquals(1, staging.stats(0, 10).lostVectors());
+    } finally {
+      staging.close();
+    }
+  }
+
+  @Test
+  void testFailedInsertDoesNotMarkVectorsDirty() throws Exception {
+    index.add(new long[] {index.allocateKeys(1)}, new float[DIMENSION]);
+    assertTrue(index.snapshot());
+    assertEquals(0, index.dirtyVectors());
+
+    // Key 0 is already in the graph, so inserting it again fails.
+    assertThrows(RuntimeException.class, () -> index.add(new long[] {0}, new float[DIMENSION]));
+
+    assertEquals(0, index.dirtyVectors());
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  void testExactSearchSkipsVectorsQueuedDuringSnapshot() throws Exception {
+    NexoConfig.VectorIndexConfig config = config();
+    config.setExactSearchThreshold(1000);
+    float[] query = sineVector(4);
+    List<List<VectorHit>> hitsDuringSave = new ArrayList<>();
+    UsearchIndex staging =
+        indexSaving(
+            config,
+            tempDir.resolve("staging").resolve(FILE),
+            saving -> {
+              saving.add(sineBatch(3, 3));
+              hitsDuringSave.add(saving.search(query, 6, 0));
+              hitsDuringSave.add(saving.scan(query, 6, allDocuments(6)));
+            });
+    try {
+      staging.add(sineBatch(0, 3));
+
+      assertTrue(staging.snapshot());
+
+      assertEquals(2, hitsDuringSave.size());
+      for (List<VectorHit> hits : hitsDuringSave) {
+        assertEquals(3, hits.size());
+        assertTrue(hits.stream().allMatch(hit -> hit.key() < 3));
+      }
+      assertEquals("doc-4", staging.search(query, 6, 0).get(0).documentId());
+    } finally {
+      staging.close();
+    }
+  }
+
+  @Test
+  void testVectorsLostInACrashAreForgottenOnReopenAndCompaction() throws Exception {
+    NexoConfig.VectorIndexConfig config = config();
+    config.setExactSearchThreshold(1000);
+    Path file = tempDir.resolve("crashed").resolve(FILE);
+    UsearchIndex crashed = new UsearchIndex(config);
+    assertTrue(crashed.createIndex(file.toString()));
+    crashed.add(sineBatch(0, 3));
+    assertTrue(crashed.snapshot());
+    crashed.add(sineBatch(3, 3));
+    float[] query = sineVector(4);
+
+    // The files as a crash leaves them: the key map knows six keys, the graph holds three.
+    UsearchIndex reopened = new UsearchIndex(config);
+    reopened.open(file.toString());
+    try {
+      assertEquals(3, reopened.size());
+      assertEquals(
+          List.of(0L, 1L, 2L),
+          reopened.search(query, 6, 0).stream().map(VectorHit::key).sorted().toList());
+      assertEquals(3, reopened.scan(query, 6, allDocuments(6)).size());
+      assertEquals(6, reopened.allocateKeys(0));
+
+      reopened.add(sineBatch(3, 3));
+      reopened.add(movedAway(0, 2));
+
+      assertEquals("doc-4", reopened.search(query, 1, 0).get(0).documentId());
+      assertTrue(reopened.compact());
+      assertEquals(6, reopened.size());
+      assertEquals(
+          List.of("doc-0", "doc-1", "doc-2", "doc-3", "doc-4", "doc-5"),
+          reopened.scan(query, 6, allDocuments(6)).stream()
+              .map(VectorHit::documentId)
+              .sorted()
+              .toList());
+    } finally {
+      reopened.close();
+      crashed.close();
+    }
+  }
+
+  @Test
+  void testAddsWhileCompactedGraphsAreSavedAreNotQueued() throws Exception {
+    Path file = tempDir.resolve("compacting").resolve(FILE);
+    AtomicBoolean addedDuringSave = new AtomicBoolean();
+    UsearchIndex compacting =
+        new UsearchIndex(config()) {
+          @Override
+          Path[] saveRebuilt(Index[] rebuilt) {
+            assertFalse(snapshot());
+            add(sineBatch(300, 1));
+            addedDuringSave.set(
+                search(sineVector(300), 1, 0).get(0).documentId().equals("doc-300"));
+            return super.saveRebuilt(rebuilt);
+          }
+        };
+    assertTrue(compacting.createIndex(file.toString()));
+    try {
+      compacting.add(sineBatch(0, 300));
+      compacting.add(sineBatch(0, 100));
+      assertTrue(compacting.snapshot());
+
+      assertTrue(compacting.compact());
+
+      assertTrue(addedDuringSave.get());
+      assertEquals(301, compacting.size());
+      assertEquals("doc-300", compacting.search(sineVector(300), 1, 0).get(0).documentId());
+      assertTrue(compacting.dirtyVectors() > 0);
+
+      // The saved graphs stop before the vector of the last catch-up round, as after any add.
+      UsearchIndex reopened = new UsearchIndex(config());
+      reopened.open(file.toString());
+      try {
+        assertEquals(300, reopened.size());
+        assertEquals(0, reopened.tombstones());
+        assertEquals("doc-7", reopened.search(sineVector(7), 1, 0).get(0).documentId());
+      } finally {
+        reopened.close();
+      }
+    } finally {
+      compacting.close();
+    }
+  }
+
+  /** Re-adds documents {@code doc-<from>} to {@code doc-<from + count - 1>} far from the others. */
+  private static VectorBatch movedAway(int from, int count) {
+    VectorBatch batch = new VectorBatch(DIMENSION);
+    for (int i = 0; i < count; i++) {
+      int offset = batch.append(i, 0);
+      batch.vectors()[offset] = -1;
+      batch.identify(i, "doc-" + (from + i));
+    }
+    return batch;
+  }
+
+  /** Vectors {@code from} to {@code from + count} of documents {@code doc-<i>}. */
+  private static VectorBatch sineBatch(int from, int count) {
+    VectorBatch batch = new VectorBatch(DIMENSION);
+    for (int i = 0; i < count; i++) {
+      int offset = batch.append(i, 0);
+      System.arraycopy(sineVector(from + i), 0, batch.vectors(), offset, DIMENSION);
+      batch.identify(i, "doc-" + (from + i));
+    }
+    return batch;
+  }
+
+  private static float[] sineVector(int i) {
+    float[] vector = new float[DIMENSION];
+    for (int d = 0; d < DIMENSION; d++) {
+      vector[d] = (float) Math.sin(i * 0.37 + d);
+    }
+    return vector;
+  }
+
+  /** Creates an index at {@code file} that runs {@code duringSave} while its first save runs. */
+  private static UsearchIndex indexSaving(
+      NexoConfig.VectorIndexConfig config, Path file, Consumer<UsearchIndex> duringSave) {
+    AtomicBoolean saved = new AtomicBoolean();
+    UsearchIndex created =
+        new UsearchIndex(config) {
+          @Override
+          void save(Index[] current) {
+            if (!saved.getAndSet(true)) {
+              duringSave.accept(this);
+            }
+            super.save(current);
+          }
+        };
+    assertTrue(created.createIndex(file.toString()));
+    return created;
+  }
+}
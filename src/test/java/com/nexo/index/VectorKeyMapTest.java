@@ -0,0 +1,119 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.testutil.TempDirUtil;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class VectorKeyMapTest {
+
+  private Path tempDir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = TempDirUtil.createTempDir();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    TempDirUtil.deleteRecursively(tempDir);
+  }
+
+  @Test
+  void testResolvesKeysAndDocumentsAcrossReopen() {
+    VectorBatch batch = new VectorBatch(1);
+    int documents = 3000;
+    for (int d = 0; d < documents; d++) {
+      int from = batch.size();
+      batch.append(d, 0);
+      batch.append(d, 1);
+      batch.identify(from, "doc-" + d);
+    }
+    long[] keys = new long[batch.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i;
+    }
+
+    try (VectorKeyMap map = VectorKeyMap.open(tempDir)) {
+      map.put(keys, batch, batch.size());
+      assertMapped(map, documents);
+    }
+    try (VectorKeyMap map = VectorKeyMap.open(tempDir)) {
+      assertMapped(map, documents);
+      assertEquals(-1, map.ordinal(keys.length));
+      assertNull(map.documentId(-1));
+      assertNull(map.keysOf("missing"));
+    }
+  }
+
+  @Test
+  void testReaddedDocumentPointsAtLatestKeys() {
+    VectorBatch batch = new VectorBatch(1);
+    batch.append(0, 0);
+    batch.identify(0, "doc");
+    try (VectorKeyMap map = VectorKeyMap.open(tempDir)) {
+      map.put(new long[] {0}, batch, 1);
+      map.put(new long[] {5}, batch, 1);
+
+      assertArrayEquals(new long[] {5, 1}, map.keysOf("doc"));
+      assertEquals(1, map.documentCount());
+      assertEquals(6, map.size());
+      assertNull(map.documentId(0));
+      assertTrue(map.isTombstone(0));
+      assertEquals(1, map.tombstones());
+      assertEquals(-1, map.ordinal(3));
+      assertFalse(map.isTombstone(3));
+    }
+  }
+
+  @Test
+  void testReplacedKeysStayTombstonedUntilForgotten() {
+    VectorBatch batch = new VectorBatch(1);
+    batch.append(0, 0);
+    batch.append(0, 1);
+    batch.identify(0, "a");
+    batch.append(1, 0);
+    batch.identify(2, "b");
+    try (VectorKeyMap map = VectorKeyMap.open(tempDir)) {
+      map.put(new long[] {0, 1, 2}, batch, 3);
+      VectorBatch readded = new VectorBatch(1);
+      readded.append(0, 0);
+      readded.identify(0, "a");
+      map.put(new long[] {3}, readded, 1);
+
+      assertArrayEquals(new long[] {3, 1}, map.keysOf("a"));
+    }
+    try (VectorKeyMap map = VectorKeyMap.open(tempDir)) {
+      assertEquals(2, map.tombstones());
+      assertEquals(-1, map.ordinal(1));
+      assertEquals("b", map.documentId(2));
+
+      map.forget(new long[] {0, 1}, 2);
+
+      assertEquals(0, map.tombstones());
+      assertFalse(map.isTombstone(0));
+      assertEquals("b", map.documentId(2));
+
+      map.forget(new long[] {2, 7}, 2);
+
+      assertNull(map.documentId(2));
+      assertEquals("a", map.documentId(3));
+      assertEquals(4, map.size());
+    }
+  }
+
+  private static void assertMapped(VectorKeyMap map, int documents) {
+    assertEquals(2L * documents, map.size());
+    assertEquals(documents, map.documentCount());
+    for (int d = 0; d < documents; d += 97) {
+      assertEquals("doc-" + d, map.documentId(2L * d + 1));
+      assertEquals(1, map.chunkIndex(2L * d + 1));
+      assertEquals(map.ordinal(2L * d), map.ordinal(2L * d + 1));
+      assertArrayEquals(new long[] {2L * d, 2}, map.keysOf("doc-" + d));
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class VectorSnapshotSchedulerTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  void testSnapshotsAfterMaxDirtyVectors() {
+    VectorSnapshotScheduler scheduler = scheduler(new SnapshotPolicy(100, 0));
+    FakeIndex index = new FakeIndex();
+    scheduler.register("docs", index);
+
+    index.dirty = 99;
+    assertEquals(0, scheduler.runOnce());
+    index.dirty = 100;
+
+    assertEquals(1, scheduler.runOnce());
+    assertEquals(0, index.dirty);
+    assertEquals(
+        1, registry.get("nexo.vector.snapshot.latency").tag("trigger", "vectors").timer().count());
+  }
+
+  @Test
+  void testSnapshotsAfterIntervalOnlyWhenDirty() {
+    VectorSnapshotScheduler scheduler = scheduler(new SnapshotPolicy(0, 1000));
+    FakeIndex index = new FakeIndex();
+    scheduler.register("docs", index);
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+    assertEquals(0, scheduler.runOnce());
+
+    index.dirty = 1;
+    assertEquals(1, scheduler.runOnce());
+    index.dirty = 1;
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+    assertEquals(0, scheduler.runOnce());
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    assertEquals(1, scheduler.runOnce());
+    assertEquals(250, scheduler.tickMillis());
+  }
+
+  @Test
+  void testFailedSnapshotDoesNotStopOthers() {
+    VectorSnapshotScheduler scheduler = scheduler(new SnapshotPolicy(1, 0));
+    FakeIndex failing = new FakeIndex();
+    failing.failing = true;
+    failing.dirty = 1;
+    FakeIndex healthy = new FakeIndex();
+    healthy.dirty = 1;
+    scheduler.register("a", failing);
+    scheduler.register("b", healthy);
+
+    assertEquals(1, scheduler.runOnce());
+    assertEquals(1, failing.dirty);
+    assertEquals(0, healthy.dirty);
+
+    scheduler.unregister("a");
+    assertEquals(0, scheduler.runOnce());
+  }
+
+  @Test
+  void testCompactsIndexesThatNeedIt() {
+    VectorSnapshotScheduler scheduler = scheduler(new SnapshotPolicy(0, 0));
+    FakeIndex index = new FakeIndex();
+    scheduler.register("docs", index);
+
+    assertEquals(0, scheduler.runOnce());
+    assertEquals(0, index.compactions);
+    index.tombstoned = true;
+
+    scheduler.runOnce();
+
+    assertEquals(1, index.compactions);
+    assertFalse(index.tombstoned);
+    assertEquals(
+        1,
+        registry.get("nexo.vector.compaction.latency").tag("collection", "docs").timer().count());
+  }
+
+  private VectorSnapshotScheduler scheduler(SnapshotPolicy policy) {
+    return new VectorSnapshotScheduler(policy, now::get, registry);
+  }
+
+  private final class FakeIndex implements VectorSnapshotScheduler.Snapshottable {
+    private long dirty;
+    private long lastSnapshot = now.get();
+    private boolean failing;
+    private boolean tombstoned;
+    private int compactions;
+
+    @Override
+    public long dirtyVectors() {
+      return dirty;
+    }
+
+    @Override
+    public long lastSnapshotNanos() {
+      return lastSnapshot;
+    }
+
+    @Override
+    public boolean snapshot() {
+      if (failing) {
+        throw new IllegalStateException("disk full");
+      }
+      dirty = 0;
+      lastSnapshot = now.get();
+      return true;
+    }
+
+    @Override
+    public boolean needsCompaction() {
+      return tombstoned;
+    }
+
+    @Override
+    public boolean compact() {
+      tombstoned = false;
+      compactions++;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.testutil.TempDirUtil;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WriteAheadLogTest {
+
+  private Path tempDir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = TempDirUtil.createTempDir();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    TempDirUtil.deleteRecursively(tempDir);
+  }
+
+  @Test
+  void testAppendedBatchesAreReplayedAfterReopen() throws IOException {
+    try (WriteAheadLog wal = WriteAheadLog.open(tempDir)) {
+      wal.awaitDurable(wal.append(batch("{\"a\":1}", "{\"a\":2}")));
+      wal.awaitDurable(wal.append(batch("{\"a\":3}")));
+    }
+
+    List<String> replayed = new ArrayList<>();
+    try (WriteAheadLog wal = WriteAheadLog.open(tempDir)) {
+      long documents = wal.replay(batch -> replayed.add(contents(batch)));
+
+      assertEquals(3, documents);
+      assertEquals(List.of("{\"a\":1}\n{\"a\":2}\n", "{\"a\":3}\n"), replayed);
+    }
+  }
+
+  @Test
+  void testTornTailIsDiscarded() throws IOException {
+    try (WriteAheadLog wal = WriteAheadLog.open(tempDir)) {
+      wal.awaitDurable(wal.append(batch("{\"a\":1}")));
+    }
+    Path file = tempDir.resolve(WriteAheadLog.FILE_NAME);
+    long intact = Files.size(file);
+    Files.write(file, new byte[] {0, 0, 0, 42, 0}, StandardOpenOption.APPEND);
+
+    try (WriteAheadLog wal = WriteAheadLog.open(tempDir)) {
+      assertEquals(1, wal.replay(batch -> {}));
+      assertEquals(intact, wal.sizeInBytes());
+    }
+  }
+
+  @Test
+  void testTruncateMarksPendingRecordsDurable() throws IOException {
+    try (WriteAheadLog wal = WriteAheadLog.open(tempDir)) {
+      long sequence = wal.append(batch("{\"a\":1}"));
+      wal.truncate();
+      wal.awaitDurable(sequence);
+
+      assertEquals(0, wal.sizeInBytes());
+      assertEquals(0, wal.replay(batch -> fail("Nothing should be replayed")));
+    }
+  }
+
+  @Test
+  void testReplayPreservesRowFormat() throws IOException {
+    try (WriteAheadLog wal = WriteAheadLog.open(tempDir);
+        NativeBatchBuffer rows = NativeBatchBuffer.acquire(NativeBatchBuffer.Format.ROWS)) {
+      rows.put(new byte[] {1, 2, 3}, 0, 3);
+      rows.endDocument();
+      wal.append(rows);
+
+      List<NativeBatchBuffer.Format> formats = new ArrayList<>();
+      long replayed = wal.replay(batch -> formats.add(batch.format()));
+
+      assertEquals(1, replayed);
+      assertEquals(List.of(NativeBatchBuffer.Format.ROWS), formats);
+    }
+  }
+
+  private static NativeBatchBuffer batch(String... documents) throws IOException {
+    NativeBatchBuffer batch = NativeBatchBuffer.acquire();
+    for (String document : documents) {
+      batch.asOutputStream().write(document.getBytes(StandardCharsets.UTF_8));
+      batch.endDocument();
+    }
+    return batch;
+  }
+
+  private static String contents(NativeBatchBuffer batch) {
+    byte[] bytes = new byte[batch.size()];
+    batch.buffer().duplicate().flip().get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,41 @@
+package com.nexo.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class WriterBudgetTest {
+
+  @Test
+  void testThreadsAreReducedToKeepMinimumArenaPerThread() {
+    WriterBudget budget = WriterBudget.of(50_000_000L, 8);
+
+    assertEquals(50_000_000L, budget.heapSize());
+    assertEquals(3, budget.threads());
+  }
+
+  @Test
+  void testHeapBelowMinimumIsRaised() {
+    WriterBudget budget = WriterBudget.of(1_000_000L, 4);
+
+    assertEquals(WriterBudget.MIN_HEAP_PER_THREAD, budget.heapSize());
+    assertEquals(1, budget.threads());
+  }
+
+  @Test
+  void testThreadAndHeapUpperBounds() {
+    WriterBudget budget = WriterBudget.of(Long.MAX_VALUE, 64);
+
+    assertEquals(WriterBudget.MAX_THREADS, budget.threads());
+    assertEquals(WriterBudget.MAX_HEAP_PER_THREAD * WriterBudget.MAX_THREADS, budget.heapSize());
+  }
+
+  @Test
+  void testAutomaticThreadCount() {
+    WriterBudget budget = WriterBudget.of(1_000_000_000L, 0);
+
+    assertEquals(
+        Math.min(Runtime.getRuntime().availableProcessors(), WriterBudget.MAX_THREADS),
+        budget.threads());
+  }
+}
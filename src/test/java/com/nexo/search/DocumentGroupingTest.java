@@ -0,0 +1,79 @@
+package com.nexo.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.enums.ChunkAggregate;
+import com.nexo.index.VectorHit;
+import com.nexo.index.VectorMetric;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DocumentGroupingTest {
+
+  @Test
+  void testFetchesMoreChunksUntilKDocumentsAreFound() {
+    // Four chunks per document, nearest documents first.
+    List<VectorHit> index = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      index.add(new VectorHit(i, "d" + i / 4, i % 4, i * 0.01f));
+    }
+    List<Integer> rounds = new ArrayList<>();
+
+    List<DocumentHit> documents =
+        DocumentGrouping.search(
+            n -> {
+              rounds.add(n);
+              return index.subList(0, Math.min(n, index.size()));
+            },
+            3,
+            index.size(),
+            ChunkAggregate.MAX,
+            VectorMetric.COS);
+
+    assertEquals(List.of(3, 12), rounds);
+    assertEquals(
+        List.of("d0", "d1", "d2"), documents.stream().map(DocumentHit::documentId).toList());
+    assertEquals(4, documents.get(1).chunks().size());
+    assertEquals(0.04f, documents.get(1).distance(), 1e-6f);
+    assertEquals(0.96f, documents.get(1).score(), 1e-6f);
+  }
+
+  @Test
+  void testStopsWhenTheIndexRunsOutOfChunks() {
+    List<VectorHit> index = List.of(new VectorHit(0, "a", 0, 0.1f), new VectorHit(1, "a", 1, 0.2f));
+    List<Integer> rounds = new ArrayList<>();
+
+    List<DocumentHit> documents =
+        DocumentGrouping.search(
+            n -> {
+              rounds.add(n);
+              return index.subList(0, Math.min(n, index.size()));
+            },
+            5,
+            index.size(),
+            ChunkAggregate.MAX,
+            VectorMetric.L2SQ);
+
+    assertEquals(List.of(5), rounds);
+    assertEquals(1, documents.size());
+    assertEquals(1 / 1.1f, documents.get(0).score(), 1e-6f);
+  }
+
+  @Test
+  void testSumRanksDocumentsWithManyCloseChunksFirst() {
+    List<VectorHit> hits =
+        List.of(
+            new VectorHit(0, "a", 0, 0.1f),
+            new VectorHit(1, "b", 0, 0.2f),
+            new VectorHit(2, "b", 1, 0.25f),
+            new VectorHit(3, "c", 0, 0.3f));
+
+    List<DocumentHit> documents =
+        DocumentGrouping.search(n -> hits, 2, hits.size(), ChunkAggregate.SUM, VectorMetric.COS);
+
+    assertEquals(List.of("b", "a"), documents.stream().map(DocumentHit::documentId).toList());
+    assertEquals(1.55f, documents.get(0).score(), 1e-6f);
+    assertEquals(0.2f, documents.get(0).distance());
+  }
+}
@@ -0,0 +1,52 @@
+package com.nexo.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nexo.enums.FusionMethod;
+import com.nexo.index.KeywordHit;
+import com.nexo.index.VectorHit;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RankFusionTest {
+
+  private static final List<KeywordHit> KEYWORD =
+      List.of(new KeywordHit("a", 9f), new KeywordHit("b", 5f), new KeywordHit("c", 1f));
+
+  private static final List<VectorHit> VECTOR =
+      List.of(
+          new VectorHit(0, "c", 2, 0.1f),
+          new VectorHit(1, "c", 0, 0.2f),
+          new VectorHit(2, "b", 1, 0.3f),
+          new VectorHit(3, "d", 0, 0.9f));
+
+  @Test
+  void testRrfRanksDocumentsFoundByBothLegsFirst() {
+    List<HybridHit> hits = RankFusion.fuse(KEYWORD, VECTOR, FusionMethod.RRF, 10, 60, 0.5f);
+
+    assertEquals(List.of("c", "b", "a", "d"), hits.stream().map(HybridHit::documentId).toList());
+    HybridHit c = hits.get(0);
+    assertEquals(2, c.chunkIndex());
+    assertEquals(0.1f, c.distance());
+    assertEquals(1f, c.keywordScore());
+    assertEquals(0.5 / 63 + 0.5 / 61, c.score(), 1e-9);
+    assertNull(hits.get(3).keywordScore());
+  }
+
+  @Test
+  void testWeightedBlendsNormalizedScores() {
+    List<HybridHit> hits = RankFusion.fuse(KEYWORD, VECTOR, FusionMethod.WEIGHTED, 2, 60, 0.25f);
+
+    assertEquals(List.of("a", "b"), hits.stream().map(HybridHit::documentId).toList());
+    assertEquals(0.75, hits.get(0).score(), 1e-6);
+    assertEquals(0.5 * 0.75 + 0.75 * 0.25, hits.get(1).score(), 1e-6);
+  }
+
+  @Test
+  void testSingleLegKeepsItsOrder() {
+    List<HybridHit> hits = RankFusion.fuse(KEYWORD, List.of(), FusionMethod.RRF, 2, 60, 0.5f);
+
+    assertEquals(List.of("a", "b"), hits.stream().map(HybridHit::documentId).toList());
+    assertNull(hits.get(0).distance());
+  }
+}
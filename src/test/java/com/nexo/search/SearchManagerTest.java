@@ -0,0 +1,339 @@
+package com.nexo.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.nexo.collection.Collection;
+import com.nexo.collection.CollectionMetadata;
+import com.nexo.config.NexoConfig;
+import com.nexo.enums.ChunkAggregate;
+import com.nexo.exception.ErrorType;
+import com.nexo.exception.NexoException;
+import com.nexo.index.FilterMatches;
+import com.nexo.index.KeywordHit;
+import com.nexo.index.UsearchIndex;
+import com.nexo.index.VectorHit;
+import com.nexo.index.VectorMetric;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchManagerTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private UsearchIndex index;
+  private SearchManager.KeywordSearch keyword;
+  private SearchManager.KeywordFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    index = mock(UsearchIndex.class);
+    when(index.dimensions()).thenReturn(2);
+    keyword = mock(SearchManager.KeywordSearch.class);
+    filter = mock(SearchManager.KeywordFilter.class);
+  }
+
+  @Test
+  void testKnnReturnsHitsAndRecordsLatency() {
+    when(index.search(any(), eq(3), eq(50))).thenReturn(List.of(new VectorHit(7, "a", 0, 0.1f)));
+    SearchManager manager = manager(Runnable::run);
+
+    KnnResult result = manager.knn(new float[] {1, 0}, 3, 50, 1000).join();
+
+    assertEquals("a", result.getHits().get(0).documentId());
+    assertEquals(1, registry.get("nexo.search.latency").tag("outcome", "success").timer().count());
+  }
+
+  @Test
+  void testKnnDocumentsGroupsChunksByDocument() {
+    when(index.size()).thenReturn(100L);
+    when(index.metric()).thenReturn(VectorMetric.COS);
+    when(index.search(any(), eq(2), eq(0)))
+        .thenReturn(List.of(new VectorHit(0, "a", 0, 0.1f), new VectorHit(1, "a", 1, 0.2f)));
+    when(index.search(any(), eq(5), eq(0)))
+        .thenReturn(
+            List.of(
+                new VectorHit(0, "a", 0, 0.1f),
+                new VectorHit(1, "a", 1, 0.2f),
+                new VectorHit(2, "b", 0, 0.3f),
+                new VectorHit(3, "a", 2, 0.4f)));
+    SearchManager manager = manager(Runnable::run);
+
+    KnnResult result =
+        manager.knnDocuments(new float[] {1, 0}, 2, 0, null, ChunkAggregate.MAX, 1000).join();
+
+    assertNull(result.getHits());
+    assertEquals(
+        List.of("a", "b"), result.getDocuments().stream().map(DocumentHit::documentId).toList());
+    assertEquals(3, result.getDocuments().get(0).chunks().size());
+  }
+
+  @Test
+  void testKnnSearchesTheIndexOfTheRequestedField() {
+    UsearchIndex content = mock(UsearchIndex.class);
+    when(content.dimensions()).thenReturn(2);
+    when(content.search(any(), eq(3), eq(0))).thenReturn(List.of(new VectorHit(4, "c", 1, 0.2f)));
+    Collection collection = collection(index, content);
+    SearchManager manager =
+        new SearchManager(
+            "docs", keyword, filter, collection.getVectorIndex("content"), Runnable::run, registry);
+
+    KnnResult result = manager.knn(new float[] {1, 0}, 3, 0, 1000).join();
+
+    assertEquals("c", result.getHits().get(0).documentId());
+    verify(index, never()).search(any(), anyInt(), anyInt());
+    assertSame(index, collection.getVectorIndex(null));
+  }
+
+  @Test
+  void testKnnOfAnUnknownFieldIsRejected() {
+    Collection collection = collection(index, mock(UsearchIndex.class));
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> collection.getVectorIndex("summary"));
+    assertTrue(e.getMessage().contains("summary"));
+  }
+
+  @Test
+  void testKnnTimesOut() {
+    SearchManager manager = manager(task -> {});
+
+    CompletionException e =
+        assertThrows(
+            CompletionException.class, () -> manager.knn(new float[] {1, 0}, 3, 0, 10).join());
+
+    assertEquals(ErrorType.GATEWAY_TIMEOUT, ((NexoException) e.getCause()).getErrorType());
+    assertEquals(1, registry.get("nexo.search.latency").tag("outcome", "timeout").timer().count());
+  }
+
+  @Test
+  void testKnnRejectsWrongDimension() {
+    SearchManager manager = manager(Runnable::run);
+
+    NexoException e =
+        assertThrows(NexoException.class, () -> manager.knn(new float[] {1, 0, 0}, 3, 0, 10));
+
+    assertEquals(ErrorType.BAD_REQUEST, e.getErrorType());
+  }
+
+  @Test
+  void testKnnRejectsOversizedK() {
+    SearchManager manager = manager(Runnable::run);
+    int maxK = NexoConfig.getInstance().getMaxK();
+
+    NexoException k =
+        assertThrows(NexoException.class, () -> manager.knn(new float[] {1, 0}, maxK + 1, 0, 10));
+    NexoException expansion =
+        assertThrows(
+            NexoException.class, () -> manager.knn(new float[] {1, 0}, 3, Integer.MAX_VALUE, 10));
+
+    assertEquals(ErrorType.BAD_REQUEST, k.getErrorType());
+    assertEquals(ErrorType.BAD_REQUEST, expansion.getErrorType());
+    verify(index, never()).search(any(), anyInt(), anyInt());
+  }
+
+  @Test
+  void testKnnIsUnavailableWhenThePoolRejectsIt() {
+    SearchManager manager =
+        manager(
+            task -> {
+              throw new RejectedExecutionException("queue full");
+            });
+
+    NexoException e =
+        assertThrows(NexoException.class, () -> manager.knn(new float[] {1, 0}, 3, 0, 10));
+
+    assertEquals(ErrorType.SERVICE_UNAVAILABLE, e.getErrorType());
+  }
+
+  @Test
+  void testSelectiveFilterScansMatchingDocuments() {
+    when(index.filterScanThreshold()).thenReturn(100);
+    when(filter.filter("tenant:acme", 100)).thenReturn(new FilterMatches(2, List.of("a", "b")));
+    when(index.scan(any(), eq(3), eq(List.of("a", "b"))))
+        .thenReturn(List.of(new VectorHit(4, "b", 0, 0.1f)));
+    SearchManager manager = manager(Runnable::run);
+
+    KnnResult result = manager.knn(new float[] {1, 0}, 3, 0, "tenant:acme", 1000).join();
+
+    assertEquals("b", result.getHits().get(0).documentId());
+    verify(index, never()).search(any(), anyInt(), anyInt());
+  }
+
+  @Test
+  void testBroadFilterRestrictsGraphSearch() {
+    when(index.filterScanThreshold()).thenReturn(100);
+    when(index.documentCount()).thenReturn(1000);
+    when(filter.filter("tenant:acme", 100)).thenReturn(new FilterMatches(500, null));
+    when(filter.matches("tenant:acme", new String[] {"a", "b"}))
+        .thenReturn(new boolean[] {false, true});
+    when(index.search(any(), eq(3), eq(0), eq(0.5), any()))
+        .thenAnswer(
+            call -> {
+              UsearchIndex.DocumentPredicate predicate = call.getArgument(4);
+              assertArrayEquals(
+                  new boolean[] {false, true}, predicate.test(new String[] {"a", "b"}));
+              return List.of(new VectorHit(4, "b", 0, 0.1f));
+            });
+    SearchManager manager = manager(Runnable::run);
+
+    KnnResult result = manager.knn(new float[] {1, 0}, 3, 0, "tenant:acme", 1000).join();
+
+    assertEquals("b", result.getHits().get(0).documentId());
+  }
+
+  @Test
+  void testBroadFilterTestsEachDocumentOnceAcrossRounds() {
+    when(index.size()).thenReturn(100L);
+    when(index.metric()).thenReturn(VectorMetric.COS);
+    when(index.filterScanThreshold()).thenReturn(100);
+    when(index.documentCount()).thenReturn(1000);
+    when(filter.filter("tenant:acme", 100)).thenReturn(new FilterMatches(500, null));
+    when(filter.matches(eq("tenant:acme"), any()))
+        .thenAnswer(
+            call -> {
+              String[] ids = call.getArgument(1);
+              boolean[] matches = new boolean[ids.length];
+              for (int i = 0; i < ids.length; i++) {
+                matches[i] = !ids[i].equals("b");
+              }
+              return matches;
+            });
+    when(index.search(any(), anyInt(), eq(0), eq(0.5), any()))
+        .thenAnswer(
+            call -> {
+              int k = call.getArgument(1);
+              UsearchIndex.DocumentPredicate predicate = call.getArgument(4);
+              if (k == 2) {
+                predicate.test(new String[] {"a", "b"});
+                return List.of(new VectorHit(0, "a", 0, 0.1f), new VectorHit(1, "a", 1, 0.2f));
+              }
+              predicate.test(new String[] {"a", "b", "c"});
+              return List.of(
+                  new VectorHit(0, "a", 0, 0.1f),
+                  new VectorHit(1, "a", 1, 0.2f),
+                  new VectorHit(2, "c", 0, 0.3f));
+            });
+    SearchManager manager = manager(Runnable::run);
+
+    KnnResult result =
+        manager
+            .knnDocuments(new float[] {1, 0}, 2, 0, "tenant:acme", ChunkAggregate.MAX, 1000)
+            .join();
+
+    assertEquals(
+        List.of("a", "c"), result.getDocuments().stream().map(DocumentHit::documentId).toList());
+    verify(index, times(2)).search(any(), anyInt(), eq(0), eq(0.5), any());
+    verify(filter).filter("tenant:acme", 100);
+    verify(filter).matches("tenant:acme", new String[] {"a", "b"});
+    verify(filter).matches("tenant:acme", new String[] {"c"});
+    verifyNoMoreInteractions(filter);
+  }
+
+  @Test
+  void testFilterWithoutMatchesReturnsNoHits() {
+    when(filter.filter(any(), anyInt())).thenReturn(new FilterMatches(0, List.of()));
+    SearchManager manager = manager(Runnable::run);
+
+    KnnResult result = manager.knn(new float[] {1, 0}, 3, 0, "tenant:none", 1000).join();
+
+    assertTrue(result.getHits().isEmpty());
+  }
+
+  @Test
+  void testHybridFusesBothLegs() {
+    when(keyword.search("title:nexo", 100)).thenReturn(List.of(new KeywordHit("a", 2f)));
+    when(index.search(any(), eq(100), eq(0)))
+        .thenReturn(List.of(new VectorHit(1, "b", 0, 0.2f), new VectorHit(0, "a", 1, 0.3f)));
+    SearchManager manager = manager(Runnable::run);
+
+    HybridResult result = manager.hybrid(hybridQuery().build()).join();
+
+    assertEquals("a", result.getHits().get(0).documentId());
+    assertEquals(2, result.getHits().size());
+    assertTrue(result.getDegraded().isEmpty());
+  }
+
+  @Test
+  void testHybridRejectsOversizedNumCandidates() {
+    SearchManager manager = manager(Runnable::run);
+    int maxK = NexoConfig.getInstance().getMaxK();
+
+    NexoException e =
+        assertThrows(
+            NexoException.class,
+            () -> manager.hybrid(hybridQuery().numCandidates(maxK + 1).build()));
+
+    assertEquals(ErrorType.BAD_REQUEST, e.getErrorType());
+    verifyNoInteractions(keyword);
+  }
+
+  @Test
+  void testHybridDegradesToVectorLegWhenKeywordLegFails() {
+    when(keyword.search(any(), anyInt())).thenThrow(new IllegalStateException("closed"));
+    when(index.search(any(), anyInt(), anyInt()))
+        .thenReturn(List.of(new VectorHit(1, "b", 0, 0.2f)));
+    SearchManager manager = manager(Runnable::run);
+
+    HybridResult result = manager.hybrid(hybridQuery().build()).join();
+
+    assertEquals(List.of("keyword"), result.getDegraded());
+    assertEquals("b", result.getHits().get(0).documentId());
+    assertEquals(1, registry.get("nexo.search.latency").tag("outcome", "degraded").timer().count());
+  }
+
+  @Test
+  void testHybridRejectsInvalidKeywordQuery() {
+    when(keyword.search(any(), anyInt())).thenThrow(new IllegalArgumentException("bad query"));
+    SearchManager manager = manager(Runnable::run);
+
+    CompletionException e =
+        assertThrows(CompletionException.class, () -> manager.hybrid(hybridQuery().build()).join());
+
+    assertEquals(ErrorType.BAD_REQUEST, ((NexoException) e.getCause()).getErrorType());
+  }
+
+  @Test
+  void testHybridTimesOutWhenBothLegsTimeOut() {
+    SearchManager manager = manager(task -> {});
+
+    CompletionException e =
+        assertThrows(
+            CompletionException.class,
+            () ->
+                manager
+                    .hybrid(hybridQuery().keywordTimeoutMs(10).vectorTimeoutMs(10).build())
+                    .join());
+
+    assertEquals(ErrorType.GATEWAY_TIMEOUT, ((NexoException) e.getCause()).getErrorType());
+  }
+
+  /** A collection with vector fields "title", the default, and "content". */
+  private static Collection collection(UsearchIndex title, UsearchIndex content) {
+    Map<String, UsearchIndex> indexes = new LinkedHashMap<>();
+    indexes.put("title", title);
+    indexes.put("content", content);
+    return new Collection(CollectionMetadata.builder().name("docs").build(), null, indexes, null);
+  }
+
+  private SearchManager manager(Executor executor) {
+    return new SearchManager("docs", keyword, filter, index, executor, registry);
+  }
+
+  private static HybridQuery.HybridQueryBuilder hybridQuery() {
+    return HybridQuery.builder()
+        .query("title:nexo")
+        .vector(new float[] {1, 0})
+        .k(5)
+        .numCandidates(100)
+        .keywordTimeoutMs(1000)
+        .vectorTimeoutMs(1000);
+  }
+}